@@ -0,0 +1,124 @@
+package com.learning.app.benchmark;
+
+import com.learning.app.category.model.Category;
+import com.learning.app.course.model.Course;
+import com.learning.app.course.model.CourseRating;
+import com.learning.app.review.model.Review;
+import com.learning.app.user.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * In-memory HSQLDB database seeded with a realistic volume of data for the repository benchmarks
+ */
+
+public final class BenchmarkDatabase
+{
+    public static final int CATEGORIES = 10;
+    public static final int COURSES = 200;
+    public static final int USERS = 1_000;
+    public static final int REVIEWS = 100_000;
+
+    //entities persisted per flush while seeding
+    private static final int SEED_BATCH_SIZE = 1_000;
+
+    private BenchmarkDatabase()
+    {
+    }
+
+    public static EntityManagerFactory createSeededEntityManagerFactory()
+    {
+        return createSeededEntityManagerFactory(Collections.emptyMap());
+    }
+
+    //properties override those of persistence.xml, to compare settings
+    public static EntityManagerFactory createSeededEntityManagerFactory(Map<String, String> properties)
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("benchmarkPersistenceUnit", properties);
+        EntityManager em = emf.createEntityManager();
+        try
+        {
+            em.getTransaction().begin();
+            seed(em);
+            em.getTransaction().commit();
+        } finally
+        {
+            em.close();
+        }
+        return emf;
+    }
+
+    private static void seed(EntityManager em)
+    {
+        //same data on every run, so that results can be compared
+        Random random = new Random(42);
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++)
+        {
+            Category category = new Category("Category " + i);
+            em.persist(category);
+            categories.add(category);
+        }
+
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++)
+        {
+            Course course = new Course("Course " + i, "http://courses.com/" + i);
+            course.setDescription("Learn the basics of subject " + i + " with practical exercises");
+            course.setCategory(categories.get(i % CATEGORIES));
+            em.persist(course);
+            CourseRating rating = new CourseRating(course);
+            em.persist(rating);
+            course.setRating(rating);
+            courses.add(course);
+        }
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++)
+        {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@test.com");
+            user.setPassword("password");
+            user.setCreatedAt(LocalDate.of(2015, 1, 1).plusDays(i % 365));
+            user.setRoles(Collections.singletonList(User.Role.STANDARD));
+            em.persist(user);
+            users.add(user);
+        }
+        em.flush();
+
+        List<Review> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < REVIEWS; i++)
+        {
+            Review review = new Review();
+            review.setRating(random.nextInt(CourseRating.MAX_RATING + 1));
+            review.setComment("Review " + i + " of a course, with a comment of a realistic length");
+            review.setCreatedAt(LocalDate.of(2015, 1, 1).plusDays(random.nextInt(365)));
+            review.setUser(users.get(random.nextInt(USERS)));
+            Course course = courses.get(random.nextInt(COURSES));
+            review.setCourse(course);
+            course.getRating().addRating(review.getRating());
+            em.persist(review);
+            batch.add(review);
+
+            //written reviews are detached, the courses, users and ratings they refer to stay managed
+            if (batch.size() == SEED_BATCH_SIZE)
+            {
+                em.flush();
+                batch.forEach(em::detach);
+                batch.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+}
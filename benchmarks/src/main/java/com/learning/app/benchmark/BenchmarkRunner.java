@@ -0,0 +1,33 @@
+package com.learning.app.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Runs the benchmarks with the JMH command line options
+ * Unless another result format is given, results are written to jmh-result.json,
+ * so that runs on different commits can be compared
+ */
+
+public final class BenchmarkRunner
+{
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkRunner()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf"))
+        {
+            options.addAll(Arrays.asList("-rf", "json", "-rff", RESULT_FILE));
+        }
+
+        Main.main(options.toArray(new String[options.size()]));
+    }
+}
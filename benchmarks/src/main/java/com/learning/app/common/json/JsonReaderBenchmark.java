@@ -0,0 +1,44 @@
+package com.learning.app.common.json;
+
+import com.google.gson.JsonObject;
+import com.learning.app.review.model.Review;
+import com.learning.app.review.resource.ReviewJsonConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Parsing of request bodies
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonReaderBenchmark
+{
+    private static final String REVIEW_JSON = "{\"rating\": 3, \"comment\": \"A review comment\", "
+            + "\"userId\": 1, \"courseId\": 1}";
+
+    private ReviewJsonConverter reviewJsonConverter;
+
+    @Setup
+    public void setUp()
+    {
+        reviewJsonConverter = new ReviewJsonConverter();
+    }
+
+    @Benchmark
+    public JsonObject readAsJsonObject()
+    {
+        return JsonReader.readAsJsonObject(REVIEW_JSON);
+    }
+
+    @Benchmark
+    public Review convertReviewFromJson()
+    {
+        return reviewJsonConverter.convertFrom(REVIEW_JSON);
+    }
+}
@@ -0,0 +1,40 @@
+package com.learning.app.common.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Password hashing, done on every authentication
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordEncryptionBenchmark
+{
+    private static final String PASSWORD = "aVeryLongPassword123";
+
+    private String passwordHash;
+
+    @Setup
+    public void setUp()
+    {
+        passwordHash = PasswordEncryption.encryptPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public String encryptPassword()
+    {
+        return PasswordEncryption.encryptPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches()
+    {
+        return PasswordEncryption.matches(PASSWORD, passwordHash);
+    }
+}
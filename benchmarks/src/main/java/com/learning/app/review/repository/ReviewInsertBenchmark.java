@@ -0,0 +1,90 @@
+package com.learning.app.review.repository;
+
+import com.learning.app.benchmark.BenchmarkDatabase;
+import com.learning.app.common.model.PooledSequenceGenerator;
+import com.learning.app.course.model.Course;
+import com.learning.app.course.model.CourseRating;
+import com.learning.app.review.model.Review;
+import com.learning.app.user.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Bulk insert of reviews with ReviewRepository.addAll, in one transaction
+ * An id allocation size of 1 needs a round trip per review to get its id, as IDENTITY columns did,
+ * and a JDBC batch size of 0 sends each insert on its own
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewInsertBenchmark
+{
+    private static final int REVIEWS_PER_OPERATION = 1_000;
+
+    @Param({"1", "50"})
+    public int idAllocationSize;
+
+    @Param({"0", "50"})
+    public int jdbcBatchSize;
+
+    private EntityManagerFactory emf;
+    private ReviewRepository reviewRepository;
+    private List<Long> userIds;
+    private List<Long> courseIds;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        //read by the id generators when the entity manager factory is created
+        System.setProperty(PooledSequenceGenerator.ALLOCATION_SIZE_PROPERTY, String.valueOf(idAllocationSize));
+        emf = BenchmarkDatabase.createSeededEntityManagerFactory(
+                Collections.singletonMap("hibernate.jdbc.batch_size", String.valueOf(jdbcBatchSize)));
+
+        reviewRepository = new ReviewRepository();
+        reviewRepository.em = emf.createEntityManager();
+        userIds = reviewRepository.em.createQuery("Select u.id From User u", Long.class).getResultList();
+        courseIds = reviewRepository.em.createQuery("Select c.id From Course c", Long.class).getResultList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        reviewRepository.em.close();
+        emf.close();
+        System.clearProperty(PooledSequenceGenerator.ALLOCATION_SIZE_PROPERTY);
+    }
+
+    @Benchmark
+    public List<Review> addAll()
+    {
+        EntityManager em = reviewRepository.em;
+        List<Review> reviews = new ArrayList<>(REVIEWS_PER_OPERATION);
+        for (int i = 0; i < REVIEWS_PER_OPERATION; i++)
+        {
+            Review review = new Review();
+            review.setRating(i % (CourseRating.MAX_RATING + 1));
+            review.setComment("Imported review " + i + " of a course, with a comment of a realistic length");
+            review.setCreatedAt(LocalDate.of(2016, 1, 1));
+            review.setUser(em.getReference(User.class, userIds.get(i % userIds.size())));
+            review.setCourse(em.getReference(Course.class, courseIds.get(i % courseIds.size())));
+            reviews.add(review);
+        }
+
+        em.getTransaction().begin();
+        reviewRepository.addAll(reviews);
+        em.getTransaction().commit();
+
+        return reviews;
+    }
+}
@@ -0,0 +1,106 @@
+package com.learning.app.review.repository;
+
+import com.learning.app.benchmark.BenchmarkDatabase;
+import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.common.model.filter.PaginationData.CountMode;
+import com.learning.app.common.model.filter.PaginationData.OrderMode;
+import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Paginated review queries against 100k reviews
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewRepositoryBenchmark
+{
+    private static final int PAGE_SIZE = 10;
+    private static final int DEEP_PAGE_FIRST_RESULT = BenchmarkDatabase.REVIEWS / 2;
+
+    private EntityManagerFactory emf;
+    private ReviewRepository reviewRepository;
+    private String deepPageCursor;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        emf = BenchmarkDatabase.createSeededEntityManagerFactory();
+        reviewRepository = new ReviewRepository();
+        reviewRepository.em = emf.createEntityManager();
+
+        //cursor of the page before the deep page, so that both deep page benchmarks read the same rows
+        deepPageCursor = reviewRepository.findByFilter(filter(DEEP_PAGE_FIRST_RESULT - PAGE_SIZE, null,
+                CountMode.NONE)).getNextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        reviewRepository.em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public PaginatedData<ReviewRow> firstPage()
+    {
+        return findByFilter(filter(0, null, CountMode.NONE));
+    }
+
+    @Benchmark
+    public PaginatedData<ReviewRow> firstPageWithExactCount()
+    {
+        return findByFilter(filter(0, null, CountMode.EXACT));
+    }
+
+    @Benchmark
+    public PaginatedData<ReviewRow> firstPageWithEstimatedCount()
+    {
+        return findByFilter(filter(0, null, CountMode.ESTIMATED));
+    }
+
+    @Benchmark
+    public PaginatedData<ReviewRow> deepPageWithOffset()
+    {
+        return findByFilter(filter(DEEP_PAGE_FIRST_RESULT, null, CountMode.NONE));
+    }
+
+    @Benchmark
+    public PaginatedData<ReviewRow> deepPageWithCursor()
+    {
+        return findByFilter(filter(0, deepPageCursor, CountMode.NONE));
+    }
+
+    @Benchmark
+    public PaginatedData<ReviewRow> firstPageOfCourse()
+    {
+        ReviewFilter reviewFilter = filter(0, null, CountMode.EXACT);
+        reviewFilter.setCourseId(1L);
+        return findByFilter(reviewFilter);
+    }
+
+    private PaginatedData<ReviewRow> findByFilter(ReviewFilter reviewFilter)
+    {
+        PaginatedData<ReviewRow> reviews = reviewRepository.findByFilter(reviewFilter);
+        //each request has its own persistence context
+        reviewRepository.em.clear();
+        return reviews;
+    }
+
+    private static ReviewFilter filter(int firstResult, String cursor, CountMode countMode)
+    {
+        ReviewFilter reviewFilter = new ReviewFilter();
+        reviewFilter.setPaginationData(new PaginationData(firstResult, PAGE_SIZE, "createdAt",
+                OrderMode.DESCENDING, cursor, countMode));
+        return reviewFilter;
+    }
+}
@@ -0,0 +1,51 @@
+package com.learning.app.review.resource;
+
+import com.learning.app.review.model.filter.ReviewFilter;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Extraction of the review filter from the query parameters of a list request
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewFilterExtractorBenchmark
+{
+    private UriInfo uriInfo;
+
+    @Setup
+    public void setUp()
+    {
+        MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+        queryParameters.putSingle("page", "3");
+        queryParameters.putSingle("per_page", "20");
+        queryParameters.putSingle("sort", "-createdAt");
+        queryParameters.putSingle("course_id", "12");
+
+        //only the query parameters are read from the uri info, as the JAX-RS runtime gives them
+        uriInfo = (UriInfo) Proxy.newProxyInstance(UriInfo.class.getClassLoader(), new Class<?>[]{UriInfo.class},
+                (proxy, method, args) -> {
+                    if ("getQueryParameters".equals(method.getName()))
+                    {
+                        return queryParameters;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public ReviewFilter getFilter()
+    {
+        return new ReviewFilterExtractorFromURL(uriInfo).getFilter();
+    }
+}
@@ -0,0 +1,86 @@
+package com.learning.app.review.resource;
+
+import com.learning.app.common.json.JsonWriter;
+import com.learning.app.course.model.Course;
+import com.learning.app.review.model.Review;
+import com.learning.app.review.model.projection.ReviewRow;
+import com.learning.app.user.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Review list serialization: building the Gson tree first, or streaming the rows to the writer
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewJsonConverterBenchmark
+{
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ReviewJsonConverter reviewJsonConverter;
+    private List<Review> reviews;
+    private List<ReviewRow> reviewRows;
+
+    @Setup
+    public void setUp()
+    {
+        reviewJsonConverter = new ReviewJsonConverter();
+        reviews = new ArrayList<>();
+        reviewRows = new ArrayList<>();
+
+        for (int i = 0; i < pageSize; i++)
+        {
+            User user = new User();
+            user.setId((long) i);
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@test.com");
+
+            Course course = new Course("Course " + i, "http://courses.com/" + i);
+            course.setId((long) i);
+
+            Review review = new Review();
+            review.setId(i);
+            review.setRating(i % 6);
+            review.setComment("Review " + i + " of a course, with a comment of a realistic length");
+            review.setCreatedAt(LocalDate.of(2015, 1, 1).plusDays(i));
+            review.setUser(user);
+            review.setCourse(course);
+
+            reviews.add(review);
+            reviewRows.add(new ReviewRow(review));
+        }
+    }
+
+    @Benchmark
+    public String convertToJsonElement()
+    {
+        return JsonWriter.writeToString(reviewJsonConverter.convertToJsonElement(reviews));
+    }
+
+    @Benchmark
+    public String writeRows() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        com.google.gson.stream.JsonWriter jsonWriter = JsonWriter.newStreamWriter(writer);
+        jsonWriter.beginArray();
+        for (ReviewRow reviewRow : reviewRows)
+        {
+            reviewJsonConverter.writeRowTo(jsonWriter, reviewRow);
+        }
+        jsonWriter.endArray();
+        jsonWriter.flush();
+        return writer.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.learning.app.review.resource;
+
+import com.learning.app.common.json.JsonUtils;
+import com.learning.app.common.json.ResponseFormat;
+import com.learning.app.common.model.PaginatedData;
+import com.learning.app.course.model.Course;
+import com.learning.app.review.model.Review;
+import com.learning.app.review.model.projection.ReviewRow;
+import com.learning.app.user.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A page of reviews written as the list response, in json and in CBOR
+ * The size of the response of each format is reported as the secondary result responseBytes
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewResponseFormatBenchmark
+{
+    @Param({"10", "100"})
+    private int pageSize;
+
+    @Param({"JSON", "CBOR"})
+    private ResponseFormat responseFormat;
+
+    private ReviewJsonConverter reviewJsonConverter;
+    private PaginatedData<ReviewRow> page;
+
+    @Setup
+    public void setUp()
+    {
+        reviewJsonConverter = new ReviewJsonConverter();
+        List<ReviewRow> reviewRows = new ArrayList<>();
+
+        for (int i = 0; i < pageSize; i++)
+        {
+            User user = new User();
+            user.setId((long) i);
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@test.com");
+
+            Course course = new Course("Course " + i, "http://courses.com/" + i);
+            course.setId((long) i);
+
+            Review review = new Review();
+            review.setId(i);
+            review.setRating(i % 6);
+            review.setComment("Review " + i + " of a course, with a comment of a realistic length");
+            review.setCreatedAt(LocalDate.of(2015, 1, 1).plusDays(i));
+            review.setUser(user);
+            review.setCourse(course);
+
+            reviewRows.add(new ReviewRow(review));
+        }
+        page = new PaginatedData<>(10_000, reviewRows);
+    }
+
+    @Benchmark
+    public byte[] writePage(ResponseSize responseSize)
+    {
+        byte[] body = JsonUtils.getBytesWithPagingAndEntries(page, reviewJsonConverter::writeRowTo, responseFormat);
+        responseSize.responseBytes = body.length;
+        return body;
+    }
+
+    //Counters are reset before each iteration, the size of the last response is reported as is
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize
+    {
+        public long responseBytes;
+    }
+}
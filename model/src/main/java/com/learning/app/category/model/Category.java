@@ -1,6 +1,11 @@
 package com.learning.app.category.model;
 
 
+import com.learning.app.common.model.PooledSequenceGenerator;
+import com.learning.app.common.model.VersionedEntity;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -8,14 +13,21 @@ import java.io.Serializable;
 
 @Entity
 @Table(name = "CATEGORY")
-public class Category implements Serializable
+//Categories rarely change, they are kept in the second-level cache
+@Cacheable
+public class Category implements Serializable, VersionedEntity
 {
     private static final long serialVersionUID = 4065323491380087970L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "CATEGORY_SEQ")
+    @GenericGenerator(name = "CATEGORY_SEQ", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "CATEGORY_SEQ"))
     private Long id;
 
+    @Version
+    private Long version;
+
     @NotNull
     @Size(min = 2, max = 30)
     @Column(unique = true)
@@ -40,6 +52,18 @@ public class Category implements Serializable
         this.id = id;
     }
 
+    @Override
+    public Long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version)
+    {
+        this.version = version;
+    }
+
     public String getName()
     {
         return name;
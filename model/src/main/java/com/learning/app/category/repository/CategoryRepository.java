@@ -2,12 +2,16 @@ package com.learning.app.category.repository;
 
 import com.learning.app.category.model.Category;
 import com.learning.app.common.repository.GenericRepository;
+import com.learning.app.common.repository.RepositoryTimingInterceptor;
 
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.List;
 
 @Stateless
+@Interceptors(RepositoryTimingInterceptor.class)
 public class CategoryRepository extends GenericRepository<Category>
 {
     @PersistenceContext
@@ -24,4 +28,14 @@ public class CategoryRepository extends GenericRepository<Category>
     {
         return em;
     }
+
+    //The result is kept in the query cache until a category is written
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Category> findAll()
+    {
+        return readFromReplica(() -> em.createQuery("Select e From Category e Order by e.id")
+                .setHint(QUERY_HINT_CACHEABLE, true)
+                .getResultList());
+    }
 }
@@ -3,7 +3,9 @@ package com.learning.app.category.service;
 import com.learning.app.category.model.Category;
 
 import javax.ejb.Local;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Local
 public interface CategoryService
@@ -14,6 +16,9 @@ public interface CategoryService
 
     Category findById(Long id);
 
+    //Categories of the given ids found with a single query, unknown ids are not in the map
+    Map<Long, Category> findByIds(Collection<Long> ids);
+
     List<Category> findAll();
 
     void deleteById(Long id);
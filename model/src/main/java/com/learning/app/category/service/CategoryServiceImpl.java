@@ -8,7 +8,9 @@ import com.learning.app.common.utils.DataValidation;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.validation.Validator;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Stateless
 public class CategoryServiceImpl implements CategoryService
@@ -53,6 +55,12 @@ public class CategoryServiceImpl implements CategoryService
         return category;
     }
 
+    @Override
+    public Map<Long, Category> findByIds(Collection<Long> ids)
+    {
+        return categoryRepository.findByIds(ids);
+    }
+
     @Override
     public List<Category> findAll()
     {
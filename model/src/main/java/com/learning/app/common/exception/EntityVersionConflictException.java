@@ -0,0 +1,9 @@
+package com.learning.app.common.exception;
+
+import javax.ejb.ApplicationException;
+
+//Thrown when an entity is updated from a version that was changed since it was read
+@ApplicationException(rollback = true)
+public class EntityVersionConflictException extends RuntimeException
+{
+}
@@ -0,0 +1,48 @@
+package com.learning.app.common.model;
+
+/*
+ * Result of one item of a batch: the added entity, or the exception explaining why it was not added
+ */
+
+public class BatchItemResult<T>
+{
+    private final T entity;
+    private final RuntimeException error;
+
+    private BatchItemResult(T entity, RuntimeException error)
+    {
+        this.entity = entity;
+        this.error = error;
+    }
+
+    public static <T> BatchItemResult<T> success(T entity)
+    {
+        return new BatchItemResult<>(entity, null);
+    }
+
+    public static <T> BatchItemResult<T> failure(RuntimeException error)
+    {
+        return new BatchItemResult<>(null, error);
+    }
+
+    public boolean isSuccess()
+    {
+        return error == null;
+    }
+
+    public T getEntity()
+    {
+        return entity;
+    }
+
+    public RuntimeException getError()
+    {
+        return error;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BatchItemResult [entity=" + entity + ", error=" + error + "]";
+    }
+}
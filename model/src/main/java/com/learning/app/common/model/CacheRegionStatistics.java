@@ -0,0 +1,61 @@
+package com.learning.app.common.model;
+
+/*
+ * Hit, miss and put counts of one region of the second-level cache, or of the query cache
+ */
+
+public class CacheRegionStatistics
+{
+    private final String region;
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+    //number of entries in memory, -1 if the cache provider does not tell
+    private final long elementCount;
+
+    public CacheRegionStatistics(String region, long hitCount, long missCount, long putCount, long elementCount)
+    {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.elementCount = elementCount;
+    }
+
+    public String getRegion()
+    {
+        return region;
+    }
+
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    public long getPutCount()
+    {
+        return putCount;
+    }
+
+    public long getElementCount()
+    {
+        return elementCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheRegionStatistics{" +
+                "region='" + region + '\'' +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", putCount=" + putCount +
+                ", elementCount=" + elementCount +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.learning.app.common.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+
+/*
+ * Version of all the rows of an entity class, named after the entity, and time of their last write
+ * It is increased after the commit of every write through the repositories (see EntityChangeTracker), so all
+ * the nodes of the application read the same version
+ */
+
+@Entity
+@Table(name = "COLLECTION_VERSION")
+public class CollectionVersion implements Serializable
+{
+    private static final long serialVersionUID = -6310448230752651906L;
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column
+    private long version;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "last_modified", nullable = false)
+    private Date lastModified;
+
+    public CollectionVersion()
+    {
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public Date getLastModified()
+    {
+        return lastModified;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CollectionVersion{" +
+                "name='" + name + '\'' +
+                ", version=" + version +
+                ", lastModified=" + lastModified +
+                '}';
+    }
+}
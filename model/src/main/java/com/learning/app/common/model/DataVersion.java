@@ -0,0 +1,35 @@
+package com.learning.app.common.model;
+
+/*
+ * Version of the data of one or more entity classes, it changes with every write to them
+ * The tag is read from the database, it is the same on every node of the application and across restarts
+ * lastModified is the time of the last write, or of the start of the persistence unit if there was none
+ */
+
+public class DataVersion
+{
+    private final String tag;
+    private final long lastModified;
+
+    public DataVersion(String tag, long lastModified)
+    {
+        this.tag = tag;
+        this.lastModified = lastModified;
+    }
+
+    public String getTag()
+    {
+        return tag;
+    }
+
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DataVersion [tag=" + tag + ", lastModified=" + lastModified + "]";
+    }
+}
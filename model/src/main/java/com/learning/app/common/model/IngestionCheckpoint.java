@@ -0,0 +1,60 @@
+package com.learning.app.common.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/*
+ * Sequence of the last record of an ingestion log written to the database
+ * It is saved in the transaction that writes the records, so a log replayed after a crash starts after it
+ */
+
+@Entity
+@Table(name = "INGESTION_CHECKPOINT")
+public class IngestionCheckpoint implements Serializable
+{
+    private static final long serialVersionUID = 4920417781032876915L;
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(name = "last_sequence")
+    private long lastSequence;
+
+    public IngestionCheckpoint()
+    {
+    }
+
+    public IngestionCheckpoint(String name, long lastSequence)
+    {
+        this.name = name;
+        this.lastSequence = lastSequence;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getLastSequence()
+    {
+        return lastSequence;
+    }
+
+    public void setLastSequence(long lastSequence)
+    {
+        this.lastSequence = lastSequence;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "IngestionCheckpoint{" +
+                "name='" + name + '\'' +
+                ", lastSequence=" + lastSequence +
+                '}';
+    }
+}
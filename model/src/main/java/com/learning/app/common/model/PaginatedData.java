@@ -1,5 +1,7 @@
 package com.learning.app.common.model;
 
+import com.learning.app.common.model.filter.PaginationData.CountMode;
+
 import java.util.List;
 
 /*
@@ -8,8 +10,14 @@ import java.util.List;
 
 public class PaginatedData<T>
 {
+    //number of rows when the count was skipped
+    public static final int UNKNOWN_NUMBER_OF_ROWS = -1;
+
     private int numberOfRows;
+    private CountMode countMode = CountMode.EXACT;
     private List<T> rows;
+    //cursor pointing after the last row, null if there is no next page
+    private String nextCursor;
 
     public PaginatedData(int numberOfRows, List<T> rows)
     {
@@ -17,16 +25,39 @@ public class PaginatedData<T>
         this.rows = rows;
     }
 
+    public PaginatedData(int numberOfRows, List<T> rows, String nextCursor)
+    {
+        this(numberOfRows, rows);
+        this.nextCursor = nextCursor;
+    }
+
+    public PaginatedData(int numberOfRows, CountMode countMode, List<T> rows, String nextCursor)
+    {
+        this(numberOfRows, rows, nextCursor);
+        this.countMode = countMode;
+    }
+
     public int getNumberOfRows()
     {
         return numberOfRows;
     }
 
+    //Tells if the number of rows is exact, a lower bound estimate, or unknown
+    public CountMode getCountMode()
+    {
+        return countMode;
+    }
+
     public List<T> getRows()
     {
         return rows;
     }
 
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
     public T getRow(final int index)
     {
         if (index >= rows.size())
@@ -39,6 +70,7 @@ public class PaginatedData<T>
     @Override
     public String toString()
     {
-        return "PaginatedData [numberOfRows=" + numberOfRows + ", rows=" + rows + "]";
+        return "PaginatedData [numberOfRows=" + numberOfRows + ", countMode=" + countMode + ", rows=" + rows
+                + ", nextCursor=" + nextCursor + "]";
     }
 }
@@ -0,0 +1,39 @@
+package com.learning.app.common.model;
+
+import org.hibernate.MappingException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/*
+ * Sequence id generator with the pooled-lo optimizer: each sequence value is the first of a block of ids
+ * given out in memory, so persisting an entity needs no round trip and inserts can be sent in JDBC batches
+ * The block size is read from the system property learning.app.idAllocationSize, it must be the increment
+ * of the sequences in the database (see db/migration), SchemaMigrator checks it when the application starts
+ */
+
+public class PooledSequenceGenerator extends SequenceStyleGenerator
+{
+    public static final String STRATEGY = "com.learning.app.common.model.PooledSequenceGenerator";
+    public static final String ALLOCATION_SIZE_PROPERTY = "learning.app.idAllocationSize";
+
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, Dialect dialect) throws MappingException
+    {
+        Properties pooledParams = new Properties();
+        pooledParams.putAll(params);
+        pooledParams.setProperty(INCREMENT_PARAM, String.valueOf(getAllocationSize()));
+        pooledParams.setProperty(OPT_PARAM, "pooled-lo");
+
+        super.configure(type, pooledParams, dialect);
+    }
+
+    public static int getAllocationSize()
+    {
+        return Integer.getInteger(ALLOCATION_SIZE_PROPERTY, DEFAULT_ALLOCATION_SIZE);
+    }
+}
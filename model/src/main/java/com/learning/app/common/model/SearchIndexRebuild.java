@@ -0,0 +1,59 @@
+package com.learning.app.common.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+
+/*
+ * Search index of an entity type still to be built, for rows written before the index existed
+ * The row is removed by the rebuild of the index (see SearchIndex), no row means the index is complete
+ */
+
+@Entity
+@Table(name = "SEARCH_INDEX_REBUILD")
+public class SearchIndexRebuild implements Serializable
+{
+    private static final long serialVersionUID = 2871920465417309153L;
+
+    @Id
+    @Column(name = "entity_type", length = 20)
+    private String entityType;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "requested_at", nullable = false)
+    private Date requestedAt;
+
+    public SearchIndexRebuild()
+    {
+    }
+
+    public SearchIndexRebuild(String entityType)
+    {
+        this.entityType = entityType;
+        this.requestedAt = new Date();
+    }
+
+    public String getEntityType()
+    {
+        return entityType;
+    }
+
+    public Date getRequestedAt()
+    {
+        return requestedAt;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SearchIndexRebuild{" +
+                "entityType='" + entityType + '\'' +
+                ", requestedAt=" + requestedAt +
+                '}';
+    }
+}
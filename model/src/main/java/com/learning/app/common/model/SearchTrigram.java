@@ -0,0 +1,55 @@
+package com.learning.app.common.model;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/*
+ * One trigram of a searchable text field of an entity
+ * Searches look up the trigrams of the searched text instead of scanning the entity table with Like '%text%'
+ */
+
+@Entity
+@Table(name = "SEARCH_TRIGRAM", indexes = {
+        //used to find the trigrams of an entity when it is written
+        @Index(name = "IDX_SEARCH_TRIGRAM_ENTITY", columnList = "entity_type, entity_id")
+})
+public class SearchTrigram implements Serializable
+{
+    private static final long serialVersionUID = -1880218541532520741L;
+
+    @EmbeddedId
+    private SearchTrigramId id;
+
+    //weight of the field in the ranking of search results
+    @Column
+    private int weight;
+
+    public SearchTrigram()
+    {
+    }
+
+    public SearchTrigram(SearchTrigramId id, int weight)
+    {
+        this.id = id;
+        this.weight = weight;
+    }
+
+    public SearchTrigramId getId()
+    {
+        return id;
+    }
+
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SearchTrigram{" +
+                "id=" + id +
+                ", weight=" + weight +
+                '}';
+    }
+}
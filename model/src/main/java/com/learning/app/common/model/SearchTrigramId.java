@@ -0,0 +1,91 @@
+package com.learning.app.common.model;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.Objects;
+
+/*
+ * Key of a search trigram, ordered so that the primary key index serves the lookups by trigram
+ */
+
+@Embeddable
+public class SearchTrigramId implements Serializable
+{
+    private static final long serialVersionUID = 4290872616125006351L;
+
+    @Column(name = "entity_type", length = 20)
+    private String entityType;
+
+    @Column(length = 20)
+    private String field;
+
+    @Column(length = 3)
+    private String trigram;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    public SearchTrigramId()
+    {
+    }
+
+    public SearchTrigramId(String entityType, String field, String trigram, Long entityId)
+    {
+        this.entityType = entityType;
+        this.field = field;
+        this.trigram = trigram;
+        this.entityId = entityId;
+    }
+
+    public String getEntityType()
+    {
+        return entityType;
+    }
+
+    public String getField()
+    {
+        return field;
+    }
+
+    public String getTrigram()
+    {
+        return trigram;
+    }
+
+    public Long getEntityId()
+    {
+        return entityId;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SearchTrigramId that = (SearchTrigramId) o;
+
+        return Objects.equals(entityType, that.entityType)
+                && Objects.equals(field, that.field)
+                && Objects.equals(trigram, that.trigram)
+                && Objects.equals(entityId, that.entityId);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(entityType, field, trigram, entityId);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SearchTrigramId{" +
+                "entityType='" + entityType + '\'' +
+                ", field='" + field + '\'' +
+                ", trigram='" + trigram + '\'' +
+                ", entityId=" + entityId +
+                '}';
+    }
+}
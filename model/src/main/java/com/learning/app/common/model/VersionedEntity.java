@@ -0,0 +1,13 @@
+package com.learning.app.common.model;
+
+/*
+ * Entity with an optimistic lock version, increased by every update of the entity
+ * An update with a version other than the current one fails with EntityVersionConflictException
+ */
+
+public interface VersionedEntity
+{
+    Long getVersion();
+
+    void setVersion(Long version);
+}
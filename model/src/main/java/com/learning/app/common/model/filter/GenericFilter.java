@@ -1,5 +1,7 @@
 package com.learning.app.common.model.filter;
 
+import java.util.Objects;
+
 /*
  * Parent class of filter classes
  * Enable filtering paginated data with pre-defined parameters
@@ -38,6 +40,26 @@ public class GenericFilter
         return hasPaginationData() && getPaginationData().getOrderField() != null;
     }
 
+    //Filters are equal if they select the same page of the same rows, so they can be used as cache keys
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        GenericFilter that = (GenericFilter) o;
+
+        return Objects.equals(paginationData, that.paginationData);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(paginationData);
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,80 @@
+package com.learning.app.common.model.filter;
+
+import com.learning.app.common.exception.FieldInvalidException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+ * Position of the last row of a page when paginating by sort key (keyset pagination)
+ * The cursor is handed out to clients as an opaque url safe String
+ */
+
+public class KeysetCursor
+{
+    private static final String SEPARATOR = "\n";
+
+    private final String sortField;
+    private final boolean ascending;
+    private final Long lastId;
+    private final String lastSortValue;
+
+    public KeysetCursor(String sortField, boolean ascending, Long lastId, String lastSortValue)
+    {
+        this.sortField = sortField;
+        this.ascending = ascending;
+        this.lastId = lastId;
+        this.lastSortValue = lastSortValue;
+    }
+
+    public static KeysetCursor decode(String cursor)
+    {
+        try
+        {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            //the sort value is the last part, so it can contain the separator
+            String[] parts = decoded.split(SEPARATOR, 4);
+            if (parts.length != 4)
+            {
+                throw new FieldInvalidException("cursor", "The cursor is not valid");
+            }
+            return new KeysetCursor(parts[0], Boolean.parseBoolean(parts[1]), Long.valueOf(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e)
+        {
+            throw new FieldInvalidException("cursor", "The cursor is not valid");
+        }
+    }
+
+    public String encode()
+    {
+        String raw = sortField + SEPARATOR + ascending + SEPARATOR + lastId + SEPARATOR + lastSortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSortField()
+    {
+        return sortField;
+    }
+
+    public boolean isAscending()
+    {
+        return ascending;
+    }
+
+    public Long getLastId()
+    {
+        return lastId;
+    }
+
+    public String getLastSortValue()
+    {
+        return lastSortValue;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "KeysetCursor [sortField=" + sortField + ", ascending=" + ascending + ", lastId=" + lastId
+                + ", lastSortValue=" + lastSortValue + "]";
+    }
+}
@@ -1,5 +1,7 @@
 package com.learning.app.common.model.filter;
 
+import java.util.Objects;
+
 /*
 * Class to set data related to pagination and ordering
 */
@@ -10,12 +12,21 @@ public class PaginationData
     private int maxResults;
     private String orderField;
     private OrderMode orderMode;
+    //opaque position of the last row of the previous page, used instead of firstResult when set
+    private String cursor;
+    private CountMode countMode = CountMode.EXACT;
 
     public enum OrderMode
     {
         ASCENDING, DESCENDING
     }
 
+    //How the total number of rows is computed: exactly, estimated with a bounded query, or not at all
+    public enum CountMode
+    {
+        EXACT, ESTIMATED, NONE
+    }
+
     public PaginationData(int firstResult, int maxResults, String orderField,
                           OrderMode orderMode)
     {
@@ -25,6 +36,20 @@ public class PaginationData
         this.orderMode = orderMode;
     }
 
+    public PaginationData(int firstResult, int maxResults, String orderField,
+                          OrderMode orderMode, String cursor)
+    {
+        this(firstResult, maxResults, orderField, orderMode);
+        this.cursor = cursor;
+    }
+
+    public PaginationData(int firstResult, int maxResults, String orderField,
+                          OrderMode orderMode, String cursor, CountMode countMode)
+    {
+        this(firstResult, maxResults, orderField, orderMode, cursor);
+        this.countMode = countMode;
+    }
+
     public int getFirstResult()
     {
         return firstResult;
@@ -45,15 +70,55 @@ public class PaginationData
         return orderMode;
     }
 
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    public boolean hasCursor()
+    {
+        return cursor != null;
+    }
+
+    public CountMode getCountMode()
+    {
+        return countMode;
+    }
+
     public boolean isAscending()
     {
         return OrderMode.ASCENDING.equals(orderMode);
     }
 
+    //Equal pagination data give the same page, firstResult is not part of it when there is a cursor
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        PaginationData that = (PaginationData) o;
+
+        return (hasCursor() || firstResult == that.firstResult)
+                && maxResults == that.maxResults
+                && Objects.equals(orderField, that.orderField)
+                && orderMode == that.orderMode
+                && Objects.equals(cursor, that.cursor)
+                && countMode == that.countMode;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(hasCursor() ? 0 : firstResult, maxResults, orderField, orderMode, cursor, countMode);
+    }
+
     @Override
     public String toString()
     {
         return "PaginationData [firstResult=" + firstResult + ", maxResults=" + maxResults + ", orderField="
-                + orderField + ", orderMode=" + orderMode + "]";
+                + orderField + ", orderMode=" + orderMode + ", cursor=" + cursor + ", countMode=" + countMode + "]";
     }
 }
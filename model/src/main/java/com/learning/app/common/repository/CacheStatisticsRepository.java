@@ -0,0 +1,72 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.common.model.CacheRegionStatistics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Reads the statistics of the second-level and query caches, and of the compiled shapes of the listing queries
+ * Counts are only collected when hibernate.generate_statistics is enabled
+ */
+
+@Stateless
+public class CacheStatisticsRepository
+{
+    public static final String QUERY_CACHE_REGION = "query";
+    //compiled shapes of the listing queries, a miss is a compilation (see QueryShapes)
+    public static final String QUERY_SHAPES_REGION = "query-shapes";
+
+    @PersistenceContext
+    EntityManager em;
+
+    public List<CacheRegionStatistics> findAll()
+    {
+        Statistics statistics = getStatistics();
+        List<CacheRegionStatistics> regionStatistics = new ArrayList<>();
+
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        for (String regionName : regionNames)
+        {
+            SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+            if (region != null)
+            {
+                regionStatistics.add(new CacheRegionStatistics(regionName, region.getHitCount(),
+                        region.getMissCount(), region.getPutCount(), region.getElementCountInMemory()));
+            }
+        }
+
+        regionStatistics.add(new CacheRegionStatistics(QUERY_CACHE_REGION, statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(), -1));
+
+        QueryShapes queryShapes = getQueryShapes();
+        regionStatistics.add(new CacheRegionStatistics(QUERY_SHAPES_REGION, queryShapes.getHitCount(),
+                queryShapes.getMissCount(), queryShapes.getMissCount(), queryShapes.getShapeCount()));
+
+        return regionStatistics;
+    }
+
+    public void clear()
+    {
+        getStatistics().clear();
+        getQueryShapes().clearStatistics();
+    }
+
+    private QueryShapes getQueryShapes()
+    {
+        return QueryShapes.forFactory(em.getEntityManagerFactory());
+    }
+
+    private Statistics getStatistics()
+    {
+        return em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,87 @@
+package com.learning.app.common.repository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Short lived cache of exact counts, keyed by entity, filter clause and parameters
+ * An entry is dropped when its time to live is over or when the entity was written since it was cached
+ * There is one cache per persistence unit (entity manager factory)
+ */
+
+public class CountCache
+{
+    private static final long TIME_TO_LIVE_MILLIS = 10_000;
+    private static final int MAX_ENTRIES = 1_000;
+
+    private static final Map<EntityManagerFactory, CountCache> CACHES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final EntityChangeTracker changeTracker;
+
+    private CountCache(EntityChangeTracker changeTracker)
+    {
+        this.changeTracker = changeTracker;
+    }
+
+    public static CountCache forFactory(EntityManagerFactory entityManagerFactory)
+    {
+        return CACHES.computeIfAbsent(entityManagerFactory,
+                factory -> new CountCache(EntityChangeTracker.forFactory(factory)));
+    }
+
+    //returns null if there is no valid count for the given query
+    public Integer get(Class<?> entityClass, String clause, Map<String, Object> queryParameters)
+    {
+        String key = getKey(entityClass, clause, queryParameters);
+        CachedCount cachedCount = counts.get(key);
+        if (cachedCount == null)
+        {
+            return null;
+        }
+        if (cachedCount.expiresAt < System.currentTimeMillis()
+                || cachedCount.entityVersion != changeTracker.getVersion(entityClass))
+        {
+            counts.remove(key);
+            return null;
+        }
+        return cachedCount.count;
+    }
+
+    //the entity version must be read before counting, so a write during the count invalidates the entry
+    public void put(Class<?> entityClass, String clause, Map<String, Object> queryParameters, int count,
+                    long entityVersion)
+    {
+        if (counts.size() >= MAX_ENTRIES)
+        {
+            counts.clear();
+        }
+        counts.put(getKey(entityClass, clause, queryParameters),
+                new CachedCount(count, entityVersion, System.currentTimeMillis() + TIME_TO_LIVE_MILLIS));
+    }
+
+    //parameters are sorted by name, so the same filter always gives the same key
+    private String getKey(Class<?> entityClass, String clause, Map<String, Object> queryParameters)
+    {
+        return entityClass.getName() + "|" + clause + "|" + new TreeMap<>(queryParameters);
+    }
+
+    private static class CachedCount
+    {
+        private final int count;
+        private final long entityVersion;
+        private final long expiresAt;
+
+        private CachedCount(int count, long entityVersion, long expiresAt)
+        {
+            this.count = count;
+            this.entityVersion = entityVersion;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.common.model.DataVersion;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+ * Reads the versions of the entity classes from the COLLECTION_VERSION rows, with a single query
+ * Every write through the repositories increases them after its commit, so all the nodes read the same version
+ */
+
+@Stateless
+public class DataVersionRepository
+{
+    @PersistenceContext
+    EntityManager em;
+
+    //Version of data read from all the given entity classes, e.g. rows with fields of joined entities
+    //An entity class without row has never been written, it is at version 0 since the start of the persistence unit
+    public DataVersion getDataVersion(Class<?>... entityClasses)
+    {
+        List<String> names = Arrays.stream(entityClasses).map(Class::getSimpleName).collect(Collectors.toList());
+        List<Object[]> rows = em.createQuery(
+                "Select v.name, v.version, v.lastModified From CollectionVersion v where v.name in :names",
+                Object[].class)
+                .setParameter("names", names)
+                .getResultList();
+        Map<String, Object[]> rowsByName = new HashMap<>();
+        rows.forEach(row -> rowsByName.put((String) row[0], row));
+
+        EntityChangeTracker changeTracker = EntityChangeTracker.forFactory(em.getEntityManagerFactory());
+        StringBuilder tag = new StringBuilder();
+        long dataLastModified = 0;
+        for (Class<?> entityClass : entityClasses)
+        {
+            Object[] row = rowsByName.get(entityClass.getSimpleName());
+            long version = row == null ? 0 : (Long) row[1];
+            long lastModified = row == null ? changeTracker.getLastModified(entityClass) : ((Date) row[2]).getTime();
+            tag.append(tag.length() == 0 ? "" : "-").append(Long.toHexString(version));
+            dataLastModified = Math.max(dataLastModified, lastModified);
+        }
+        return new DataVersion(tag.toString(), dataLastModified);
+    }
+}
@@ -0,0 +1,238 @@
+package com.learning.app.common.repository;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Keeps a version number per entity class that is increased on every write through the repositories
+ * Anything derived from the data of an entity class (e.g. cached counts) is valid as long as the version is unchanged
+ * There is one tracker per persistence unit (entity manager factory), its versions are only changed by the writes
+ * of this node
+ * The version shared by all nodes is the COLLECTION_VERSION row of the entity class (CollectionVersion), it is
+ * increased after the transaction of the write commits, in a short transaction of its own: the writes do not wait
+ * for each other on the row until they commit. The increases are written by one thread per tracker, the classes
+ * of all the transactions committed meanwhile with one update per class
+ */
+
+public class EntityChangeTracker
+{
+    private static final Map<EntityManagerFactory, EntityChangeTracker> TRACKERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final String INCREASE_VERSION_SQL =
+            "update COLLECTION_VERSION set version = version + 1, last_modified = ? where name = ?";
+    private static final String INSERT_VERSION_SQL =
+            "insert into COLLECTION_VERSION (name, version, last_modified) values (?, 1, ?)";
+
+    //a committed write waits for the increase of its versions, so that its client reads them at the next request
+    private static final long INCREASE_TIMEOUT_SECONDS = 5;
+    private static final long WRITER_KEEP_ALIVE_SECONDS = 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityChangeTracker.class);
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastModified = new ConcurrentHashMap<>();
+    //entity classes written by each open transaction
+    private final Map<Transaction, Set<Class<?>>> transactionChanges =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    //simple names of the entity classes committed since the last increase of the shared versions
+    private final Set<String> pendingIncreases = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor versionWriter = createVersionWriter();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long lastChange = startedAt;
+
+    public static EntityChangeTracker forFactory(EntityManagerFactory entityManagerFactory)
+    {
+        return TRACKERS.computeIfAbsent(entityManagerFactory, factory -> new EntityChangeTracker());
+    }
+
+    //the time is set first, so that a version is never read with the time of an older change
+    public void markChanged(Class<?> entityClass)
+    {
+        long now = System.currentTimeMillis();
+        lastModified.put(entityClass.getName(), now);
+        lastChange = now;
+        getCounter(entityClass).incrementAndGet();
+    }
+
+    //The class is marked now and again when the transaction completes: until the commit other transactions read the
+    //previous data, and what they derive from it must not be kept with the version of the committed data
+    //Its shared version is increased once per transaction, after the commit: a read between the commit and the
+    //increase gets the committed data with the previous version, which is only kept until the increase
+    public void markChanged(Session session, Class<?> entityClass)
+    {
+        markChanged(entityClass);
+
+        Transaction transaction = session.getTransaction();
+        Set<Class<?>> changedClasses = transactionChanges.get(transaction);
+        if (changedClasses == null)
+        {
+            ConnectionProvider connectionProvider = ((SessionFactoryImplementor) session.getSessionFactory())
+                    .getServiceRegistry().getService(ConnectionProvider.class);
+            Set<Class<?>> newChangedClasses = new TreeSet<>(Comparator.comparing(Class::getName));
+            transactionChanges.put(transaction, newChangedClasses);
+            transaction.registerSynchronization(new Synchronization()
+            {
+                @Override
+                public void beforeCompletion()
+                {
+                }
+
+                @Override
+                public void afterCompletion(int status)
+                {
+                    transactionChanges.remove(transaction);
+                    newChangedClasses.forEach(EntityChangeTracker.this::markChanged);
+                    if (status == Status.STATUS_COMMITTED)
+                    {
+                        increaseVersions(connectionProvider, newChangedClasses);
+                    }
+                }
+            });
+            changedClasses = newChangedClasses;
+        }
+        changedClasses.add(entityClass);
+    }
+
+    public long getVersion(Class<?> entityClass)
+    {
+        return getCounter(entityClass).get();
+    }
+
+    public long getLastModified(Class<?> entityClass)
+    {
+        return lastModified.getOrDefault(entityClass.getName(), startedAt);
+    }
+
+    //time of the last write to any entity class
+    public long getLastModified()
+    {
+        return lastChange;
+    }
+
+    private AtomicLong getCounter(Class<?> entityClass)
+    {
+        return versions.computeIfAbsent(entityClass.getName(), name -> new AtomicLong());
+    }
+
+    //The connection of the transaction is released, and inside JTA a connection cannot be enlisted in a completed
+    //transaction, so the versions are written by the thread of the tracker with a connection of its own
+    //An increase that failed is written with the next one
+    private void increaseVersions(ConnectionProvider connectionProvider, Set<Class<?>> entityClasses)
+    {
+        entityClasses.forEach(entityClass -> pendingIncreases.add(entityClass.getSimpleName()));
+        Future<Void> increase = versionWriter.submit(() -> {
+            writePendingIncreases(connectionProvider);
+            return null;
+        });
+        try
+        {
+            increase.get(INCREASE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e)
+        {
+            logger.warn("The versions of {} could not be increased yet", entityClasses, e);
+        }
+    }
+
+    private void writePendingIncreases(ConnectionProvider connectionProvider) throws SQLException
+    {
+        //sorted, so that the nodes lock the rows in the same order
+        Set<String> names = new TreeSet<>(pendingIncreases);
+        if (names.isEmpty())
+        {
+            return;
+        }
+        pendingIncreases.removeAll(names);
+
+        Connection connection = connectionProvider.getConnection();
+        try
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try
+            {
+                writeIncreases(connection, names);
+                connection.commit();
+            } catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            } finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | RuntimeException e)
+        {
+            pendingIncreases.addAll(names);
+            throw e;
+        } finally
+        {
+            connectionProvider.closeConnection(connection);
+        }
+    }
+
+    //The rows are created by the migrations, a missing one is created on the first write of its entity
+    private static void writeIncreases(Connection connection, Set<String> names) throws SQLException
+    {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement increase = connection.prepareStatement(INCREASE_VERSION_SQL))
+        {
+            for (String name : names)
+            {
+                increase.setTimestamp(1, now);
+                increase.setString(2, name);
+                if (increase.executeUpdate() == 0)
+                {
+                    try (PreparedStatement insert = connection.prepareStatement(INSERT_VERSION_SQL))
+                    {
+                        insert.setString(1, name);
+                        insert.setTimestamp(2, now);
+                        insert.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+
+    //the thread stops when it has nothing to write, the trackers of closed persistence units keep none
+    private static ThreadPoolExecutor createVersionWriter()
+    {
+        ThreadPoolExecutor versionWriter = new ThreadPoolExecutor(1, 1, WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "collection-version-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        versionWriter.allowCoreThreadTimeOut(true);
+        return versionWriter;
+    }
+}
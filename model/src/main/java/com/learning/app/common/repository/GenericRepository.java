@@ -1,12 +1,30 @@
 package com.learning.app.common.repository;
 
+import com.learning.app.common.exception.EntityVersionConflictException;
+import com.learning.app.common.exception.FieldInvalidException;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.model.VersionedEntity;
+import com.learning.app.common.model.filter.KeysetCursor;
 import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.common.model.filter.PaginationData.CountMode;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 
 import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.Query;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /*
  * Parent class of repository classes
@@ -14,6 +32,18 @@ import java.util.Map;
 
 public abstract class GenericRepository<T>
 {
+    //maximum number of rows counted for an estimated count
+    private static final int ESTIMATED_COUNT_LIMIT = 1000;
+
+    //hint to keep the result of a query in the query cache
+    protected static final String QUERY_HINT_CACHEABLE = "org.hibernate.cacheable";
+
+    //rows fetched per round trip while streaming, the persistence context is cleared after each batch
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    //entities added by addAll before they are flushed and detached,
+    //same as hibernate.jdbc.batch_size so that each flush sends full JDBC batches
+    private static final int INSERT_BATCH_SIZE = 50;
 
     protected abstract Class<T> getPersistentClass();
 
@@ -22,21 +52,76 @@ public abstract class GenericRepository<T>
     public T add(T entity)
     {
         getEntityManager().persist(entity);
+        markChanged();
         return entity;
     }
 
+    //Add the entities in the current transaction, the inserts are sent to the database in batches
+    //Added entities are detached, they have their id but further changes to them are not saved
+    //Only they are detached, the entities they refer to and the ones loaded before by the caller stay managed
+    public List<T> addAll(List<T> entities)
+    {
+        for (int i = 0; i < entities.size(); i++)
+        {
+            add(entities.get(i));
+            if ((i + 1) % INSERT_BATCH_SIZE == 0)
+            {
+                flushAndDetach(entities.subList(i + 1 - INSERT_BATCH_SIZE, i + 1));
+            }
+        }
+        flushAndDetach(entities.subList(entities.size() - entities.size() % INSERT_BATCH_SIZE, entities.size()));
+
+        return entities;
+    }
+
+    private void flushAndDetach(List<T> batch)
+    {
+        getEntityManager().flush();
+        batch.forEach(getEntityManager()::detach);
+    }
+
     public T findById(Long id)
     {
         if (id == null)
         {
             return null;
         }
-        return getEntityManager().find(getPersistentClass(), id);
+        return readFromReplica(() -> getEntityManager().find(getPersistentClass(), id));
+    }
+
+    //Find the entities of all the ids with a single query, ids without entity are not in the map
+    @SuppressWarnings("unchecked")
+    public Map<Long, T> findByIds(Collection<Long> ids)
+    {
+        Map<Long, T> entities = new HashMap<>();
+        if (ids.isEmpty())
+        {
+            return entities;
+        }
+
+        List<Object[]> rows = readFromReplica(() -> getEntityManager()
+                .createQuery("Select e.id, e From " + getPersistentClass().getSimpleName() + " e where e.id in :ids")
+                .setParameter("ids", ids)
+                .getResultList());
+        for (Object[] row : rows)
+        {
+            entities.put((Long) row[0], (T) row[1]);
+        }
+        return entities;
     }
 
+    //A versioned entity is updated from the version it has, or from the current one if it has none
+    //The update is flushed, so that a concurrent change is reported here and not when the transaction commits
     public void update(T entity)
     {
-        getEntityManager().merge(entity);
+        if (entity instanceof VersionedEntity)
+        {
+            updateVersioned((VersionedEntity) entity);
+        } else
+        {
+            getEntityManager().merge(entity);
+        }
+        markChanged();
     }
 
     public void delete(Long id)
@@ -44,18 +129,61 @@ public abstract class GenericRepository<T>
         getEntityManager().remove(
                 getEntityManager().find(getPersistentClass(), id)
         );
+        markChanged();
     }
 
     @SuppressWarnings("unchecked")
     public List<T> findAll()
     {
-        return getEntityManager().createQuery(
+        return readFromReplica(() -> getEntityManager().createQuery(
                 "Select e From " + getPersistentClass().getSimpleName() + " e Order by e.id")
-                .getResultList();
+                .getResultList());
+    }
+
+    //Pass every row to the consumer in id order, reading them with a forward only cursor
+    //Rows are read only and detached in batches, so memory use does not depend on the number of rows
+    //Returns the number of rows
+    public long streamAll(Consumer<T> consumer)
+    {
+        Session session = getEntityManager().unwrap(Session.class);
+        ScrollableResults results = session
+                .createQuery("Select e From " + getPersistentClass().getSimpleName() + " e "
+                        + getJoinClause(true) + " Order by e.id")
+                .setReadOnly(true)
+                .setFetchSize(STREAM_FETCH_SIZE)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+        long rows = 0;
+        try
+        {
+            while (results.next())
+            {
+                @SuppressWarnings("unchecked")
+                T entity = (T)results.get(0);
+                consumer.accept(entity);
+
+                if (++rows % STREAM_FETCH_SIZE == 0)
+                {
+                    session.clear();
+                }
+            }
+        } finally
+        {
+            results.close();
+        }
+        session.clear();
+
+        return rows;
     }
 
     public boolean idExists(Long id)
     {
+        //entities in the second-level cache exist, no need to ask the database
+        if (id != null && getEntityManager().getEntityManagerFactory().getCache().contains(getPersistentClass(), id))
+        {
+            return true;
+        }
         return getEntityManager()
                 .createQuery("Select 1 From " + getPersistentClass().getSimpleName() + " e where e.id = :id")
                 .setParameter("id", id)
@@ -64,65 +192,415 @@ public abstract class GenericRepository<T>
     }
 
     //query data set filtered by parameters and return paginated data
-    @SuppressWarnings("unchecked")
+    //if the pagination data contains a cursor, rows are searched after the cursor position (keyset pagination)
+    //instead of skipping firstResult rows, so that the cost of a page does not depend on its depth
     protected PaginatedData<T> findPaginatedDataByParameters(String clause, PaginationData paginationData,
                                                              Map<String, Object> queryParameters, String defaultSortFieldWithDirection)
     {
+        return findPaginatedByParameters("e", getJoinClause(true), clause, paginationData, queryParameters,
+                defaultSortFieldWithDirection);
+    }
+
+    //Same as findPaginatedDataByParameters, but each row is created by the constructor of rowClass with the
+    //values of the selection, so no entity is loaded, managed or checked for changes
+    //Fields of rowClass with the name of an entity field can be used for keyset pagination
+    protected <R> PaginatedData<R> findPaginatedRowsByParameters(Class<R> rowClass, String selection, String clause,
+                                                                 PaginationData paginationData,
+                                                                 Map<String, Object> queryParameters,
+                                                                 String defaultSortFieldWithDirection)
+    {
+        return findPaginatedByParameters("new " + rowClass.getName() + "(" + selection + ")", getJoinClause(false),
+                clause, paginationData, queryParameters, defaultSortFieldWithDirection);
+    }
+
+    private <R> PaginatedData<R> findPaginatedByParameters(String selection, String joinClause, String clause,
+                                                           PaginationData paginationData,
+                                                           Map<String, Object> queryParameters,
+                                                           String defaultSortFieldWithDirection)
+    {
+        return readFromReplica(() -> findPaginatedRows(selection, joinClause, clause, paginationData,
+                queryParameters, defaultSortFieldWithDirection));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> PaginatedData<R> findPaginatedRows(String selection, String joinClause, String clause,
+                                                   PaginationData paginationData,
+                                                   Map<String, Object> queryParameters,
+                                                   String defaultSortFieldWithDirection)
+    {
+        //an unknown sort field is rejected before anything is built
+        String sortField = getSortField(paginationData, defaultSortFieldWithDirection);
+        boolean ascending = isSortAscending(paginationData, defaultSortFieldWithDirection);
+
         //Build query
-        String clauseSort = "Order by e." + getSortField(paginationData, defaultSortFieldWithDirection);
-        Query queryEntities = getEntityManager().createQuery(
-                "Select e From " + getPersistentClass().getSimpleName()
-                        + " e " + clause + " " + clauseSort
-        );
+        String clauseEntities = clause;
+        Map<String, Object> entitiesQueryParameters = new HashMap<>(queryParameters);
+        if (paginationData != null && paginationData.hasCursor())
+        {
+            clauseEntities = appendKeysetCondition(clause, paginationData.getCursor(), sortField, ascending,
+                    entitiesQueryParameters);
+        }
+        String clauseSort = "Order by " + getSortClause(sortField, ascending);
+        String jpqlEntities = "Select " + selection + " From " + getPersistentClass().getSimpleName()
+                + " e " + joinClause + " " + clauseEntities + " " + clauseSort;
+        Query queryEntities = createShapeQuery(jpqlEntities);
 
         //set all parameters
-        applyQueryParametersOnQuery(queryParameters, queryEntities);
+        applyQueryParametersOnQuery(entitiesQueryParameters, queryEntities);
         //set first result and max results according to pagination data
         applyPaginationOnQuery(paginationData, queryEntities);
 
-        List<T> entities = queryEntities.getResultList();
+        List<R> rows = executeTimed(jpqlEntities, entitiesQueryParameters, queryEntities::getResultList);
+
+        String nextCursor = getNextCursor(paginationData, rows, sortField, ascending);
+
+        //create paginated data with number of rows, list of rows and cursor to the next page
+        CountMode countMode = paginationData == null ? CountMode.EXACT : paginationData.getCountMode();
+        switch (countMode)
+        {
+            case NONE:
+                return new PaginatedData<R>(PaginatedData.UNKNOWN_NUMBER_OF_ROWS, CountMode.NONE, rows,
+                        nextCursor);
+            case ESTIMATED:
+                return getPaginatedDataWithEstimatedCount(clause, queryParameters, rows, nextCursor);
+            default:
+                return new PaginatedData<R>(countWithFilter(clause, queryParameters), CountMode.EXACT, rows,
+                        nextCursor);
+        }
+    }
+
+    //Joins added after the root entity "e" of the paginated queries, so that related entities can be
+    //sorted on and, if fetch is true, loaded in the same query
+    protected String getJoinClause(boolean fetch)
+    {
+        return "";
+    }
 
-        //create paginated data with number of entities and list of entities
-        PaginatedData<T> paginatedData = new PaginatedData<T>(countWithFilter(clause, queryParameters), entities);
+    //Fields the pages can be sorted by, with the expression each one is sorted on
+    //The sort field of a request is only used to look up its expression, other fields are rejected
+    protected Map<String, String> getSortExpressions()
+    {
+        return sortExpressionsOfFields("id");
+    }
 
-        return paginatedData;
+    //Sort expressions of fields of the root entity "e"
+    protected static Map<String, String> sortExpressionsOfFields(String... fields)
+    {
+        Map<String, String> sortExpressions = new LinkedHashMap<>();
+        for (String field : fields)
+        {
+            sortExpressions.put(field, "e." + field);
+        }
+        return sortExpressions;
+    }
+
+    //Run a query and record its time, queries over the slow query threshold are logged with the JPQL and parameters
+    protected <R> R executeTimed(String jpql, Map<String, Object> queryParameters, Supplier<R> execution)
+    {
+        long startTime = System.nanoTime();
+        try
+        {
+            return execution.get();
+        } finally
+        {
+            SlowQueryLog.logQuery(jpql, queryParameters, System.nanoTime() - startTime);
+        }
+    }
+
+    //Reads of read-only requests may be sent to a read replica, unless the persistence unit was written within
+    //the maximum replication lag (see RoutingConnectionProvider)
+    protected <R> R readFromReplica(Supplier<R> read)
+    {
+        long lastWriteMillis = EntityChangeTracker.forFactory(getEntityManager().getEntityManagerFactory())
+                .getLastModified();
+        return ReplicaRouting.read(lastWriteMillis, read);
+    }
+
+    //Call after writes that do not go through add, update or delete (e.g. bulk statements)
+    protected void markChanged()
+    {
+        markChanged(getPersistentClass());
+    }
+
+    //The version is increased in the database after the transaction commits (see EntityChangeTracker)
+    protected void markChanged(Class<?> entityClass)
+    {
+        EntityChangeTracker.forFactory(getEntityManager().getEntityManagerFactory())
+                .markChanged(getEntityManager().unwrap(Session.class), entityClass);
+    }
+
+    //Without a version the entity would be merged as a new one, so it gets the version of the current entity
+    private void updateVersioned(VersionedEntity entity)
+    {
+        if (entity.getVersion() == null)
+        {
+            Object id = getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+            VersionedEntity currentEntity = (VersionedEntity) getEntityManager().find(getPersistentClass(), id);
+            if (currentEntity != null)
+            {
+                entity.setVersion(currentEntity.getVersion());
+            }
+        }
+
+        try
+        {
+            getEntityManager().merge(entity);
+            getEntityManager().flush();
+        } catch (OptimisticLockException e)
+        {
+            throw new EntityVersionConflictException();
+        }
     }
 
+    //Exact counts are cached for a short time, until the entity is written
     private int countWithFilter(String clause, Map<String, Object> queryParameters)
     {
-        Query queryCount = getEntityManager().createQuery(
-                "Select count(e) From " + getPersistentClass().getSimpleName()
-                        + " e " + clause
-        );
+        CountCache countCache = CountCache.forFactory(getEntityManager().getEntityManagerFactory());
+        Integer cachedCount = countCache.get(getPersistentClass(), clause, queryParameters);
+        if (cachedCount != null)
+        {
+            return cachedCount;
+        }
+
+        long entityVersion = EntityChangeTracker.forFactory(getEntityManager().getEntityManagerFactory())
+                .getVersion(getPersistentClass());
+
+        String jpqlCount = "Select count(e) From " + getPersistentClass().getSimpleName()
+                + " e " + getJoinClause(false) + " " + clause;
+        Query queryCount = createShapeQuery(jpqlCount);
 
         applyQueryParametersOnQuery(queryParameters, queryCount);
 
-        int count = ((Long)queryCount.getSingleResult()).intValue();
+        int count = executeTimed(jpqlCount, queryParameters, () -> ((Long)queryCount.getSingleResult()).intValue());
+        countCache.put(getPersistentClass(), clause, queryParameters, count, entityVersion);
 
         return count;
     }
 
+    //Use a cached exact count if there is one, otherwise count at most ESTIMATED_COUNT_LIMIT rows
+    //If the limit is reached the count is a lower bound and marked as estimated
+    private <R> PaginatedData<R> getPaginatedDataWithEstimatedCount(String clause,
+                                                                    Map<String, Object> queryParameters,
+                                                                    List<R> rows, String nextCursor)
+    {
+        Integer cachedCount = CountCache.forFactory(getEntityManager().getEntityManagerFactory())
+                .get(getPersistentClass(), clause, queryParameters);
+        if (cachedCount != null)
+        {
+            return new PaginatedData<R>(cachedCount, CountMode.EXACT, rows, nextCursor);
+        }
+
+        String jpqlIds = "Select e.id From " + getPersistentClass().getSimpleName()
+                + " e " + getJoinClause(false) + " " + clause;
+        Query queryIds = createShapeQuery(jpqlIds);
+        applyQueryParametersOnQuery(queryParameters, queryIds);
+        queryIds.setMaxResults(ESTIMATED_COUNT_LIMIT + 1);
+
+        int count = executeTimed(jpqlIds, queryParameters, () -> queryIds.getResultList().size());
+        if (count > ESTIMATED_COUNT_LIMIT)
+        {
+            return new PaginatedData<R>(ESTIMATED_COUNT_LIMIT, CountMode.ESTIMATED, rows, nextCursor);
+        }
+        return new PaginatedData<R>(count, CountMode.EXACT, rows, nextCursor);
+    }
+
     private void applyPaginationOnQuery(PaginationData paginationData, Query query)
     {
         if (paginationData != null)
         {
-            query.setFirstResult(paginationData.getFirstResult());
+            //with a cursor the position is given by the keyset condition, not by an offset
+            query.setFirstResult(paginationData.hasCursor() ? 0 : paginationData.getFirstResult());
             query.setMaxResults(paginationData.getMaxResults());
         }
     }
 
-    private String getSortField(PaginationData paginationData, String defaultSortField)
+    private String getSortField(PaginationData paginationData, String defaultSortFieldWithDirection)
     {
         if (paginationData == null || paginationData.getOrderField() == null)
         {
+            String defaultSortField = defaultSortFieldWithDirection.trim().split(" ")[0];
+            if (!getSortExpressions().containsKey(defaultSortField))
+            {
+                throw new IllegalStateException("The default sort field " + defaultSortField + " is not a sort field");
+            }
             return defaultSortField;
         }
-        return paginationData.getOrderField() + " " + getSortDirection(paginationData);
+        String sortField = paginationData.getOrderField();
+        if (!getSortExpressions().containsKey(sortField))
+        {
+            throw new FieldInvalidException("sort", "Sorting by " + sortField + " is not supported");
+        }
+        return sortField;
+    }
+
+    //The queries of the listings are named queries of their shape, compiled once
+    private Query createShapeQuery(String jpql)
+    {
+        return QueryShapes.forFactory(getEntityManager().getEntityManagerFactory())
+                .createQuery(getEntityManager(), jpql);
+    }
+
+    private boolean isSortAscending(PaginationData paginationData, String defaultSortFieldWithDirection)
+    {
+        if (paginationData == null || paginationData.getOrderField() == null)
+        {
+            return !defaultSortFieldWithDirection.trim().toUpperCase().endsWith("DESC");
+        }
+        return paginationData.isAscending();
+    }
+
+    //the id is added as a tie breaker, so that the order of the rows (and the keyset position) is always unique
+    private String getSortClause(String sortField, boolean ascending)
+    {
+        String direction = getSortDirection(ascending);
+        if ("id".equals(sortField))
+        {
+            return "e.id " + direction;
+        }
+        return getSortExpressions().get(sortField) + " " + direction + ", e.id " + direction;
+    }
+
+    private String getSortDirection(boolean ascending)
+    {
+        return ascending ? "ASC" : "DESC";
+    }
+
+    //Add the condition (sortField, id) > (lastValue, lastId) to the clause, expanded as JPQL has no row values
+    private String appendKeysetCondition(String clause, String encodedCursor, String sortField, boolean ascending,
+                                         Map<String, Object> queryParameters)
+    {
+        KeysetCursor cursor = KeysetCursor.decode(encodedCursor);
+        if (!sortField.equals(cursor.getSortField()) || ascending != cursor.isAscending())
+        {
+            throw new FieldInvalidException("cursor", "The cursor does not match the sort order");
+        }
+
+        String comparison = ascending ? ">" : "<";
+        StringBuilder keysetClause = new StringBuilder(clause);
+        keysetClause.append(clause.trim().isEmpty() ? "WHERE " : " And ");
+        if ("id".equals(sortField))
+        {
+            keysetClause.append("e.id ").append(comparison).append(" :keyset_id");
+        } else
+        {
+            String sortExpression = getSortExpressions().get(sortField);
+            keysetClause.append("(").append(sortExpression).append(" ").append(comparison).append(" :keyset_value")
+                    .append(" Or (").append(sortExpression).append(" = :keyset_value")
+                    .append(" And e.id ").append(comparison).append(" :keyset_id))");
+            queryParameters.put("keyset_value", parseSortValue(sortField, cursor.getLastSortValue()));
+        }
+        queryParameters.put("keyset_id", cursor.getLastId());
+
+        return keysetClause.toString();
+    }
+
+    //The next cursor is only created for full pages, a shorter page is the last one
+    //rows are entities or projections with fields named like the ones of the entity
+    private String getNextCursor(PaginationData paginationData, List<?> rows, String sortField, boolean ascending)
+    {
+        if (paginationData == null || rows.isEmpty() || rows.size() < paginationData.getMaxResults())
+        {
+            return null;
+        }
+
+        Field field = findPersistentField(sortField);
+        if (field == null || !isKeysetType(field.getType()))
+        {
+            //sorting by an expression that is not a field of the entity, or by an unsupported type, still works,
+            //but only with page numbers
+            return null;
+        }
+
+        Object lastRow = rows.get(rows.size() - 1);
+        Object lastSortValue = getFieldValue(lastRow, sortField);
+        Object lastId = getFieldValue(lastRow, "id");
+        if (lastSortValue == null || lastId == null)
+        {
+            //null values cannot be compared in the keyset condition, so paging by cursor stops here
+            return null;
+        }
+
+        return new KeysetCursor(sortField, ascending, ((Number)lastId).longValue(), lastSortValue.toString())
+                .encode();
     }
 
-    private String getSortDirection(PaginationData paginationData)
+    //Value of the field of an entity or a projection, null if the row has no such field
+    private Object getFieldValue(Object row, String fieldName)
     {
-        return paginationData.isAscending() ? "ASC" : "DESC";
+        Field field = findField(row.getClass(), fieldName);
+        if (field == null)
+        {
+            return null;
+        }
+        try
+        {
+            field.setAccessible(true);
+            return field.get(row);
+        } catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //Convert the sort value stored in the cursor back to the type of the sort field
+    private Object parseSortValue(String fieldName, String value)
+    {
+        Field field = findPersistentField(fieldName);
+        if (field == null || !isKeysetType(field.getType()))
+        {
+            throw new FieldInvalidException("sort", "Sorting by cursor is not supported for " + fieldName);
+        }
+
+        Class<?> type = field.getType();
+        try
+        {
+            if (type == Integer.class || type == int.class)
+            {
+                return Integer.valueOf(value);
+            }
+            if (type == Long.class || type == long.class)
+            {
+                return Long.valueOf(value);
+            }
+            if (type == Double.class || type == double.class)
+            {
+                return Double.valueOf(value);
+            }
+            if (type == LocalDate.class)
+            {
+                return LocalDate.parse(value);
+            }
+            return value;
+        } catch (RuntimeException e)
+        {
+            throw new FieldInvalidException("cursor", "The cursor is not valid");
+        }
+    }
+
+    private boolean isKeysetType(Class<?> type)
+    {
+        return type == String.class || type == Integer.class || type == int.class || type == Long.class
+                || type == long.class || type == Double.class || type == double.class || type == LocalDate.class;
+    }
+
+    private Field findPersistentField(String fieldName)
+    {
+        return findField(getPersistentClass(), fieldName);
+    }
+
+    private Field findField(Class<?> rowClass, String fieldName)
+    {
+        for (Class<?> clazz = rowClass; clazz != null; clazz = clazz.getSuperclass())
+        {
+            try
+            {
+                return clazz.getDeclaredField(fieldName);
+            } catch (NoSuchFieldException e)
+            {
+                //look for the field in the superclass
+            }
+        }
+        return null;
     }
 
     protected void applyQueryParametersOnQuery(Map<String, Object> queryParameters, Query query)
@@ -0,0 +1,37 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.common.model.IngestionCheckpoint;
+
+import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+@Stateless
+@Interceptors(RepositoryTimingInterceptor.class)
+public class IngestionCheckpointRepository
+{
+    @PersistenceContext
+    EntityManager em;
+
+    //0 when nothing of the log was written yet
+    public long findLastSequence(String name)
+    {
+        IngestionCheckpoint checkpoint = em.find(IngestionCheckpoint.class, name);
+        return checkpoint == null ? 0 : checkpoint.getLastSequence();
+    }
+
+    //The row is locked until the end of the transaction, a second drainer of the same log waits for it
+    public void saveLastSequence(String name, long lastSequence)
+    {
+        IngestionCheckpoint checkpoint = em.find(IngestionCheckpoint.class, name, LockModeType.PESSIMISTIC_WRITE);
+        if (checkpoint == null)
+        {
+            em.persist(new IngestionCheckpoint(name, lastSequence));
+        } else
+        {
+            checkpoint.setLastSequence(lastSequence);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.learning.app.common.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Named queries of the paginated listings, one for each query shape (distinct JPQL)
+ * Filters add fixed conditions and sort fields come from the whitelist of the repository, so the number of shapes
+ * is bounded: a shape is compiled and registered as a named query the first time it is used, then only looked up
+ * A hit is a use of a compiled shape, a miss a compilation; misses after warm up mean a query is built from values
+ * There is one registry per persistence unit (entity manager factory)
+ */
+
+public class QueryShapes
+{
+    private static final String NAME_PREFIX = "QueryShape.";
+
+    private static final Map<EntityManagerFactory, QueryShapes> SHAPES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<String, String> namesByJpql = new ConcurrentHashMap<>();
+    private final AtomicInteger lastNumber = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private QueryShapes()
+    {
+    }
+
+    public static QueryShapes forFactory(EntityManagerFactory entityManagerFactory)
+    {
+        return SHAPES.computeIfAbsent(entityManagerFactory, factory -> new QueryShapes());
+    }
+
+    public Query createQuery(EntityManager em, String jpql)
+    {
+        String name = namesByJpql.get(jpql);
+        if (name != null)
+        {
+            hits.increment();
+        } else
+        {
+            name = namesByJpql.computeIfAbsent(jpql, key -> {
+                misses.increment();
+                String shapeName = NAME_PREFIX + lastNumber.incrementAndGet();
+                em.getEntityManagerFactory().addNamedQuery(shapeName, em.createQuery(key));
+                return shapeName;
+            });
+        }
+        return em.createNamedQuery(name);
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public int getShapeCount()
+    {
+        return namesByJpql.size();
+    }
+
+    //the compiled shapes are kept
+    public void clearStatistics()
+    {
+        hits.reset();
+        misses.reset();
+    }
+}
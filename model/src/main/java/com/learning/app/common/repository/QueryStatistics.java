@@ -0,0 +1,119 @@
+package com.learning.app.common.repository;
+
+/*
+ * Database work done by the current thread since begin() was called, usually during one request:
+ * statements prepared, entities loaded, time spent in repository methods and queries, and slow queries
+ * The counters are updated by QueryStatisticsInterceptor, RepositoryTimingInterceptor and SlowQueryLog
+ */
+
+public class QueryStatistics
+{
+    private static final ThreadLocal<QueryStatistics> CURRENT = ThreadLocal.withInitial(QueryStatistics::new);
+
+    private long statementCount;
+    private long entityLoadCount;
+    private long queryCount;
+    private long queryNanos;
+    private long slowQueryCount;
+    private long repositoryCallCount;
+    private long repositoryNanos;
+    private int repositoryDepth;
+
+    //start new statistics for the current thread
+    public static void begin()
+    {
+        CURRENT.set(new QueryStatistics());
+    }
+
+    //stop collecting for the current thread and return what was collected since begin()
+    public static QueryStatistics end()
+    {
+        QueryStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    public static QueryStatistics current()
+    {
+        return CURRENT.get();
+    }
+
+    void statementPrepared()
+    {
+        statementCount++;
+    }
+
+    void entityLoaded()
+    {
+        entityLoadCount++;
+    }
+
+    void queryExecuted(long elapsedNanos, boolean slow)
+    {
+        queryCount++;
+        queryNanos += elapsedNanos;
+        if (slow)
+        {
+            slowQueryCount++;
+        }
+    }
+
+    //returns true for the outermost repository call, calls between repositories are part of it
+    boolean enterRepository()
+    {
+        return repositoryDepth++ == 0;
+    }
+
+    void exitRepository(boolean outermost, long elapsedNanos)
+    {
+        repositoryDepth--;
+        if (outermost)
+        {
+            repositoryCallCount++;
+            repositoryNanos += elapsedNanos;
+        }
+    }
+
+    public long getStatementCount()
+    {
+        return statementCount;
+    }
+
+    public long getEntityLoadCount()
+    {
+        return entityLoadCount;
+    }
+
+    public long getQueryCount()
+    {
+        return queryCount;
+    }
+
+    public long getQueryNanos()
+    {
+        return queryNanos;
+    }
+
+    public long getSlowQueryCount()
+    {
+        return slowQueryCount;
+    }
+
+    public long getRepositoryCallCount()
+    {
+        return repositoryCallCount;
+    }
+
+    public long getRepositoryNanos()
+    {
+        return repositoryNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "QueryStatistics [statementCount=" + statementCount + ", entityLoadCount=" + entityLoadCount
+                + ", queryCount=" + queryCount + ", queryNanos=" + queryNanos + ", slowQueryCount=" + slowQueryCount
+                + ", repositoryCallCount=" + repositoryCallCount + ", repositoryNanos=" + repositoryNanos + "]";
+    }
+}
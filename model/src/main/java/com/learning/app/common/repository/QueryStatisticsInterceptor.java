@@ -0,0 +1,30 @@
+package com.learning.app.common.repository;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/*
+ * Hibernate interceptor counting the statements prepared and entities loaded by the current thread
+ * It is registered for the whole persistence unit with the property hibernate.ejb.interceptor, so it keeps no state
+ */
+
+public class QueryStatisticsInterceptor extends EmptyInterceptor
+{
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String onPrepareStatement(String sql)
+    {
+        QueryStatistics.current().statementPrepared();
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types)
+    {
+        QueryStatistics.current().entityLoaded();
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package com.learning.app.common.repository;
+
+import java.util.function.Supplier;
+
+/*
+ * Tells RoutingConnectionProvider which statements of the current thread may be sent to a read replica
+ * Only the reads of the repositories during a read-only request are candidates, and only once the replicas had
+ * the time to receive the last write: both the last write of the persistence unit and the last write of the client
+ * (from its session token) must be older than the maximum replication lag. Everything else goes to the primary
+ */
+
+public final class ReplicaRouting
+{
+    //time of the last write the client has seen, set for read-only requests only
+    private static final ThreadLocal<Long> READ_ONLY_REQUEST = new ThreadLocal<>();
+    //time of the last write a read must see, set while a repository reads for a read-only request
+    private static final ThreadLocal<Long> REPLICA_READ = new ThreadLocal<>();
+
+    private ReplicaRouting()
+    {
+    }
+
+    //Mark the request of the thread as read-only, with the time of the last write of its session (0 if none),
+    //or as a request that may write with null
+    public static void setReadOnlyRequest(Long sessionWriteMillis)
+    {
+        if (sessionWriteMillis == null)
+        {
+            READ_ONLY_REQUEST.remove();
+        } else
+        {
+            READ_ONLY_REQUEST.set(sessionWriteMillis);
+        }
+    }
+
+    //null when the request of the thread may write, to hand the request over to another thread
+    public static Long getReadOnlyRequest()
+    {
+        return READ_ONLY_REQUEST.get();
+    }
+
+    //Run a read of a repository, its statements may go to a replica if the data written until lastWriteMillis
+    //has reached it
+    static <R> R read(long lastWriteMillis, Supplier<R> read)
+    {
+        Long sessionWriteMillis = READ_ONLY_REQUEST.get();
+        if (sessionWriteMillis == null)
+        {
+            return read.get();
+        }
+
+        Long outerRead = REPLICA_READ.get();
+        REPLICA_READ.set(Math.max(lastWriteMillis, sessionWriteMillis));
+        try
+        {
+            return read.get();
+        } finally
+        {
+            if (outerRead == null)
+            {
+                REPLICA_READ.remove();
+            } else
+            {
+                REPLICA_READ.set(outerRead);
+            }
+        }
+    }
+
+    static boolean isReplicaReadAllowed(long maxLagMillis)
+    {
+        Long lastWriteMillis = REPLICA_READ.get();
+        return lastWriteMillis != null && System.currentTimeMillis() - lastWriteMillis >= maxLagMillis;
+    }
+}
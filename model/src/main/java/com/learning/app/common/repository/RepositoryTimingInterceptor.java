@@ -0,0 +1,28 @@
+package com.learning.app.common.repository;
+
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+
+/*
+ * Times the business methods of repositories, slow calls are logged by SlowQueryLog
+ */
+
+public class RepositoryTimingInterceptor
+{
+    @AroundInvoke
+    public Object time(InvocationContext context) throws Exception
+    {
+        QueryStatistics statistics = QueryStatistics.current();
+        boolean outermost = statistics.enterRepository();
+        long startTime = System.nanoTime();
+        try
+        {
+            return context.proceed();
+        } finally
+        {
+            long elapsedNanos = System.nanoTime() - startTime;
+            statistics.exitRepository(outermost, elapsedNanos);
+            SlowQueryLog.logRepositoryCall(context.getMethod(), context.getParameters(), elapsedNanos);
+        }
+    }
+}
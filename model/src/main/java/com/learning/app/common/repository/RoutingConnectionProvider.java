@@ -0,0 +1,277 @@
+package com.learning.app.common.repository;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.jndi.spi.JndiService;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.ServiceRegistryAwareService;
+import org.hibernate.service.spi.ServiceRegistryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Connections of the persistence unit, from the primary datasource or from read replicas
+ * Reads allowed by ReplicaRouting get a connection of a replica, chosen round-robin or by least latency,
+ * all other statements and reads of a failing replica get one of the primary
+ * Connections are released after each statement inside JTA transactions, so every statement is routed on its own
+ * With resource-local transactions a connection is kept until the end of the transaction, or of the entity manager
+ * unless hibernate.connection.release_mode is after_transaction
+ *
+ * Settings of the persistence unit:
+ * hibernate.connection.datasource (set from jta-data-source) is the primary
+ * learning.datasource.replicas: JNDI names of the replicas separated by commas, or a collection of datasources
+ * learning.datasource.replica_selection: round-robin (default) or least-latency
+ * learning.datasource.replica_max_lag_ms: maximum replication lag, reads of data written more recently go to
+ * the primary (default 1000)
+ */
+
+public class RoutingConnectionProvider implements ConnectionProvider, Configurable, ServiceRegistryAwareService
+{
+    public static final String REPLICAS = "learning.datasource.replicas";
+    public static final String REPLICA_SELECTION = "learning.datasource.replica_selection";
+    public static final String REPLICA_MAX_LAG_MILLIS = "learning.datasource.replica_max_lag_ms";
+
+    private static final int DEFAULT_MAX_LAG_MILLIS = 1000;
+
+    //with least-latency selection one read in PROBE_INTERVAL goes round-robin, so that the latency of the slower
+    //replicas is measured again
+    private static final int PROBE_INTERVAL = 20;
+
+    //weight of a new sample in the average latency of a replica
+    private static final double LATENCY_SAMPLE_WEIGHT = 0.2;
+
+    //latency recorded for a failed connection, a failing replica is avoided until a probe succeeds
+    private static final long FAILURE_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingConnectionProvider.class);
+
+    public enum ReplicaSelection
+    {
+        ROUND_ROBIN, LEAST_LATENCY
+    }
+
+    private JndiService jndiService;
+    private DataSource primary;
+    private List<Replica> replicas = Collections.emptyList();
+    private ReplicaSelection replicaSelection;
+    private long maxLagMillis;
+
+    private final AtomicLong selections = new AtomicLong();
+    //replica connections in use, with the time they were taken, the latency is the time until they are released
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+
+    @Override
+    public void injectServices(ServiceRegistryImplementor serviceRegistry)
+    {
+        jndiService = serviceRegistry.getService(JndiService.class);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void configure(Map configurationValues)
+    {
+        primary = toDataSource(configurationValues.get(AvailableSettings.DATASOURCE));
+        if (primary == null)
+        {
+            throw new HibernateException("The primary datasource is missing, set " + AvailableSettings.DATASOURCE);
+        }
+
+        List<Replica> configuredReplicas = new ArrayList<>();
+        for (Object replica : toList(configurationValues.get(REPLICAS)))
+        {
+            configuredReplicas.add(new Replica(replica.toString(), toDataSource(replica)));
+        }
+        replicas = Collections.unmodifiableList(configuredReplicas);
+
+        String selection = ConfigurationHelper.getString(REPLICA_SELECTION, configurationValues, "round-robin");
+        try
+        {
+            replicaSelection = ReplicaSelection.valueOf(selection.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e)
+        {
+            throw new HibernateException("Unknown replica selection " + selection, e);
+        }
+        maxLagMillis = ConfigurationHelper.getLong(REPLICA_MAX_LAG_MILLIS, configurationValues,
+                DEFAULT_MAX_LAG_MILLIS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        if (replicas.isEmpty() || !ReplicaRouting.isReplicaReadAllowed(maxLagMillis))
+        {
+            return primary.getConnection();
+        }
+
+        Replica replica = selectReplica();
+        try
+        {
+            Connection connection = replica.dataSource.getConnection();
+            leases.put(connection, new Lease(replica, System.nanoTime()));
+            return connection;
+        } catch (SQLException e)
+        {
+            replica.failures.incrementAndGet();
+            replica.recordLatency(FAILURE_LATENCY_NANOS);
+            logger.warn("Read replica {} is not available, reading from the primary: {}", replica.name,
+                    e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException
+    {
+        Lease lease = leases.remove(connection);
+        if (lease != null)
+        {
+            lease.replica.recordLatency(System.nanoTime() - lease.startNanos);
+        }
+        connection.close();
+    }
+
+    //connections can be released after each statement, as with the datasources of the application server
+    @Override
+    public boolean supportsAggressiveRelease()
+    {
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean isUnwrappableAs(Class unwrapType)
+    {
+        return ConnectionProvider.class.equals(unwrapType)
+                || RoutingConnectionProvider.class.isAssignableFrom(unwrapType)
+                || DataSource.class.isAssignableFrom(unwrapType);
+    }
+
+    //unwrapping to a datasource gives the primary
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType)
+    {
+        if (ConnectionProvider.class.equals(unwrapType) || RoutingConnectionProvider.class.isAssignableFrom(unwrapType))
+        {
+            return (T) this;
+        }
+        if (DataSource.class.isAssignableFrom(unwrapType))
+        {
+            return (T) primary;
+        }
+        throw new HibernateException("Cannot unwrap " + getClass().getName() + " as " + unwrapType.getName());
+    }
+
+    public long getReplicaFailures()
+    {
+        return replicas.stream().mapToLong(replica -> replica.failures.get()).sum();
+    }
+
+    private Replica selectReplica()
+    {
+        long selection = selections.getAndIncrement();
+        if (replicaSelection == ReplicaSelection.ROUND_ROBIN)
+        {
+            return replicas.get((int) (selection % replicas.size()));
+        }
+        if (selection % PROBE_INTERVAL == 0)
+        {
+            return replicas.get((int) (selection / PROBE_INTERVAL % replicas.size()));
+        }
+
+        Replica fastestReplica = replicas.get(0);
+        for (Replica replica : replicas)
+        {
+            if (replica.averageLatencyNanos < fastestReplica.averageLatencyNanos)
+            {
+                fastestReplica = replica;
+            }
+        }
+        return fastestReplica;
+    }
+
+    //a datasource given as object or by its JNDI name
+    private DataSource toDataSource(Object value)
+    {
+        if (value == null || value instanceof DataSource)
+        {
+            return (DataSource) value;
+        }
+        Object dataSource = jndiService.locate(value.toString());
+        if (!(dataSource instanceof DataSource))
+        {
+            throw new HibernateException(value + " is not a datasource");
+        }
+        return (DataSource) dataSource;
+    }
+
+    private List<?> toList(Object value)
+    {
+        if (value == null)
+        {
+            return Collections.emptyList();
+        }
+        if (value instanceof Collection)
+        {
+            return new ArrayList<>((Collection<?>) value);
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : value.toString().split(","))
+        {
+            if (!name.trim().isEmpty())
+            {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    private static class Replica
+    {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicLong failures = new AtomicLong();
+        //replicas not used yet have no latency, so they are tried first
+        private volatile double averageLatencyNanos;
+
+        Replica(String name, DataSource dataSource)
+        {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        //a lost update of the average only loses one sample
+        void recordLatency(long latencyNanos)
+        {
+            double average = averageLatencyNanos;
+            averageLatencyNanos = average == 0 ? latencyNanos
+                    : average + LATENCY_SAMPLE_WEIGHT * (latencyNanos - average);
+        }
+    }
+
+    private static class Lease
+    {
+        private final Replica replica;
+        private final long startNanos;
+
+        Lease(Replica replica, long startNanos)
+        {
+            this.replica = replica;
+            this.startNanos = startNanos;
+        }
+    }
+}
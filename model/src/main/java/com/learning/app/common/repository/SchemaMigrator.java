@@ -0,0 +1,258 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.common.model.PooledSequenceGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Brings the schema of the database up to date when the application starts, before any request is served
+ * The scripts of db/migration are listed in order in migrations.txt and named V<version>__<description>.sql,
+ * each one is run once in its own transaction and its version is recorded in the SCHEMA_VERSION table
+ * A database that has tables but no SCHEMA_VERSION table was created from db.sql, it is recorded at the version
+ * of the system property learning.app.migration.baselineVersion (1 by default) without running the scripts up to it
+ * The increment of the id sequences is then checked against the allocation size of PooledSequenceGenerator
+ */
+
+@Singleton
+@Startup
+@TransactionManagement(TransactionManagementType.BEAN)
+public class SchemaMigrator
+{
+    public static final String BASELINE_VERSION_PROPERTY = "learning.app.migration.baselineVersion";
+
+    public static final String SCRIPTS_LOCATION = "db/migration/";
+    private static final String SCRIPTS_LIST = "migrations.txt";
+    private static final String VERSION_TABLE = "SCHEMA_VERSION";
+    //sequences of PooledSequenceGenerator, named after their table
+    private static final String ID_SEQUENCE_SUFFIX = "_SEQ";
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    @Resource(lookup = "java:jboss/datasources/learning")
+    DataSource dataSource;
+
+    String scriptsLocation = SCRIPTS_LOCATION;
+
+    @PostConstruct
+    public void migrate()
+    {
+        try (Connection connection = dataSource.getConnection())
+        {
+            migrate(connection);
+            checkIdSequences(connection, PooledSequenceGenerator.getAllocationSize());
+        } catch (SQLException e)
+        {
+            throw new IllegalStateException("The schema of the database could not be migrated", e);
+        }
+    }
+
+    //Versions run, the scripts of versions up to the current one are left out
+    List<Integer> migrate(Connection connection) throws SQLException
+    {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try
+        {
+            int currentVersion = findCurrentVersion(connection);
+            List<Integer> migratedVersions = new ArrayList<>();
+
+            for (String script : readLines(scriptsLocation + SCRIPTS_LIST))
+            {
+                int version = getVersion(script);
+                if (version > currentVersion)
+                {
+                    runScript(connection, script, version);
+                    migratedVersions.add(version);
+                    currentVersion = version;
+                }
+            }
+            return migratedVersions;
+        } finally
+        {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    //Ids of a block would be given out twice if a sequence increased by less than the allocation size, and lost if
+    //it increased by more, so the application does not start with a different increment
+    void checkIdSequences(Connection connection, int allocationSize) throws SQLException
+    {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "select sequence_name, increment from information_schema.sequences"))
+        {
+            while (resultSet.next())
+            {
+                String sequence = resultSet.getString(1);
+                long increment = Long.parseLong(resultSet.getString(2));
+                if (sequence.toUpperCase().endsWith(ID_SEQUENCE_SUFFIX) && increment != allocationSize)
+                {
+                    throw new IllegalStateException("The sequence " + sequence + " increases by " + increment
+                            + " but the id allocation size is " + allocationSize + ", set the system property "
+                            + PooledSequenceGenerator.ALLOCATION_SIZE_PROPERTY + " to " + increment
+                            + " or migrate the sequence");
+                }
+            }
+        }
+    }
+
+    //Statements of a script, separated by ";" at the end of a line, lines starting with "--" are comments
+    public static List<String> readStatements(String resource)
+    {
+        List<String> statements = new ArrayList<>();
+        StringBuilder statement = new StringBuilder();
+        for (String line : readLines(resource))
+        {
+            if (line.startsWith("--"))
+            {
+                continue;
+            }
+            statement.append(line).append('\n');
+            if (line.endsWith(";"))
+            {
+                statements.add(statement.substring(0, statement.lastIndexOf(";")));
+                statement.setLength(0);
+            }
+        }
+        if (!statement.toString().trim().isEmpty())
+        {
+            statements.add(statement.toString());
+        }
+        return statements;
+    }
+
+    //Highest version recorded, 0 for an empty database
+    private int findCurrentVersion(Connection connection) throws SQLException
+    {
+        if (!hasTable(connection, VERSION_TABLE))
+        {
+            boolean existingSchema = hasTable(connection, null);
+            try (Statement statement = connection.createStatement())
+            {
+                statement.execute("create table " + VERSION_TABLE + " (version integer not null primary key, "
+                        + "description varchar(200) not null, installed_on timestamp not null)");
+            }
+            int currentVersion = 0;
+            if (existingSchema)
+            {
+                currentVersion = Integer.getInteger(BASELINE_VERSION_PROPERTY, 1);
+                logger.info("Existing schema without versions, recorded at version {}", currentVersion);
+                recordVersion(connection, currentVersion, "baseline");
+            }
+            connection.commit();
+            return currentVersion;
+        }
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select max(version) from " + VERSION_TABLE))
+        {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void runScript(Connection connection, String script, int version) throws SQLException
+    {
+        logger.info("Migrating the schema to version {} with {}", version, script);
+        try (Statement statement = connection.createStatement())
+        {
+            for (String sql : readStatements(scriptsLocation + script))
+            {
+                statement.execute(sql);
+            }
+            recordVersion(connection, version, script);
+            connection.commit();
+        } catch (SQLException e)
+        {
+            connection.rollback();
+            throw new SQLException("Migration " + script + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void recordVersion(Connection connection, int version, String description) throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "insert into " + VERSION_TABLE + " (version, description, installed_on) values (?, ?, ?)"))
+        {
+            statement.setInt(1, version);
+            statement.setString(2, description);
+            statement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            statement.executeUpdate();
+        }
+    }
+
+    //With a null name, whether the schema has any table
+    //Names are compared ignoring case, Postgres keeps unquoted names in lower case and HSQLDB in upper case
+    private boolean hasTable(Connection connection, String name) throws SQLException
+    {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(null, null, "%", new String[] {"TABLE"}))
+        {
+            while (tables.next())
+            {
+                if (name == null || name.equalsIgnoreCase(tables.getString("TABLE_NAME")))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int getVersion(String script)
+    {
+        if (!script.matches("V\\d+__.+\\.sql"))
+        {
+            throw new IllegalStateException("The migration " + script + " is not named V<version>__<description>.sql");
+        }
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static List<String> readLines(String resource)
+    {
+        InputStream inputStream = SchemaMigrator.class.getClassLoader().getResourceAsStream(resource);
+        if (inputStream == null)
+        {
+            throw new IllegalStateException("Missing migration resource " + resource);
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (!line.trim().isEmpty())
+                {
+                    lines.add(line.trim());
+                }
+            }
+        } catch (IOException e)
+        {
+            throw new IllegalStateException("Could not read the migration resource " + resource, e);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,236 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.common.model.SearchIndexRebuild;
+import com.learning.app.common.model.SearchTrigram;
+import com.learning.app.common.model.SearchTrigramId;
+import com.learning.app.common.utils.Trigrams;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Trigram search index of the text fields of one entity type, stored in the SEARCH_TRIGRAM table
+ * Repositories index their entities on every write, in the same transaction
+ * The entities written before the index existed are only indexed by a rebuild: while a SEARCH_INDEX_REBUILD row
+ * of the entity type is left, the index is not used to narrow down the filters
+ */
+
+public class SearchIndex
+{
+    //entities indexed per transaction flush while rebuilding
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    //entity types whose index was found complete, per persistence unit, an index is never incomplete again
+    private static final Map<EntityManagerFactory, Set<String>> BUILT_ENTITY_TYPES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final EntityManager em;
+    private final String entityType;
+    private final Map<String, Integer> fieldWeights;
+
+    //fieldWeights: indexed fields and their weight in the ranking of search results
+    //The field names are the entity attribute names
+    public SearchIndex(EntityManager em, Class<?> entityClass, Map<String, Integer> fieldWeights)
+    {
+        this.em = em;
+        this.entityType = entityClass.getSimpleName();
+        this.fieldWeights = fieldWeights;
+    }
+
+    //fieldValues: text of each indexed field, only the trigrams that changed are written
+    public void index(Long entityId, Map<String, String> fieldValues)
+    {
+        Map<SearchTrigramId, SearchTrigram> existingTrigrams = new HashMap<>();
+        for (SearchTrigram searchTrigram : findTrigrams(entityId))
+        {
+            existingTrigrams.put(searchTrigram.getId(), searchTrigram);
+        }
+
+        for (Map.Entry<String, Integer> fieldWeight : fieldWeights.entrySet())
+        {
+            String field = fieldWeight.getKey();
+            for (String trigram : Trigrams.ofText(fieldValues.get(field)))
+            {
+                SearchTrigramId id = new SearchTrigramId(entityType, field, trigram, entityId);
+                if (existingTrigrams.remove(id) == null)
+                {
+                    em.persist(new SearchTrigram(id, fieldWeight.getValue()));
+                }
+            }
+        }
+
+        //trigrams left are not in the entity anymore
+        existingTrigrams.values().forEach(em::remove);
+    }
+
+    //Whether all entities are indexed, false until the rebuild requested by a migration has run
+    public boolean isBuilt()
+    {
+        Set<String> builtEntityTypes = BUILT_ENTITY_TYPES.computeIfAbsent(em.getEntityManagerFactory(),
+                factory -> ConcurrentHashMap.newKeySet());
+        if (builtEntityTypes.contains(entityType))
+        {
+            return true;
+        }
+        if (em.find(SearchIndexRebuild.class, entityType) != null)
+        {
+            return false;
+        }
+        builtEntityTypes.add(entityType);
+        return true;
+    }
+
+    //Rebuilds the index if a rebuild was requested, returns -1 if not
+    //The request is locked until the end of the transaction, the other nodes starting at the same time wait for
+    //the rebuild and then find nothing left to do
+    public long rebuildIfRequested()
+    {
+        if (em.find(SearchIndexRebuild.class, entityType, LockModeType.PESSIMISTIC_WRITE) == null)
+        {
+            return -1;
+        }
+        return rebuild();
+    }
+
+    //Indexes all entities again, for example after the index table was created on an existing database
+    //The persistence context is cleared after each batch, entities read before are detached
+    //A requested rebuild of the entity type is removed
+    //Returns the number of entities indexed
+    @SuppressWarnings("unchecked")
+    public long rebuild()
+    {
+        List<String> fields = new ArrayList<>(fieldWeights.keySet());
+        StringBuilder selection = new StringBuilder("e.id");
+        fields.forEach(field -> selection.append(", e.").append(field));
+
+        long indexed = 0;
+        Long lastId = null;
+        List<Object[]> rows;
+        do
+        {
+            Query query = em.createQuery("Select " + selection + " From " + entityType + " e"
+                    + (lastId == null ? "" : " Where e.id > :lastId") + " Order by e.id")
+                    .setMaxResults(REBUILD_BATCH_SIZE);
+            if (lastId != null)
+            {
+                query.setParameter("lastId", lastId);
+            }
+            rows = query.getResultList();
+
+            for (Object[] row : rows)
+            {
+                Map<String, String> fieldValues = new HashMap<>();
+                for (int i = 0; i < fields.size(); i++)
+                {
+                    fieldValues.put(fields.get(i), (String) row[i + 1]);
+                }
+                lastId = (Long) row[0];
+                index(lastId, fieldValues);
+            }
+
+            em.flush();
+            em.clear();
+            indexed += rows.size();
+        } while (rows.size() == REBUILD_BATCH_SIZE);
+
+        SearchIndexRebuild rebuildRequest = em.find(SearchIndexRebuild.class, entityType);
+        if (rebuildRequest != null)
+        {
+            em.remove(rebuildRequest);
+        }
+        return indexed;
+    }
+
+    public void remove(Long entityId)
+    {
+        findTrigrams(entityId).forEach(em::remove);
+    }
+
+    //Adds a condition on e.id, matching the entities having all trigrams of the text in the field
+    //It narrows a Like '%text%' condition down to the entities that may match, the Like condition is still needed
+    //Nothing is added if the text has no trigram, as for texts shorter than 3 characters, or if the index is not
+    //built yet, as entities written before the index would not be found
+    public void appendSubstringCondition(StringBuilder clause, Map<String, Object> queryParameters, String field,
+                                         String text)
+    {
+        Set<String> trigrams = Trigrams.ofSubstring(text);
+        if (trigrams.isEmpty() || !isBuilt())
+        {
+            return;
+        }
+
+        String trigramsParameter = field + "Trigrams";
+        String trigramCountParameter = field + "TrigramCount";
+        clause.append(" And e.id in (Select t.id.entityId From SearchTrigram t")
+                .append(" Where t.id.entityType = '").append(entityType).append("'")
+                .append(" And t.id.field = '").append(field).append("'")
+                .append(" And t.id.trigram in :").append(trigramsParameter)
+                .append(" Group by t.id.entityId Having count(t.id.trigram) = :").append(trigramCountParameter)
+                .append(")");
+        queryParameters.put(trigramsParameter, padListSize(trigrams));
+        queryParameters.put(trigramCountParameter, (long) trigrams.size());
+    }
+
+    //Ids of the entities having a word starting with each word of the query, in any indexed field
+    //The best matches come first: the more trigrams match in fields of higher weight, the higher the rank
+    @SuppressWarnings("unchecked")
+    public List<Long> search(String query, int maxResults)
+    {
+        Set<String> trigrams = Trigrams.ofPrefixes(query);
+        if (trigrams.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        List<Object[]> results = em.createQuery(
+                "Select t.id.entityId, sum(t.weight) From SearchTrigram t"
+                        + " Where t.id.entityType = :entityType And t.id.trigram in :trigrams"
+                        + " Group by t.id.entityId Having count(distinct t.id.trigram) = :trigramCount"
+                        + " Order by sum(t.weight) desc, t.id.entityId")
+                .setParameter("entityType", entityType)
+                .setParameter("trigrams", padListSize(trigrams))
+                .setParameter("trigramCount", (long) trigrams.size())
+                .setMaxResults(maxResults)
+                .getResultList();
+
+        List<Long> ids = new ArrayList<>(results.size());
+        for (Object[] result : results)
+        {
+            ids.add((Long) result[0]);
+        }
+        return ids;
+    }
+
+    //Hibernate expands a list parameter to one placeholder per value, so each size of list is another statement to
+    //compile and to prepare: sizes are rounded up to a power of two by repeating a value, which matches no other row
+    static List<String> padListSize(Set<String> values)
+    {
+        List<String> paddedValues = new ArrayList<>(values);
+        String lastValue = paddedValues.get(paddedValues.size() - 1);
+        while (Integer.bitCount(paddedValues.size()) != 1)
+        {
+            paddedValues.add(lastValue);
+        }
+        return paddedValues;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SearchTrigram> findTrigrams(Long entityId)
+    {
+        return em.createQuery("Select t From SearchTrigram t"
+                + " Where t.id.entityType = :entityType And t.id.entityId = :entityId")
+                .setParameter("entityType", entityType)
+                .setParameter("entityId", entityId)
+                .getResultList();
+    }
+}
@@ -0,0 +1,70 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.course.repository.CourseRepository;
+import com.learning.app.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.DependsOn;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.inject.Inject;
+
+/*
+ * Builds the search indexes whose rebuild a migration requested, when the application starts after the migrations
+ * The rebuild runs on its own thread, requests are served meanwhile: the name filters do not use an index before
+ * it is built (see SearchIndex)
+ * Each index is rebuilt in its own transaction, an index that failed is rebuilt at the next startup or with a POST
+ * to /search/index
+ */
+
+@Singleton
+@Startup
+@DependsOn("SchemaMigrator")
+@TransactionManagement(TransactionManagementType.BEAN)
+public class SearchIndexBuilder
+{
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexBuilder.class);
+
+    @Inject
+    CourseRepository courseRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    @PostConstruct
+    public void start()
+    {
+        Thread builder = managedThreadFactory.newThread(this::buildRequestedIndexes);
+        builder.setName("search-index-builder");
+        builder.start();
+    }
+
+    void buildRequestedIndexes()
+    {
+        try
+        {
+            logIndexed("Course", courseRepository.rebuildSearchIndexIfRequested());
+            logIndexed("User", userRepository.rebuildSearchIndexIfRequested());
+        } catch (RuntimeException e)
+        {
+            logger.error("The search index could not be built, it is not used by the name filters until it is", e);
+        }
+    }
+
+    private static void logIndexed(String entityType, long indexed)
+    {
+        if (indexed >= 0)
+        {
+            logger.info("Search index of {} built, {} entities indexed", entityType, indexed);
+        }
+    }
+}
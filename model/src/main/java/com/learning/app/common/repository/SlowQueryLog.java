@@ -0,0 +1,52 @@
+package com.learning.app.common.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Logs queries and repository calls slower than a threshold, with their parameters
+ * The threshold in milliseconds is read from the system property learning.app.slowQueryThresholdMillis
+ * Every statement can still be logged by setting the logger org.hibernate.SQL to DEBUG
+ */
+
+public class SlowQueryLog
+{
+    public static final String THRESHOLD_PROPERTY = "learning.app.slowQueryThresholdMillis";
+
+    private static final long DEFAULT_THRESHOLD_MILLIS = 200;
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    static volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MILLIS));
+
+    private SlowQueryLog()
+    {
+    }
+
+    public static void logQuery(String jpql, Map<String, Object> queryParameters, long elapsedNanos)
+    {
+        boolean slow = elapsedNanos >= thresholdNanos;
+        QueryStatistics.current().queryExecuted(elapsedNanos, slow);
+        if (slow)
+        {
+            logger.warn("Slow query ({} ms): {} parameters: {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), jpql,
+                    queryParameters);
+        }
+    }
+
+    public static void logRepositoryCall(Method method, Object[] parameters, long elapsedNanos)
+    {
+        if (elapsedNanos >= thresholdNanos)
+        {
+            logger.warn("Slow repository call ({} ms): {}.{} parameters: {}",
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), method.getDeclaringClass().getSimpleName(),
+                    method.getName(), Arrays.toString(parameters));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.learning.app.common.service;
+
+import com.learning.app.common.model.CacheRegionStatistics;
+
+import javax.ejb.Local;
+import java.util.List;
+
+@Local
+public interface CacheStatisticsService
+{
+    List<CacheRegionStatistics> findAll();
+
+    void clear();
+}
@@ -0,0 +1,27 @@
+package com.learning.app.common.service;
+
+import com.learning.app.common.model.CacheRegionStatistics;
+import com.learning.app.common.repository.CacheStatisticsRepository;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import java.util.List;
+
+@Stateless
+public class CacheStatisticsServiceImpl implements CacheStatisticsService
+{
+    @Inject
+    CacheStatisticsRepository cacheStatisticsRepository;
+
+    @Override
+    public List<CacheRegionStatistics> findAll()
+    {
+        return cacheStatisticsRepository.findAll();
+    }
+
+    @Override
+    public void clear()
+    {
+        cacheStatisticsRepository.clear();
+    }
+}
@@ -0,0 +1,11 @@
+package com.learning.app.common.service;
+
+import com.learning.app.common.model.DataVersion;
+
+import javax.ejb.Local;
+
+@Local
+public interface DataVersionService
+{
+    DataVersion getDataVersion(Class<?>... entityClasses);
+}
@@ -0,0 +1,20 @@
+package com.learning.app.common.service;
+
+import com.learning.app.common.model.DataVersion;
+import com.learning.app.common.repository.DataVersionRepository;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+
+@Stateless
+public class DataVersionServiceImpl implements DataVersionService
+{
+    @Inject
+    DataVersionRepository dataVersionRepository;
+
+    @Override
+    public DataVersion getDataVersion(Class<?>... entityClasses)
+    {
+        return dataVersionRepository.getDataVersion(entityClasses);
+    }
+}
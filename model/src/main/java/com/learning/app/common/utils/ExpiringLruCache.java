@@ -0,0 +1,101 @@
+package com.learning.app.common.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/*
+ * Bounded in-memory cache, thread safe
+ * Entries expire after a fixed time to live, the least recently used entry is evicted when the cache is full
+ */
+
+public class ExpiringLruCache<K, V>
+{
+    private final int maxEntries;
+    private final long timeToLiveMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, CachedValue<V>> entries;
+
+    public ExpiringLruCache(int maxEntries, long timeToLiveMillis)
+    {
+        this(maxEntries, timeToLiveMillis, System::currentTimeMillis);
+    }
+
+    ExpiringLruCache(int maxEntries, long timeToLiveMillis, LongSupplier clock)
+    {
+        this.maxEntries = maxEntries;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+        //access order, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest)
+            {
+                return size() > ExpiringLruCache.this.maxEntries;
+            }
+        };
+    }
+
+    //returns null if there is no entry or if it has expired
+    public synchronized V get(K key)
+    {
+        CachedValue<V> cachedValue = entries.get(key);
+        if (cachedValue == null)
+        {
+            return null;
+        }
+        if (cachedValue.expiresAt <= clock.getAsLong())
+        {
+            entries.remove(key);
+            return null;
+        }
+        return cachedValue.value;
+    }
+
+    public synchronized void put(K key, V value)
+    {
+        entries.put(key, new CachedValue<>(value, clock.getAsLong() + timeToLiveMillis));
+    }
+
+    public synchronized void remove(K key)
+    {
+        entries.remove(key);
+    }
+
+    public synchronized void removeIf(Predicate<V> predicate)
+    {
+        Iterator<CachedValue<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext())
+        {
+            if (predicate.test(iterator.next().value))
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private static class CachedValue<V>
+    {
+        private final V value;
+        private final long expiresAt;
+
+        private CachedValue(V value, long expiresAt)
+        {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
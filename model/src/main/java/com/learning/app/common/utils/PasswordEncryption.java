@@ -1,27 +1,40 @@
 package com.learning.app.common.utils;
 
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 
 public final class PasswordEncryption
 {
-    private PasswordEncryption()
-    {
-    }
-
-    public static String encryptPassword(String password)
-    {
-        MessageDigest md = null;
+    //MessageDigest is not thread safe, one instance per thread saves the provider lookup on every call
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
         try
         {
-            md = MessageDigest.getInstance("SHA-256");
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e)
         {
             throw new IllegalArgumentException(e);
         }
+    });
+
+    private PasswordEncryption()
+    {
+    }
+
+    public static String encryptPassword(String password)
+    {
+        MessageDigest md = DIGEST.get();
+        md.reset();
         md.update(password.getBytes());
         return Base64.getMimeEncoder().encodeToString(md.digest());
     }
+
+    //compares in constant time, so the response time does not tell how much of the hash matched
+    public static boolean matches(String password, String passwordHash)
+    {
+        return MessageDigest.isEqual(encryptPassword(password).getBytes(StandardCharsets.UTF_8),
+                passwordHash.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,80 @@
+package com.learning.app.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * Splits texts into trigrams for the search index
+ * Words are lower case runs of letters and digits, indexed words are padded with two spaces in front and one
+ * behind, so that the trigrams of a word start tell a prefix match from a match inside a word
+ */
+
+public final class Trigrams
+{
+    private Trigrams()
+    {
+    }
+
+    //trigrams stored in the index for a text
+    public static Set<String> ofText(String text)
+    {
+        Set<String> trigrams = new TreeSet<>();
+        for (String word : words(text))
+        {
+            addTrigrams(trigrams, "  " + word + " ");
+        }
+        return trigrams;
+    }
+
+    //trigrams that every text containing the given text contains, empty if a word is too short to tell
+    //The padding is left out, because the text may start or end inside a word
+    public static Set<String> ofSubstring(String text)
+    {
+        Set<String> trigrams = new TreeSet<>();
+        for (String word : words(text))
+        {
+            addTrigrams(trigrams, word);
+        }
+        return trigrams;
+    }
+
+    //trigrams of texts having a word starting with each word of the given text
+    public static Set<String> ofPrefixes(String text)
+    {
+        Set<String> trigrams = new TreeSet<>();
+        for (String word : words(text))
+        {
+            addTrigrams(trigrams, "  " + word);
+        }
+        return trigrams;
+    }
+
+    static List<String> words(String text)
+    {
+        List<String> words = new ArrayList<>();
+        if (text == null)
+        {
+            return words;
+        }
+
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+        {
+            if (!word.isEmpty())
+            {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static void addTrigrams(Set<String> trigrams, String word)
+    {
+        for (int i = 0; i + 3 <= word.length(); i++)
+        {
+            trigrams.add(word.substring(i, i + 3));
+        }
+    }
+}
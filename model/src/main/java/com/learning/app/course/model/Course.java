@@ -1,6 +1,10 @@
 package com.learning.app.course.model;
 
 import com.learning.app.category.model.Category;
+import com.learning.app.common.model.PooledSequenceGenerator;
+import com.learning.app.common.model.VersionedEntity;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -10,14 +14,21 @@ import java.io.Serializable;
 
 @Entity
 @Table(name = "COURSE")
-public class Course implements Serializable
+//Courses are read by every review write, they are kept in the second-level cache
+@Cacheable
+public class Course implements Serializable, VersionedEntity
 {
     private static final long serialVersionUID = 5013362133078648133L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "COURSE_SEQ")
+    @GenericGenerator(name = "COURSE_SEQ", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "COURSE_SEQ"))
     private Long id;
 
+    @Version
+    private Long version;
+
     @NotNull
     @Size(min = 2, max = 25)
     @Column(unique = true)
@@ -38,6 +49,12 @@ public class Course implements Serializable
     @JoinColumn(name = "category_id")
     private Category category;
 
+    //rating aggregate, removed together with the course
+    //joined on the primary key, so that it is loaded by id and can be read from the second-level cache
+    @OneToOne(cascade = CascadeType.REMOVE)
+    @PrimaryKeyJoinColumn
+    private CourseRating rating;
+
     public Course()
     {
     }
@@ -58,6 +75,18 @@ public class Course implements Serializable
         this.id = id;
     }
 
+    @Override
+    public Long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version)
+    {
+        this.version = version;
+    }
+
     public String getName()
     {
         return name;
@@ -88,6 +117,16 @@ public class Course implements Serializable
         this.category = category;
     }
 
+    public CourseRating getRating()
+    {
+        return rating;
+    }
+
+    public void setRating(CourseRating rating)
+    {
+        this.rating = rating;
+    }
+
     public String getDescription()
     {
         return description;
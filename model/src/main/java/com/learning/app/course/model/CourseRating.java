@@ -0,0 +1,189 @@
+package com.learning.app.course.model;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/*
+ * Rating aggregate of a course, maintained when reviews are written
+ * so that the average rating can be read and sorted without scanning the reviews
+ */
+
+@Entity
+@Table(name = "COURSE_RATING")
+//cached with its course, updates lock the row and read it from the database
+@Cacheable
+public class CourseRating implements Serializable
+{
+    private static final long serialVersionUID = -2164329547871163520L;
+
+    public static final int MIN_RATING = 0;
+    public static final int MAX_RATING = 5;
+
+    @Id
+    @Column(name = "course_id")
+    private Long courseId;
+
+    @MapsId
+    @OneToOne
+    @JoinColumn(name = "course_id")
+    private Course course;
+
+    //rating changes do not increase the version of the course, a course with its rating has both versions
+    @Version
+    private Long version;
+
+    @Column(name = "review_count")
+    private long reviewCount;
+
+    @Column(name = "rating_sum")
+    private long ratingSum;
+
+    @Column
+    private double average;
+
+    //number of reviews for each rating, from 0 to 5
+    @Column(name = "rating_0")
+    private long rating0;
+
+    @Column(name = "rating_1")
+    private long rating1;
+
+    @Column(name = "rating_2")
+    private long rating2;
+
+    @Column(name = "rating_3")
+    private long rating3;
+
+    @Column(name = "rating_4")
+    private long rating4;
+
+    @Column(name = "rating_5")
+    private long rating5;
+
+    public CourseRating()
+    {
+    }
+
+    public CourseRating(Course course)
+    {
+        this.course = course;
+    }
+
+    public void addRating(int rating)
+    {
+        changeRatingCount(rating, 1);
+        reviewCount++;
+        ratingSum += rating;
+        updateAverage();
+    }
+
+    public void removeRating(int rating)
+    {
+        changeRatingCount(rating, -1);
+        reviewCount--;
+        ratingSum -= rating;
+        updateAverage();
+    }
+
+    public void clear()
+    {
+        reviewCount = 0;
+        ratingSum = 0;
+        rating0 = rating1 = rating2 = rating3 = rating4 = rating5 = 0;
+        updateAverage();
+    }
+
+    public long getRatingCount(int rating)
+    {
+        switch (rating)
+        {
+            case 0:
+                return rating0;
+            case 1:
+                return rating1;
+            case 2:
+                return rating2;
+            case 3:
+                return rating3;
+            case 4:
+                return rating4;
+            case 5:
+                return rating5;
+            default:
+                throw new IllegalArgumentException("Rating out of range: " + rating);
+        }
+    }
+
+    private void changeRatingCount(int rating, int delta)
+    {
+        switch (rating)
+        {
+            case 0:
+                rating0 += delta;
+                break;
+            case 1:
+                rating1 += delta;
+                break;
+            case 2:
+                rating2 += delta;
+                break;
+            case 3:
+                rating3 += delta;
+                break;
+            case 4:
+                rating4 += delta;
+                break;
+            case 5:
+                rating5 += delta;
+                break;
+            default:
+                throw new IllegalArgumentException("Rating out of range: " + rating);
+        }
+    }
+
+    private void updateAverage()
+    {
+        average = reviewCount > 0 ? (double)ratingSum / reviewCount : 0;
+    }
+
+    public Long getCourseId()
+    {
+        return courseId;
+    }
+
+    public Course getCourse()
+    {
+        return course;
+    }
+
+    public long getReviewCount()
+    {
+        return reviewCount;
+    }
+
+    public long getRatingSum()
+    {
+        return ratingSum;
+    }
+
+    public double getAverage()
+    {
+        return average;
+    }
+
+    public Long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CourseRating{" +
+                "courseId=" + courseId +
+                ", reviewCount=" + reviewCount +
+                ", ratingSum=" + ratingSum +
+                ", average=" + average +
+                '}';
+    }
+}
@@ -2,6 +2,8 @@ package com.learning.app.course.model.filter;
 
 import com.learning.app.common.model.filter.GenericFilter;
 
+import java.util.Objects;
+
 public class CourseFilter extends GenericFilter
 {
     private String name;
@@ -27,6 +29,25 @@ public class CourseFilter extends GenericFilter
         this.categoryId = categoryId;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!super.equals(o))
+            return false;
+
+        CourseFilter that = (CourseFilter) o;
+
+        return Objects.equals(name, that.name) && Objects.equals(categoryId, that.categoryId);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(super.hashCode(), name, categoryId);
+    }
+
     @Override
     public String toString()
     {
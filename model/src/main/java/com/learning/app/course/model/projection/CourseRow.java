@@ -0,0 +1,126 @@
+package com.learning.app.course.model.projection;
+
+import com.learning.app.course.model.Course;
+import com.learning.app.course.model.CourseRating;
+
+/*
+ * Read only view of a course for list results, with its category and rating aggregate
+ * Field names match the ones of Course, so that rows can be sorted and paged like the entity
+ */
+
+public class CourseRow
+{
+    private final Long id;
+    private final String name;
+    private final String url;
+    private final String description;
+    private final Long categoryId;
+    private final String categoryName;
+    private final long reviewCount;
+    private final long ratingSum;
+    private final double average;
+    //number of reviews for each rating, from 0 to 5
+    private final long[] ratingCounts;
+
+    //Used by the constructor expression of the list queries
+    public CourseRow(Long id, String name, String url, String description, Long categoryId, String categoryName,
+                     Long reviewCount, Long ratingSum, Double average, Long rating0, Long rating1, Long rating2,
+                     Long rating3, Long rating4, Long rating5)
+    {
+        this.id = id;
+        this.name = name;
+        this.url = url;
+        this.description = description;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.reviewCount = reviewCount;
+        this.ratingSum = ratingSum;
+        this.average = average;
+        this.ratingCounts = new long[]{rating0, rating1, rating2, rating3, rating4, rating5};
+    }
+
+    public CourseRow(Course course)
+    {
+        this.id = course.getId();
+        this.name = course.getName();
+        this.url = course.getUrl();
+        this.description = course.getDescription();
+        this.categoryId = course.getCategory().getId();
+        this.categoryName = course.getCategory().getName();
+
+        CourseRating rating = course.getRating() != null ? course.getRating() : new CourseRating();
+        this.reviewCount = rating.getReviewCount();
+        this.ratingSum = rating.getRatingSum();
+        this.average = rating.getAverage();
+        this.ratingCounts = new long[CourseRating.MAX_RATING - CourseRating.MIN_RATING + 1];
+        for (int value = CourseRating.MIN_RATING; value <= CourseRating.MAX_RATING; value++)
+        {
+            ratingCounts[value - CourseRating.MIN_RATING] = rating.getRatingCount(value);
+        }
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getUrl()
+    {
+        return url;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public Long getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public String getCategoryName()
+    {
+        return categoryName;
+    }
+
+    public long getReviewCount()
+    {
+        return reviewCount;
+    }
+
+    public long getRatingSum()
+    {
+        return ratingSum;
+    }
+
+    public double getAverage()
+    {
+        return average;
+    }
+
+    public long getRatingCount(int rating)
+    {
+        if (rating < CourseRating.MIN_RATING || rating > CourseRating.MAX_RATING)
+        {
+            throw new IllegalArgumentException("Rating out of range: " + rating);
+        }
+        return ratingCounts[rating - CourseRating.MIN_RATING];
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CourseRow{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", categoryId=" + categoryId +
+                ", average=" + average +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package com.learning.app.course.repository;
+
+import com.learning.app.common.repository.GenericRepository;
+import com.learning.app.common.repository.RepositoryTimingInterceptor;
+import com.learning.app.course.model.Course;
+import com.learning.app.course.model.CourseRating;
+
+import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+@Stateless
+@Interceptors(RepositoryTimingInterceptor.class)
+public class CourseRatingRepository extends GenericRepository<CourseRating>
+{
+    @PersistenceContext
+    EntityManager em;
+
+    @Override
+    protected Class<CourseRating> getPersistentClass()
+    {
+        return CourseRating.class;
+    }
+
+    @Override
+    protected EntityManager getEntityManager()
+    {
+        return em;
+    }
+
+    public void addRating(Long courseId, int rating)
+    {
+        findForUpdate(courseId).addRating(rating);
+        markChanged();
+    }
+
+    public void addRatings(Long courseId, List<Integer> ratings)
+    {
+        CourseRating courseRating = findForUpdate(courseId);
+        ratings.forEach(courseRating::addRating);
+        markChanged();
+    }
+
+    public void removeRating(Long courseId, int rating)
+    {
+        findForUpdate(courseId).removeRating(rating);
+        markChanged();
+    }
+
+    public void clear(Long courseId)
+    {
+        CourseRating courseRating = em.find(CourseRating.class, courseId, LockModeType.PESSIMISTIC_WRITE);
+        if (courseRating != null)
+        {
+            courseRating.clear();
+            markChanged();
+        }
+    }
+
+    //The row is locked, so that concurrent review writes on the same course are applied one after the other
+    //The rows of the courses with reviews are filled by the migration that added the aggregate, a missing row is
+    //only expected for a course without reviews, so it starts empty
+    private CourseRating findForUpdate(Long courseId)
+    {
+        CourseRating courseRating = em.find(CourseRating.class, courseId, LockModeType.PESSIMISTIC_WRITE);
+        if (courseRating == null)
+        {
+            courseRating = new CourseRating(em.getReference(Course.class, courseId));
+            em.persist(courseRating);
+        }
+        return courseRating;
+    }
+
+    //The rating is part of the course, so the course is marked as changed as well
+    @Override
+    protected void markChanged()
+    {
+        super.markChanged();
+        markChanged(Course.class);
+    }
+}
@@ -3,18 +3,50 @@ package com.learning.app.course.repository;
 
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.repository.GenericRepository;
+import com.learning.app.common.repository.RepositoryTimingInterceptor;
+import com.learning.app.common.repository.SearchIndex;
 import com.learning.app.course.model.Course;
+import com.learning.app.course.model.CourseRating;
 import com.learning.app.course.model.filter.CourseFilter;
+import com.learning.app.course.model.projection.CourseRow;
 
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Stateless
+@Interceptors(RepositoryTimingInterceptor.class)
 public class CourseRepository extends GenericRepository<Course>
 {
+    //values of the course list rows, courses without rating aggregate have no reviews
+    private static final String ROW_SELECTION = "e.id, e.name, e.url, e.description, e.category.id, e.category.name, "
+            + "coalesce(r.reviewCount, 0), coalesce(r.ratingSum, 0), coalesce(r.average, 0), "
+            + "coalesce(r.rating0, 0), coalesce(r.rating1, 0), coalesce(r.rating2, 0), "
+            + "coalesce(r.rating3, 0), coalesce(r.rating4, 0), coalesce(r.rating5, 0)";
+
+    //indexed fields, matches in the name rank above matches in the description
+    private static final Map<String, Integer> SEARCH_FIELD_WEIGHTS = new LinkedHashMap<>();
+
+    //averageRating is read from the rating aggregate, courses without reviews have an average of 0
+    private static final Map<String, String> SORT_EXPRESSIONS = sortExpressionsOfFields("id", "name");
+
+    static
+    {
+        SEARCH_FIELD_WEIGHTS.put("name", 2);
+        SEARCH_FIELD_WEIGHTS.put("description", 1);
+
+        SORT_EXPRESSIONS.put("averageRating", "coalesce(r.average, 0)");
+    }
+
     @PersistenceContext
     EntityManager em;
 
@@ -30,8 +62,45 @@ public class CourseRepository extends GenericRepository<Course>
         return em;
     }
 
-    @SuppressWarnings("unchecked")
-    public PaginatedData<Course> findByFilter(CourseFilter courseFilter)
+    //every course starts with an empty rating aggregate
+    @Override
+    public Course add(Course course)
+    {
+        super.add(course);
+        CourseRating courseRating = new CourseRating(course);
+        em.persist(courseRating);
+        course.setRating(courseRating);
+        indexCourse(course);
+        return course;
+    }
+
+    @Override
+    public void update(Course course)
+    {
+        super.update(course);
+        indexCourse(course);
+    }
+
+    @Override
+    public void delete(Long id)
+    {
+        getSearchIndex().remove(id);
+        super.delete(id);
+    }
+
+    @Override
+    protected String getJoinClause(boolean fetch)
+    {
+        return fetch ? "join fetch e.category left join fetch e.rating r" : "left join e.rating r";
+    }
+
+    @Override
+    protected Map<String, String> getSortExpressions()
+    {
+        return SORT_EXPRESSIONS;
+    }
+
+    public PaginatedData<CourseRow> findByFilter(CourseFilter courseFilter)
     {
         StringBuilder clause = new StringBuilder("WHERE e.id is not null");
         Map<String, Object> queryParameters = new HashMap<>();
@@ -41,6 +110,7 @@ public class CourseRepository extends GenericRepository<Course>
         {
             clause.append(" And UPPER(e.name) Like UPPER(:name)");
             queryParameters.put("name", "%" + courseFilter.getName() + "%");
+            getSearchIndex().appendSubstringCondition(clause, queryParameters, "name", courseFilter.getName());
         }
         if (courseFilter.getCategoryId() != null)
         {
@@ -48,7 +118,64 @@ public class CourseRepository extends GenericRepository<Course>
             queryParameters.put("category_id", courseFilter.getCategoryId());
         }
 
-        return findPaginatedDataByParameters(clause.toString(), courseFilter.getPaginationData(), queryParameters, "name " +
-                "ASC");
+        return findPaginatedRowsByParameters(CourseRow.class, ROW_SELECTION, clause.toString(),
+                courseFilter.getPaginationData(), queryParameters, "name ASC");
+    }
+
+    //Courses with a word of the name or description starting with each word of the query, best matches first
+    @SuppressWarnings("unchecked")
+    public List<CourseRow> search(String query, int maxResults)
+    {
+        List<Long> ids = getSearchIndex().search(query, maxResults);
+        if (ids.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        List<CourseRow> rows = em.createQuery("Select new " + CourseRow.class.getName() + "(" + ROW_SELECTION
+                + ") From Course e " + getJoinClause(false) + " Where e.id in :ids")
+                .setParameter("ids", ids)
+                .getResultList();
+
+        //keep the rank order of the index
+        rows.sort((row1, row2) -> Integer.compare(ids.indexOf(row1.getId()), ids.indexOf(row2.getId())));
+        return rows;
+    }
+
+    //Names of the given list that are already used by a course
+    @SuppressWarnings("unchecked")
+    public Set<String> findExistingNames(Collection<String> names)
+    {
+        if (names.isEmpty())
+        {
+            return new HashSet<>();
+        }
+        return new HashSet<>(em.createQuery("Select e.name From Course e Where e.name in :names")
+                .setParameter("names", names)
+                .getResultList());
+    }
+
+    public long rebuildSearchIndex()
+    {
+        return getSearchIndex().rebuild();
+    }
+
+    //-1 if the search index needs no rebuild
+    public long rebuildSearchIndexIfRequested()
+    {
+        return getSearchIndex().rebuildIfRequested();
+    }
+
+    private void indexCourse(Course course)
+    {
+        Map<String, String> fieldValues = new HashMap<>();
+        fieldValues.put("name", course.getName());
+        fieldValues.put("description", course.getDescription());
+        getSearchIndex().index(course.getId(), fieldValues);
+    }
+
+    private SearchIndex getSearchIndex()
+    {
+        return new SearchIndex(em, Course.class, SEARCH_FIELD_WEIGHTS);
     }
 }
@@ -1,24 +1,43 @@
 package com.learning.app.course.service;
 
+import com.learning.app.common.model.BatchItemResult;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.course.model.Course;
 import com.learning.app.course.model.filter.CourseFilter;
+import com.learning.app.course.model.projection.CourseRow;
 
 import javax.ejb.Local;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Local
 public interface CourseService
 {
     Course add(Course course);
 
+    //Add the valid courses of the list in one transaction, with one result per course in the same order
+    List<BatchItemResult<Course>> addAll(List<Course> courses);
+
     void update(Course course);
 
     Course findById(Long id);
 
+    //Courses of the given ids found with a single query, unknown ids are not in the map
+    Map<Long, Course> findByIds(Collection<Long> ids);
+
     List<Course> findAll();
 
-    PaginatedData<Course> findByFilter(CourseFilter courseFilter);
+    PaginatedData<CourseRow> findByFilter(CourseFilter courseFilter);
+
+    //Courses matching the words of the query as word prefixes, best matches first
+    List<CourseRow> search(String query, int maxResults);
+
+    long rebuildSearchIndex();
+
+    //Pass all courses to the consumer one by one, without loading them all in memory
+    long exportAll(Consumer<Course> consumer);
 
     void deleteById(Long id);
 }
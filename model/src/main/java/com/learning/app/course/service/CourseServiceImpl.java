@@ -1,13 +1,17 @@
 package com.learning.app.course.service;
 
 
+import com.learning.app.category.exception.CategoryNotFoundException;
 import com.learning.app.category.model.Category;
 import com.learning.app.category.service.CategoryService;
+import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.model.BatchItemResult;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.utils.DataValidation;
 import com.learning.app.course.exception.CourseNotFoundException;
 import com.learning.app.course.model.Course;
 import com.learning.app.course.model.filter.CourseFilter;
+import com.learning.app.course.model.projection.CourseRow;
 import com.learning.app.course.repository.CourseRepository;
 import com.learning.app.review.service.ReviewService;
 import org.slf4j.Logger;
@@ -16,11 +20,21 @@ import org.slf4j.LoggerFactory;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Stateless
 public class CourseServiceImpl implements CourseService
 {
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_BATCH_SIZE = 500;
+
     @Inject
     CourseRepository courseRepository;
 
@@ -44,6 +58,55 @@ public class CourseServiceImpl implements CourseService
         return courseRepository.add(course);
     }
 
+    //Categories and existing names are read with one query each for the whole batch
+    @Override
+    public List<BatchItemResult<Course>> addAll(List<Course> courses)
+    {
+        if (courses.size() > MAX_BATCH_SIZE)
+        {
+            throw new FieldInvalidException("items", "A batch may contain at most " + MAX_BATCH_SIZE + " items");
+        }
+
+        Map<Long, Category> categories = categoryService.findByIds(courses.stream()
+                .map(course -> course.getCategory().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Set<String> usedNames = courseRepository.findExistingNames(courses.stream()
+                .map(Course::getName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        List<BatchItemResult<Course>> results = new ArrayList<>(courses.size());
+        List<Course> validCourses = new ArrayList<>(courses.size());
+        for (Course course : courses)
+        {
+            try
+            {
+                Category category = categories.get(course.getCategory().getId());
+                if (category == null)
+                {
+                    throw new CategoryNotFoundException();
+                }
+                course.setCategory(category);
+                DataValidation.validateEntityFields(validator, course);
+                //the name is unique, within the batch as well
+                if (!usedNames.add(course.getName()))
+                {
+                    throw new FieldInvalidException("name", "There is already a course with this name");
+                }
+
+                validCourses.add(course);
+                results.add(BatchItemResult.success(course));
+            } catch (FieldInvalidException | CategoryNotFoundException e)
+            {
+                results.add(BatchItemResult.failure(e));
+            }
+        }
+
+        courseRepository.addAll(validCourses);
+        return results;
+    }
+
     @Override
     public void update(Course course)
     {
@@ -70,6 +133,12 @@ public class CourseServiceImpl implements CourseService
         return course;
     }
 
+    @Override
+    public Map<Long, Course> findByIds(Collection<Long> ids)
+    {
+        return courseRepository.findByIds(ids);
+    }
+
     @Override
     public List<Course> findAll()
     {
@@ -77,11 +146,38 @@ public class CourseServiceImpl implements CourseService
     }
 
     @Override
-    public PaginatedData<Course> findByFilter(CourseFilter courseFilter)
+    public PaginatedData<CourseRow> findByFilter(CourseFilter courseFilter)
     {
         return courseRepository.findByFilter(courseFilter);
     }
 
+    @Override
+    public List<CourseRow> search(String query, int maxResults)
+    {
+        if (query == null || query.trim().isEmpty())
+        {
+            throw new FieldInvalidException("q", "The search query may not be empty");
+        }
+        if (maxResults < 1 || maxResults > MAX_SEARCH_RESULTS)
+        {
+            throw new FieldInvalidException("limit", "The limit must be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+
+        return courseRepository.search(query, maxResults);
+    }
+
+    @Override
+    public long rebuildSearchIndex()
+    {
+        return courseRepository.rebuildSearchIndex();
+    }
+
+    @Override
+    public long exportAll(Consumer<Course> consumer)
+    {
+        return courseRepository.streamAll(consumer);
+    }
+
     @Override
     public void deleteById(Long id)
     {
@@ -1,7 +1,11 @@
 package com.learning.app.review.model;
 
+import com.learning.app.common.model.PooledSequenceGenerator;
+import com.learning.app.common.model.VersionedEntity;
 import com.learning.app.course.model.Course;
 import com.learning.app.user.model.User;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.Max;
@@ -13,14 +17,19 @@ import java.time.LocalDate;
 
 @Entity
 @Table(name = "REVIEW")
-public class Review implements Serializable
+public class Review implements Serializable, VersionedEntity
 {
     private static final long serialVersionUID = -3960006515913472935L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "REVIEW_SEQ")
+    @GenericGenerator(name = "REVIEW_SEQ", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "REVIEW_SEQ"))
     private long id;
 
+    @Version
+    private Long version;
+
     @NotNull
     @Min(0)
     @Max(5)
@@ -57,6 +66,18 @@ public class Review implements Serializable
         this.id = id;
     }
 
+    @Override
+    public Long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version)
+    {
+        this.version = version;
+    }
+
     public int getRating()
     {
         return rating;
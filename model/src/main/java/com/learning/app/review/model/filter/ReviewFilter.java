@@ -2,6 +2,8 @@ package com.learning.app.review.model.filter;
 
 import com.learning.app.common.model.filter.GenericFilter;
 
+import java.util.Objects;
+
 public class ReviewFilter extends GenericFilter
 {
     private Long userId;
@@ -27,6 +29,25 @@ public class ReviewFilter extends GenericFilter
         this.courseId = courseId;
     }
 
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!super.equals(o))
+            return false;
+
+        ReviewFilter that = (ReviewFilter) o;
+
+        return Objects.equals(userId, that.userId) && Objects.equals(courseId, that.courseId);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(super.hashCode(), userId, courseId);
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,101 @@
+package com.learning.app.review.model.projection;
+
+import com.learning.app.review.model.Review;
+
+import java.time.LocalDate;
+
+/*
+ * Read only view of a review for list results, with the user and course fields shown with it
+ * Field names match the ones of Review, so that rows can be sorted and paged like the entity
+ */
+
+public class ReviewRow
+{
+    private final Long id;
+    private final int rating;
+    private final String comment;
+    private final LocalDate createdAt;
+    private final Long userId;
+    private final String userName;
+    private final String userEmail;
+    private final Long courseId;
+    private final String courseName;
+
+    //Used by the constructor expression of the list queries
+    public ReviewRow(Long id, Integer rating, String comment, LocalDate createdAt, Long userId, String userName,
+                     String userEmail, Long courseId, String courseName)
+    {
+        this.id = id;
+        this.rating = rating;
+        this.comment = comment;
+        this.createdAt = createdAt;
+        this.userId = userId;
+        this.userName = userName;
+        this.userEmail = userEmail;
+        this.courseId = courseId;
+        this.courseName = courseName;
+    }
+
+    public ReviewRow(Review review)
+    {
+        this(review.getId(), review.getRating(), review.getComment(), review.getCreatedAt(),
+                review.getUser().getId(), review.getUser().getName(), review.getUser().getEmail(),
+                review.getCourse().getId(), review.getCourse().getName());
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public int getRating()
+    {
+        return rating;
+    }
+
+    public String getComment()
+    {
+        return comment;
+    }
+
+    public LocalDate getCreatedAt()
+    {
+        return createdAt;
+    }
+
+    public Long getUserId()
+    {
+        return userId;
+    }
+
+    public String getUserName()
+    {
+        return userName;
+    }
+
+    public String getUserEmail()
+    {
+        return userEmail;
+    }
+
+    public Long getCourseId()
+    {
+        return courseId;
+    }
+
+    public String getCourseName()
+    {
+        return courseName;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ReviewRow{" +
+                "id=" + id +
+                ", rating=" + rating +
+                ", userId=" + userId +
+                ", courseId=" + courseId +
+                '}';
+    }
+}
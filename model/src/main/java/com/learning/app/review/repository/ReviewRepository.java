@@ -2,19 +2,31 @@ package com.learning.app.review.repository;
 
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.repository.GenericRepository;
+import com.learning.app.common.repository.RepositoryTimingInterceptor;
 import com.learning.app.review.model.Review;
 import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
+import org.hibernate.engine.spi.SessionImplementor;
 
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @Stateless
+@Interceptors(RepositoryTimingInterceptor.class)
 public class ReviewRepository extends GenericRepository<Review>
 {
+    //values of the review list rows, with the user and course fields shown in the list
+    private static final String ROW_SELECTION = "e.id, e.rating, e.comment, e.createdAt, "
+            + "e.user.id, e.user.name, e.user.email, e.course.id, e.course.name";
+
+    private static final Map<String, String> SORT_EXPRESSIONS = sortExpressionsOfFields("id", "rating", "createdAt");
+
     @PersistenceContext
     EntityManager em;
 
@@ -30,7 +42,20 @@ public class ReviewRepository extends GenericRepository<Review>
         return em;
     }
 
-    public PaginatedData<Review> findByFilter(ReviewFilter reviewFilter)
+    @Override
+    protected Map<String, String> getSortExpressions()
+    {
+        return SORT_EXPRESSIONS;
+    }
+
+    //user and course are exported with each review, they are loaded in the same query
+    @Override
+    protected String getJoinClause(boolean fetch)
+    {
+        return fetch ? "join fetch e.user join fetch e.course c join fetch c.category left join fetch c.rating" : "";
+    }
+
+    public PaginatedData<ReviewRow> findByFilter(ReviewFilter reviewFilter)
     {
         StringBuilder clause = new StringBuilder("WHERE e.id is not null");
         Map<String, Object> queryParameters = new HashMap<>();
@@ -47,22 +72,35 @@ public class ReviewRepository extends GenericRepository<Review>
             queryParameters.put("course_id", +reviewFilter.getCourseId());
         }
 
-        return findPaginatedDataByParameters(clause.toString(), reviewFilter.getPaginationData(), queryParameters, "rating DESC");
+        return findPaginatedRowsByParameters(ReviewRow.class, ROW_SELECTION, clause.toString(),
+                reviewFilter.getPaginationData(), queryParameters, "rating DESC");
     }
 
-    @SuppressWarnings("unchecked")
-    public void deleteByCourseId(Long courseId)
+    //Delete all reviews of the course with a single statement, without loading them
+    //Returns the number of deleted reviews
+    public int deleteByCourseId(Long courseId)
     {
-        //get all reviews with this course id
-        List<Review> reviews = em
-                .createQuery("Select e From Review e Where e.course.id = :course_id")
+        //the statement bypasses the persistence context, so pending changes are written first
+        em.flush();
+
+        int deletedReviews = em
+                .createQuery("Delete From Review e Where e.course.id = :course_id")
                 .setParameter("course_id", courseId)
-                .getResultList();
+                .executeUpdate();
 
-        //delete all reviews with this course id
-        for (Review review : reviews)
+        //deleted reviews may still be managed, they must not be read again, the other entities of the caller's
+        //transaction stay managed (reviews are not kept in the second-level cache)
+        List<Review> deletedManagedReviews = new ArrayList<>();
+        for (Object entity : em.unwrap(SessionImplementor.class).getPersistenceContext().getEntitiesByKey().values())
         {
-            em.remove(review);
+            if (entity instanceof Review && courseId.equals(((Review) entity).getCourse().getId()))
+            {
+                deletedManagedReviews.add((Review) entity);
+            }
         }
+        deletedManagedReviews.forEach(em::detach);
+        markChanged();
+
+        return deletedReviews;
     }
 }
@@ -1,21 +1,38 @@
 package com.learning.app.review.service;
 
+import com.learning.app.common.model.BatchItemResult;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.review.model.Review;
 import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
 
 import javax.ejb.Local;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Local
 public interface ReviewService
 {
     Review add(Review review);
 
+    //Add the valid reviews of the list in one transaction, with one result per review in the same order
+    List<BatchItemResult<Review>> addAll(List<Review> reviews);
+
+    //Add reviews read from an ingestion log, the sequence of the last record is saved in the same transaction
+    //Each log has its own checkpoint, named by the id of the log. An empty list only saves the sequence
+    List<BatchItemResult<Review>> addAllIngested(String logId, List<Review> reviews, long lastSequence);
+
+    //Sequence of the last record of the ingestion log written to the database, 0 if none
+    long findLastIngestedSequence(String logId);
+
     void update(Review review);
 
     Review findById(Long id);
 
-    PaginatedData<Review> findByFilter(ReviewFilter reviewFilter);
+    PaginatedData<ReviewRow> findByFilter(ReviewFilter reviewFilter);
+
+    //Pass all reviews to the consumer one by one, without loading them all in memory
+    long exportAll(Consumer<Review> consumer);
 
     void deleteByCourseId(Long id);
 
@@ -1,26 +1,50 @@
 package com.learning.app.review.service;
 
+import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.model.BatchItemResult;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.repository.IngestionCheckpointRepository;
 import com.learning.app.common.utils.DataValidation;
+import com.learning.app.course.exception.CourseNotFoundException;
 import com.learning.app.course.model.Course;
+import com.learning.app.course.repository.CourseRatingRepository;
 import com.learning.app.course.service.CourseService;
 import com.learning.app.review.exception.ReviewNotFoundException;
 import com.learning.app.review.model.Review;
 import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
 import com.learning.app.review.repository.ReviewRepository;
+import com.learning.app.user.exception.UserNotFoundException;
 import com.learning.app.user.model.User;
 import com.learning.app.user.service.UserService;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Stateless
 public class ReviewServiceImpl implements ReviewService
 {
+    private static final int MAX_BATCH_SIZE = 500;
+    //the checkpoint of an ingestion log is named by the id of the log, the sequences of each node start at 1
+    private static final String INGESTION_CHECKPOINT_PREFIX = "reviews-";
+
     @Inject
     ReviewRepository reviewRepository;
 
+    @Inject
+    CourseRatingRepository courseRatingRepository;
+
+    @Inject
+    IngestionCheckpointRepository ingestionCheckpointRepository;
+
     @Inject
     UserService userService;
 
@@ -38,7 +62,82 @@ public class ReviewServiceImpl implements ReviewService
         setReviewCourse(review);
         DataValidation.validateEntityFields(validator, review);
 
-        return reviewRepository.add(review);
+        Review reviewAdded = reviewRepository.add(review);
+        courseRatingRepository.addRating(review.getCourse().getId(), review.getRating());
+
+        return reviewAdded;
+    }
+
+    //Users and courses are read with one query each for the whole batch
+    @Override
+    public List<BatchItemResult<Review>> addAll(List<Review> reviews)
+    {
+        if (reviews.size() > MAX_BATCH_SIZE)
+        {
+            throw new FieldInvalidException("items", "A batch may contain at most " + MAX_BATCH_SIZE + " items");
+        }
+
+        Map<Long, User> users = userService.findByIds(reviews.stream()
+                .map(review -> review.getUser().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Map<Long, Course> courses = courseService.findByIds(reviews.stream()
+                .map(review -> review.getCourse().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        List<BatchItemResult<Review>> results = new ArrayList<>(reviews.size());
+        List<Review> validReviews = new ArrayList<>(reviews.size());
+        //the ratings of each course are added at once, courses in id order so that concurrent batches lock the
+        //rating rows in the same order
+        Map<Long, List<Integer>> ratingsByCourse = new TreeMap<>();
+        for (Review review : reviews)
+        {
+            try
+            {
+                User user = users.get(review.getUser().getId());
+                if (user == null)
+                {
+                    throw new UserNotFoundException();
+                }
+                Course course = courses.get(review.getCourse().getId());
+                if (course == null)
+                {
+                    throw new CourseNotFoundException();
+                }
+                review.setUser(user);
+                review.setCourse(course);
+                DataValidation.validateEntityFields(validator, review);
+
+                validReviews.add(review);
+                ratingsByCourse.computeIfAbsent(course.getId(), key -> new ArrayList<>()).add(review.getRating());
+                results.add(BatchItemResult.success(review));
+            } catch (FieldInvalidException | UserNotFoundException | CourseNotFoundException e)
+            {
+                results.add(BatchItemResult.failure(e));
+            }
+        }
+
+        reviewRepository.addAll(validReviews);
+        ratingsByCourse.forEach(courseRatingRepository::addRatings);
+
+        return results;
+    }
+
+    //A record is never added twice: after a crash the log is replayed from the checkpoint committed with the reviews
+    //Without reviews only the checkpoint is saved, past records that cannot be added
+    @Override
+    public List<BatchItemResult<Review>> addAllIngested(String logId, List<Review> reviews, long lastSequence)
+    {
+        List<BatchItemResult<Review>> results = reviews.isEmpty() ? new ArrayList<>() : addAll(reviews);
+        ingestionCheckpointRepository.saveLastSequence(INGESTION_CHECKPOINT_PREFIX + logId, lastSequence);
+        return results;
+    }
+
+    @Override
+    public long findLastIngestedSequence(String logId)
+    {
+        return ingestionCheckpointRepository.findLastSequence(INGESTION_CHECKPOINT_PREFIX + logId);
     }
 
     @Override
@@ -46,15 +145,32 @@ public class ReviewServiceImpl implements ReviewService
     {
         DataValidation.validateEntityFields(validator, review);
 
-        if (!reviewRepository.idExists(review.getId()))
+        Review existingReview = reviewRepository.findById(review.getId());
+        if (existingReview == null)
         {
             throw new ReviewNotFoundException();
         }
+        //read before the update, as the existing review is overwritten by the merge
+        Long previousCourseId = existingReview.getCourse().getId();
+        int previousRating = existingReview.getRating();
 
         setReviewUser(review);
         setReviewCourse(review);
 
         reviewRepository.update(review);
+
+        //the rating rows of both courses are locked in id order, as in addAll, so that reviews moved between two
+        //courses in opposite directions do not wait for each other
+        Long courseId = review.getCourse().getId();
+        if (courseId < previousCourseId)
+        {
+            courseRatingRepository.addRating(courseId, review.getRating());
+            courseRatingRepository.removeRating(previousCourseId, previousRating);
+        } else
+        {
+            courseRatingRepository.removeRating(previousCourseId, previousRating);
+            courseRatingRepository.addRating(courseId, review.getRating());
+        }
     }
 
     @Override
@@ -70,26 +186,35 @@ public class ReviewServiceImpl implements ReviewService
     }
 
     @Override
-    public PaginatedData<Review> findByFilter(ReviewFilter reviewFilter)
+    public PaginatedData<ReviewRow> findByFilter(ReviewFilter reviewFilter)
     {
         return reviewRepository.findByFilter(reviewFilter);
     }
 
+    @Override
+    public long exportAll(Consumer<Review> consumer)
+    {
+        return reviewRepository.streamAll(consumer);
+    }
+
     @Override
     public void deleteByCourseId(Long courseId)
     {
         reviewRepository.deleteByCourseId(courseId);
+        courseRatingRepository.clear(courseId);
     }
 
     @Override
     public void deleteById(Long id)
     {
-        if (!reviewRepository.idExists(id))
+        Review review = reviewRepository.findById(id);
+        if (review == null)
         {
             throw new ReviewNotFoundException();
         }
 
         reviewRepository.delete(id);
+        courseRatingRepository.removeRating(review.getCourse().getId(), review.getRating());
     }
 
     //The review object converted from json only contains the user id
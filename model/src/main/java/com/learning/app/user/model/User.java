@@ -1,5 +1,10 @@
 package com.learning.app.user.model;
 
+import com.learning.app.common.model.PooledSequenceGenerator;
+import com.learning.app.common.model.VersionedEntity;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -12,14 +17,19 @@ import java.util.List;
 
 @Entity
 @Table(name = "USERS")
-public class User implements Serializable
+public class User implements Serializable, VersionedEntity
 {
     private static final long serialVersionUID = -8323752660030036842L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "USERS_SEQ")
+    @GenericGenerator(name = "USERS_SEQ", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "USERS_SEQ"))
     private Long id;
 
+    @Version
+    private Long version;
+
     @NotNull
     @Size(min = 2, max = 40)
     @Column
@@ -50,6 +60,8 @@ public class User implements Serializable
     )
     //Fetch type EAGER loads user roles as soon as the user is loaded
     @ElementCollection(fetch = FetchType.EAGER)
+    //Roles of the users loaded by one query are read together instead of one select per user
+    @BatchSize(size = 100)
     @Column(name = "role")
     //The roles are stored as String values in the database
     @Enumerated(EnumType.STRING)
@@ -71,6 +83,18 @@ public class User implements Serializable
         this.id = id;
     }
 
+    @Override
+    public Long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version)
+    {
+        this.version = version;
+    }
+
     public String getName()
     {
         return name;
@@ -0,0 +1,76 @@
+package com.learning.app.user.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Immutable copy of the user data needed to authenticate and authorize a user, kept in the credentials cache
+ * It holds the password hash, never the password itself
+ */
+
+public class UserCredentials
+{
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String passwordHash;
+    private final LocalDate createdAt;
+    private final List<User.Role> roles;
+
+    public UserCredentials(User user)
+    {
+        this.id = user.getId();
+        this.name = user.getName();
+        this.email = user.getEmail();
+        this.passwordHash = user.getPassword();
+        this.createdAt = user.getCreatedAt();
+        this.roles = user.getRoles() == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(user.getRoles()));
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public String getEmail()
+    {
+        return email;
+    }
+
+    public String getPasswordHash()
+    {
+        return passwordHash;
+    }
+
+    public List<User.Role> getRoles()
+    {
+        return roles;
+    }
+
+    //new detached user on every call, so that callers cannot change the cached data
+    public User toUser()
+    {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail(email);
+        user.setPassword(passwordHash);
+        user.setCreatedAt(createdAt);
+        user.setRoles(new ArrayList<>(roles));
+
+        return user;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "UserCredentials{" +
+                "id=" + id +
+                ", email='" + email + '\'' +
+                ", roles=" + roles +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.learning.app.user.model.projection;
+
+import com.learning.app.user.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Read only view of a user for list results, without the password
+ * Field names match the ones of User, so that rows can be sorted and paged like the entity
+ */
+
+public class UserRow
+{
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final LocalDate createdAt;
+    //roles are a collection, they are read by a separate query and added to the rows of the page
+    private final List<User.Role> roles = new ArrayList<>();
+
+    //Used by the constructor expression of the list queries
+    public UserRow(Long id, String name, String email, LocalDate createdAt)
+    {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.createdAt = createdAt;
+    }
+
+    public UserRow(User user)
+    {
+        this(user.getId(), user.getName(), user.getEmail(), user.getCreatedAt());
+        this.roles.addAll(user.getRoles());
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getEmail()
+    {
+        return email;
+    }
+
+    public LocalDate getCreatedAt()
+    {
+        return createdAt;
+    }
+
+    public List<User.Role> getRoles()
+    {
+        return new ArrayList<>(roles);
+    }
+
+    public void addRole(User.Role role)
+    {
+        roles.add(role);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "UserRow{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", email='" + email + '\'' +
+                '}';
+    }
+}
@@ -3,19 +3,35 @@ package com.learning.app.user.repository;
 
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.repository.GenericRepository;
+import com.learning.app.common.repository.RepositoryTimingInterceptor;
+import com.learning.app.common.repository.SearchIndex;
 import com.learning.app.user.model.User;
 import com.learning.app.user.model.filter.UserFilter;
+import com.learning.app.user.model.projection.UserRow;
 
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Stateless
+@Interceptors(RepositoryTimingInterceptor.class)
 public class UserRepository extends GenericRepository<User>
 {
+    //values of the user list rows, the password is not read
+    private static final String ROW_SELECTION = "e.id, e.name, e.email, e.createdAt";
+
+    //the name is the only indexed field of users
+    private static final Map<String, Integer> SEARCH_FIELD_WEIGHTS = Collections.singletonMap("name", 1);
+
+    private static final Map<String, String> SORT_EXPRESSIONS =
+            sortExpressionsOfFields("id", "name", "email", "createdAt");
+
     @PersistenceContext
     EntityManager em;
 
@@ -31,6 +47,34 @@ public class UserRepository extends GenericRepository<User>
         return em;
     }
 
+    @Override
+    protected Map<String, String> getSortExpressions()
+    {
+        return SORT_EXPRESSIONS;
+    }
+
+    @Override
+    public User add(User user)
+    {
+        super.add(user);
+        indexUser(user);
+        return user;
+    }
+
+    @Override
+    public void update(User user)
+    {
+        super.update(user);
+        indexUser(user);
+    }
+
+    @Override
+    public void delete(Long id)
+    {
+        getSearchIndex().remove(id);
+        super.delete(id);
+    }
+
     public User findByEmail(String email)
     {
         try
@@ -44,7 +88,7 @@ public class UserRepository extends GenericRepository<User>
         }
     }
 
-    public PaginatedData<User> findByFilter(UserFilter userFilter)
+    public PaginatedData<UserRow> findByFilter(UserFilter userFilter)
     {
         StringBuilder clause = new StringBuilder("WHERE e.id is not null");
         Map<String, Object> queryParameters = new HashMap<>();
@@ -52,8 +96,58 @@ public class UserRepository extends GenericRepository<User>
         {
             clause.append(" And Upper(e.name) Like Upper(:name)");
             queryParameters.put("name", "%" + userFilter.getName() + "%");
+            getSearchIndex().appendSubstringCondition(clause, queryParameters, "name", userFilter.getName());
+        }
+        PaginatedData<UserRow> users = findPaginatedRowsByParameters(UserRow.class, ROW_SELECTION, clause.toString(),
+                userFilter.getPaginationData(), queryParameters, "name ASC");
+        addRolesToRows(users.getRows());
+
+        return users;
+    }
+
+    //Read the roles of all users of the page with one query
+    @SuppressWarnings("unchecked")
+    private void addRolesToRows(List<UserRow> userRows)
+    {
+        if (userRows.isEmpty())
+        {
+            return;
+        }
+
+        Map<Long, UserRow> rowsById = new HashMap<>();
+        for (UserRow userRow : userRows)
+        {
+            rowsById.put(userRow.getId(), userRow);
+        }
+
+        List<Object[]> userRoles = em
+                .createQuery("Select e.id, r From User e join e.roles r Where e.id in :ids Order by e.id")
+                .setParameter("ids", rowsById.keySet())
+                .getResultList();
+        for (Object[] userRole : userRoles)
+        {
+            rowsById.get((Long)userRole[0]).addRole((User.Role)userRole[1]);
         }
-        return findPaginatedDataByParameters(clause.toString(), userFilter.getPaginationData(), queryParameters, "name ASC");
     }
 
+    public long rebuildSearchIndex()
+    {
+        return getSearchIndex().rebuild();
+    }
+
+    //-1 if the search index needs no rebuild
+    public long rebuildSearchIndexIfRequested()
+    {
+        return getSearchIndex().rebuildIfRequested();
+    }
+
+    private void indexUser(User user)
+    {
+        getSearchIndex().index(user.getId(), Collections.singletonMap("name", user.getName()));
+    }
+
+    private SearchIndex getSearchIndex()
+    {
+        return new SearchIndex(em, User.class, SEARCH_FIELD_WEIGHTS);
+    }
 }
@@ -0,0 +1,86 @@
+package com.learning.app.user.service;
+
+import com.learning.app.common.utils.ExpiringLruCache;
+import com.learning.app.user.model.UserCredentials;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Credentials of recently authenticated users, keyed by email
+ * Entries live one minute, so a change made on another node is seen after at most that time
+ * A change of a user is invalidated at once and again when its transaction completes: an authentication running
+ * before the commit still reads the old row, and may cache it between both invalidations
+ */
+
+@ApplicationScoped
+public class UserCredentialsCache
+{
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TIME_TO_LIVE_MILLIS = 60_000;
+
+    private final ExpiringLruCache<String, UserCredentials> credentials =
+            new ExpiringLruCache<>(MAX_ENTRIES, TIME_TO_LIVE_MILLIS);
+
+    //incremented by every invalidation, see put
+    private final AtomicLong generation = new AtomicLong();
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    public UserCredentials get(String email)
+    {
+        return credentials.get(email);
+    }
+
+    public long getGeneration()
+    {
+        return generation.get();
+    }
+
+    //the generation must be read before loading the user,
+    //credentials loaded while the user was being changed are not cached
+    public void put(UserCredentials userCredentials, long loadedAtGeneration)
+    {
+        synchronized (generation)
+        {
+            if (generation.get() == loadedAtGeneration)
+            {
+                credentials.put(userCredentials.getEmail(), userCredentials);
+            }
+        }
+    }
+
+    public void invalidate(Long userId)
+    {
+        invalidateNow(userId);
+        if (transactionRegistry != null && transactionRegistry.getTransactionKey() != null)
+        {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization()
+            {
+                @Override
+                public void beforeCompletion()
+                {
+                }
+
+                @Override
+                public void afterCompletion(int status)
+                {
+                    invalidateNow(userId);
+                }
+            });
+        }
+    }
+
+    private void invalidateNow(Long userId)
+    {
+        synchronized (generation)
+        {
+            generation.incrementAndGet();
+            credentials.removeIf(userCredentials -> userCredentials.getId().equals(userId));
+        }
+    }
+}
@@ -3,8 +3,11 @@ package com.learning.app.user.service;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.user.model.User;
 import com.learning.app.user.model.filter.UserFilter;
+import com.learning.app.user.model.projection.UserRow;
 
 import javax.ejb.Local;
+import java.util.Collection;
+import java.util.Map;
 
 @Local
 public interface UserService
@@ -13,6 +16,9 @@ public interface UserService
 
     User findById(Long id);
 
+    //Users of the given ids found with a single query, unknown ids are not in the map
+    Map<Long, User> findByIds(Collection<Long> ids);
+
     void update(User user);
 
     void updatePassword(Long id, String password);
@@ -21,7 +27,9 @@ public interface UserService
 
     User findByEmailAndPassword(String email, String password);
 
-    PaginatedData<User> findByFilter(UserFilter userFilter);
+    PaginatedData<UserRow> findByFilter(UserFilter userFilter);
 
     void delete(Long id);
+
+    long rebuildSearchIndex();
 }
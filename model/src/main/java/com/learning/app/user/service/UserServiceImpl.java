@@ -5,11 +5,15 @@ import com.learning.app.common.utils.DataValidation;
 import com.learning.app.common.utils.PasswordEncryption;
 import com.learning.app.user.exception.UserNotFoundException;
 import com.learning.app.user.model.User;
+import com.learning.app.user.model.UserCredentials;
 import com.learning.app.user.model.filter.UserFilter;
+import com.learning.app.user.model.projection.UserRow;
 import com.learning.app.user.repository.UserRepository;
 
 import javax.inject.Inject;
 import javax.validation.Validator;
+import java.util.Collection;
+import java.util.Map;
 
 public class UserServiceImpl implements UserService
 {
@@ -19,6 +23,9 @@ public class UserServiceImpl implements UserService
     @Inject
     Validator validator;
 
+    @Inject
+    UserCredentialsCache credentialsCache;
+
     @Override
     public User add(User user)
     {
@@ -40,6 +47,12 @@ public class UserServiceImpl implements UserService
         return user;
     }
 
+    @Override
+    public Map<Long, User> findByIds(Collection<Long> ids)
+    {
+        return userRepository.findByIds(ids);
+    }
+
     @Override
     public void update(User user)
     {
@@ -49,6 +62,8 @@ public class UserServiceImpl implements UserService
         DataValidation.validateEntityFields(validator, user);
 
         userRepository.update(user);
+        //after the update, the email may have changed as well
+        credentialsCache.invalidate(user.getId());
     }
 
     @Override
@@ -58,34 +73,51 @@ public class UserServiceImpl implements UserService
         user.setPassword(PasswordEncryption.encryptPassword(password));
 
         userRepository.update(user);
+        credentialsCache.invalidate(id);
     }
 
+    //Called on every authenticated request, the user is read from the credentials cache when possible
     @Override
     public User findByEmail(String email)
     {
-        User user = userRepository.findByEmail(email);
-        if (user == null)
+        return findCredentialsByEmail(email).toUser();
+    }
+
+    @Override
+    public User findByEmailAndPassword(String email, String password)
+    {
+        UserCredentials credentials = findCredentialsByEmail(email);
+
+        if (!PasswordEncryption.matches(password, credentials.getPasswordHash()))
         {
             throw new UserNotFoundException();
         }
-        return user;
+
+        return credentials.toUser();
     }
 
-    @Override
-    public User findByEmailAndPassword(String email, String password)
+    private UserCredentials findCredentialsByEmail(String email)
     {
-        User user = findByEmail(email);
+        UserCredentials credentials = credentialsCache.get(email);
+        if (credentials != null)
+        {
+            return credentials;
+        }
 
-        if (!user.getPassword().equals(PasswordEncryption.encryptPassword(password)))
+        long generation = credentialsCache.getGeneration();
+        User user = userRepository.findByEmail(email);
+        if (user == null)
         {
             throw new UserNotFoundException();
         }
 
-        return user;
+        credentials = new UserCredentials(user);
+        credentialsCache.put(credentials, generation);
+        return credentials;
     }
 
     @Override
-    public PaginatedData<User> findByFilter(final UserFilter userFilter)
+    public PaginatedData<UserRow> findByFilter(final UserFilter userFilter)
     {
         return userRepository.findByFilter(userFilter);
     }
@@ -99,5 +131,12 @@ public class UserServiceImpl implements UserService
         }
 
         userRepository.delete(id);
+        credentialsCache.invalidate(id);
+    }
+
+    @Override
+    public long rebuildSearchIndex()
+    {
+        return userRepository.rebuildSearchIndex();
     }
 }
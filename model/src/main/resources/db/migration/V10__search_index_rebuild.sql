@@ -0,0 +1,12 @@
+-- Search indexes still to be built, mapped by SearchIndexRebuild
+-- The courses and users written before V5 have no trigrams: until SearchIndexBuilder has rebuilt their index at
+-- the startup, the name filters do not use it
+
+create table SEARCH_INDEX_REBUILD (
+	entity_type varchar(20) not null,
+	requested_at timestamp not null,
+	primary key(entity_type)
+);
+
+insert into SEARCH_INDEX_REBUILD (entity_type, requested_at) values('Course', current_timestamp);
+insert into SEARCH_INDEX_REBUILD (entity_type, requested_at) values('User', current_timestamp);
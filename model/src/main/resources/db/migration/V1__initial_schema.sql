@@ -1,3 +1,7 @@
+-- Initial schema, formerly db.sql
+-- Databases created from db.sql before the migrations were versioned have no SCHEMA_VERSION table,
+-- SchemaMigrator records them at this version without running it, so this script must stay as db.sql was
+
 create table CATEGORY (
 	id bigserial not null primary key,
 	name varchar(25) not null unique
@@ -40,4 +44,4 @@ create table REVIEW (
 	course_id bigint not null,
 	constraint fk_review_users foreign key(user_id) references USERS(id),
 	constraint fk_review_course foreign key(course_id) references COURSE(id)
-);
\ No newline at end of file
+);
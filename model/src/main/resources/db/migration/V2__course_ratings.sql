@@ -0,0 +1,29 @@
+-- Rating aggregates of the courses (CourseRating), kept up to date by the review service
+-- The aggregates of the existing courses are computed from their reviews
+
+create table COURSE_RATING (
+	course_id bigint not null primary key,
+	review_count bigint not null,
+	rating_sum bigint not null,
+	average double precision not null,
+	rating_0 bigint not null,
+	rating_1 bigint not null,
+	rating_2 bigint not null,
+	rating_3 bigint not null,
+	rating_4 bigint not null,
+	rating_5 bigint not null,
+	constraint fk_course_rating_course foreign key(course_id) references COURSE(id)
+);
+create index idx_course_rating_average on COURSE_RATING(average);
+
+insert into COURSE_RATING (course_id, review_count, rating_sum, average,
+	rating_0, rating_1, rating_2, rating_3, rating_4, rating_5)
+select c.id, count(r.id), coalesce(sum(r.rating), 0), coalesce(avg(cast(r.rating as double precision)), 0),
+	sum(case when r.rating = 0 then 1 else 0 end),
+	sum(case when r.rating = 1 then 1 else 0 end),
+	sum(case when r.rating = 2 then 1 else 0 end),
+	sum(case when r.rating = 3 then 1 else 0 end),
+	sum(case when r.rating = 4 then 1 else 0 end),
+	sum(case when r.rating = 5 then 1 else 0 end)
+from COURSE c left join REVIEW r on r.course_id = c.id
+group by c.id;
@@ -0,0 +1,25 @@
+-- Migrates the tables of V1 from bigserial ids to ids generated by Hibernate
+-- There is one sequence per table, with the pooled-lo optimizer (PooledSequenceGenerator)
+-- Each sequence value is the first id of a block, the increment is the allocation size (learning.app.idAllocationSize),
+-- SchemaMigrator does not start the application if they differ
+-- Each sequence starts after the highest existing id, and the bigserial defaults are dropped
+
+create sequence CATEGORY_SEQ increment by 50;
+select setval('CATEGORY_SEQ', (select coalesce(max(id), 0) + 1 from CATEGORY), false);
+alter table CATEGORY alter column id drop default;
+drop sequence category_id_seq;
+
+create sequence USERS_SEQ increment by 50;
+select setval('USERS_SEQ', (select coalesce(max(id), 0) + 1 from USERS), false);
+alter table USERS alter column id drop default;
+drop sequence users_id_seq;
+
+create sequence COURSE_SEQ increment by 50;
+select setval('COURSE_SEQ', (select coalesce(max(id), 0) + 1 from COURSE), false);
+alter table COURSE alter column id drop default;
+drop sequence course_id_seq;
+
+create sequence REVIEW_SEQ increment by 50;
+select setval('REVIEW_SEQ', (select coalesce(max(id), 0) + 1 from REVIEW), false);
+alter table REVIEW alter column id drop default;
+drop sequence review_id_seq;
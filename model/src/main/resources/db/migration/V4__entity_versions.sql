@@ -0,0 +1,8 @@
+-- Adds the optimistic lock version of the entities, increased by Hibernate on every update
+-- Existing rows start at version 0
+
+alter table CATEGORY add column version bigint not null default 0;
+alter table USERS add column version bigint not null default 0;
+alter table COURSE add column version bigint not null default 0;
+alter table COURSE_RATING add column version bigint not null default 0;
+alter table REVIEW add column version bigint not null default 0;
@@ -0,0 +1,12 @@
+-- Table of the trigram search index (SearchIndex), mapped by SearchTrigram
+-- Existing courses and users are indexed at the next startup, see V10__search_index_rebuild.sql
+
+create table SEARCH_TRIGRAM (
+	entity_id bigint not null,
+	entity_type varchar(20) not null,
+	field varchar(20) not null,
+	trigram varchar(3) not null,
+	weight integer not null,
+	primary key(entity_id, entity_type, field, trigram)
+);
+create index IDX_SEARCH_TRIGRAM_ENTITY on SEARCH_TRIGRAM(entity_type, entity_id);
@@ -0,0 +1,15 @@
+-- Indexes of the filters of the paginated listings, each one starts with the filtered column and goes on with
+-- the default sort and the id, so that a page is read in order from the index and the keyset condition of the
+-- next page is a range of it
+-- Postgres does not index foreign keys, without these indexes every filtered page read the whole table
+
+-- ReviewRepository.findByFilter, sorted by rating DESC, id DESC
+create index idx_review_course_rating on REVIEW(course_id, rating, id);
+create index idx_review_user_rating on REVIEW(user_id, rating, id);
+create index idx_review_rating on REVIEW(rating, id);
+
+-- CourseRepository.findByFilter, sorted by name ASC, id ASC (the name alone is indexed by its unique constraint)
+create index idx_course_category_name on COURSE(category_id, name, id);
+
+-- SearchIndex.appendSubstringCondition, trigrams of one field of an entity type
+create index idx_search_trigram_lookup on SEARCH_TRIGRAM(entity_type, field, trigram, entity_id);
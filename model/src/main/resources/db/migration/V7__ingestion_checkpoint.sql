@@ -0,0 +1,9 @@
+-- Last record of each ingestion log written to the database, mapped by IngestionCheckpoint
+-- The review ingestion log of each node is replayed after the sequence of its row when the application starts,
+-- the row is named by the id of the log
+
+create table INGESTION_CHECKPOINT (
+	name varchar(50) not null,
+	last_sequence bigint not null,
+	primary key(name)
+);
@@ -0,0 +1,15 @@
+-- Version of the rows of each entity class, mapped by CollectionVersion and read for the ETags of the resources
+-- The repositories increase it after the commit of every write, the rows of the entities are created here
+
+create table COLLECTION_VERSION (
+	name varchar(50) not null,
+	version bigint not null,
+	last_modified timestamp not null,
+	primary key(name)
+);
+
+insert into COLLECTION_VERSION (name, version, last_modified) values('Category', 0, current_timestamp);
+insert into COLLECTION_VERSION (name, version, last_modified) values('User', 0, current_timestamp);
+insert into COLLECTION_VERSION (name, version, last_modified) values('Course', 0, current_timestamp);
+insert into COLLECTION_VERSION (name, version, last_modified) values('CourseRating', 0, current_timestamp);
+insert into COLLECTION_VERSION (name, version, last_modified) values('Review', 0, current_timestamp);
@@ -0,0 +1,9 @@
+-- Indexes of the sorts of the paginated listings without filter, so that a page of any sort field is read in order
+-- from an index and stops after its rows instead of sorting the whole table
+-- The id is the tie breaker of every sort, the sorts by id are read from the primary keys
+
+-- ReviewRepository.findByFilter, sorted by createdAt (rating is indexed by V6)
+create index idx_review_created_at on REVIEW(created_at, id);
+
+-- CourseRepository.findByFilter, sorted by name: the unique index of the name does not give the order of the id
+create index idx_course_name on COURSE(name, id);
@@ -1,7 +1,10 @@
 package com.learning.app.category.repository;
 
 import com.learning.app.category.model.Category;
+import com.learning.app.common.exception.EntityVersionConflictException;
 import com.learning.app.commontests.repository.TestBaseRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +14,7 @@ import static com.learning.app.commontests.data.CategoryData.categoryList;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 
 public class CategoryRepositoryTest extends TestBaseRepository
@@ -70,6 +74,54 @@ public class CategoryRepositoryTest extends TestBaseRepository
         assertThat(categoryUpdated.getName(), is(equalTo("Communication")));
     }
 
+    @Test
+    public void updateWithoutVersion_ShouldUpdateCurrentVersion() throws Exception
+    {
+        Category categoryAdded = transactionExecutor.executeCommandWithResult(
+                () -> categoryRepository.add(new Category("Soft Skills"))
+        );
+
+        //a category read from json has an id but no version
+        Category category = categoryWithId("Communication", categoryAdded.getId());
+        transactionExecutor.executeCommandWithNoResult(
+                () -> categoryRepository.update(category)
+        );
+
+        //the existing category is updated and its version increased, no category is added
+        assertThat(categoryRepository.findAll().size(), is(equalTo(1)));
+        Category categoryUpdated = categoryRepository.findById(categoryAdded.getId());
+        assertThat(categoryUpdated.getName(), is(equalTo("Communication")));
+        assertThat(categoryUpdated.getVersion(), is(equalTo(categoryAdded.getVersion() + 1)));
+    }
+
+    @Test
+    public void updateFromOutdatedVersion_ShouldThrowVersionConflict() throws Exception
+    {
+        Category categoryAdded = transactionExecutor.executeCommandWithResult(
+                () -> categoryRepository.add(new Category("Soft Skills"))
+        );
+        transactionExecutor.executeCommandWithNoResult(
+                () -> categoryRepository.update(categoryWithId("Communication", categoryAdded.getId()))
+        );
+
+        //the second update was read before the first one
+        Category outdatedCategory = categoryWithId("Leadership", categoryAdded.getId());
+        outdatedCategory.setVersion(categoryAdded.getVersion());
+        try
+        {
+            transactionExecutor.executeCommandWithNoResult(
+                    () -> categoryRepository.update(outdatedCategory)
+            );
+            fail("An outdated version should not be updated");
+        } catch (IllegalStateException e)
+        {
+            assertThat(e.getCause(), is(instanceOf(EntityVersionConflictException.class)));
+        }
+
+        em.clear();
+        assertThat(categoryRepository.findById(categoryAdded.getId()).getName(), is(equalTo("Communication")));
+    }
+
     @Test
     public void findAll_ShouldReturn3() throws Exception
     {
@@ -112,14 +164,61 @@ public class CategoryRepositoryTest extends TestBaseRepository
         assertThat(categoryRepository.findById(addedCategory.getId()), is(nullValue()));
     }
 
+    @Test
+    public void findById_ShouldReadCategoryFromSecondLevelCache() throws Exception
+    {
+        Category addedCategory = transactionExecutor.executeCommandWithResult(
+                () -> categoryRepository.add(new Category("Chess"))
+        );
+        //identity inserts are not put in the cache, the first read does
+        categoryRepository.em = createEntityManager();
+        categoryRepository.findById(addedCategory.getId());
+        categoryRepository.em = createEntityManager();
 
+        Statistics statistics = getStatistics();
+        statistics.clear();
 
+        Category categoryFoundById = categoryRepository.findById(addedCategory.getId());
 
+        assertThat(categoryFoundById.getName(), is(equalTo("Chess")));
+        assertThat(statistics.getSecondLevelCacheHitCount(), is(equalTo(1L)));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+    }
 
+    @Test
+    public void findAll_ShouldReadSecondCallFromQueryCache() throws Exception
+    {
+        transactionExecutor.executeCommandWithNoResult(
+                () -> categoryList().forEach(categoryRepository::add)
+        );
+        categoryRepository.findAll();
+        categoryRepository.em = createEntityManager();
 
+        Statistics statistics = getStatistics();
+        statistics.clear();
 
+        assertEquals(categoryRepository.findAll().size(), 3);
+        assertThat(statistics.getQueryCacheHitCount(), is(equalTo(1L)));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+    }
 
+    @Test
+    public void findAll_ShouldSeeCategoryAddedAfterCachedQuery() throws Exception
+    {
+        transactionExecutor.executeCommandWithNoResult(
+                () -> categoryList().forEach(categoryRepository::add)
+        );
+        categoryRepository.findAll();
 
+        transactionExecutor.executeCommandWithResult(
+                () -> categoryRepository.add(new Category("Chess"))
+        );
 
+        assertEquals(categoryRepository.findAll().size(), 4);
+    }
 
-}
\ No newline at end of file
+    private Statistics getStatistics()
+    {
+        return em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,106 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.category.model.Category;
+import com.learning.app.common.model.CacheRegionStatistics;
+import com.learning.app.commontests.repository.TestBaseRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class CacheStatisticsRepositoryTest extends TestBaseRepository
+{
+    private CacheStatisticsRepository cacheStatisticsRepository;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDB();
+
+        cacheStatisticsRepository = new CacheStatisticsRepository();
+        cacheStatisticsRepository.em = em;
+    }
+
+    @After
+    public void tearDown()
+    {
+        closeEntityManager();
+    }
+
+    @Test
+    public void findAll_ShouldReturnHitsOfCategoryRegion() throws Exception
+    {
+        Category addedCategory = new Category("Chess");
+        transactionExecutor.executeCommandWithNoResult(
+                () -> em.persist(addedCategory)
+        );
+        findCategoryInNewEntityManager(addedCategory.getId());
+        cacheStatisticsRepository.clear();
+
+        findCategoryInNewEntityManager(addedCategory.getId());
+
+        CacheRegionStatistics categoryRegion = findRegion(cacheStatisticsRepository.findAll(),
+                Category.class.getName());
+        assertThat(categoryRegion, is(notNullValue()));
+        assertThat(categoryRegion.getHitCount(), is(equalTo(1L)));
+        assertThat(categoryRegion.getMissCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void findAll_ShouldReturnQueryCacheTotals() throws Exception
+    {
+        cacheStatisticsRepository.clear();
+
+        findAllCategories();
+        findAllCategories();
+
+        CacheRegionStatistics queryCache = findRegion(cacheStatisticsRepository.findAll(),
+                CacheStatisticsRepository.QUERY_CACHE_REGION);
+        assertThat(queryCache.getMissCount(), is(equalTo(1L)));
+        assertThat(queryCache.getHitCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void findAll_ShouldReturnQueryShapeTotals() throws Exception
+    {
+        QueryShapes queryShapes = QueryShapes.forFactory(em.getEntityManagerFactory());
+        queryShapes.createQuery(em, "Select e From Category e").getResultList();
+        cacheStatisticsRepository.clear();
+
+        queryShapes.createQuery(em, "Select e From Category e").getResultList();
+        queryShapes.createQuery(em, "Select e From Category e Order by e.name").getResultList();
+
+        CacheRegionStatistics shapes = findRegion(cacheStatisticsRepository.findAll(),
+                CacheStatisticsRepository.QUERY_SHAPES_REGION);
+        assertThat(shapes.getHitCount(), is(equalTo(1L)));
+        assertThat(shapes.getMissCount(), is(equalTo(1L)));
+        assertThat(shapes.getElementCount(), is(equalTo(2L)));
+    }
+
+    private void findCategoryInNewEntityManager(Long id)
+    {
+        EntityManager readEm = createEntityManager();
+        readEm.find(Category.class, id);
+        readEm.close();
+    }
+
+    private List<Category> findAllCategories()
+    {
+        return em.createQuery("Select e From Category e", Category.class)
+                .setHint("org.hibernate.cacheable", true)
+                .getResultList();
+    }
+
+    private CacheRegionStatistics findRegion(List<CacheRegionStatistics> statistics, String region)
+    {
+        return statistics.stream()
+                .filter(regionStatistics -> regionStatistics.getRegion().equals(region))
+                .findFirst()
+                .orElse(null);
+    }
+}
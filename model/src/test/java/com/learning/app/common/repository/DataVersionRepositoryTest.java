@@ -0,0 +1,190 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.category.model.Category;
+import com.learning.app.common.model.DataVersion;
+import com.learning.app.commontests.db.DBTransactionExecutor;
+import com.learning.app.commontests.repository.TestBaseRepository;
+import com.learning.app.course.model.Course;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.transaction.Synchronization;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+public class DataVersionRepositoryTest extends TestBaseRepository
+{
+    private DataVersionRepository dataVersionRepository;
+    private Categories categoryRepository;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDB();
+
+        dataVersionRepository = new DataVersionRepository();
+        dataVersionRepository.em = em;
+
+        categoryRepository = new Categories(em);
+    }
+
+    @After
+    public void tearDown()
+    {
+        closeEntityManager();
+    }
+
+    @Test
+    public void getDataVersionWithoutWrites_ShouldReturnVersionZero()
+    {
+        assertThat(dataVersionRepository.getDataVersion(Category.class, Course.class).getTag(),
+                is(equalTo("0-0")));
+    }
+
+    @Test
+    public void getDataVersionAfterWrite_ShouldChangeTagOfWrittenClassOnly()
+    {
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            categoryRepository.add(new Category("Chess"));
+            categoryRepository.add(new Category("Go"));
+        });
+
+        DataVersion dataVersion = dataVersionRepository.getDataVersion(Category.class, Course.class);
+
+        assertThat(dataVersion.getTag(), is(equalTo("1-0")));
+        assertThat(dataVersion.getLastModified(), is(not(equalTo(0L))));
+    }
+
+    @Test
+    public void getDataVersionAfterRollback_ShouldKeepTag()
+    {
+        try
+        {
+            transactionExecutor.executeCommandWithNoResult(() -> {
+                categoryRepository.add(new Category("Chess"));
+                throw new IllegalArgumentException("The write fails");
+            });
+            fail("The failure of the transaction should be thrown");
+        } catch (IllegalStateException e)
+        {
+            assertThat(dataVersionRepository.getDataVersion(Category.class).getTag(), is(equalTo("0")));
+        }
+    }
+
+    @Test
+    public void getDataVersionAfterWriteOfOtherNode_ShouldChangeTag()
+    {
+        String tagBefore = dataVersionRepository.getDataVersion(Category.class).getTag();
+
+        //a second persistence unit on the same database has its own change tracker, as another node would
+        EntityManagerFactory otherNodeFactory = Persistence.createEntityManagerFactory("testPersistenceUnit",
+                Collections.singletonMap("hibernate.hbm2ddl.auto", "none"));
+        EntityManager otherNodeEm = otherNodeFactory.createEntityManager();
+        try
+        {
+            Categories otherNodeRepository = new Categories(otherNodeEm);
+            new DBTransactionExecutor(otherNodeEm).executeCommandWithNoResult(
+                    () -> otherNodeRepository.add(new Category("Chess"))
+            );
+        } finally
+        {
+            otherNodeEm.close();
+            otherNodeFactory.close();
+        }
+
+        assertThat(EntityChangeTracker.forFactory(em.getEntityManagerFactory()).getVersion(Category.class),
+                is(equalTo(0L)));
+        assertThat(dataVersionRepository.getDataVersion(Category.class).getTag(), is(not(equalTo(tagBefore))));
+    }
+
+    @Test
+    public void writeOfOtherTransactionWhileCommitting_ShouldNotWaitForVersionRow() throws Exception
+    {
+        //the version row of Category exists, as after the migrations
+        transactionExecutor.executeCommandWithNoResult(() -> categoryRepository.add(new Category("Chess")));
+        ExecutorService otherTransaction = Executors.newSingleThreadExecutor();
+        List<Boolean> otherWriteDone = new ArrayList<>();
+        try
+        {
+            transactionExecutor.executeCommandWithNoResult(() -> {
+                categoryRepository.add(new Category("Go"));
+                //registered after the one of the change tracker, it runs when the transaction commits
+                em.unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization()
+                {
+                    @Override
+                    public void beforeCompletion()
+                    {
+                        otherWriteDone.add(increaseCategoryVersionInOtherTransaction(otherTransaction));
+                    }
+
+                    @Override
+                    public void afterCompletion(int status)
+                    {
+                    }
+                });
+            });
+        } finally
+        {
+            otherTransaction.shutdown();
+        }
+
+        assertThat(otherWriteDone, is(equalTo(Collections.singletonList(true))));
+        //increased by each of the 3 writes
+        assertThat(dataVersionRepository.getDataVersion(Category.class).getTag(), is(equalTo("3")));
+    }
+
+    //whether the version row could be updated within a second
+    private boolean increaseCategoryVersionInOtherTransaction(ExecutorService otherTransaction)
+    {
+        EntityManager otherEm = createEntityManager();
+        Future<?> write = otherTransaction.submit(() -> new DBTransactionExecutor(otherEm).executeCommandWithNoResult(
+                () -> otherEm.createNativeQuery("update COLLECTION_VERSION set version = version + 1"
+                        + " where name = 'Category'").executeUpdate()
+        ));
+        try
+        {
+            write.get(1, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException | ExecutionException | TimeoutException e)
+        {
+            return false;
+        }
+    }
+
+    private static class Categories extends GenericRepository<Category>
+    {
+        private final EntityManager em;
+
+        Categories(EntityManager em)
+        {
+            this.em = em;
+        }
+
+        @Override
+        protected Class<Category> getPersistentClass()
+        {
+            return Category.class;
+        }
+
+        @Override
+        protected EntityManager getEntityManager()
+        {
+            return em;
+        }
+    }
+}
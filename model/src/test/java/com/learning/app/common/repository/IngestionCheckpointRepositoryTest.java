@@ -0,0 +1,50 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.commontests.repository.TestBaseRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class IngestionCheckpointRepositoryTest extends TestBaseRepository
+{
+    private IngestionCheckpointRepository ingestionCheckpointRepository;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDB();
+
+        ingestionCheckpointRepository = new IngestionCheckpointRepository();
+        ingestionCheckpointRepository.em = em;
+    }
+
+    @After
+    public void tearDown()
+    {
+        closeEntityManager();
+    }
+
+    @Test
+    public void findLastSequenceWithoutCheckpoint_ShouldReturnZero() throws Exception
+    {
+        assertThat(ingestionCheckpointRepository.findLastSequence("reviews"), is(equalTo(0L)));
+    }
+
+    @Test
+    public void saveLastSequence_ShouldReplaceSequenceOfCheckpoint() throws Exception
+    {
+        transactionExecutor.executeCommandWithNoResult(
+                () -> ingestionCheckpointRepository.saveLastSequence("reviews", 10L)
+        );
+        transactionExecutor.executeCommandWithNoResult(
+                () -> ingestionCheckpointRepository.saveLastSequence("reviews", 25L)
+        );
+        em.clear();
+
+        assertThat(ingestionCheckpointRepository.findLastSequence("reviews"), is(equalTo(25L)));
+        assertThat(ingestionCheckpointRepository.findLastSequence("courses"), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,93 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.category.model.Category;
+import com.learning.app.commontests.repository.TestBaseRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class QueryShapesTest extends TestBaseRepository
+{
+    private static final String CATEGORIES_BY_NAME = "Select e From Category e Where e.name = :name";
+
+    private QueryShapes queryShapes;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDB();
+
+        queryShapes = QueryShapes.forFactory(em.getEntityManagerFactory());
+
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            em.persist(new Category("Chess"));
+            em.persist(new Category("Music"));
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        closeEntityManager();
+    }
+
+    @Test
+    public void createQueryTwice_ShouldCompileTheShapeOnce()
+    {
+        findCategoriesByName("Chess");
+        findCategoriesByName("Music");
+
+        assertThat(queryShapes.getShapeCount(), is(equalTo(1)));
+        assertThat(queryShapes.getMissCount(), is(equalTo(1L)));
+        assertThat(queryShapes.getHitCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void createQueryWithOtherJpql_ShouldCompileEachShape()
+    {
+        findCategoriesByName("Chess");
+        queryShapes.createQuery(em, "Select e From Category e Order by e.name").getResultList();
+
+        assertThat(queryShapes.getShapeCount(), is(equalTo(2)));
+        assertThat(queryShapes.getMissCount(), is(equalTo(2L)));
+        assertThat(queryShapes.getHitCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void createQuery_ShouldBindParametersOfEachUse()
+    {
+        List<Category> chessCategories = findCategoriesByName("Chess");
+        List<Category> musicCategories = findCategoriesByName("Music");
+
+        assertThat(chessCategories.size(), is(equalTo(1)));
+        assertThat(chessCategories.get(0).getName(), is(equalTo("Chess")));
+        assertThat(musicCategories.size(), is(equalTo(1)));
+        assertThat(musicCategories.get(0).getName(), is(equalTo("Music")));
+    }
+
+    @Test
+    public void clearStatistics_ShouldKeepCompiledShapes()
+    {
+        findCategoriesByName("Chess");
+
+        queryShapes.clearStatistics();
+        findCategoriesByName("Music");
+
+        assertThat(queryShapes.getShapeCount(), is(equalTo(1)));
+        assertThat(queryShapes.getMissCount(), is(equalTo(0L)));
+        assertThat(queryShapes.getHitCount(), is(equalTo(1L)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Category> findCategoriesByName(String name)
+    {
+        return queryShapes.createQuery(em, CATEGORIES_BY_NAME)
+                .setParameter("name", name)
+                .getResultList();
+    }
+}
@@ -0,0 +1,137 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.category.model.Category;
+import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.common.model.filter.PaginationData.CountMode;
+import com.learning.app.commontests.repository.TestBaseRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class QueryStatisticsTest extends TestBaseRepository
+{
+    private long thresholdNanos;
+    private CategoryPages categoryPages;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDB();
+        thresholdNanos = SlowQueryLog.thresholdNanos;
+
+        categoryPages = new CategoryPages(em);
+    }
+
+    @After
+    public void tearDown()
+    {
+        SlowQueryLog.thresholdNanos = thresholdNanos;
+        QueryStatistics.end();
+        closeEntityManager();
+    }
+
+    @Test
+    public void query_ShouldCountStatementAndLoadedEntities() throws Exception
+    {
+        addCategories();
+
+        QueryStatistics.begin();
+        em.createQuery("Select c From Category c").getResultList();
+        QueryStatistics statistics = QueryStatistics.end();
+
+        assertThat(statistics.getStatementCount(), is(equalTo(1L)));
+        assertThat(statistics.getEntityLoadCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void end_ShouldStartNewStatistics() throws Exception
+    {
+        addCategories();
+
+        QueryStatistics.begin();
+        em.createQuery("Select c From Category c").getResultList();
+        QueryStatistics.end();
+
+        assertThat(QueryStatistics.current().getStatementCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void findPaginated_UnderThreshold_IsTimedButNotSlow() throws Exception
+    {
+        addCategories();
+        SlowQueryLog.thresholdNanos = TimeUnit.MINUTES.toNanos(1);
+
+        QueryStatistics.begin();
+        PaginatedData<Category> categories = categoryPages.findFirstPage();
+        QueryStatistics statistics = QueryStatistics.end();
+
+        assertThat(categories.getRows().size(), is(equalTo(2)));
+        assertThat(statistics.getQueryCount(), is(equalTo(1L)));
+        assertThat(statistics.getQueryNanos() > 0, is(true));
+        assertThat(statistics.getSlowQueryCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void findPaginated_OverThreshold_IsSlow() throws Exception
+    {
+        addCategories();
+        SlowQueryLog.thresholdNanos = 0;
+
+        QueryStatistics.begin();
+        categoryPages.findFirstPage();
+        QueryStatistics statistics = QueryStatistics.end();
+
+        assertThat(statistics.getSlowQueryCount(), is(equalTo(1L)));
+    }
+
+    private void addCategories()
+    {
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            em.persist(new Category("Chess"));
+            em.persist(new Category("Programming"));
+        });
+    }
+
+    private static class CategoryPages extends GenericRepository<Category>
+    {
+        private final EntityManager em;
+
+        CategoryPages(EntityManager em)
+        {
+            this.em = em;
+        }
+
+        @Override
+        protected Class<Category> getPersistentClass()
+        {
+            return Category.class;
+        }
+
+        @Override
+        protected EntityManager getEntityManager()
+        {
+            return em;
+        }
+
+        @Override
+        protected Map<String, String> getSortExpressions()
+        {
+            return sortExpressionsOfFields("id", "name");
+        }
+
+        PaginatedData<Category> findFirstPage()
+        {
+            return findPaginatedDataByParameters("", new PaginationData(0, 10, null, null, null, CountMode.NONE),
+                    new HashMap<>(), "name ASC");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.learning.app.common.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class RepositoryTimingInterceptorTest
+{
+    private RepositoryTimingInterceptor interceptor;
+    private Method method;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        interceptor = new RepositoryTimingInterceptor();
+        method = GenericRepository.class.getMethod("findById", Long.class);
+
+        QueryStatistics.begin();
+    }
+
+    @After
+    public void tearDown()
+    {
+        QueryStatistics.end();
+    }
+
+    @Test
+    public void time_ShouldReturnResultAndCountCall() throws Exception
+    {
+        Object result = interceptor.time(invocationReturning("result"));
+
+        QueryStatistics statistics = QueryStatistics.end();
+        assertThat(result, is(equalTo("result")));
+        assertThat(statistics.getRepositoryCallCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void time_NestedCall_ShouldCountOuterCallOnly() throws Exception
+    {
+        InvocationContext innerInvocation = invocationReturning("inner");
+        InvocationContext outerInvocation = mock(InvocationContext.class);
+        when(outerInvocation.getMethod()).thenReturn(method);
+        when(outerInvocation.proceed()).thenAnswer(invocation -> interceptor.time(innerInvocation));
+
+        Object result = interceptor.time(outerInvocation);
+
+        QueryStatistics statistics = QueryStatistics.end();
+        assertThat(result, is(equalTo("inner")));
+        assertThat(statistics.getRepositoryCallCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void time_WithException_ShouldCountCallAndLaterCalls() throws Exception
+    {
+        InvocationContext invocation = mock(InvocationContext.class);
+        when(invocation.getMethod()).thenReturn(method);
+        when(invocation.proceed()).thenThrow(new IllegalStateException());
+
+        try
+        {
+            interceptor.time(invocation);
+        } catch (IllegalStateException e)
+        {
+            //expected
+        }
+        interceptor.time(invocationReturning("after failure"));
+
+        QueryStatistics statistics = QueryStatistics.end();
+        assertThat(statistics.getRepositoryCallCount(), is(equalTo(2L)));
+    }
+
+    private InvocationContext invocationReturning(Object result) throws Exception
+    {
+        InvocationContext invocation = mock(InvocationContext.class);
+        when(invocation.getMethod()).thenReturn(method);
+        when(invocation.proceed()).thenReturn(result);
+        return invocation;
+    }
+}
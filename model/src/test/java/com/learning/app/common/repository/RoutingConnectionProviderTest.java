@@ -0,0 +1,190 @@
+package com.learning.app.common.repository;
+
+import com.learning.app.category.model.Category;
+import com.learning.app.commontests.repository.TestBaseRepository;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+//the primary and the replicas are separate in-memory databases, each replica has its own category
+public class RoutingConnectionProviderTest extends TestBaseRepository
+{
+    private static final String PRIMARY_URL = "jdbc:hsqldb:mem:testdb";
+    private static final String REPLICA_URL = "jdbc:hsqldb:mem:replicadb";
+    private static final String SECOND_REPLICA_URL = "jdbc:hsqldb:mem:secondreplicadb";
+
+    private final List<EntityManagerFactory> replicaFactories = new ArrayList<>();
+    private CategoryTestRepository categoryRepository;
+
+    @After
+    public void tearDown()
+    {
+        ReplicaRouting.setReadOnlyRequest(null);
+        closeEntityManager();
+        replicaFactories.forEach(EntityManagerFactory::close);
+    }
+
+    @Test
+    public void readOnlyRequest_ShouldReadFromReplica()
+    {
+        initializeWithReplicas(0, Collections.singletonList(createReplica(REPLICA_URL, "Replica Chess")));
+
+        ReplicaRouting.setReadOnlyRequest(0L);
+
+        assertThat(findCategoryNames(), is(equalTo(Collections.singletonList("Replica Chess"))));
+    }
+
+    @Test
+    public void requestThatMayWrite_ShouldReadFromPrimary()
+    {
+        initializeWithReplicas(0, Collections.singletonList(createReplica(REPLICA_URL, "Replica Chess")));
+
+        assertThat(findCategoryNames(), is(equalTo(Collections.singletonList("Chess"))));
+    }
+
+    @Test
+    public void readOnlyRequestWithinLagOfWrite_ShouldReadFromPrimary()
+    {
+        initializeWithReplicas(60_000, Collections.singletonList(createReplica(REPLICA_URL, "Replica Chess")));
+
+        ReplicaRouting.setReadOnlyRequest(0L);
+
+        assertThat(findCategoryNames(), is(equalTo(Collections.singletonList("Chess"))));
+    }
+
+    @Test
+    public void readOnlyRequestWithRecentSessionToken_ShouldReadFromPrimary() throws InterruptedException
+    {
+        initializeWithReplicas(300, Collections.singletonList(createReplica(REPLICA_URL, "Replica Chess")));
+        //the write of the category is older than the lag, the one of the session is not
+        Thread.sleep(400);
+
+        ReplicaRouting.setReadOnlyRequest(System.currentTimeMillis());
+        assertThat(findCategoryNames(), is(equalTo(Collections.singletonList("Chess"))));
+
+        ReplicaRouting.setReadOnlyRequest(0L);
+        assertThat(findCategoryNames(), is(equalTo(Collections.singletonList("Replica Chess"))));
+    }
+
+    @Test
+    public void readOnlyRequestsWithTwoReplicas_ShouldReadFromBothReplicas()
+    {
+        initializeWithReplicas(0, Arrays.asList(createReplica(REPLICA_URL, "Replica Chess"),
+                createReplica(SECOND_REPLICA_URL, "Second Replica Chess")));
+
+        ReplicaRouting.setReadOnlyRequest(0L);
+        List<String> names = new ArrayList<>(findCategoryNames());
+        names.addAll(findCategoryNames());
+
+        assertThat(new HashSet<>(names),
+                is(equalTo(new HashSet<>(Arrays.asList("Replica Chess", "Second Replica Chess")))));
+    }
+
+    @Test
+    public void readOnlyRequestWithUnavailableReplica_ShouldReadFromPrimary()
+    {
+        initializeWithReplicas(0, Collections.singletonList(createDataSource("jdbc:hsqldb:mem:missingdb;ifexists=true")));
+
+        ReplicaRouting.setReadOnlyRequest(0L);
+
+        assertThat(findCategoryNames(), is(equalTo(Collections.singletonList("Chess"))));
+        assertThat(getConnectionProvider().getReplicaFailures(), is(equalTo(1L)));
+    }
+
+    //the category Chess is added to the primary
+    private void initializeWithReplicas(long maxLagMillis, List<DataSource> replicas)
+    {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.connection.provider_class", RoutingConnectionProvider.class.getName());
+        properties.put("hibernate.connection.datasource", createDataSource(PRIMARY_URL));
+        properties.put(RoutingConnectionProvider.REPLICAS, replicas);
+        properties.put(RoutingConnectionProvider.REPLICA_MAX_LAG_MILLIS, String.valueOf(maxLagMillis));
+        //reads outside of transactions take a new connection, as every statement does with JTA
+        properties.put("hibernate.connection.release_mode", "after_transaction");
+        //cached results would hide where they were read from
+        properties.put("hibernate.cache.use_second_level_cache", "false");
+        properties.put("hibernate.cache.use_query_cache", "false");
+        initializeTestDB(properties);
+
+        categoryRepository = new CategoryTestRepository(em);
+        transactionExecutor.executeCommandWithResult(() -> categoryRepository.add(new Category("Chess")));
+    }
+
+    //a database with the schema of the persistence unit and one category
+    private DataSource createReplica(String url, String categoryName)
+    {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.connection.url", url);
+        EntityManagerFactory replicaFactory = Persistence.createEntityManagerFactory("testPersistenceUnit",
+                properties);
+        replicaFactories.add(replicaFactory);
+
+        EntityManager replicaEntityManager = replicaFactory.createEntityManager();
+        replicaEntityManager.getTransaction().begin();
+        replicaEntityManager.persist(new Category(categoryName));
+        replicaEntityManager.getTransaction().commit();
+        replicaEntityManager.close();
+
+        return createDataSource(url);
+    }
+
+    private DataSource createDataSource(String url)
+    {
+        JDBCDataSource dataSource = new JDBCDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+    private List<String> findCategoryNames()
+    {
+        em.clear();
+        return categoryRepository.findAll().stream().map(Category::getName).collect(Collectors.toList());
+    }
+
+    private RoutingConnectionProvider getConnectionProvider()
+    {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(ConnectionProvider.class).unwrap(RoutingConnectionProvider.class);
+    }
+
+    private static class CategoryTestRepository extends GenericRepository<Category>
+    {
+        private final EntityManager em;
+
+        CategoryTestRepository(EntityManager em)
+        {
+            this.em = em;
+        }
+
+        @Override
+        protected Class<Category> getPersistentClass()
+        {
+            return Category.class;
+        }
+
+        @Override
+        protected EntityManager getEntityManager()
+        {
+            return em;
+        }
+    }
+}
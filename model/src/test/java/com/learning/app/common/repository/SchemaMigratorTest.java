@@ -0,0 +1,215 @@
+package com.learning.app.common.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+public class SchemaMigratorTest
+{
+    //values given to setval by the migrations, HSQLDB has no such function
+    private static final Map<String, Long> sequenceValues = new ConcurrentHashMap<>();
+
+    private Connection connection;
+    private SchemaMigrator schemaMigrator;
+
+    @Before
+    public void setUp() throws SQLException
+    {
+        connection = DriverManager.getConnection("jdbc:hsqldb:mem:migrationdb", "sa", "");
+        schemaMigrator = new SchemaMigrator();
+        schemaMigrator.scriptsLocation = "db/migrationtest/";
+    }
+
+    @After
+    public void tearDown() throws SQLException
+    {
+        executeUpdate("shutdown");
+        connection.close();
+    }
+
+    @Test
+    public void migrateEmptyDatabase_ShouldRunAllScriptsAndRecordTheirVersions() throws SQLException
+    {
+        List<Integer> migratedVersions = schemaMigrator.migrate(connection);
+
+        assertThat(migratedVersions, is(equalTo(Arrays.asList(1, 2))));
+        assertThat(queryStrings("select name from ITEM"), is(equalTo(Arrays.asList("item"))));
+        assertThat(queryStrings("select description from SCHEMA_VERSION order by version"),
+                is(equalTo(Arrays.asList("V1__items.sql", "V2__item_names.sql"))));
+    }
+
+    @Test
+    public void migrateTwice_ShouldRunEachScriptOnce() throws SQLException
+    {
+        schemaMigrator.migrate(connection);
+
+        List<Integer> migratedVersions = schemaMigrator.migrate(connection);
+
+        assertThat(migratedVersions.isEmpty(), is(true));
+        assertThat(queryStrings("select version from SCHEMA_VERSION").size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void migrateSchemaWithoutVersions_ShouldRecordBaselineAndRunLaterScripts() throws SQLException
+    {
+        executeUpdate("create table ITEM (id bigint not null primary key)");
+
+        List<Integer> migratedVersions = schemaMigrator.migrate(connection);
+
+        assertThat(migratedVersions, is(equalTo(Arrays.asList(2))));
+        assertThat(queryStrings("select description from SCHEMA_VERSION order by version"),
+                is(equalTo(Arrays.asList("baseline", "V2__item_names.sql"))));
+    }
+
+    @Test
+    public void migrateDatabaseCreatedFromDbSql_ShouldBaselineAndRunAllLaterMigrations() throws SQLException
+    {
+        createDatabaseFromDbSql();
+        executeUpdate("insert into CATEGORY (name) values ('Games')");
+        executeUpdate("insert into COURSE (name, url, category_id) values ('Chess', 'chess.com', "
+                + "(select id from CATEGORY where name = 'Games'))");
+        executeUpdate("insert into COURSE (name, url, category_id) values ('Go', 'go.com', "
+                + "(select id from CATEGORY where name = 'Games'))");
+        for (int rating : Arrays.asList(5, 4, 4))
+        {
+            executeUpdate("insert into REVIEW (rating, created_at, user_id, course_id) values (" + rating
+                    + ", current_date, (select id from USERS where name = 'Admin'), "
+                    + "(select id from COURSE where name = 'Chess'))");
+        }
+        schemaMigrator.scriptsLocation = SchemaMigrator.SCRIPTS_LOCATION;
+
+        List<Integer> migratedVersions = schemaMigrator.migrate(connection);
+
+        assertThat(migratedVersions, is(equalTo(Arrays.asList(2, 3, 4, 5, 6, 7, 8, 9, 10))));
+        assertThat(queryStrings("select review_count || ' ' || rating_sum || ' ' || rating_4 || ' ' || rating_5 "
+                        + "from COURSE_RATING order by course_id"),
+                is(equalTo(Arrays.asList("3 13 2 1", "0 0 0 0"))));
+        assertThat(Double.valueOf(queryStrings("select average from COURSE_RATING order by course_id").get(0)),
+                is(equalTo(13.0 / 3)));
+        assertThat(queryStrings("select version from CATEGORY"), is(equalTo(Arrays.asList("0"))));
+        assertThat(queryStrings("select version from COLLECTION_VERSION where name = 'Review'"),
+                is(equalTo(Arrays.asList("0"))));
+        assertThat(queryStrings("select entity_type from SEARCH_INDEX_REBUILD order by entity_type"),
+                is(equalTo(Arrays.asList("Course", "User"))));
+        assertThat(sequenceValues.get("CATEGORY_SEQ"),
+                is(equalTo(Long.valueOf(queryStrings("select max(id) + 1 from CATEGORY").get(0)))));
+    }
+
+    @Test
+    public void checkIdSequencesOfMigratedDatabase_ShouldAcceptIncrementOfTheMigration() throws SQLException
+    {
+        createDatabaseFromDbSql();
+        schemaMigrator.scriptsLocation = SchemaMigrator.SCRIPTS_LOCATION;
+        schemaMigrator.migrate(connection);
+
+        schemaMigrator.checkIdSequences(connection, 50);
+    }
+
+    @Test
+    public void checkIdSequencesWithOtherAllocationSize_ShouldThrowException() throws SQLException
+    {
+        createDatabaseFromDbSql();
+        schemaMigrator.scriptsLocation = SchemaMigrator.SCRIPTS_LOCATION;
+        schemaMigrator.migrate(connection);
+
+        try
+        {
+            schemaMigrator.checkIdSequences(connection, 10);
+            fail("An error should have been thrown");
+        } catch (IllegalStateException e)
+        {
+            assertThat(e.getMessage(), containsString("increases by 50 but the id allocation size is 10"));
+        }
+    }
+
+    @Test
+    public void migrateWithFailingScript_ShouldNotRecordItsVersion() throws SQLException
+    {
+        schemaMigrator.scriptsLocation = "db/migrationfailing/";
+
+        try
+        {
+            schemaMigrator.migrate(connection);
+            fail("An error should have been thrown");
+        } catch (SQLException e)
+        {
+            assertThat(e.getMessage(), containsString("V2__missing_table.sql"));
+        }
+
+        assertThat(queryStrings("select version from SCHEMA_VERSION"), is(equalTo(Arrays.asList("1"))));
+        assertThat(queryStrings("select id from ITEM"), is(equalTo(Arrays.asList("1"))));
+    }
+
+    @Test
+    public void readStatements_ShouldSplitOnSemicolonsAndLeaveOutComments()
+    {
+        List<String> statements = SchemaMigrator.readStatements("db/migrationtest/V1__items.sql");
+
+        assertThat(statements.size(), is(equalTo(2)));
+        assertThat(statements.get(0), startsWith("create table ITEM ("));
+        assertThat(statements.get(0), not(containsString(";")));
+        assertThat(statements.get(1), startsWith("insert into ITEM"));
+    }
+
+    public static long setval(String sequenceName, BigDecimal value, boolean isCalled)
+    {
+        sequenceValues.put(sequenceName, value.longValue());
+        return value.longValue();
+    }
+
+    //The schema of db.sql, run in the Postgres syntax of HSQLDB
+    //The sequences of the bigserial columns and setval are stand-ins for the ones of Postgres
+    private void createDatabaseFromDbSql() throws SQLException
+    {
+        sequenceValues.clear();
+        executeUpdate("set database sql syntax PGS true");
+        for (String table : Arrays.asList("category", "users", "course", "review"))
+        {
+            executeUpdate("create sequence " + table + "_id_seq");
+        }
+        executeUpdate("create function setval(sequence_name varchar(128), next_value decimal(19), "
+                + "is_called boolean) returns bigint language java no sql external name "
+                + "'CLASSPATH:" + SchemaMigratorTest.class.getName() + ".setval'");
+        for (String sql : SchemaMigrator.readStatements(SchemaMigrator.SCRIPTS_LOCATION + "V1__initial_schema.sql"))
+        {
+            executeUpdate(sql);
+        }
+    }
+
+    private void executeUpdate(String sql) throws SQLException
+    {
+        try (Statement statement = connection.createStatement())
+        {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    private List<String> queryStrings(String sql) throws SQLException
+    {
+        List<String> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql))
+        {
+            while (resultSet.next())
+            {
+                values.add(resultSet.getString(1));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,66 @@
+package com.learning.app.common.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ExpiringLruCacheTest
+{
+    private long now;
+    private ExpiringLruCache<String, Integer> cache;
+
+    @Before
+    public void setUp()
+    {
+        now = 0;
+        cache = new ExpiringLruCache<>(2, 1000, () -> now);
+    }
+
+    @Test
+    public void get_ShouldReturnValueBeforeTimeToLive()
+    {
+        cache.put("a", 1);
+        now = 999;
+
+        assertThat(cache.get("a"), is(equalTo(1)));
+    }
+
+    @Test
+    public void get_ShouldReturnNullAfterTimeToLive()
+    {
+        cache.put("a", 1);
+        now = 1000;
+
+        assertThat(cache.get("a"), is(nullValue()));
+        assertThat(cache.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void put_ShouldEvictLeastRecentlyUsedEntryWhenFull()
+    {
+        cache.put("a", 1);
+        cache.put("b", 2);
+        //reading "a" makes "b" the least recently used entry
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertThat(cache.size(), is(equalTo(2)));
+        assertThat(cache.get("a"), is(equalTo(1)));
+        assertThat(cache.get("b"), is(nullValue()));
+        assertThat(cache.get("c"), is(equalTo(3)));
+    }
+
+    @Test
+    public void removeIf_ShouldRemoveMatchingValues()
+    {
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        cache.removeIf(value -> value == 2);
+
+        assertThat(cache.get("a"), is(equalTo(1)));
+        assertThat(cache.get("b"), is(nullValue()));
+    }
+}
@@ -0,0 +1,38 @@
+package com.learning.app.common.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class TrigramsTest
+{
+    @Test
+    public void ofText_ShouldPadWordsAndIgnoreCaseAndPunctuation()
+    {
+        assertThat(Trigrams.ofText("Go, Java!"), is(equalTo(new HashSet<>(Arrays.asList(
+                "  g", " go", "go ", "  j", " ja", "jav", "ava", "va ")))));
+    }
+
+    @Test
+    public void ofSubstring_ShouldNotPadWords()
+    {
+        assertThat(Trigrams.ofSubstring("earn jav"), is(equalTo(new HashSet<>(Arrays.asList(
+                "ear", "arn", "jav")))));
+    }
+
+    @Test
+    public void ofSubstringOfShortWords_ShouldBeEmpty()
+    {
+        assertThat(Trigrams.ofSubstring("Go C").isEmpty(), is(true));
+    }
+
+    @Test
+    public void ofPrefixes_ShouldPadWordStartOnly()
+    {
+        assertThat(Trigrams.ofPrefixes("Ja"), is(equalTo(new HashSet<>(Arrays.asList("  j", " ja")))));
+    }
+}
@@ -0,0 +1,165 @@
+package com.learning.app.commontests.repository;
+
+import com.learning.app.common.repository.QueryStatisticsInterceptor;
+import com.learning.app.common.repository.SchemaMigrator;
+import org.hibernate.Session;
+import org.junit.Ignore;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+/*
+ * Explains on HSQLDB the statements of the queries run by a test
+ * Postgres does not index foreign keys, so the foreign keys (and the indexes HSQLDB creates for them) are dropped
+ * and the indexes of the filter and sort migrations are created, the plans only show the indexes of the migrations
+ */
+
+@Ignore
+public class TestBaseQueryPlanRepository extends TestBaseRepository
+{
+    private static final List<String> INDEX_MIGRATIONS = Arrays.asList(
+            SchemaMigrator.SCRIPTS_LOCATION + "V6__filter_indexes.sql",
+            SchemaMigrator.SCRIPTS_LOCATION + "V9__sort_indexes.sql");
+
+    //comparisons that bound an index range, unlike the NOT IS NULL of a column
+    private static final Pattern BOUNDED_CONDITION = Pattern.compile(
+            "\\b(EQUAL|GREATER|GREATER_EQUAL|SMALLER|SMALLER_EQUAL)\\b");
+
+    private static final List<String> preparedStatements = Collections.synchronizedList(new ArrayList<>());
+
+    //Keeps the statements prepared by Hibernate, so that they can be explained
+    public static class StatementCapturingInterceptor extends QueryStatisticsInterceptor
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String onPrepareStatement(String sql) {
+            preparedStatements.add(sql);
+            return super.onPrepareStatement(sql);
+        }
+    }
+
+    public void initializeTestDBWithMigrationIndexes() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.ejb.interceptor", StatementCapturingInterceptor.class.getName());
+        initializeTestDB(properties);
+
+        em.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                List<String> dropForeignKeys = new ArrayList<>();
+                try (ResultSet foreignKeys = statement.executeQuery("select table_name, constraint_name "
+                        + "from information_schema.table_constraints where constraint_type = 'FOREIGN KEY'")) {
+                    while (foreignKeys.next()) {
+                        dropForeignKeys.add("alter table " + foreignKeys.getString(1) + " drop constraint "
+                                + foreignKeys.getString(2));
+                    }
+                }
+                for (String sql : dropForeignKeys) {
+                    statement.execute(sql);
+                }
+                for (String indexMigration : INDEX_MIGRATIONS) {
+                    for (String sql : SchemaMigrator.readStatements(indexMigration)) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+        });
+    }
+
+    protected void clearPreparedStatements() {
+        preparedStatements.clear();
+    }
+
+    //No table is read in full, and if filter columns are given the table is read from an index range starting with
+    //them: with several filters a single index is used, so any of them is enough
+    //A table is read in full when it is scanned (access FULL SCAN) or read from an index without bounds in the start
+    //conditions, HSQLDB reads the whole primary key for the condition id is not null of the listings. It is only
+    //accepted for the first table when the order by uses the index, the page then stops after its rows, for a
+    //count of all the rows, which reads them all whatever the indexes, and for a table filtered by the ids of a
+    //subquery
+    protected void assertStatementsReadFromIndex(String table, List<String> filterColumns) {
+        assertThat(preparedStatements.isEmpty(), is(false));
+        for (String sql : new ArrayList<>(preparedStatements)) {
+            String plan = explain(sql);
+            boolean orderedByIndex = plan.contains("uses index]");
+            boolean countOfAllRows = plan.contains("isAggregated=[true]") && filterColumns.isEmpty();
+            String[] ranges = plan.split("\\[range variable ");
+            for (int i = 1; i < ranges.length; i++) {
+                String range = ranges[i];
+                String rangeTable = find(range, "table=(\\w+)");
+                boolean readInFull = "FULL SCAN".equals(find(range, "access=([A-Z ]+)"))
+                        || !BOUNDED_CONDITION.matcher(getStartConditions(range)).find();
+                //HSQLDB checks the ids of an IN subquery on each row, Postgres reads their rows from the primary key
+                boolean readByIdsOfSubquery = Pattern.compile("ROW =\\s+COLUMN: PUBLIC\\." + rangeTable
+                        + "\\.ID\\s+\\] arg_right=\\[\\s+QUERY").matcher(range).find();
+                assertThat(rangeTable + " is read in full\n" + sql + "\n" + plan, readInFull
+                        && !(i == 1 && orderedByIndex) && !countOfAllRows && !readByIdsOfSubquery, is(false));
+
+                if (rangeTable.equals(table) && !filterColumns.isEmpty()) {
+                    List<String> startColumns = getStartColumns(range, table);
+                    assertThat(table + " is not read from an index of " + filterColumns + "\n" + sql + "\n" + plan,
+                            filterColumns.stream().anyMatch(startColumns::contains), is(true));
+                }
+            }
+        }
+    }
+
+    private String explain(String sql) {
+        StringBuilder plan = new StringBuilder();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("EXPLAIN PLAN FOR " + sql)) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not explain " + sql, e);
+            }
+        });
+        return plan.toString();
+    }
+
+    //Columns of the table compared in the start conditions of the index range of a range variable of the plan
+    private List<String> getStartColumns(String range, String table) {
+        List<String> columns = new ArrayList<>();
+        Matcher matcher = Pattern.compile("COLUMN: PUBLIC\\." + table + "\\.(\\w+)")
+                .matcher(getStartConditions(range));
+        while (matcher.find()) {
+            columns.add(matcher.group(1));
+        }
+        return columns;
+    }
+
+    //the end and other conditions that follow the start conditions are checked on the rows of the range
+    private String getStartConditions(String range) {
+        int start = range.indexOf("start conditions=[");
+        if (start < 0) {
+            return "";
+        }
+        int end = range.length();
+        for (String nextConditions : new String[] {"end condition=[", "other condition=["}) {
+            int nextStart = range.indexOf(nextConditions, start);
+            if (nextStart >= 0) {
+                end = Math.min(end, nextStart);
+            }
+        }
+        return range.substring(start, end);
+    }
+
+    private String find(String text, String regex) {
+        Matcher matcher = Pattern.compile(regex).matcher(text);
+        return matcher.find() ? matcher.group(1).trim() : null;
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Ignore;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.HashMap;
+import java.util.Map;
 
 @Ignore
 public class TestBaseRepository
@@ -15,12 +17,23 @@ public class TestBaseRepository
     protected DBTransactionExecutor transactionExecutor;
 
     public void initializeTestDB() {
-        emf = Persistence.createEntityManagerFactory("testPersistenceUnit");
+        initializeTestDB(new HashMap<>());
+    }
+
+    //properties override the ones of the persistence unit
+    public void initializeTestDB(Map<String, Object> properties) {
+        emf = Persistence.createEntityManagerFactory("testPersistenceUnit", properties);
         em = emf.createEntityManager();
 
         transactionExecutor = new DBTransactionExecutor(em);
     }
 
+    //read-write cache entries are only visible to sessions opened after they were written,
+    //as a new request would open them
+    protected EntityManager createEntityManager() {
+        return emf.createEntityManager();
+    }
+
     protected void closeEntityManager() {
         em.close();
         emf.close();
@@ -0,0 +1,185 @@
+package com.learning.app.course.repository;
+
+import com.learning.app.common.repository.SchemaMigrator;
+import com.learning.app.course.model.Course;
+import com.learning.app.course.model.CourseRating;
+import com.learning.app.commontests.repository.TestBaseRepository;
+import com.learning.app.review.model.Review;
+import com.learning.app.user.model.User;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Statement;
+
+import static com.learning.app.commontests.data.CategoryData.categoryList;
+import static com.learning.app.commontests.data.CourseData.getCourseWithDependencies;
+import static com.learning.app.commontests.data.CourseData.learnJava;
+import static com.learning.app.commontests.data.ReviewData.reviewWithoutId;
+import static com.learning.app.commontests.data.UserData.jan;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class CourseRatingRepositoryTest extends TestBaseRepository
+{
+    private static final String RATING_MIGRATION = SchemaMigrator.SCRIPTS_LOCATION + "V2__course_ratings.sql";
+
+    private CourseRatingRepository courseRatingRepository;
+    private Long courseId;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDB();
+
+        courseRatingRepository = new CourseRatingRepository();
+        courseRatingRepository.em = em;
+
+        CourseRepository courseRepository = new CourseRepository();
+        courseRepository.em = em;
+
+        transactionExecutor.executeCommandWithNoResult(
+                () -> categoryList().forEach(em::persist)
+        );
+        courseId = transactionExecutor.executeCommandWithResult(
+                () -> courseRepository.add(getCourseWithDependencies(learnJava(), em))
+        ).getId();
+    }
+
+    @After
+    public void tearDown()
+    {
+        closeEntityManager();
+    }
+
+    @Test
+    public void addCourse_ShouldCreateEmptyRating()
+    {
+        CourseRating courseRating = courseRatingRepository.findById(courseId);
+
+        assertThat(courseRating, is(notNullValue()));
+        assertThat(courseRating.getReviewCount(), is(equalTo(0L)));
+        assertThat(courseRating.getAverage(), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void addRating_ShouldUpdateCountSumAndDistribution()
+    {
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            courseRatingRepository.addRating(courseId, 5);
+            courseRatingRepository.addRating(courseId, 4);
+            courseRatingRepository.addRating(courseId, 5);
+        });
+
+        CourseRating courseRating = courseRatingRepository.findById(courseId);
+        assertThat(courseRating.getReviewCount(), is(equalTo(3L)));
+        assertThat(courseRating.getRatingSum(), is(equalTo(14L)));
+        assertThat(courseRating.getRatingCount(5), is(equalTo(2L)));
+        assertThat(courseRating.getRatingCount(4), is(equalTo(1L)));
+        assertThat(courseRating.getRatingCount(0), is(equalTo(0L)));
+        assertThat(courseRating.getAverage(), is(equalTo(14.0 / 3)));
+    }
+
+    @Test
+    public void removeRating_ShouldUpdateCountSumAndDistribution()
+    {
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            courseRatingRepository.addRating(courseId, 1);
+            courseRatingRepository.addRating(courseId, 3);
+            courseRatingRepository.removeRating(courseId, 1);
+        });
+
+        CourseRating courseRating = courseRatingRepository.findById(courseId);
+        assertThat(courseRating.getReviewCount(), is(equalTo(1L)));
+        assertThat(courseRating.getRatingSum(), is(equalTo(3L)));
+        assertThat(courseRating.getRatingCount(1), is(equalTo(0L)));
+        assertThat(courseRating.getAverage(), is(equalTo(3.0)));
+    }
+
+    @Test
+    public void clear_ShouldResetRating()
+    {
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            courseRatingRepository.addRating(courseId, 2);
+            courseRatingRepository.clear(courseId);
+        });
+
+        CourseRating courseRating = courseRatingRepository.findById(courseId);
+        assertThat(courseRating.getReviewCount(), is(equalTo(0L)));
+        assertThat(courseRating.getRatingCount(2), is(equalTo(0L)));
+        assertThat(courseRating.getAverage(), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void addRatingForCourseWithoutRating_ShouldCreateRating()
+    {
+        //a course persisted without the repository has no rating yet
+        Course course = getCourseWithDependencies(learnJava(), em);
+        course.setName("Learn Java 2");
+        Long otherCourseId = transactionExecutor.executeCommandWithResult(() -> {
+            em.persist(course);
+            return course.getId();
+        });
+
+        transactionExecutor.executeCommandWithNoResult(() -> courseRatingRepository.addRating(otherCourseId, 4));
+
+        CourseRating courseRating = courseRatingRepository.findById(otherCourseId);
+        assertThat(courseRating.getReviewCount(), is(equalTo(1L)));
+        assertThat(courseRating.getAverage(), is(equalTo(4.0)));
+    }
+
+    @Test
+    public void ratingFilledFromExistingReviews_ShouldFollowReviewWrites()
+    {
+        //reviews written before the aggregate existed, the migration computes it from them
+        Long reviewId = transactionExecutor.executeCommandWithResult(() -> {
+            User user = jan();
+            em.persist(user);
+            Course course = em.find(Course.class, courseId);
+            Review review = reviewWithoutId(5, user, course);
+            em.persist(review);
+            em.persist(reviewWithoutId(4, user, course));
+            em.persist(reviewWithoutId(3, user, course));
+            return review.getId();
+        });
+        fillRatingsFromReviews();
+
+        CourseRating courseRating = courseRatingRepository.findById(courseId);
+        assertThat(courseRating.getReviewCount(), is(equalTo(3L)));
+        assertThat(courseRating.getRatingCount(5), is(equalTo(1L)));
+        assertThat(courseRating.getAverage(), is(equalTo(4.0)));
+
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            em.remove(em.find(Review.class, reviewId));
+            courseRatingRepository.removeRating(courseId, 5);
+        });
+
+        em.clear();
+        courseRating = courseRatingRepository.findById(courseId);
+        assertThat(courseRating.getReviewCount(), is(equalTo(2L)));
+        assertThat(courseRating.getRatingSum(), is(equalTo(7L)));
+        assertThat(courseRating.getRatingCount(5), is(equalTo(0L)));
+        assertThat(courseRating.getAverage(), is(equalTo(3.5)));
+    }
+
+    //Run the backfill of the rating migration on the aggregates dropped, the version is the default of a later one
+    private void fillRatingsFromReviews()
+    {
+        transactionExecutor.executeCommandWithNoResult(() -> em.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement())
+            {
+                statement.executeUpdate("delete from COURSE_RATING");
+                for (String sql : SchemaMigrator.readStatements(RATING_MIGRATION))
+                {
+                    if (sql.trim().startsWith("insert"))
+                    {
+                        statement.executeUpdate(sql);
+                    }
+                }
+                statement.executeUpdate("update COURSE_RATING set version = 0");
+            }
+        }));
+        em.clear();
+    }
+}
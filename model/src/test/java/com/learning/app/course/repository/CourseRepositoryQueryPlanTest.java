@@ -0,0 +1,98 @@
+package com.learning.app.course.repository;
+
+import com.learning.app.common.model.filter.KeysetCursor;
+import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.common.model.filter.PaginationData.OrderMode;
+import com.learning.app.commontests.repository.TestBaseQueryPlanRepository;
+import com.learning.app.course.model.filter.CourseFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CourseRepositoryQueryPlanTest extends TestBaseQueryPlanRepository
+{
+    private CourseRepository courseRepository;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDBWithMigrationIndexes();
+
+        courseRepository = new CourseRepository();
+        courseRepository.em = em;
+    }
+
+    @After
+    public void tearDown()
+    {
+        closeEntityManager();
+    }
+
+    //every combination of filters, sorted by each sort field in both directions, first page and page after a cursor
+    @Test
+    public void findByFilter_ShouldReadCoursesAndTrigramsFromIndexOfFilter()
+    {
+        List<PaginationData> sorts = getSorts();
+
+        for (String name : Arrays.asList(null, "java"))
+        {
+            for (Long categoryId : Arrays.asList(null, 1L))
+            {
+                for (PaginationData paginationData : sorts)
+                {
+                    //the average is an expression of the outer joined rating aggregate, no index gives its order:
+                    //without filter all the courses are sorted by it
+                    if (name == null && categoryId == null && "averageRating".equals(paginationData.getOrderField()))
+                    {
+                        continue;
+                    }
+                    CourseFilter courseFilter = new CourseFilter();
+                    courseFilter.setName(name);
+                    courseFilter.setCategoryId(categoryId);
+                    courseFilter.setPaginationData(paginationData);
+
+                    clearPreparedStatements();
+                    courseRepository.findByFilter(courseFilter);
+                    assertStatementsReadFromIndex("COURSE", categoryId == null
+                            ? Collections.emptyList() : Collections.singletonList("CATEGORY_ID"));
+                    //the name is looked up in the trigrams of the name field of courses
+                    assertStatementsReadFromIndex("SEARCH_TRIGRAM", name == null
+                            ? Collections.emptyList() : Collections.singletonList("FIELD"));
+                }
+            }
+        }
+    }
+
+    //the sort fields of CourseRepository, with a last value of each one for the cursor
+    //averageRating is not a field of the course, its pages have no cursor
+    private List<PaginationData> getSorts()
+    {
+        Map<String, String> lastSortValues = new LinkedHashMap<>();
+        lastSortValues.put("id", null);
+        lastSortValues.put("name", "Java");
+
+        List<PaginationData> sorts = new ArrayList<>();
+        for (Map.Entry<String, String> sortField : lastSortValues.entrySet())
+        {
+            for (OrderMode orderMode : OrderMode.values())
+            {
+                String cursor = new KeysetCursor(sortField.getKey(), orderMode == OrderMode.ASCENDING, 10L,
+                        sortField.getValue()).encode();
+                sorts.add(new PaginationData(0, 10, sortField.getKey(), orderMode));
+                sorts.add(new PaginationData(0, 10, sortField.getKey(), orderMode, cursor));
+            }
+        }
+        for (OrderMode orderMode : OrderMode.values())
+        {
+            sorts.add(new PaginationData(0, 10, "averageRating", orderMode));
+        }
+        return sorts;
+    }
+}
@@ -1,20 +1,29 @@
 package com.learning.app.course.repository;
 
+import com.learning.app.common.exception.FieldInvalidException;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.model.SearchIndexRebuild;
 import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.common.repository.QueryShapes;
 import com.learning.app.course.model.Course;
 import com.learning.app.course.model.filter.CourseFilter;
+import com.learning.app.course.model.projection.CourseRow;
 import com.learning.app.commontests.repository.TestBaseRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import static com.learning.app.commontests.data.CategoryData.*;
 import static com.learning.app.commontests.data.CategoryData.categoryList;
 import static com.learning.app.commontests.data.CourseData.*;
+import static com.learning.app.commontests.repository.TestRepositoryUtils.findByPropertyNameAndValue;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -101,7 +110,7 @@ public class CourseRepositoryTest extends TestBaseRepository
         courseFilter.setName("Learn");
         courseFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING));
 
-        PaginatedData<Course> result = courseRepository.findByFilter(courseFilter);
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
 
         assertThat(result.getNumberOfRows(), is(equalTo(3)));
         assertThat(result.getRows().size(), is(equalTo(2)));
@@ -109,6 +118,136 @@ public class CourseRepositoryTest extends TestBaseRepository
         assertThat(result.getRow(1).getName(), is(equalTo("Learn Python")));
     }
 
+    @Test
+    public void findByFilterWithCursor_ShouldReturnRowsAfterCursor()
+    {
+        loadCoursesToDB();
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING));
+        PaginatedData<CourseRow> firstPage = courseRepository.findByFilter(courseFilter);
+
+        assertThat(firstPage.getNextCursor(), is(notNullValue()));
+
+        //use the cursor of the first page to get the second page
+        courseFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING,
+                firstPage.getNextCursor()));
+        PaginatedData<CourseRow> secondPage = courseRepository.findByFilter(courseFilter);
+
+        assertThat(secondPage.getNumberOfRows(), is(equalTo(4)));
+        assertThat(secondPage.getRows().size(), is(equalTo(2)));
+        assertThat(secondPage.getRow(0).getName(), is(equalTo("Learn Swift")));
+        assertThat(secondPage.getRow(1).getName(), is(equalTo("Spanish for Beginners")));
+    }
+
+    @Test
+    public void findByFilterWithCursorDescending_ShouldReturnRowsAfterCursor()
+    {
+        loadCoursesToDB();
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setPaginationData(new PaginationData(0, 3, "name", PaginationData.OrderMode.DESCENDING));
+        PaginatedData<CourseRow> firstPage = courseRepository.findByFilter(courseFilter);
+
+        courseFilter.setPaginationData(new PaginationData(0, 3, "name", PaginationData.OrderMode.DESCENDING,
+                firstPage.getNextCursor()));
+        PaginatedData<CourseRow> secondPage = courseRepository.findByFilter(courseFilter);
+
+        assertThat(secondPage.getRows().size(), is(equalTo(1)));
+        assertThat(secondPage.getRow(0).getName(), is(equalTo("Learn Java")));
+        //the last page is not full, so there is no next cursor
+        assertThat(secondPage.getNextCursor(), is(nullValue()));
+    }
+
+    @Test(expected = FieldInvalidException.class)
+    public void findByFilterWithInvalidCursor_ShouldThrowException()
+    {
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING,
+                "not a cursor"));
+
+        courseRepository.findByFilter(courseFilter);
+    }
+
+    @Test
+    public void findByFilterSortedByAverageRating_ShouldReturnBestRatedCoursesFirst()
+    {
+        loadCoursesToDB();
+
+        CourseRatingRepository courseRatingRepository = new CourseRatingRepository();
+        courseRatingRepository.em = em;
+        Long pythonId = findByPropertyNameAndValue(em, Course.class, "name", "Learn Python").getId();
+        Long javaId = findByPropertyNameAndValue(em, Course.class, "name", "Learn Java").getId();
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            courseRatingRepository.addRating(pythonId, 5);
+            courseRatingRepository.addRating(javaId, 2);
+            courseRatingRepository.addRating(javaId, 4);
+        });
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setPaginationData(new PaginationData(0, 4, "averageRating", PaginationData.OrderMode
+                .DESCENDING));
+
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
+
+        //courses without reviews have an average of 0 and come last
+        assertThat(result.getNumberOfRows(), is(equalTo(4)));
+        assertThat(result.getRow(0).getName(), is(equalTo("Learn Python")));
+        assertThat(result.getRow(1).getName(), is(equalTo("Learn Java")));
+        assertThat(result.getRow(1).getAverage(), is(equalTo(3.0)));
+        assertThat(result.getRow(2).getReviewCount(), is(equalTo(0L)));
+        assertThat(result.getRow(3).getReviewCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void findByFilterWithoutCount_ShouldNotCountRows()
+    {
+        loadCoursesToDB();
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING, null,
+                PaginationData.CountMode.NONE));
+
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
+
+        assertThat(result.getCountMode(), is(equalTo(PaginationData.CountMode.NONE)));
+        assertThat(result.getNumberOfRows(), is(equalTo(PaginatedData.UNKNOWN_NUMBER_OF_ROWS)));
+        assertThat(result.getRows().size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void findByFilterWithEstimatedCount_ShouldReturnExactCountBelowLimit()
+    {
+        loadCoursesToDB();
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING, null,
+                PaginationData.CountMode.ESTIMATED));
+
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
+
+        assertThat(result.getCountMode(), is(equalTo(PaginationData.CountMode.EXACT)));
+        assertThat(result.getNumberOfRows(), is(equalTo(4)));
+    }
+
+    @Test
+    public void findByFilterAfterAdd_ShouldNotReturnCachedCount()
+    {
+        loadCoursesToDB();
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING));
+        assertThat(courseRepository.findByFilter(courseFilter).getNumberOfRows(), is(equalTo(4)));
+
+        //adding a course must invalidate the cached count
+        transactionExecutor.executeCommandWithNoResult(
+                () -> courseRepository.add(getCourseWithDependencies(courseWithoutId("Learn Kotlin", categoryList()
+                        .get(0)), em))
+        );
+
+        assertThat(courseRepository.findByFilter(courseFilter).getNumberOfRows(), is(equalTo(5)));
+    }
+
     @Test
     public void findById_ShouldReturnNullIfIdNotExist() throws Exception
     {
@@ -144,6 +283,203 @@ public class CourseRepositoryTest extends TestBaseRepository
         assertThat(courseRepository.findById(courseAdded.getId()), is(nullValue()));
     }
 
+    @Test
+    public void findById_ShouldReadCourseWithCategoryAndRatingFromSecondLevelCache() throws Exception
+    {
+        Course courseAdded = transactionExecutor.executeCommandWithResult(
+                () -> courseRepository.add(getCourseWithDependencies(courseWithoutId("Learn Java", categoryList()
+                        .get(0)), em))
+        );
+        //identity inserts are not put in the cache, the first read does
+        courseRepository.em = createEntityManager();
+        courseRepository.findById(courseAdded.getId());
+        courseRepository.em = createEntityManager();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Course courseFound = courseRepository.findById(courseAdded.getId());
+
+        assertThat(courseFound.getCategory().getName(), is(equalTo(categoryList().get(0).getName())));
+        assertThat(courseFound.getRating().getReviewCount(), is(equalTo(0L)));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void findByFilterWithShortName_ShouldReturnMatchingCourses()
+    {
+        loadCoursesToDB();
+
+        //names shorter than a trigram are not narrowed down by the search index
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setName("va");
+
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
+
+        assertThat(result.getNumberOfRows(), is(equalTo(1)));
+        assertThat(result.getRow(0).getName(), is(equalTo("Learn Java")));
+    }
+
+    @Test
+    public void findByFilterWithNamesOfCloseLengths_ShouldReuseQueryShape()
+    {
+        loadCoursesToDB();
+        QueryShapes queryShapes = QueryShapes.forFactory(em.getEntityManagerFactory());
+
+        //"pytho" and "python" have 3 and 4 trigrams, both are bound as a list of 4 values
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setName("pytho");
+        courseRepository.findByFilter(courseFilter);
+        int shapes = queryShapes.getShapeCount();
+
+        courseFilter.setName("python");
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
+
+        assertThat(queryShapes.getShapeCount(), is(equalTo(shapes)));
+        assertThat(result.getNumberOfRows(), is(equalTo(1)));
+        assertThat(result.getRow(0).getName(), is(equalTo("Learn Python")));
+    }
+
+    @Test
+    public void findByFilterWithNameInsideWord_ShouldReturnMatchingCourses()
+    {
+        loadCoursesToDB();
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setName("YTHO");
+
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
+
+        assertThat(result.getNumberOfRows(), is(equalTo(1)));
+        assertThat(result.getRow(0).getName(), is(equalTo("Learn Python")));
+    }
+
+    @Test
+    public void search_ShouldRankNameMatchesFirst()
+    {
+        loadCoursesToDB();
+
+        //every course has "beginners" in its description, only one in its name
+        List<CourseRow> result = courseRepository.search("begin", 10);
+
+        assertThat(result.size(), is(equalTo(4)));
+        assertThat(result.get(0).getName(), is(equalTo("Spanish for Beginners")));
+    }
+
+    @Test
+    public void search_ShouldMatchWordPrefixes()
+    {
+        loadCoursesToDB();
+
+        assertThat(courseRepository.search("earn", 10).size(), is(equalTo(0)));
+
+        List<CourseRow> result = courseRepository.search("lea jav", 10);
+        assertThat(result.size(), is(equalTo(1)));
+        assertThat(result.get(0).getName(), is(equalTo("Learn Java")));
+    }
+
+    @Test
+    public void update_ShouldUpdateSearchIndex()
+    {
+        Course courseAdded = transactionExecutor.executeCommandWithResult(
+                () -> courseRepository.add(getCourseWithDependencies(courseWithoutId("Learn Java", categoryList()
+                        .get(0)), em))
+        );
+
+        courseAdded.setName("Java for Experts");
+        transactionExecutor.executeCommandWithNoResult(
+                () -> courseRepository.update(courseAdded)
+        );
+
+        assertThat(courseRepository.search("learn", 10).size(), is(equalTo(0)));
+        assertThat(courseRepository.search("expert", 10).size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void delete_ShouldRemoveCourseFromSearchIndex()
+    {
+        Course courseAdded = transactionExecutor.executeCommandWithResult(
+                () -> courseRepository.add(getCourseWithDependencies(courseWithoutId("Learn Java", categoryList()
+                        .get(0)), em))
+        );
+
+        transactionExecutor.executeCommandWithNoResult(
+                () -> courseRepository.delete(courseAdded.getId())
+        );
+
+        assertThat(em.createQuery("Select count(t) From SearchTrigram t").getSingleResult(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void rebuildSearchIndex_ShouldIndexAllCourses()
+    {
+        loadCoursesToDB();
+        transactionExecutor.executeCommandWithNoResult(
+                () -> em.createQuery("Delete From SearchTrigram").executeUpdate()
+        );
+
+        long indexed = transactionExecutor.executeCommandWithResult(
+                () -> courseRepository.rebuildSearchIndex()
+        );
+
+        assertThat(indexed, is(equalTo(4L)));
+        assertThat(courseRepository.search("python", 10).size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void findByFilterWithNameBeforeRequestedRebuild_ShouldReturnCoursesNotIndexed()
+    {
+        loadCoursesToDB();
+        //as after the migration of a database written before the index
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            em.createQuery("Delete From SearchTrigram").executeUpdate();
+            em.persist(new SearchIndexRebuild("Course"));
+        });
+
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setName("python");
+
+        PaginatedData<CourseRow> result = courseRepository.findByFilter(courseFilter);
+
+        assertThat(result.getNumberOfRows(), is(equalTo(1)));
+        assertThat(result.getRow(0).getName(), is(equalTo("Learn Python")));
+    }
+
+    @Test
+    public void rebuildSearchIndexIfRequested_ShouldRebuildOnlyOnce()
+    {
+        loadCoursesToDB();
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            em.createQuery("Delete From SearchTrigram").executeUpdate();
+            em.persist(new SearchIndexRebuild("Course"));
+        });
+
+        long indexed = transactionExecutor.executeCommandWithResult(
+                () -> courseRepository.rebuildSearchIndexIfRequested()
+        );
+        long indexedAgain = transactionExecutor.executeCommandWithResult(
+                () -> courseRepository.rebuildSearchIndexIfRequested()
+        );
+
+        assertThat(indexed, is(equalTo(4L)));
+        assertThat(indexedAgain, is(equalTo(-1L)));
+        assertThat(em.find(SearchIndexRebuild.class, "Course"), is(nullValue()));
+        assertThat(courseRepository.search("python", 10).size(), is(equalTo(1)));
+    }
+
+    private void loadCoursesToDB()
+    {
+        List<Course> courseListWithDependencies = new ArrayList<>();
+        courseList()
+                .forEach(course ->
+                        courseListWithDependencies.add(getCourseWithDependencies(course, em))
+                );
+
+        transactionExecutor.executeCommandWithNoResult(
+                () -> courseListWithDependencies.forEach(courseRepository::add)
+        );
+    }
+
     private void loadCategoriesToDB()
     {
         transactionExecutor.executeCommandWithNoResult(
@@ -151,4 +487,15 @@ public class CourseRepositoryTest extends TestBaseRepository
         );
     }
 
-}
\ No newline at end of file
+    @Test
+    public void findExistingNames_ShouldReturnNamesOfExistingCourses() throws Exception
+    {
+        loadCoursesToDB();
+
+        Set<String> existingNames = courseRepository.findExistingNames(
+                Arrays.asList(learnJava().getName(), "Learn Haskell"));
+
+        assertThat(existingNames.size(), is(equalTo(1)));
+        assertThat(existingNames.contains(learnJava().getName()), is(true));
+    }
+}
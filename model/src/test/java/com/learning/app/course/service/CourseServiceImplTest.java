@@ -3,10 +3,12 @@ package com.learning.app.course.service;
 import com.learning.app.category.exception.CategoryNotFoundException;
 import com.learning.app.category.service.CategoryService;
 import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.model.BatchItemResult;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.course.exception.CourseNotFoundException;
 import com.learning.app.course.model.Course;
 import com.learning.app.course.model.filter.CourseFilter;
+import com.learning.app.course.model.projection.CourseRow;
 import com.learning.app.course.repository.CourseRepository;
 import com.learning.app.review.service.ReviewService;
 import org.junit.Before;
@@ -19,6 +21,8 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.mockito.Mockito.*;
@@ -225,15 +229,15 @@ public class CourseServiceImplTest
     @Test
     public void findCourseByFilter_ReturnsFilteredPaginatedData() throws Exception
     {
-        PaginatedData<Course> courses = new PaginatedData<>(1, Arrays.asList(
-                courseWithId(learnJava(), 1L),
-                courseWithId(learnPython(), 2L))
+        PaginatedData<CourseRow> courses = new PaginatedData<>(1, Arrays.asList(
+                new CourseRow(courseWithId(learnJava(), 1L)),
+                new CourseRow(courseWithId(learnPython(), 2L)))
         );
         CourseFilter courseFilter = new CourseFilter();
         when(courseRepository.findByFilter(courseFilter))
                 .thenReturn(courses);
 
-        PaginatedData<Course> coursesReturned = courseService.findByFilter(courseFilter);
+        PaginatedData<CourseRow> coursesReturned = courseService.findByFilter(courseFilter);
 
         assertThat(coursesReturned.getNumberOfRows(), is(equalTo(1)));
         assertThat(coursesReturned.getRow(0).getName(), is(equalTo("Learn Java")));
@@ -254,4 +258,51 @@ public class CourseServiceImplTest
     {
         courseService.deleteById(999L);
     }
-}
\ No newline at end of file
+
+    @Test(expected = FieldInvalidException.class)
+    public void searchWithEmptyQuery_ShouldThrowException()
+    {
+        courseService.search(" ", 10);
+    }
+
+    @Test(expected = FieldInvalidException.class)
+    public void searchWithLimitTooHigh_ShouldThrowException()
+    {
+        courseService.search("java", 1000);
+    }
+
+    @Test
+    public void addAll_ShouldAddValidCoursesAndReturnResultOfEachCourse() throws Exception
+    {
+        Course validCourse = courseWithCategoryId(learnJava(), 1L);
+        Course courseWithUnknownCategory = courseWithCategoryId(learnPython(), 2L);
+        Course courseWithExistingName = courseWithCategoryId(learnSwift(), 1L);
+        Course courseWithNameOfBatch = courseWithCategoryId(learnJava(), 1L);
+        when(categoryService.findByIds(anyCollection()))
+                .thenReturn(Collections.singletonMap(1L, validCourse.getCategory()));
+        when(courseRepository.findExistingNames(anyCollection()))
+                .thenReturn(new HashSet<>(Collections.singletonList(learnSwift().getName())));
+
+        List<BatchItemResult<Course>> results = courseService.addAll(Arrays.asList(validCourse,
+                courseWithUnknownCategory, courseWithExistingName, courseWithNameOfBatch));
+
+        assertThat(results.size(), is(equalTo(4)));
+        assertThat(results.get(0).getEntity(), is(sameInstance(validCourse)));
+        assertThat(results.get(1).getError(), is(instanceOf(CategoryNotFoundException.class)));
+        assertThat(((FieldInvalidException) results.get(2).getError()).getFieldName(), is(equalTo("name")));
+        assertThat(((FieldInvalidException) results.get(3).getError()).getFieldName(), is(equalTo("name")));
+        verify(courseRepository).addAll(Collections.singletonList(validCourse));
+    }
+
+    @Test(expected = FieldInvalidException.class)
+    public void addAllWithTooManyCourses_ShouldThrowException() throws Exception
+    {
+        courseService.addAll(Collections.nCopies(501, learnJava()));
+    }
+
+    private Course courseWithCategoryId(Course course, Long categoryId)
+    {
+        course.getCategory().setId(categoryId);
+        return course;
+    }
+}
@@ -0,0 +1,91 @@
+package com.learning.app.review.repository;
+
+import com.learning.app.common.model.filter.KeysetCursor;
+import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.common.model.filter.PaginationData.OrderMode;
+import com.learning.app.commontests.repository.TestBaseQueryPlanRepository;
+import com.learning.app.review.model.filter.ReviewFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReviewRepositoryQueryPlanTest extends TestBaseQueryPlanRepository
+{
+    private ReviewRepository reviewRepository;
+
+    @Before
+    public void setUp()
+    {
+        initializeTestDBWithMigrationIndexes();
+
+        reviewRepository = new ReviewRepository();
+        reviewRepository.em = em;
+    }
+
+    @After
+    public void tearDown()
+    {
+        closeEntityManager();
+    }
+
+    //every combination of filters, sorted by each sort field in both directions, first page and page after a cursor
+    @Test
+    public void findByFilter_ShouldReadReviewsFromIndexOfFilter()
+    {
+        for (Long userId : Arrays.asList(null, 1L))
+        {
+            for (Long courseId : Arrays.asList(null, 1L))
+            {
+                for (PaginationData paginationData : getSorts())
+                {
+                    ReviewFilter reviewFilter = new ReviewFilter();
+                    reviewFilter.setUserId(userId);
+                    reviewFilter.setCourseId(courseId);
+                    reviewFilter.setPaginationData(paginationData);
+
+                    List<String> filterColumns = new ArrayList<>();
+                    if (userId != null)
+                    {
+                        filterColumns.add("USER_ID");
+                    }
+                    if (courseId != null)
+                    {
+                        filterColumns.add("COURSE_ID");
+                    }
+
+                    clearPreparedStatements();
+                    reviewRepository.findByFilter(reviewFilter);
+                    assertStatementsReadFromIndex("REVIEW", filterColumns);
+                }
+            }
+        }
+    }
+
+    //the sort fields of ReviewRepository, with a last value of each one for the cursor
+    private List<PaginationData> getSorts()
+    {
+        Map<String, String> lastSortValues = new LinkedHashMap<>();
+        lastSortValues.put("id", null);
+        lastSortValues.put("rating", "3");
+        lastSortValues.put("createdAt", "2017-01-01");
+
+        List<PaginationData> sorts = new ArrayList<>();
+        for (Map.Entry<String, String> sortField : lastSortValues.entrySet())
+        {
+            for (OrderMode orderMode : OrderMode.values())
+            {
+                String cursor = new KeysetCursor(sortField.getKey(), orderMode == OrderMode.ASCENDING, 10L,
+                        sortField.getValue()).encode();
+                sorts.add(new PaginationData(0, 10, sortField.getKey(), orderMode));
+                sorts.add(new PaginationData(0, 10, sortField.getKey(), orderMode, cursor));
+            }
+        }
+        return sorts;
+    }
+}
@@ -1,17 +1,24 @@
 package com.learning.app.review.repository;
 
+import com.learning.app.common.exception.FieldInvalidException;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.common.repository.QueryShapes;
 import com.learning.app.commontests.repository.TestBaseRepository;
 import com.learning.app.course.model.Course;
 import com.learning.app.review.model.Review;
 import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static com.learning.app.commontests.data.CategoryData.categoryList;
 import static com.learning.app.commontests.data.CourseData.courseList;
@@ -89,12 +96,64 @@ public class ReviewRepositoryTest extends TestBaseRepository
         //set pagination data to 2 rows per page, starting at row 0, order by rating
         reviewFilter.setPaginationData(new PaginationData(0, 2, "rating", PaginationData.OrderMode.ASCENDING));
 
-        PaginatedData<Review> result = reviewRepository.findByFilter(reviewFilter);
+        PaginatedData<ReviewRow> result = reviewRepository.findByFilter(reviewFilter);
 
         assertThat(result.getNumberOfRows(), is(equalTo(3)));
         assertThat(result.getRows().size(), is(equalTo(2)));
-        assertThat(result.getRow(0).getCourse().getId(), is(equalTo(courseId)));
-        assertThat(result.getRow(1).getCourse().getId(), is(equalTo(courseId)));
+        assertThat(result.getRow(0).getCourseId(), is(equalTo(courseId)));
+        assertThat(result.getRow(1).getCourseId(), is(equalTo(courseId)));
+    }
+
+    @Test
+    public void findByFilterSortedByUnknownField_ShouldThrowExceptionBeforeBuildingQuery()
+    {
+        loadReviewsToDB();
+        QueryShapes queryShapes = QueryShapes.forFactory(em.getEntityManagerFactory());
+
+        ReviewFilter reviewFilter = new ReviewFilter();
+        reviewFilter.setPaginationData(new PaginationData(0, 2, "comment) Or 1=1 Or (e.id",
+                PaginationData.OrderMode.ASCENDING));
+
+        try
+        {
+            reviewRepository.findByFilter(reviewFilter);
+            fail("An error should have been thrown");
+        } catch (FieldInvalidException e)
+        {
+            assertThat(e.getFieldName(), is(equalTo("sort")));
+        }
+        assertThat(queryShapes.getShapeCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void findByFilter_ShouldUseSameNumberOfStatementsForAnyPageSize()
+    {
+        loadReviewsToDB();
+
+        long statementsForOneReview = countStatementsForPage(1);
+        long statementsForAllReviews = countStatementsForPage(reviewList().size());
+
+        //user and course fields are read by the page query, no entity is loaded
+        assertThat(statementsForAllReviews, is(equalTo(statementsForOneReview)));
+        assertThat(statementsForAllReviews, is(equalTo(1L)));
+    }
+
+    @Test
+    public void streamAll_ShouldPassAllReviewsInIdOrder()
+    {
+        loadReviewsToDB();
+
+        List<Long> streamedIds = new ArrayList<>();
+        long rows = transactionExecutor.executeCommandWithResult(
+                () -> reviewRepository.streamAll(review -> streamedIds.add(review.getId()))
+        );
+
+        assertThat(rows, is(equalTo((long)reviewList().size())));
+        assertThat(streamedIds.size(), is(equalTo(reviewList().size())));
+        for (int i = 1; i < streamedIds.size(); i++)
+        {
+            assertThat(streamedIds.get(i) > streamedIds.get(i - 1), is(true));
+        }
     }
 
     @Test
@@ -138,11 +197,37 @@ public class ReviewRepositoryTest extends TestBaseRepository
         Review review = em.find(Review.class, 1L);
         Long courseId = review.getCourse().getId();
 
-        reviewRepository.deleteByCourseId(courseId);
+        int deletedReviews = transactionExecutor.executeCommandWithResult(
+                () -> reviewRepository.deleteByCourseId(courseId)
+        );
 
+        assertThat(deletedReviews, is(not(equalTo(0))));
         assertThat(em.find(Review.class, 1L), is(nullValue()));
+        Long remainingReviews = (Long)em.createQuery("Select count(e) From Review e Where e.course.id = :course_id")
+                .setParameter("course_id", courseId)
+                .getSingleResult();
+        assertThat(remainingReviews, is(equalTo(0L)));
     }
 
+    @Test
+    public void deleteByCourseId_ShouldDetachOnlyDeletedReviews() throws Exception
+    {
+        loadReviewsToDB();
+        Review review = em.find(Review.class, 1L);
+        Long courseId = review.getCourse().getId();
+        Review otherCourseReview = (Review) em.createQuery("Select e From Review e Where e.course.id <> :course_id")
+                .setParameter("course_id", courseId)
+                .setMaxResults(1)
+                .getSingleResult();
+
+        List<Boolean> managedAfterDelete = transactionExecutor.executeCommandWithResult(() -> {
+            reviewRepository.deleteByCourseId(courseId);
+            return Arrays.asList(em.contains(review), em.contains(review.getCourse()),
+                    em.contains(otherCourseReview));
+        });
+
+        assertThat(managedAfterDelete, is(equalTo(Arrays.asList(false, true, true))));
+    }
 
     private void loadCategoriesToDB()
     {
@@ -168,6 +253,21 @@ public class ReviewRepositoryTest extends TestBaseRepository
         );
     }
 
+    private long countStatementsForPage(int pageSize)
+    {
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ReviewFilter reviewFilter = new ReviewFilter();
+        reviewFilter.setPaginationData(new PaginationData(0, pageSize, "rating", PaginationData.OrderMode
+                .ASCENDING, null, PaginationData.CountMode.NONE));
+        PaginatedData<ReviewRow> result = reviewRepository.findByFilter(reviewFilter);
+        assertThat(result.getRows().size(), is(equalTo(pageSize)));
+
+        return statistics.getPrepareStatementCount();
+    }
+
     private void loadReviewsToDB()
     {
         transactionExecutor.executeCommandWithNoResult(
@@ -177,6 +277,80 @@ public class ReviewRepositoryTest extends TestBaseRepository
         );
     }
 
+    @Test
+    public void addAll_ShouldPersistReviews() throws Exception
+    {
+        List<Review> reviews = new ArrayList<>();
+        reviewList().forEach(review -> reviews.add(getReviewWithDependencies(review, em)));
+
+        transactionExecutor.executeCommandWithResult(
+                () -> reviewRepository.addAll(reviews)
+        );
+
+        assertThat(reviews.get(0).getId(), is(notNullValue()));
+        assertThat(reviewRepository.findAll().size(), is(equalTo(reviews.size())));
+    }
+
+    @Test
+    public void addAll_ShouldSendInsertsInBatches() throws Exception
+    {
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < 60; i++)
+        {
+            Review review = getReviewWithDependencies(reviewJanPython(), em);
+            review.setComment("Review " + i);
+            reviews.add(review);
+        }
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transactionExecutor.executeCommandWithResult(
+                () -> reviewRepository.addAll(reviews)
+        );
+
+        //one sequence call per block of 50 ids and one statement per batch of 50 inserts
+        assertThat(statistics.getEntityInsertCount(), is(equalTo(60L)));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(4L)));
+    }
+
+    @Test
+    public void addAll_ShouldDetachOnlyAddedReviews() throws Exception
+    {
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < 60; i++)
+        {
+            reviews.add(reviewJanPython());
+        }
+
+        //the user and course are loaded by the caller in the transaction of addAll
+        List<Boolean> managedAfterAddAll = transactionExecutor.executeCommandWithResult(() -> {
+            reviews.forEach(review -> getReviewWithDependencies(review, em));
+            reviewRepository.addAll(reviews);
+            return Arrays.asList(em.contains(reviews.get(0).getCourse()), em.contains(reviews.get(0).getUser()),
+                    em.contains(reviews.get(0)), em.contains(reviews.get(59)));
+        });
+
+        assertThat(managedAfterAddAll, is(equalTo(Arrays.asList(true, true, false, false))));
+    }
 
+    @Test
+    public void findByIds_ShouldReturnReviewsOfExistingIds() throws Exception
+    {
+        loadReviewsToDB();
+        List<Review> reviews = reviewRepository.findAll();
+        Long firstId = reviews.get(0).getId();
+        Long secondId = reviews.get(1).getId();
+
+        Map<Long, Review> reviewsFound = reviewRepository.findByIds(Arrays.asList(firstId, secondId, 999L));
+
+        assertThat(reviewsFound.size(), is(equalTo(2)));
+        assertThat(reviewsFound.get(firstId).getRating(), is(equalTo(reviews.get(0).getRating())));
+        assertThat(reviewsFound.get(secondId).getRating(), is(equalTo(reviews.get(1).getRating())));
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void findByIds_WithoutIds_ShouldReturnEmptyMap() throws Exception
+    {
+        assertThat(reviewRepository.findByIds(new ArrayList<>()).isEmpty(), is(true));
+    }
+}
@@ -1,18 +1,23 @@
 package com.learning.app.review.service;
 
 import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.model.BatchItemResult;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.repository.IngestionCheckpointRepository;
 import com.learning.app.course.exception.CourseNotFoundException;
+import com.learning.app.course.repository.CourseRatingRepository;
 import com.learning.app.course.service.CourseService;
 import com.learning.app.review.exception.ReviewNotFoundException;
 import com.learning.app.review.model.Review;
 import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
 import com.learning.app.review.repository.ReviewRepository;
 import com.learning.app.user.exception.UserNotFoundException;
 import com.learning.app.user.service.UserService;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -20,10 +25,14 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
+import static com.learning.app.commontests.data.CourseData.courseWithId;
+import static com.learning.app.commontests.data.CourseData.learnPython;
 import static com.learning.app.commontests.data.ReviewData.*;
 
 public class ReviewServiceImplTest
@@ -34,6 +43,12 @@ public class ReviewServiceImplTest
     @Mock
     private ReviewRepository reviewRepository;
 
+    @Mock
+    private CourseRatingRepository courseRatingRepository;
+
+    @Mock
+    private IngestionCheckpointRepository ingestionCheckpointRepository;
+
     @Mock
     private UserService userService;
 
@@ -53,7 +68,9 @@ public class ReviewServiceImplTest
         reviewService = new ReviewServiceImpl();
         ((ReviewServiceImpl)reviewService).validator = validator;
         ((ReviewServiceImpl)reviewService).reviewRepository = reviewRepository;
+        ((ReviewServiceImpl)reviewService).courseRatingRepository = courseRatingRepository;
         ((ReviewServiceImpl)reviewService).courseService = courseService;
+        ((ReviewServiceImpl)reviewService).ingestionCheckpointRepository = ingestionCheckpointRepository;
         ((ReviewServiceImpl)reviewService).userService = userService;
     }
 
@@ -99,12 +116,13 @@ public class ReviewServiceImplTest
         Review reviewAdded = reviewService.add(review);
 
         assertThat(reviewAdded.getId(), is(equalTo(1L)));
+        verify(courseRatingRepository).addRating(review.getCourse().getId(), review.getRating());
     }
 
     @Test(expected = CourseNotFoundException.class)
     public void updateReviewWithNonExistingCourse_ShouldThrowException() {
         when(courseService.findById(1L)).thenThrow(new CourseNotFoundException());
-        when(reviewRepository.idExists(1L)).thenReturn(true);
+        when(reviewRepository.findById(1L)).thenReturn(reviewWithId(reviewJanPython(), 1L));
 
         Review review = reviewWithId(reviewJanPython(), 1L);
         review.getCourse().setId(1L);
@@ -115,7 +133,7 @@ public class ReviewServiceImplTest
     @Test(expected = UserNotFoundException.class)
     public void updateReviewWithNonExistingUser_ShouldThrowException() {
         when(userService.findById(1L)).thenThrow(new UserNotFoundException());
-        when(reviewRepository.idExists(1L)).thenReturn(true);
+        when(reviewRepository.findById(1L)).thenReturn(reviewWithId(reviewJanPython(), 1L));
 
         Review review = reviewWithId(reviewJanPython(), 1L);
         review.getUser().setId(1L);
@@ -126,7 +144,7 @@ public class ReviewServiceImplTest
     @Test(expected = FieldInvalidException.class)
     public void updateReviewWithInvalidRating_ShouldThrowException() throws Exception
     {
-        when(reviewRepository.idExists(1L)).thenReturn(true);
+        when(reviewRepository.findById(1L)).thenReturn(reviewWithId(reviewJanPython(), 1L));
         Review review = reviewWithId(reviewJanPython(), 1L);
         review.setRating(10);
 
@@ -136,15 +154,59 @@ public class ReviewServiceImplTest
     @Test
     public void updateValidReview_ShouldCallUpdateInRepository() throws Exception
     {
-        when(reviewRepository.idExists(1L)).thenReturn(true);
+        when(reviewRepository.findById(1L)).thenReturn(reviewWithCourseId(reviewJanPython(), 1L, 3L));
         when(userService.findById(anyLong())).thenReturn(reviewJanPython().getUser());
-        when(courseService.findById(anyLong())).thenReturn(reviewJanPython().getCourse());
+        when(courseService.findById(anyLong())).thenReturn(courseWithId(learnPython(), 3L));
 
         reviewService.update(reviewWithId(reviewJanPython(), 1L));
 
         verify(reviewRepository).update(reviewWithId(reviewJanPython(), 1L));
     }
 
+    @Test
+    public void updateReviewRating_ShouldReplaceRatingInCourseRating() throws Exception
+    {
+        Review existingReview = reviewWithCourseId(reviewJanPython(), 1L, 3L);
+        existingReview.setRating(1);
+        when(reviewRepository.findById(1L)).thenReturn(existingReview);
+        when(userService.findById(anyLong())).thenReturn(reviewJanPython().getUser());
+        when(courseService.findById(anyLong())).thenReturn(courseWithId(learnPython(), 3L));
+
+        Review review = reviewWithId(reviewJanPython(), 1L);
+        review.setRating(4);
+        reviewService.update(review);
+
+        verify(courseRatingRepository).removeRating(3L, 1);
+        verify(courseRatingRepository).addRating(3L, 4);
+    }
+
+    @Test
+    public void updateReviewCourse_ShouldLockRatingsInCourseIdOrder() throws Exception
+    {
+        when(userService.findById(anyLong())).thenReturn(reviewJanPython().getUser());
+        when(courseService.findById(anyLong())).thenReturn(courseWithId(learnPython(), 3L));
+
+        //moved from course 2 to course 3, then from course 4 to course 3
+        when(reviewRepository.findById(1L)).thenReturn(reviewWithCourseId(reviewJanPython(), 1L, 2L));
+        reviewService.update(reviewWithId(reviewJanPython(), 1L));
+        when(reviewRepository.findById(1L)).thenReturn(reviewWithCourseId(reviewJanPython(), 1L, 4L));
+        Review secondMove = reviewWithId(reviewJanPython(), 1L);
+        secondMove.setRating(5);
+        reviewService.update(secondMove);
+
+        InOrder ratingUpdates = inOrder(courseRatingRepository);
+        ratingUpdates.verify(courseRatingRepository).removeRating(2L, 4);
+        ratingUpdates.verify(courseRatingRepository).addRating(3L, 4);
+        ratingUpdates.verify(courseRatingRepository).addRating(3L, 5);
+        ratingUpdates.verify(courseRatingRepository).removeRating(4L, 4);
+    }
+
+    private static Review reviewWithCourseId(Review review, Long id, Long courseId)
+    {
+        review.setCourse(courseWithId(review.getCourse(), courseId));
+        return reviewWithId(review, id);
+    }
+
     @Test(expected = ReviewNotFoundException.class)
     public void findReviewById_ShouldThrowExceptionIfNotFound() throws Exception
     {
@@ -170,29 +232,40 @@ public class ReviewServiceImplTest
     @Test
     public void findReviewByFilter_ReturnsFilteredPaginatedData() throws Exception
     {
-        PaginatedData<Review> reviews = new PaginatedData<>(1, Arrays.asList(
-                reviewWithId(reviewJanPython(), 1L),
-                reviewWithId(reviewJanSwift(), 2L))
+        PaginatedData<ReviewRow> reviews = new PaginatedData<>(1, Arrays.asList(
+                new ReviewRow(reviewWithId(reviewJanPython(), 1L)),
+                new ReviewRow(reviewWithId(reviewJanSwift(), 2L)))
         );
         ReviewFilter reviewFilter = new ReviewFilter();
         when(reviewRepository.findByFilter(reviewFilter))
                 .thenReturn(reviews);
 
-        PaginatedData<Review> reviewsReturned = reviewService.findByFilter(reviewFilter);
+        PaginatedData<ReviewRow> reviewsReturned = reviewService.findByFilter(reviewFilter);
 
         assertThat(reviewsReturned.getNumberOfRows(), is(equalTo(1)));
-        assertThat(reviewsReturned.getRow(0).getCourse(), is(equalTo(reviewJanPython().getCourse())));
-        assertThat(reviewsReturned.getRow(0).getUser(), is(equalTo(reviewJanPython().getUser())));
+        assertThat(reviewsReturned.getRow(0).getCourseName(), is(equalTo(reviewJanPython().getCourse().getName())));
+        assertThat(reviewsReturned.getRow(0).getUserName(), is(equalTo(reviewJanPython().getUser().getName())));
     }
 
     @Test
     public void deleteExistingCourse_ShouldCallDeleteInRepository() throws Exception
     {
-        when(reviewRepository.idExists(1L)).thenReturn(true);
+        when(reviewRepository.findById(1L)).thenReturn(reviewWithId(reviewJanPython(), 1L));
 
         reviewService.deleteById(1L);
 
         verify(reviewRepository).delete(1L);
+        verify(courseRatingRepository).removeRating(reviewJanPython().getCourse().getId(), reviewJanPython()
+                .getRating());
+    }
+
+    @Test
+    public void deleteByCourseId_ShouldClearCourseRating() throws Exception
+    {
+        reviewService.deleteByCourseId(1L);
+
+        verify(reviewRepository).deleteByCourseId(1L);
+        verify(courseRatingRepository).clear(1L);
     }
 
     @Test(expected = ReviewNotFoundException.class)
@@ -200,4 +273,66 @@ public class ReviewServiceImplTest
     {
         reviewService.deleteById(999L);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void addAll_ShouldAddValidReviewsAndReturnResultOfEachReview() throws Exception
+    {
+        Review validReview = reviewWithUserAndCourseIds(reviewJanPython(), 1L, 2L);
+        Review reviewWithUnknownCourse = reviewWithUserAndCourseIds(reviewJanSwift(), 1L, 3L);
+        Review reviewWithUnknownUser = reviewWithUserAndCourseIds(reviewLenaSwift(), 4L, 2L);
+        Review reviewWithInvalidRating = reviewWithUserAndCourseIds(reviewJanPython(), 1L, 2L);
+        reviewWithInvalidRating.setRating(10);
+        when(userService.findByIds(anyCollection())).thenReturn(Collections.singletonMap(1L, validReview.getUser()));
+        when(courseService.findByIds(anyCollection()))
+                .thenReturn(Collections.singletonMap(2L, validReview.getCourse()));
+
+        List<BatchItemResult<Review>> results = reviewService.addAll(Arrays.asList(validReview,
+                reviewWithUnknownCourse, reviewWithUnknownUser, reviewWithInvalidRating));
+
+        assertThat(results.size(), is(equalTo(4)));
+        assertThat(results.get(0).getEntity(), is(sameInstance(validReview)));
+        assertThat(results.get(1).getError(), is(instanceOf(CourseNotFoundException.class)));
+        assertThat(results.get(2).getError(), is(instanceOf(UserNotFoundException.class)));
+        assertThat(results.get(3).getError(), is(instanceOf(FieldInvalidException.class)));
+        verify(reviewRepository).addAll(Collections.singletonList(validReview));
+        verify(courseRatingRepository).addRatings(2L, Collections.singletonList(validReview.getRating()));
+    }
+
+    @Test(expected = FieldInvalidException.class)
+    public void addAllWithTooManyReviews_ShouldThrowException() throws Exception
+    {
+        reviewService.addAll(Collections.nCopies(501, reviewJanPython()));
+    }
+
+    @Test
+    public void addAllIngested_ShouldAddReviewsAndSaveLastSequence() throws Exception
+    {
+        Review review = reviewWithUserAndCourseIds(reviewJanPython(), 1L, 2L);
+        when(userService.findByIds(anyCollection())).thenReturn(Collections.singletonMap(1L, review.getUser()));
+        when(courseService.findByIds(anyCollection())).thenReturn(Collections.singletonMap(2L, review.getCourse()));
+
+        List<BatchItemResult<Review>> results = reviewService.addAllIngested("log", Collections.singletonList(review), 7L);
+
+        assertThat(results.get(0).getEntity(), is(sameInstance(review)));
+        verify(reviewRepository).addAll(Collections.singletonList(review));
+        verify(ingestionCheckpointRepository).saveLastSequence("reviews-log", 7L);
+    }
+
+    @Test
+    public void addAllIngestedWithoutReviews_ShouldOnlySaveLastSequence() throws Exception
+    {
+        List<BatchItemResult<Review>> results = reviewService.addAllIngested("log", Collections.emptyList(), 8L);
+
+        assertThat(results.isEmpty(), is(true));
+        verify(userService, never()).findByIds(anyCollection());
+        verify(reviewRepository, never()).addAll(anyListOf(Review.class));
+        verify(ingestionCheckpointRepository).saveLastSequence("reviews-log", 8L);
+    }
+
+    private Review reviewWithUserAndCourseIds(Review review, Long userId, Long courseId)
+    {
+        review.getUser().setId(userId);
+        review.getCourse().setId(courseId);
+        return review;
+    }
+}
@@ -5,14 +5,17 @@ import com.learning.app.common.model.filter.PaginationData;
 import com.learning.app.user.model.User;
 import com.learning.app.commontests.repository.TestBaseRepository;
 import com.learning.app.user.model.filter.UserFilter;
+import com.learning.app.user.model.projection.UserRow;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.learning.app.commontests.data.UserData.jan;
+import static com.learning.app.commontests.data.UserData.userAdmin;
 import static com.learning.app.commontests.data.UserData.userList;
 import static com.learning.app.commontests.data.UserData.userWithoutId;
 import static org.hamcrest.CoreMatchers.*;
@@ -87,7 +90,7 @@ public class UserRepositoryTest extends TestBaseRepository
         userFilter.setName("an");
         userFilter.setPaginationData(new PaginationData(0, 2, "name", PaginationData.OrderMode.ASCENDING));
 
-        PaginatedData<User> result = userRepository.findByFilter(userFilter);
+        PaginatedData<UserRow> result = userRepository.findByFilter(userFilter);
 
         assertThat(result.getNumberOfRows(), is(equalTo(2)));
         assertThat(result.getRows().size(), is(equalTo(2)));
@@ -95,6 +98,46 @@ public class UserRepositoryTest extends TestBaseRepository
         assertThat(result.getRow(1).getName(), is(equalTo("Jan")));
     }
 
+    @Test
+    public void findByFilterAfterUpdate_ShouldMatchNewName()
+    {
+        User userAdded = transactionExecutor.executeCommandWithResult(
+                () -> userRepository.add(jan())
+        );
+
+        userAdded.setName("Johanna");
+        transactionExecutor.executeCommandWithNoResult(
+                () -> userRepository.update(userAdded)
+        );
+
+        UserFilter userFilter = new UserFilter();
+        userFilter.setName("hann");
+        assertThat(userRepository.findByFilter(userFilter).getNumberOfRows(), is(equalTo(1)));
+
+        userFilter.setName("Jan");
+        assertThat(userRepository.findByFilter(userFilter).getNumberOfRows(), is(equalTo(0)));
+    }
+
+    @Test
+    public void findByFilter_ShouldReturnRolesOfEachUser()
+    {
+        transactionExecutor.executeCommandWithNoResult(() -> {
+            userRepository.add(jan());
+            userRepository.add(userAdmin());
+        });
+
+        UserFilter userFilter = new UserFilter();
+        userFilter.setPaginationData(new PaginationData(0, 10, "name", PaginationData.OrderMode.ASCENDING));
+
+        PaginatedData<UserRow> result = userRepository.findByFilter(userFilter);
+
+        assertThat(result.getRows().size(), is(equalTo(2)));
+        assertThat(result.getRow(0).getName(), is(equalTo("Admin")));
+        assertThat(result.getRow(0).getRoles(), hasItems(User.Role.STANDARD, User.Role.ADMIN));
+        assertThat(result.getRow(0).getRoles().size(), is(equalTo(2)));
+        assertThat(result.getRow(1).getRoles(), is(equalTo(Arrays.asList(User.Role.STANDARD))));
+    }
+
     @Test
     public void findById_ShouldReturnNullIfIdNotExist() throws Exception
     {
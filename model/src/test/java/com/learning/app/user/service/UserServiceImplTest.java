@@ -2,14 +2,20 @@ package com.learning.app.user.service;
 
 import com.learning.app.common.exception.FieldInvalidException;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.utils.PasswordEncryption;
 import com.learning.app.user.exception.UserNotFoundException;
 import com.learning.app.user.model.User;
 import com.learning.app.user.model.filter.UserFilter;
+import com.learning.app.user.model.projection.UserRow;
 import com.learning.app.user.repository.UserRepository;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.validation.Validation;
 import javax.validation.Validator;
 
@@ -39,6 +45,7 @@ public class UserServiceImplTest
         userService = new UserServiceImpl();
         ((UserServiceImpl)userService).validator = validator;
         ((UserServiceImpl)userService).userRepository = userRepository;
+        ((UserServiceImpl)userService).credentialsCache = new UserCredentialsCache();
     }
 
     @Test
@@ -173,11 +180,11 @@ public class UserServiceImplTest
 
     @Test
     public void findUserByFilter_ShouldReturnPaginatedData() {
-        PaginatedData<User> users = new PaginatedData<>(1,
-                Arrays.asList(userWithIdAndCreatedAt(jan(), 1L)));
+        PaginatedData<UserRow> users = new PaginatedData<>(1,
+                Arrays.asList(new UserRow(userWithIdAndCreatedAt(jan(), 1L))));
         when(userRepository.findByFilter((UserFilter) anyObject())).thenReturn(users);
 
-        PaginatedData<User> usersReturned = userService.findByFilter(new UserFilter());
+        PaginatedData<UserRow> usersReturned = userService.findByFilter(new UserFilter());
         assertThat(usersReturned.getNumberOfRows(), is(equalTo(1)));
         assertThat(usersReturned.getRow(0).getName(), is(equalTo(jan().getName())));
     }
@@ -197,4 +204,96 @@ public class UserServiceImplTest
     {
         userService.delete(999L);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findUserByEmailTwice_ShouldQueryRepositoryOnce()
+    {
+        when(userRepository.findByEmail("Jan@test.com")).thenReturn(userWithIdAndCreatedAt(jan(), 1L));
+
+        userService.findByEmail("Jan@test.com");
+        User userFound = userService.findByEmail("Jan@test.com");
+
+        assertThat(userFound.getId(), is(equalTo(1L)));
+        verify(userRepository, times(1)).findByEmail("Jan@test.com");
+    }
+
+    @Test(expected = UserNotFoundException.class)
+    public void findUserByEmailAndInvalidPasswordWithCachedCredentials_ShouldThrowException()
+    {
+        User userReturned = userWithEncryptedPassword(userWithIdAndCreatedAt(jan(), 1L));
+        when(userRepository.findByEmail(jan().getEmail())).thenReturn(userReturned);
+
+        userService.findByEmailAndPassword(jan().getEmail(), jan().getPassword());
+        userService.findByEmailAndPassword(jan().getEmail(), "1111");
+    }
+
+    @Test
+    public void updatePassword_ShouldInvalidateCachedCredentials()
+    {
+        User userReturned = userWithEncryptedPassword(userWithIdAndCreatedAt(jan(), 1L));
+        when(userRepository.findByEmail(jan().getEmail())).thenReturn(userReturned);
+        when(userRepository.findById(1L)).thenReturn(userWithIdAndCreatedAt(jan(), 1L));
+
+        userService.findByEmailAndPassword(jan().getEmail(), jan().getPassword());
+        userService.updatePassword(1L, "newPassword");
+
+        User userWithNewPassword = userWithIdAndCreatedAt(jan(), 1L);
+        userWithNewPassword.setPassword(PasswordEncryption.encryptPassword("newPassword"));
+        when(userRepository.findByEmail(jan().getEmail())).thenReturn(userWithNewPassword);
+
+        User userFound = userService.findByEmailAndPassword(jan().getEmail(), "newPassword");
+        assertThat(userFound.getId(), is(equalTo(1L)));
+        verify(userRepository, times(2)).findByEmail(jan().getEmail());
+    }
+
+    @Test
+    public void findUserByEmailAndOldPasswordBeforeCommitOfUpdate_ShouldNotKeepOldPasswordAfterCommit()
+    {
+        TransactionSynchronizationRegistry transactionRegistry = mock(TransactionSynchronizationRegistry.class);
+        when(transactionRegistry.getTransactionKey()).thenReturn(new Object());
+        ((UserServiceImpl) userService).credentialsCache.transactionRegistry = transactionRegistry;
+        User userReturned = userWithEncryptedPassword(userWithIdAndCreatedAt(jan(), 1L));
+        when(userRepository.findByEmail(jan().getEmail())).thenReturn(userReturned);
+        when(userRepository.findById(1L)).thenReturn(userWithIdAndCreatedAt(jan(), 1L));
+
+        userService.updatePassword(1L, "newPassword");
+        //an authentication between the update and its commit reads the old password, and caches it
+        userService.findByEmailAndPassword(jan().getEmail(), jan().getPassword());
+        User userWithNewPassword = userWithIdAndCreatedAt(jan(), 1L);
+        userWithNewPassword.setPassword(PasswordEncryption.encryptPassword("newPassword"));
+        when(userRepository.findByEmail(jan().getEmail())).thenReturn(userWithNewPassword);
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+        try
+        {
+            userService.findByEmailAndPassword(jan().getEmail(), jan().getPassword());
+            fail("The old password must not be accepted after the commit");
+        } catch (UserNotFoundException e)
+        {
+            //expected
+        }
+        assertThat(userService.findByEmailAndPassword(jan().getEmail(), "newPassword").getId(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void delete_ShouldInvalidateCachedCredentials()
+    {
+        when(userRepository.findByEmail("Jan@test.com")).thenReturn(userWithIdAndCreatedAt(jan(), 1L));
+        when(userRepository.idExists(1L)).thenReturn(true);
+
+        userService.findByEmail("Jan@test.com");
+        userService.delete(1L);
+
+        when(userRepository.findByEmail("Jan@test.com")).thenReturn(null);
+        try
+        {
+            userService.findByEmail("Jan@test.com");
+            fail("Deleted user must not be read from the cache");
+        } catch (UserNotFoundException e)
+        {
+            //expected
+        }
+    }
+}
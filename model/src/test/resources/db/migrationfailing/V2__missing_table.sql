@@ -0,0 +1,2 @@
+insert into ITEM (id) values (2);
+insert into MISSING_TABLE (id) values (1);
@@ -0,0 +1,6 @@
+-- Table of the tests of SchemaMigrator
+
+create table ITEM (
+	id bigint not null primary key
+);
+insert into ITEM (id) values (1);
@@ -0,0 +1,2 @@
+alter table ITEM add column name varchar(20) default 'item' not null;
+create index idx_item_name on ITEM(name);
@@ -2,11 +2,13 @@ package com.learning.app.category.resource;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.learning.app.category.model.Category;
 import com.learning.app.common.json.EntityJsonConverter;
 import com.learning.app.common.json.JsonReader;
 
 import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
 
 @ApplicationScoped
 public class CategoryJsonConverter implements EntityJsonConverter<Category>
@@ -31,4 +33,13 @@ public class CategoryJsonConverter implements EntityJsonConverter<Category>
 
         return jsonObject;
     }
+
+    @Override
+    public void writeTo(JsonWriter jsonWriter, Category category) throws IOException
+    {
+        jsonWriter.beginObject();
+        jsonWriter.name("id").value(category.getId());
+        jsonWriter.name("name").value(category.getName());
+        jsonWriter.endObject();
+    }
 }
@@ -1,10 +1,10 @@
 package com.learning.app.category.resource;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.learning.app.category.exception.CategoryNotFoundException;
 import com.learning.app.category.model.Category;
 import com.learning.app.category.service.CategoryService;
+import com.learning.app.common.exception.EntityVersionConflictException;
 import com.learning.app.common.exception.FieldInvalidException;
 import com.learning.app.common.json.JsonUtils;
 import com.learning.app.common.json.JsonWriter;
@@ -12,18 +12,25 @@ import com.learning.app.common.json.OperationResultJsonWriter;
 import com.learning.app.common.model.OperationResult;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.model.ResourceMessage;
+import com.learning.app.common.resource.ConditionalRequest;
+import com.learning.app.common.service.DataVersionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.security.PermitAll;
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.util.List;
 
 import static com.learning.app.common.model.StandardsOperationResult.getOperationResultInvalidField;
 import static com.learning.app.common.model.StandardsOperationResult.getOperationResultNotFound;
+import static com.learning.app.common.model.StandardsOperationResult.getOperationResultVersionConflict;
 
 @Path("/categories")
 @Produces(MediaType.APPLICATION_JSON)
@@ -41,22 +48,40 @@ public class CategoryResource
     @Inject
     CategoryJsonConverter categoryJsonConverter;
 
+    @Inject
+    DataVersionService dataVersionService;
+
+    @Context
+    Request request;
+
+    @Context
+    HttpHeaders httpHeaders;
+
     @GET
     public Response findAll()
     {
         logger.debug("Find all categories");
 
+        //the list is not read again while the client has the current version
+        ConditionalRequest conditionalRequest = ConditionalRequest.forData(request,
+                dataVersionService.getDataVersion(Category.class));
+        Response notModified = conditionalRequest.evaluate();
+        if (notModified != null)
+        {
+            logger.debug("Categories not modified");
+            return notModified;
+        }
+
         List<Category> categories = categoryService.findAll();
         logger.debug("Found {} categories", categories.size());
 
         //generate paginated data and convert to json
-        JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(
+        StreamingOutput jsonWithPagingAndEntries = JsonUtils.getStreamingOutputWithPagingAndEntries(
                 new PaginatedData<Category>(categories.size(), categories), categoryJsonConverter
         );
 
-        return Response
-                .status(Response.Status.OK)
-                .entity(JsonWriter.writeToString(jsonWithPagingAndEntries))
+        return conditionalRequest.withValidators(Response.status(Response.Status.OK))
+                .entity(jsonWithPagingAndEntries)
                 .build();
     }
 
@@ -70,9 +95,16 @@ public class CategoryResource
         try
         {
             Category category = categoryService.findById(id);
-            String categoryJson = new Gson().toJson(category);
-            responseBuilder = Response
-                    .status(Response.Status.OK)
+            ConditionalRequest conditionalRequest = getConditionalRequest(category);
+            Response notModified = conditionalRequest.evaluate();
+            if (notModified != null)
+            {
+                logger.debug("Category not modified: {}", id);
+                return notModified;
+            }
+
+            String categoryJson = JsonWriter.writeToString(category);
+            responseBuilder = conditionalRequest.withValidators(Response.status(Response.Status.OK))
                     .entity(categoryJson);
             logger.debug("Category found: {}", category);
         } catch (CategoryNotFoundException e)
@@ -123,6 +155,7 @@ public class CategoryResource
 
         try
         {
+            applyWriteConditions(category);
             categoryService.update(category);
             result = OperationResult.success();
         } catch (FieldInvalidException e)
@@ -135,6 +168,11 @@ public class CategoryResource
             logger.error("No category found for the given id", e);
             responseStatus = Response.Status.NOT_FOUND;
             result = getOperationResultNotFound(RESOURCE_MESSAGE);
+        } catch (EntityVersionConflictException e)
+        {
+            logger.error("The category was changed since the client read it", e);
+            responseStatus = Response.Status.PRECONDITION_FAILED;
+            result = getOperationResultVersionConflict(RESOURCE_MESSAGE);
         }
 
         logger.debug("Returning the operation result after updating category: {}", result);
@@ -169,4 +207,26 @@ public class CategoryResource
                 .build();
     }
 
+    private ConditionalRequest getConditionalRequest(Category category)
+    {
+        return ConditionalRequest.forEntity(request, dataVersionService.getDataVersion(Category.class),
+                category.getVersion());
+    }
+
+    //With If-Match the category is updated only if it is still the version the client read,
+    //a change between this check and the update makes the update fail
+    private void applyWriteConditions(Category category)
+    {
+        if (!ConditionalRequest.hasWriteConditions(httpHeaders))
+        {
+            return;
+        }
+
+        Category currentCategory = categoryService.findById(category.getId());
+        if (getConditionalRequest(currentCategory).evaluate() != null)
+        {
+            throw new EntityVersionConflictException();
+        }
+        category.setVersion(currentCategory.getVersion());
+    }
 }
@@ -0,0 +1,493 @@
+package com.learning.app.common.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only log of records on the local disk, for requests accepted before they are written to the database
+ * The log is a directory of segment files mapped in memory, each named by the sequence of its first record
+ * A record is the length of its payload, the CRC32 of the rest of the record, its sequence, the time it was appended
+ * and the payload
+ * An append returns once its record is forced to disk; appends waiting at the same time share one force, so a burst
+ * of appends costs a few fsyncs only. Reads only return records forced to disk
+ * Opening the log reads back the records of its segments: the log ends at the first record that is incomplete or
+ * does not match its checksum, what was written after it by a crash is erased
+ * Sequences are only unique within a log: each log has an id, kept in a file of its directory, so that the records
+ * of the logs of several nodes can be told apart
+ */
+
+public class AppendLog implements Closeable
+{
+    static final int HEADER_BYTES = 24;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOG_ID_FILE = "log.id";
+    private static final Logger logger = LoggerFactory.getLogger(AppendLog.class);
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final String logId;
+    //segments by sequence of their first record, new records are appended to the last one
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long lastSequence;
+    private boolean closed;
+
+    //appends wait on this lock for the force of their record, the first one forces the records of all
+    private final Object forceLock = new Object();
+    private volatile long durableSequence;
+
+    private AppendLog(Path directory, int segmentBytes, String logId)
+    {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.logId = logId;
+    }
+
+    //Open the log of the directory, or create it
+    //New records follow the recovered ones, their sequence is at least minimumNextSequence: the records of a log
+    //that was lost are not numbered again
+    public static AppendLog open(Path directory, int segmentBytes, long minimumNextSequence) throws IOException
+    {
+        AppendLog appendLog = new AppendLog(directory, segmentBytes, openLogId(directory));
+        try
+        {
+            appendLog.recover(Math.max(1, minimumNextSequence));
+        } catch (IOException | RuntimeException e)
+        {
+            appendLog.close();
+            throw e;
+        }
+        return appendLog;
+    }
+
+    //Id of the log of the directory, created with the log: a log whose directory is lost gets a new id
+    //The file is written aside and moved, a crash cannot leave an empty id
+    public static String openLogId(Path directory) throws IOException
+    {
+        Files.createDirectories(directory);
+        Path idPath = directory.resolve(LOG_ID_FILE);
+        if (!Files.exists(idPath))
+        {
+            Path newIdPath = directory.resolve(LOG_ID_FILE + ".new");
+            Files.write(newIdPath, UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII));
+            Files.move(newIdPath, idPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return new String(Files.readAllBytes(idPath), StandardCharsets.US_ASCII).trim();
+    }
+
+    public String getLogId()
+    {
+        return logId;
+    }
+
+    //Append a record and wait until it is on disk, returns its sequence
+    public long append(byte[] payload) throws IOException
+    {
+        if (payload.length == 0)
+        {
+            throw new IllegalArgumentException("A record cannot be empty");
+        }
+        int recordBytes = HEADER_BYTES + payload.length;
+
+        long sequence;
+        synchronized (this)
+        {
+            if (closed)
+            {
+                throw new IOException("The log " + directory + " is closed");
+            }
+            if (!active.hasRoom(recordBytes))
+            {
+                if (recordBytes > segmentBytes)
+                {
+                    throw new IOException("A record of " + recordBytes + " bytes does not fit in a segment of "
+                            + segmentBytes + " bytes");
+                }
+                roll();
+            }
+            sequence = ++lastSequence;
+            active.write(sequence, System.currentTimeMillis(), payload);
+        }
+
+        force(sequence);
+        return sequence;
+    }
+
+    //Records forced to disk after the given sequence, in order
+    public synchronized List<LogRecord> read(long afterSequence, int maxRecords)
+    {
+        List<LogRecord> records = new ArrayList<>(Math.min(maxRecords, 64));
+        long throughSequence = durableSequence;
+        Long firstKey = segments.floorKey(afterSequence + 1);
+        Map<Long, Segment> readSegments = firstKey == null ? segments : segments.tailMap(firstKey, true);
+
+        for (Segment segment : readSegments.values())
+        {
+            long sequence = Math.max(afterSequence + 1, segment.firstSequence);
+            long segmentLastSequence = Math.min(segment.getLastSequence(), throughSequence);
+            for (; sequence <= segmentLastSequence && records.size() < maxRecords; sequence++)
+            {
+                records.add(segment.read((int) (sequence - segment.firstSequence)));
+            }
+            if (records.size() >= maxRecords || segmentLastSequence >= throughSequence)
+            {
+                break;
+            }
+        }
+        return records;
+    }
+
+    //Time the record was appended, -1 if it is not in the log
+    public synchronized long getAppendedAt(long sequence)
+    {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(sequence);
+        if (entry == null || sequence > entry.getValue().getLastSequence())
+        {
+            return -1;
+        }
+        return entry.getValue().getAppendedAt((int) (sequence - entry.getKey()));
+    }
+
+    //Delete the segments of which all records are at most the given sequence, except the one appended to
+    public synchronized void release(long throughSequence)
+    {
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext())
+        {
+            Segment segment = iterator.next();
+            if (segment == active || segment.getLastSequence() > throughSequence)
+            {
+                return;
+            }
+            iterator.remove();
+            try
+            {
+                segment.close();
+                Files.delete(segment.path);
+            } catch (IOException e)
+            {
+                logger.warn("The released segment {} could not be deleted", segment.path, e);
+            }
+        }
+    }
+
+    public synchronized long getLastSequence()
+    {
+        return lastSequence;
+    }
+
+    public long getDurableSequence()
+    {
+        return durableSequence;
+    }
+
+    //bytes of the records kept in the segments
+    public synchronized long getBytes()
+    {
+        return segments.values().stream().mapToLong(segment -> segment.position).sum();
+    }
+
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        IOException closeException = null;
+        for (Segment segment : segments.values())
+        {
+            try
+            {
+                segment.force();
+                segment.close();
+            } catch (IOException e)
+            {
+                closeException = e;
+            }
+        }
+        if (closeException != null)
+        {
+            throw closeException;
+        }
+    }
+
+    private void recover(long minimumNextSequence) throws IOException
+    {
+        for (Path path : findSegmentPaths())
+        {
+            long firstSequence = Long.parseLong(path.getFileName().toString().replace(SEGMENT_SUFFIX, ""));
+            segments.put(firstSequence, Segment.open(path, firstSequence, segmentBytes));
+        }
+
+        Segment previous = null;
+        for (Segment segment : segments.values())
+        {
+            segment.recover();
+            if (previous != null && previous.getLastSequence() + 1 < segment.firstSequence)
+            {
+                logger.warn("The records {} to {} of the log {} are lost", previous.getLastSequence() + 1,
+                        segment.firstSequence - 1, directory);
+            }
+            previous = segment;
+        }
+
+        long nextSequence = previous == null ? minimumNextSequence
+                : Math.max(previous.getLastSequence() + 1, minimumNextSequence);
+        if (previous != null && previous.getLastSequence() + 1 == nextSequence
+                && previous.hasRoom(HEADER_BYTES + 1))
+        {
+            if (!previous.isTailErased())
+            {
+                logger.warn("The log {} ends with an incomplete record after the sequence {}, it is erased",
+                        directory, previous.getLastSequence());
+                previous.eraseTail();
+            }
+            active = previous;
+        } else
+        {
+            active = createSegment(nextSequence);
+        }
+        lastSequence = nextSequence - 1;
+        durableSequence = lastSequence;
+        logger.info("Opened the log {} with {} segments, next sequence {}", directory, segments.size(), nextSequence);
+    }
+
+    private List<Path> findSegmentPaths() throws IOException
+    {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX))
+        {
+            for (Path path : directoryStream)
+            {
+                if (path.getFileName().toString().matches("[0-9]{20}" + SEGMENT_SUFFIX))
+                {
+                    paths.add(path);
+                }
+            }
+        }
+        return paths;
+    }
+
+    //the records of the previous segment are forced first, so only the last segment can end with lost records
+    private void roll() throws IOException
+    {
+        active.force();
+        active = createSegment(lastSequence + 1);
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException
+    {
+        Segment segment = Segment.create(directory.resolve(String.format("%020d", firstSequence) + SEGMENT_SUFFIX),
+                firstSequence, segmentBytes);
+        segments.put(firstSequence, segment);
+        forceDirectory();
+        return segment;
+    }
+
+    //Force the records appended until now, unless an append waiting at the same time has already done it
+    private void force(long sequence) throws IOException
+    {
+        synchronized (forceLock)
+        {
+            if (durableSequence >= sequence)
+            {
+                return;
+            }
+            Segment segment;
+            long throughSequence;
+            synchronized (this)
+            {
+                segment = active;
+                throughSequence = lastSequence;
+            }
+            segment.force();
+            durableSequence = throughSequence;
+        }
+    }
+
+    //so that a new segment file is still in the directory after a crash, not all platforms can open a directory
+    private void forceDirectory()
+    {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            directoryChannel.force(true);
+        } catch (IOException e)
+        {
+            logger.debug("The directory {} could not be forced", directory, e);
+        }
+    }
+
+    //CRC32 of the sequence, the time and the payload of the record at the offset
+    private static int checksum(ByteBuffer buffer, int offset, int payloadLength)
+    {
+        ByteBuffer record = buffer.duplicate();
+        record.limit(offset + HEADER_BYTES + payloadLength);
+        record.position(offset + 8);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private static class Segment
+    {
+        private final Path path;
+        private final long firstSequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        //offset of each record in the segment
+        private int[] offsets = new int[256];
+        private int count;
+        private int position;
+
+        private Segment(Path path, long firstSequence, FileChannel channel, int bytes) throws IOException
+        {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+
+        //the file is filled with zeros up to its size, a zero length marks the end of the records
+        static Segment create(Path path, long firstSequence, int bytes) throws IOException
+        {
+            return new Segment(path, firstSequence, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE), bytes);
+        }
+
+        //segments keep the size they were created with
+        static Segment open(Path path, long firstSequence, int defaultBytes) throws IOException
+        {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            return new Segment(path, firstSequence, channel,
+                    size == 0 ? defaultBytes : (int) Math.min(size, Integer.MAX_VALUE));
+        }
+
+        long getLastSequence()
+        {
+            return firstSequence + count - 1;
+        }
+
+        boolean hasRoom(int recordBytes)
+        {
+            return position + recordBytes <= buffer.capacity();
+        }
+
+        //the length is written last, a record is only read back with all its fields
+        void write(long sequence, long appendedAt, byte[] payload)
+        {
+            buffer.putLong(position + 8, sequence);
+            buffer.putLong(position + 16, appendedAt);
+            ByteBuffer record = buffer.duplicate();
+            record.position(position + HEADER_BYTES);
+            record.put(payload);
+            buffer.putInt(position + 4, checksum(buffer, position, payload.length));
+            buffer.putInt(position, payload.length);
+            addRecord(HEADER_BYTES + payload.length);
+        }
+
+        LogRecord read(int index)
+        {
+            int offset = offsets[index];
+            byte[] payload = new byte[buffer.getInt(offset)];
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset + HEADER_BYTES);
+            record.get(payload);
+            return new LogRecord(buffer.getLong(offset + 8), buffer.getLong(offset + 16), payload);
+        }
+
+        long getAppendedAt(int index)
+        {
+            return buffer.getLong(offsets[index] + 16);
+        }
+
+        //Read the offsets of the records, until the first one that is not complete or not the next sequence
+        void recover()
+        {
+            while (position + HEADER_BYTES <= buffer.capacity())
+            {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > buffer.capacity() - position - HEADER_BYTES
+                        || buffer.getLong(position + 8) != firstSequence + count
+                        || buffer.getInt(position + 4) != checksum(buffer, position, length))
+                {
+                    return;
+                }
+                addRecord(HEADER_BYTES + length);
+            }
+        }
+
+        boolean isTailErased()
+        {
+            for (int offset = position; offset < buffer.capacity(); offset++)
+            {
+                if (buffer.get(offset) != 0)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        //without it, stale records after the end could be read back once new records reach them
+        void eraseTail()
+        {
+            byte[] zeros = new byte[Math.min(64 * 1024, buffer.capacity() - position)];
+            ByteBuffer tail = buffer.duplicate();
+            tail.position(position);
+            while (tail.hasRemaining())
+            {
+                tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+            }
+            buffer.force();
+        }
+
+        void force()
+        {
+            buffer.force();
+        }
+
+        void close() throws IOException
+        {
+            channel.close();
+        }
+
+        private void addRecord(int recordBytes)
+        {
+            if (count == offsets.length)
+            {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = position;
+            position += recordBytes;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.learning.app.common.ingestion;
+
+/*
+ * Record of an AppendLog, with its sequence and the time it was appended
+ */
+
+public class LogRecord
+{
+    private final long sequence;
+    private final long appendedAt;
+    private final byte[] payload;
+
+    public LogRecord(long sequence, long appendedAt, byte[] payload)
+    {
+        this.sequence = sequence;
+        this.appendedAt = appendedAt;
+        this.payload = payload;
+    }
+
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public long getAppendedAt()
+    {
+        return appendedAt;
+    }
+
+    public byte[] getPayload()
+    {
+        return payload;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LogRecord [sequence=" + sequence + ", appendedAt=" + appendedAt + ", payloadBytes="
+                + payload.length + "]";
+    }
+}
@@ -0,0 +1,283 @@
+package com.learning.app.common.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Json stream writer encoding the written values in CBOR (RFC 7049) instead of json text
+ * The json writers of the converters can write to it unchanged, so both formats have the same structure
+ * Arrays and objects use indefinite lengths, so that entries are written before their number is known
+ * As in the json writers of JsonWriter, null properties are left out unless serializeNulls is set
+ */
+
+public class CborWriter extends com.google.gson.stream.JsonWriter
+{
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int INDEFINITE_ARRAY = 0x9f;
+    private static final int INDEFINITE_MAP = 0xbf;
+    private static final int BREAK = 0xff;
+    private static final int FALSE = 0xf4;
+    private static final int TRUE = 0xf5;
+    private static final int NULL = 0xf6;
+    private static final int DOUBLE = 0xfb;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream outputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private String deferredName;
+
+    public CborWriter(OutputStream outputStream)
+    {
+        //the values are written to the output stream, the text writer of the json writer is not used
+        super(new StringWriter(0));
+        this.outputStream = outputStream;
+        setSerializeNulls(false);
+    }
+
+    @Override
+    public CborWriter beginArray() throws IOException
+    {
+        writeDeferredName();
+        writeByte(INDEFINITE_ARRAY);
+        return this;
+    }
+
+    @Override
+    public CborWriter endArray() throws IOException
+    {
+        writeByte(BREAK);
+        return this;
+    }
+
+    @Override
+    public CborWriter beginObject() throws IOException
+    {
+        writeDeferredName();
+        writeByte(INDEFINITE_MAP);
+        return this;
+    }
+
+    @Override
+    public CborWriter endObject() throws IOException
+    {
+        if (deferredName != null)
+        {
+            throw new IllegalStateException("No value for the name " + deferredName);
+        }
+        writeByte(BREAK);
+        return this;
+    }
+
+    @Override
+    public CborWriter name(String name) throws IOException
+    {
+        if (name == null)
+        {
+            throw new NullPointerException("name == null");
+        }
+        if (deferredName != null)
+        {
+            throw new IllegalStateException("No value for the name " + deferredName);
+        }
+        deferredName = name;
+        return this;
+    }
+
+    @Override
+    public CborWriter value(String value) throws IOException
+    {
+        if (value == null)
+        {
+            return nullValue();
+        }
+        writeDeferredName();
+        writeText(value);
+        return this;
+    }
+
+    @Override
+    public CborWriter nullValue() throws IOException
+    {
+        if (deferredName != null && !getSerializeNulls())
+        {
+            deferredName = null;
+            return this;
+        }
+        writeDeferredName();
+        writeByte(NULL);
+        return this;
+    }
+
+    @Override
+    public CborWriter value(boolean value) throws IOException
+    {
+        writeDeferredName();
+        writeByte(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public CborWriter value(double value) throws IOException
+    {
+        if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value)))
+        {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        writeDeferredName();
+        writeByte(DOUBLE);
+        writeLong(Double.doubleToLongBits(value));
+        return this;
+    }
+
+    @Override
+    public CborWriter value(long value) throws IOException
+    {
+        writeDeferredName();
+        if (value >= 0)
+        {
+            writeHead(MAJOR_UNSIGNED, value);
+        } else
+        {
+            writeHead(MAJOR_NEGATIVE, -1 - value);
+        }
+        return this;
+    }
+
+    @Override
+    public CborWriter value(Number value) throws IOException
+    {
+        if (value == null)
+        {
+            return nullValue();
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong)
+        {
+            return value(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float)
+        {
+            return value(value.doubleValue());
+        }
+
+        //numbers parsed from json text and big numbers: integers that fit in a long are written as integers
+        String text = value.toString();
+        try
+        {
+            return value(new BigDecimal(text).toBigIntegerExact().longValueExact());
+        } catch (ArithmeticException | NumberFormatException e)
+        {
+            return value(value.doubleValue());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        flushBuffer();
+        outputStream.close();
+    }
+
+    private void writeDeferredName() throws IOException
+    {
+        if (deferredName != null)
+        {
+            writeText(deferredName);
+            deferredName = null;
+        }
+    }
+
+    private void writeText(String text) throws IOException
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeHead(MAJOR_TEXT, bytes.length);
+        writeBytes(bytes);
+    }
+
+    //type and argument of a data item, the argument is written in the fewest bytes
+    private void writeHead(int majorType, long argument) throws IOException
+    {
+        int type = majorType << 5;
+        if (argument < 24)
+        {
+            writeByte(type | (int) argument);
+        } else if (argument <= 0xffL)
+        {
+            writeByte(type | 24);
+            writeByte((int) argument);
+        } else if (argument <= 0xffffL)
+        {
+            writeByte(type | 25);
+            writeByte((int) (argument >> 8));
+            writeByte((int) argument);
+        } else if (argument <= 0xffffffffL)
+        {
+            writeByte(type | 26);
+            writeInt((int) argument);
+        } else
+        {
+            writeByte(type | 27);
+            writeLong(argument);
+        }
+    }
+
+    private void writeInt(int value) throws IOException
+    {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeLong(long value) throws IOException
+    {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeByte(int value) throws IOException
+    {
+        if (position == buffer.length)
+        {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException
+    {
+        if (bytes.length > buffer.length - position)
+        {
+            flushBuffer();
+            if (bytes.length > buffer.length)
+            {
+                outputStream.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        outputStream.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -3,11 +3,13 @@ package com.learning.app.common.json;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
-public interface EntityJsonConverter<T>
+public interface EntityJsonConverter<T> extends RowJsonWriter<T>
 {
     DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
 
@@ -26,4 +28,12 @@ public interface EntityJsonConverter<T>
 
         return jsonArray;
     }
+
+    //Write the entity directly to the json stream
+    //Override to write the fields without building the JsonElement first
+    @Override
+    default void writeTo(JsonWriter jsonWriter, T entity) throws IOException
+    {
+        com.learning.app.common.json.JsonWriter.writeElement(convertToJsonElement(entity), jsonWriter);
+    }
 }
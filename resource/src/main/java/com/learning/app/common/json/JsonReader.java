@@ -24,9 +24,10 @@ public class JsonReader
         }
         try
         {
-            return new Gson().fromJson(json, jsonClass);
-        } catch (JsonSyntaxException e)
+            return JsonWriter.GSON.fromJson(json, jsonClass);
+        } catch (JsonSyntaxException | ClassCastException e)
         {
+            //a ClassCastException is thrown for valid json of another type, e.g. an object instead of an array
             throw new InvalidJsonException(e);
         }
     }
@@ -3,9 +3,22 @@ package com.learning.app.common.json;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.model.filter.PaginationData;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
 
 public class JsonUtils
 {
+    //newline delimited json, one entity per line
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    //binary encoding of the json structure, see ResponseFormat
+    public static final String APPLICATION_CBOR = "application/cbor";
+
     private JsonUtils()
     {
     }
@@ -18,18 +31,107 @@ public class JsonUtils
         return idJson;
     }
 
-    public static <T> JsonElement getJsonElementWithPagingAndEntries(PaginatedData<T> paginatedData,
-                                                                     EntityJsonConverter<T> entityJsonConverter)
+    //Stream paging and entries to the response, each entry is written as soon as it is converted
+    public static <T> StreamingOutput getStreamingOutputWithPagingAndEntries(PaginatedData<T> paginatedData,
+                                                                             RowJsonWriter<T> rowJsonWriter)
+    {
+        return getStreamingOutputWithPagingAndEntries(paginatedData, rowJsonWriter, ResponseFormat.JSON);
+    }
+
+    public static <T> StreamingOutput getStreamingOutputWithPagingAndEntries(PaginatedData<T> paginatedData,
+                                                                             RowJsonWriter<T> rowJsonWriter,
+                                                                             ResponseFormat responseFormat)
     {
-        JsonObject jsonWithEntriesAndPaging = new JsonObject();
+        return outputStream -> {
+            com.google.gson.stream.JsonWriter jsonWriter = responseFormat.newStreamWriter(outputStream);
 
-        JsonObject jsonPaging = new JsonObject();
-        jsonPaging.addProperty("totalRecords", paginatedData.getNumberOfRows());
+            jsonWriter.beginObject();
+            jsonWriter.name("paging");
+            writePaging(jsonWriter, paginatedData);
 
-        jsonWithEntriesAndPaging.add("paging", jsonPaging);
-        jsonWithEntriesAndPaging.add("entries", entityJsonConverter.convertToJsonElement(paginatedData.getRows()));
+            jsonWriter.name("entries");
+            jsonWriter.beginArray();
+            for (T row : paginatedData.getRows())
+            {
+                rowJsonWriter.writeTo(jsonWriter, row);
+            }
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+
+            jsonWriter.flush();
+        };
+    }
+
+    //Same content as getStreamingOutputWithPagingAndEntries, written to a byte array
+    public static <T> byte[] getBytesWithPagingAndEntries(PaginatedData<T> paginatedData,
+                                                          RowJsonWriter<T> rowJsonWriter)
+    {
+        return getBytesWithPagingAndEntries(paginatedData, rowJsonWriter, ResponseFormat.JSON);
+    }
 
-        return jsonWithEntriesAndPaging;
+    public static <T> byte[] getBytesWithPagingAndEntries(PaginatedData<T> paginatedData,
+                                                          RowJsonWriter<T> rowJsonWriter,
+                                                          ResponseFormat responseFormat)
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try
+        {
+            getStreamingOutputWithPagingAndEntries(paginatedData, rowJsonWriter, responseFormat)
+                    .write(outputStream);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    //Stream the entities passed by the export to the response as newline delimited json
+    //The export runs while the response is written, so no entity is kept after its line is written
+    public static <T> StreamingOutput getStreamingOutputWithNdjson(Consumer<Consumer<T>> export,
+                                                                   EntityJsonConverter<T> entityJsonConverter)
+    {
+        return outputStream -> {
+            Writer writer = JsonWriter.newBufferedWriter(outputStream);
+            com.google.gson.stream.JsonWriter jsonWriter = JsonWriter.newStreamWriter(writer);
+            //lenient allows one top level value per line
+            jsonWriter.setLenient(true);
+
+            try
+            {
+                export.accept(entity -> {
+                    try
+                    {
+                        entityJsonConverter.writeTo(jsonWriter, entity);
+                        writer.write('\n');
+                    } catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e)
+            {
+                throw e.getCause();
+            }
+
+            writer.flush();
+        };
+    }
+
+    private static void writePaging(com.google.gson.stream.JsonWriter jsonWriter, PaginatedData<?> paginatedData)
+            throws IOException
+    {
+        jsonWriter.beginObject();
+        //totalRecordsType tells if totalRecords is exact, estimated (a lower bound) or not counted (none)
+        if (paginatedData.getCountMode() != PaginationData.CountMode.NONE)
+        {
+            jsonWriter.name("totalRecords").value(paginatedData.getNumberOfRows());
+        }
+        jsonWriter.name("totalRecordsType").value(paginatedData.getCountMode().name().toLowerCase());
+        if (paginatedData.getNextCursor() != null)
+        {
+            jsonWriter.name("next").value(paginatedData.getNextCursor());
+        }
+        jsonWriter.endObject();
     }
 
 }
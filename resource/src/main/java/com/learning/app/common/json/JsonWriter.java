@@ -1,9 +1,20 @@
 package com.learning.app.common.json;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 public class JsonWriter
 {
+    //Gson is thread safe, one instance keeps its type adapter cache for all requests
+    static final Gson GSON = new Gson();
+
     private JsonWriter()
     {
     }
@@ -15,6 +26,33 @@ public class JsonWriter
             return "";
         }
 
-        return new Gson().toJson(object);
+        return GSON.toJson(object);
+    }
+
+    //Writer streaming json to the output stream, null properties are left out as in writeToString
+    //The caller flushes the writer, the output stream is not closed
+    public static com.google.gson.stream.JsonWriter newStreamWriter(OutputStream outputStream)
+    {
+        return newStreamWriter(newBufferedWriter(outputStream));
+    }
+
+    public static com.google.gson.stream.JsonWriter newStreamWriter(Writer writer)
+    {
+        com.google.gson.stream.JsonWriter jsonWriter = new com.google.gson.stream.JsonWriter(writer);
+        jsonWriter.setSerializeNulls(false);
+
+        return jsonWriter;
+    }
+
+    //Write the element with the settings of the stream writer, as a JsonElement written field by field
+    public static void writeElement(JsonElement element, com.google.gson.stream.JsonWriter jsonWriter)
+            throws IOException
+    {
+        GSON.getAdapter(JsonElement.class).write(jsonWriter, element);
+    }
+
+    public static Writer newBufferedWriter(OutputStream outputStream)
+    {
+        return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
     }
 }
@@ -1,6 +1,7 @@
 package com.learning.app.common.json;
 
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.learning.app.common.model.OperationResult;
 
@@ -15,6 +16,11 @@ public class OperationResultJsonWriter
         return JsonWriter.writeToString(getJsonObject(operationResult));
     }
 
+    public static JsonElement toJsonElement(OperationResult operationResult)
+    {
+        return JsonWriter.GSON.toJsonTree(getJsonObject(operationResult));
+    }
+
     private static Object getJsonObject(OperationResult operationResult)
     {
         if (operationResult.isSuccess())
@@ -0,0 +1,64 @@
+package com.learning.app.common.json;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Variant;
+import java.io.OutputStream;
+import java.util.List;
+
+/*
+ * Formats of the responses that can be sent in json or in CBOR, chosen with the Accept header of the request
+ * Both formats are written by the same json writers, CBOR is smaller and cheaper to write and to parse
+ */
+
+public enum ResponseFormat
+{
+    JSON(MediaType.APPLICATION_JSON_TYPE, ""),
+    CBOR(new MediaType("application", "cbor"), "-cbor");
+
+    private final MediaType mediaType;
+    //the representations of each format need their own entity tags and cache entries
+    private final String suffix;
+
+    ResponseFormat(MediaType mediaType, String suffix)
+    {
+        this.mediaType = mediaType;
+        this.suffix = suffix;
+    }
+
+    //json unless the client prefers CBOR
+    public static ResponseFormat select(Request request)
+    {
+        List<Variant> variants = Variant.mediaTypes(JSON.mediaType, CBOR.mediaType).build();
+        Variant variant = request.selectVariant(variants);
+        if (variant != null && CBOR.mediaType.isCompatible(variant.getMediaType()))
+        {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    public com.google.gson.stream.JsonWriter newStreamWriter(OutputStream outputStream)
+    {
+        if (this == CBOR)
+        {
+            return new CborWriter(outputStream);
+        }
+        return JsonWriter.newStreamWriter(outputStream);
+    }
+
+    public MediaType getMediaType()
+    {
+        return mediaType;
+    }
+
+    public String getEntityTag(String tag)
+    {
+        return tag + suffix;
+    }
+
+    public String getCacheName(String cacheName)
+    {
+        return cacheName + suffix;
+    }
+}
@@ -0,0 +1,15 @@
+package com.learning.app.common.json;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/*
+ * Writes one row of a list result to a json stream
+ */
+
+@FunctionalInterface
+public interface RowJsonWriter<T>
+{
+    void writeTo(JsonWriter jsonWriter, T row) throws IOException;
+}
@@ -0,0 +1,78 @@
+package com.learning.app.common.metrics;
+
+import com.learning.app.common.repository.QueryStatistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Request counts by status and latency of one endpoint (HTTP method and path template),
+ * with the database work done by its requests
+ */
+
+public class EndpointMetrics
+{
+    private final String method;
+    private final String path;
+    private final ConcurrentMap<Integer, LongAdder> requestsByStatus = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder entitiesLoaded = new LongAdder();
+    private final LongAdder repositoryNanos = new LongAdder();
+
+    public EndpointMetrics(String method, String path)
+    {
+        this.method = method;
+        this.path = path;
+    }
+
+    public void record(int status, long elapsedNanos)
+    {
+        requestsByStatus.computeIfAbsent(status, key -> new LongAdder()).increment();
+        latency.record(elapsedNanos / 1000);
+    }
+
+    public void recordDatabaseWork(QueryStatistics queryStatistics)
+    {
+        statements.add(queryStatistics.getStatementCount());
+        entitiesLoaded.add(queryStatistics.getEntityLoadCount());
+        repositoryNanos.add(queryStatistics.getRepositoryNanos());
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public Map<Integer, LongAdder> getRequestsByStatus()
+    {
+        return requestsByStatus;
+    }
+
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+
+    public long getStatements()
+    {
+        return statements.sum();
+    }
+
+    public long getEntitiesLoaded()
+    {
+        return entitiesLoaded.sum();
+    }
+
+    public long getRepositoryNanos()
+    {
+        return repositoryNanos.sum();
+    }
+}
@@ -0,0 +1,98 @@
+package com.learning.app.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram
+ * Each power of two is split into 32 linear buckets, so a quantile is accurate within about 3 percent
+ * Values are microseconds, from 0 to about 19 hours, larger values are counted in the last bucket
+ */
+
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 31;
+    private static final int BUCKET_COUNT = (MAX_SHIFT + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+
+    public void record(long micros)
+    {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(getBucketIndex(value));
+        totalCount.increment();
+        totalMicros.add(value);
+    }
+
+    public long getCount()
+    {
+        return totalCount.sum();
+    }
+
+    public long getTotalMicros()
+    {
+        return totalMicros.sum();
+    }
+
+    //Highest value of the bucket holding the given quantile, 0 if nothing was recorded
+    //Counts are read one by one while other threads record, the result is consistent enough for monitoring
+    public long getQuantile(double quantile)
+    {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            cumulativeCount += snapshot[i];
+            if (cumulativeCount >= rank)
+            {
+                return getBucketHighestValue(i);
+            }
+        }
+        return getBucketHighestValue(BUCKET_COUNT - 1);
+    }
+
+    //values below 64 have a bucket each, above that the bucket width doubles with each power of two
+    static int getBucketIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+        {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT)
+        {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long getBucketHighestValue(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+        {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.learning.app.common.metrics;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Metrics of all REST endpoints, recorded by RequestMetricsFilter
+ * They are written in the Prometheus text format: a request counter by status, for throughput and error rates,
+ * and a latency summary with quantiles computed since the application started
+ * Counters of statements, loaded entities and time spent in repositories tell database work from the rest
+ */
+
+@ApplicationScoped
+public class RequestMetrics
+{
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final double MICROS_PER_SECOND = 1_000_000.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    public EndpointMetrics getEndpoint(String method, String path)
+    {
+        return endpoints.computeIfAbsent(method + " " + path, key -> new EndpointMetrics(method, path));
+    }
+
+    public void writePrometheusText(Writer writer) throws IOException
+    {
+        List<EndpointMetrics> sortedEndpoints = new ArrayList<>(endpoints.values());
+        sortedEndpoints.sort(Comparator.comparing(EndpointMetrics::getPath).thenComparing(EndpointMetrics::getMethod));
+
+        writer.write("# HELP http_requests_total Requests by endpoint and response status.\n");
+        writer.write("# TYPE http_requests_total counter\n");
+        for (EndpointMetrics endpoint : sortedEndpoints)
+        {
+            for (Map.Entry<Integer, LongAdder> requests : new TreeMap<>(endpoint.getRequestsByStatus()).entrySet())
+            {
+                writer.write("http_requests_total{" + getLabels(endpoint) + ",status=\"" + requests.getKey()
+                        + "\"} " + requests.getValue().sum() + "\n");
+            }
+        }
+
+        writer.write("# HELP http_request_duration_seconds Request latency by endpoint.\n");
+        writer.write("# TYPE http_request_duration_seconds summary\n");
+        for (EndpointMetrics endpoint : sortedEndpoints)
+        {
+            LatencyHistogram latency = endpoint.getLatency();
+            String labels = getLabels(endpoint);
+            for (double quantile : QUANTILES)
+            {
+                writer.write("http_request_duration_seconds{" + labels + ",quantile=\"" + quantile + "\"} "
+                        + latency.getQuantile(quantile) / MICROS_PER_SECOND + "\n");
+            }
+            writer.write("http_request_duration_seconds_sum{" + labels + "} "
+                    + latency.getTotalMicros() / MICROS_PER_SECOND + "\n");
+            writer.write("http_request_duration_seconds_count{" + labels + "} " + latency.getCount() + "\n");
+        }
+
+        writer.write("# HELP http_request_db_statements_total SQL statements prepared by endpoint.\n");
+        writer.write("# TYPE http_request_db_statements_total counter\n");
+        for (EndpointMetrics endpoint : sortedEndpoints)
+        {
+            writer.write("http_request_db_statements_total{" + getLabels(endpoint) + "} " + endpoint.getStatements()
+                    + "\n");
+        }
+
+        writer.write("# HELP http_request_db_entities_loaded_total Entities loaded by endpoint.\n");
+        writer.write("# TYPE http_request_db_entities_loaded_total counter\n");
+        for (EndpointMetrics endpoint : sortedEndpoints)
+        {
+            writer.write("http_request_db_entities_loaded_total{" + getLabels(endpoint) + "} "
+                    + endpoint.getEntitiesLoaded() + "\n");
+        }
+
+        writer.write("# HELP http_request_repository_seconds_total Time spent in repository calls by endpoint.\n");
+        writer.write("# TYPE http_request_repository_seconds_total counter\n");
+        for (EndpointMetrics endpoint : sortedEndpoints)
+        {
+            writer.write("http_request_repository_seconds_total{" + getLabels(endpoint) + "} "
+                    + endpoint.getRepositoryNanos() / NANOS_PER_SECOND + "\n");
+        }
+    }
+
+    private static String getLabels(EndpointMetrics endpoint)
+    {
+        return "method=\"" + escapeLabelValue(endpoint.getMethod()) + "\",path=\""
+                + escapeLabelValue(endpoint.getPath()) + "\"";
+    }
+
+    private static String escapeLabelValue(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,144 @@
+package com.learning.app.common.metrics;
+
+import com.learning.app.common.repository.QueryStatistics;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Path;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Records the status and latency of every request matched to a resource method
+ * Requests with an entity are recorded once the entity is written, so that streamed responses are measured
+ * It runs before the authorization filters, requests denied by them are recorded as well
+ * The statements and entities loaded by the thread of the request are added to the metrics of its endpoint
+ */
+
+@Provider
+@Priority(Priorities.AUTHENTICATION - 100)
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor
+{
+    private static final String START_TIME_PROPERTY = RequestMetricsFilter.class.getName() + ".startTime";
+    private static final String ENDPOINT_PROPERTY = RequestMetricsFilter.class.getName() + ".endpoint";
+    private static final String STATUS_PROPERTY = RequestMetricsFilter.class.getName() + ".status";
+
+    //path template of each resource method, built once from the annotations
+    private static final ConcurrentMap<Method, String> PATH_TEMPLATES = new ConcurrentHashMap<>();
+
+    @Inject
+    RequestMetrics requestMetrics;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext)
+    {
+        requestContext.setProperty(START_TIME_PROPERTY, System.nanoTime());
+        QueryStatistics.begin();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+    {
+        Long startTime = (Long) requestContext.getProperty(START_TIME_PROPERTY);
+        Method resourceMethod = resourceInfo.getResourceMethod();
+        if (startTime == null || resourceMethod == null)
+        {
+            return;
+        }
+
+        EndpointMetrics endpoint = requestMetrics.getEndpoint(requestContext.getMethod(),
+                getPathTemplate(resourceInfo.getResourceClass(), resourceMethod));
+        if (responseContext.hasEntity())
+        {
+            requestContext.setProperty(ENDPOINT_PROPERTY, endpoint);
+            requestContext.setProperty(STATUS_PROPERTY, responseContext.getStatus());
+        } else
+        {
+            endpoint.record(responseContext.getStatus(), System.nanoTime() - startTime);
+            endpoint.recordDatabaseWork(QueryStatistics.end());
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException
+    {
+        EndpointMetrics endpoint = (EndpointMetrics) context.getProperty(ENDPOINT_PROPERTY);
+        if (endpoint == null)
+        {
+            context.proceed();
+            return;
+        }
+
+        int status = (Integer) context.getProperty(STATUS_PROPERTY);
+        try
+        {
+            context.proceed();
+        } catch (IOException | RuntimeException e)
+        {
+            //the status was already sent, the failure is recorded as a server error
+            status = Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+            throw e;
+        } finally
+        {
+            context.removeProperty(ENDPOINT_PROPERTY);
+            endpoint.record(status, System.nanoTime() - (Long) context.getProperty(START_TIME_PROPERTY));
+            endpoint.recordDatabaseWork(QueryStatistics.end());
+        }
+    }
+
+    static String getPathTemplate(Class<?> resourceClass, Method resourceMethod)
+    {
+        return PATH_TEMPLATES.computeIfAbsent(resourceMethod, method -> {
+            StringBuilder pathTemplate = new StringBuilder();
+            appendPath(pathTemplate, getClassPath(resourceClass));
+            appendPath(pathTemplate, method.getAnnotation(Path.class));
+            return pathTemplate.length() == 0 ? "/" : pathTemplate.toString();
+        });
+    }
+
+    //the resource class may be a subclass created by the container, @Path is not inherited
+    private static Path getClassPath(Class<?> resourceClass)
+    {
+        for (Class<?> type = resourceClass; type != null; type = type.getSuperclass())
+        {
+            Path path = type.getAnnotation(Path.class);
+            if (path != null)
+            {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private static void appendPath(StringBuilder pathTemplate, Path path)
+    {
+        if (path == null)
+        {
+            return;
+        }
+
+        String value = path.value();
+        if (!value.startsWith("/"))
+        {
+            pathTemplate.append('/');
+        }
+        pathTemplate.append(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+    }
+}
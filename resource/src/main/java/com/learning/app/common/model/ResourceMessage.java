@@ -14,6 +14,10 @@ public class ResourceMessage
     private static final String KEY_NOT_FOUND = "%s.NotFound";
     private static final String MESSAGE_NOT_FOUND = "%s not found";
     private static final String NOT_FOUND = "Not found";
+    private static final String KEY_VERSION_CONFLICT = "%s.versionConflict";
+    private static final String MESSAGE_VERSION_CONFLICT = "The %s was changed since it was read";
+    private static final String KEY_UNAVAILABLE = "%s.unavailable";
+    private static final String MESSAGE_UNAVAILABLE = "The %s request could not be run in time, try again later";
 
     public ResourceMessage(String resource)
     {
@@ -49,4 +53,24 @@ public class ResourceMessage
     {
         return NOT_FOUND;
     }
+
+    public String getKeyOfVersionConflict()
+    {
+        return String.format(KEY_VERSION_CONFLICT, resource);
+    }
+
+    public String getMessageOfVersionConflict()
+    {
+        return String.format(MESSAGE_VERSION_CONFLICT, resource);
+    }
+
+    public String getKeyOfUnavailable()
+    {
+        return String.format(KEY_UNAVAILABLE, resource);
+    }
+
+    public String getMessageOfUnavailable()
+    {
+        return String.format(MESSAGE_UNAVAILABLE, resource);
+    }
 }
@@ -33,4 +33,18 @@ public class StandardsOperationResult
                 resourceMessage.getKeyOfInvalidField(dependency),
                 resourceMessage.getMessageNotFound());
     }
+
+    public static OperationResult getOperationResultVersionConflict(ResourceMessage resourceMessage)
+    {
+        return OperationResult.error(
+                resourceMessage.getKeyOfVersionConflict(),
+                resourceMessage.getMessageOfVersionConflict());
+    }
+
+    public static OperationResult getOperationResultUnavailable(ResourceMessage resourceMessage)
+    {
+        return OperationResult.error(
+                resourceMessage.getKeyOfUnavailable(),
+                resourceMessage.getMessageOfUnavailable());
+    }
 }
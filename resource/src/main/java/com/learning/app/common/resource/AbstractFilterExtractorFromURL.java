@@ -24,10 +24,12 @@ public abstract class AbstractFilterExtractorFromURL
     }
 
     //Create pagination data using uriInfo parameters
+    //A cursor from a previous page can be used instead of the page number
     protected PaginationData extractPaginationData()
     {
         int perPage = getPerPage();
-        int firstResult = getPage() * perPage;
+        String cursor = getCursor();
+        int firstResult = cursor == null ? getPage() * perPage : 0;
 
         String orderField;
         PaginationData.OrderMode orderMode;
@@ -48,7 +50,7 @@ public abstract class AbstractFilterExtractorFromURL
             orderMode = PaginationData.OrderMode.ASCENDING;
         }
 
-        return new PaginationData(firstResult, perPage, orderField, orderMode);
+        return new PaginationData(firstResult, perPage, orderField, orderMode, cursor, getCountMode());
     }
 
     protected String getSortField()
@@ -61,6 +63,26 @@ public abstract class AbstractFilterExtractorFromURL
         return sortField;
     }
 
+    //count=false skips the count of all rows, count=estimate only counts up to a limit
+    private PaginationData.CountMode getCountMode()
+    {
+        String count = uriInfo.getQueryParameters().getFirst("count");
+        if ("false".equalsIgnoreCase(count))
+        {
+            return PaginationData.CountMode.NONE;
+        }
+        if ("estimate".equalsIgnoreCase(count))
+        {
+            return PaginationData.CountMode.ESTIMATED;
+        }
+        return PaginationData.CountMode.EXACT;
+    }
+
+    private String getCursor()
+    {
+        return uriInfo.getQueryParameters().getFirst("cursor");
+    }
+
     private Integer getPage()
     {
         String page = uriInfo.getQueryParameters().getFirst("page");
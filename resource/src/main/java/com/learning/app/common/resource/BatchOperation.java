@@ -0,0 +1,98 @@
+package com.learning.app.common.resource;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.learning.app.common.exception.InvalidJsonException;
+import com.learning.app.common.json.JsonReader;
+import com.learning.app.common.json.JsonUtils;
+import com.learning.app.common.json.OperationResultJsonWriter;
+import com.learning.app.common.model.BatchItemResult;
+import com.learning.app.common.model.OperationResult;
+import com.learning.app.common.model.ResourceMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * Adds the items of a json array with a single call to a service, and builds the result of each item
+ * Items that cannot be converted are not passed to the service, their result is an invalid item error
+ */
+
+public class BatchOperation<T>
+{
+    private final ResourceMessage resourceMessage;
+    private final Function<JsonObject, T> converter;
+    private final Function<T, Long> idGetter;
+    private final Function<RuntimeException, OperationResult> errorConverter;
+
+    public BatchOperation(ResourceMessage resourceMessage, Function<JsonObject, T> converter,
+                          Function<T, Long> idGetter, Function<RuntimeException, OperationResult> errorConverter)
+    {
+        this.resourceMessage = resourceMessage;
+        this.converter = converter;
+        this.idGetter = idGetter;
+        this.errorConverter = errorConverter;
+    }
+
+    //Returns the number of created and failed items and the results in the order of the items
+    //Throws InvalidJsonException if the body is not a json array of objects
+    public JsonObject add(String body, Function<List<T>, List<BatchItemResult<T>>> addAll)
+    {
+        JsonArray items = JsonReader.readAsJsonArray(body);
+
+        OperationResult[] results = new OperationResult[items.size()];
+        List<T> entities = new ArrayList<>(items.size());
+        List<Integer> entityIndexes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++)
+        {
+            JsonElement item = items.get(i);
+            if (!item.isJsonObject())
+            {
+                throw new InvalidJsonException("Each item of the batch must be a json object");
+            }
+            try
+            {
+                entities.add(converter.apply(item.getAsJsonObject()));
+                entityIndexes.add(i);
+            } catch (RuntimeException e)
+            {
+                //e.g. a number field with a text value
+                results[i] = OperationResult.error(resourceMessage.getKeyOfInvalidField("item"),
+                        "The item could not be read");
+            }
+        }
+
+        List<BatchItemResult<T>> entityResults = addAll.apply(entities);
+        for (int i = 0; i < entityResults.size(); i++)
+        {
+            BatchItemResult<T> entityResult = entityResults.get(i);
+            results[entityIndexes.get(i)] = entityResult.isSuccess()
+                    ? OperationResult.success(JsonUtils.getJsonElementWithId(idGetter.apply(entityResult.getEntity())))
+                    : errorConverter.apply(entityResult.getError());
+        }
+
+        return toJson(results);
+    }
+
+    private static JsonObject toJson(OperationResult[] results)
+    {
+        int created = 0;
+        JsonArray jsonResults = new JsonArray();
+        for (OperationResult result : results)
+        {
+            if (result.isSuccess())
+            {
+                created++;
+            }
+            jsonResults.add(OperationResultJsonWriter.toJsonElement(result));
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("created", created);
+        json.addProperty("failed", results.length - created);
+        json.add("results", jsonResults);
+        return json;
+    }
+}
@@ -0,0 +1,55 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.json.JsonWriter;
+import com.learning.app.common.model.CacheRegionStatistics;
+import com.learning.app.common.service.CacheStatisticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.security.RolesAllowed;
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+/*
+ * Hit ratios of the second-level cache regions, to check what the cache is worth in production
+ */
+
+@Path("/cache/statistics")
+@Produces(MediaType.APPLICATION_JSON)
+@RolesAllowed({"ADMIN"})
+public class CacheStatisticsResource
+{
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Inject
+    CacheStatisticsService cacheStatisticsService;
+
+    @GET
+    public Response findAll()
+    {
+        List<CacheRegionStatistics> statistics = cacheStatisticsService.findAll();
+        logger.debug("Cache statistics: {}", statistics);
+
+        return Response
+                .status(Response.Status.OK)
+                .entity(JsonWriter.writeToString(statistics))
+                .build();
+    }
+
+    @DELETE
+    public Response clear()
+    {
+        logger.debug("Clear cache statistics");
+        cacheStatisticsService.clear();
+
+        return Response
+                .status(Response.Status.NO_CONTENT)
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.json.ResponseFormat;
+import com.learning.app.common.model.DataVersion;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.Date;
+
+/*
+ * Validators of a representation (strong ETag and Last-Modified) and evaluation of the conditional headers
+ * of a request against them: If-None-Match and If-Modified-Since on reads, If-Match and If-Unmodified-Since on writes
+ * Responses with validators tell clients to revalidate a stored representation before using it
+ */
+
+public class ConditionalRequest
+{
+    private static final String NO_VERSION = "n";
+
+    private final Request request;
+    private final EntityTag entityTag;
+    private final Date lastModified;
+    //the representation depends on the Accept header of the request
+    private final boolean negotiated;
+
+    private ConditionalRequest(Request request, EntityTag entityTag, Date lastModified, boolean negotiated)
+    {
+        this.request = request;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+        this.negotiated = negotiated;
+    }
+
+    //Validators of data read from whole entity classes, e.g. a list
+    public static ConditionalRequest forData(Request request, DataVersion dataVersion)
+    {
+        return new ConditionalRequest(request, new EntityTag(dataVersion.getTag()),
+                new Date(dataVersion.getLastModified()), false);
+    }
+
+    //Validators of data that is sent in the format asked by the client, each format has its own tag
+    public static ConditionalRequest forData(Request request, DataVersion dataVersion, ResponseFormat responseFormat)
+    {
+        return new ConditionalRequest(request, new EntityTag(responseFormat.getEntityTag(dataVersion.getTag())),
+                new Date(dataVersion.getLastModified()), true);
+    }
+
+    //Validators of an entity shown with related entities, given by the versions of all of them (null if absent)
+    //The last modified time is not kept per entity, it is the one of the entity classes
+    public static ConditionalRequest forEntity(Request request, DataVersion dataVersion, Long... versions)
+    {
+        StringBuilder tag = new StringBuilder();
+        for (Long version : versions)
+        {
+            if (tag.length() > 0)
+            {
+                tag.append('-');
+            }
+            tag.append(version == null ? NO_VERSION : Long.toHexString(version));
+        }
+        return new ConditionalRequest(request, new EntityTag(tag.toString()), new Date(dataVersion.getLastModified()),
+                false);
+    }
+
+    //Writes are only checked against the current entity when the client sends a condition
+    public static boolean hasWriteConditions(HttpHeaders httpHeaders)
+    {
+        return httpHeaders.getHeaderString(HttpHeaders.IF_MATCH) != null
+                || httpHeaders.getHeaderString(HttpHeaders.IF_UNMODIFIED_SINCE) != null;
+    }
+
+    //Returns the response to send instead of the representation (304 Not Modified or 412 Precondition Failed),
+    //or null if the conditions of the request are met
+    public Response evaluate()
+    {
+        Response.ResponseBuilder responseBuilder = request.evaluatePreconditions(lastModified, entityTag);
+        if (responseBuilder == null)
+        {
+            return null;
+        }
+        return withValidators(responseBuilder).build();
+    }
+
+    public Response.ResponseBuilder withValidators(Response.ResponseBuilder responseBuilder)
+    {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+
+        responseBuilder
+                .tag(entityTag)
+                .lastModified(lastModified)
+                .cacheControl(cacheControl);
+        if (negotiated)
+        {
+            responseBuilder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return responseBuilder;
+    }
+
+    public EntityTag getEntityTag()
+    {
+        return entityTag;
+    }
+}
@@ -0,0 +1,128 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.json.OperationResultJsonWriter;
+import com.learning.app.common.model.ResourceMessage;
+import com.learning.app.common.repository.QueryStatistics;
+import com.learning.app.common.repository.ReplicaRouting;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.learning.app.common.model.StandardsOperationResult.getOperationResultUnavailable;
+
+/*
+ * Runs the work of suspended requests on a bounded pool, so that slow endpoints do not hold container threads
+ * A request is answered with 503 Service Unavailable and Retry-After when the pool and its queue are full,
+ * or when it is still queued at the timeout, it is then not run: nothing was done, so the client can retry
+ * A request already running at the timeout cannot be stopped, a retry could apply a write twice, so it is answered
+ * with the response of its task once it completes
+ */
+
+public class EndpointExecutor
+{
+    private final String name;
+    private final Executor executor;
+    private final long timeoutMillis;
+    private final int retryAfterSeconds;
+
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+
+    public EndpointExecutor(String name, Executor executor, long timeoutMillis, int retryAfterSeconds)
+    {
+        this.name = name;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    //Resume the request with the response of the task, once a thread of the pool has run it
+    public void resume(AsyncResponse asyncResponse, ResourceMessage resourceMessage, Supplier<Response> task)
+    {
+        //the task reads from the replicas as the request would
+        Long readOnlyRequest = ReplicaRouting.getReadOnlyRequest();
+        //set by the task when it starts, or by the timeout handler if the task has not started yet
+        AtomicBoolean claimed = new AtomicBoolean();
+        Runnable runnable = () -> {
+            if (!claimed.compareAndSet(false, true))
+            {
+                return;
+            }
+            //the metrics of the request are recorded on the thread that resumes it
+            QueryStatistics.begin();
+            ReplicaRouting.setReadOnlyRequest(readOnlyRequest);
+            try
+            {
+                asyncResponse.resume(task.get());
+            } catch (RuntimeException e)
+            {
+                asyncResponse.resume(e);
+            } finally
+            {
+                ReplicaRouting.setReadOnlyRequest(null);
+            }
+        };
+
+        asyncResponse.setTimeoutHandler(timedOutResponse -> {
+            if (claimed.compareAndSet(false, true))
+            {
+                timeouts.increment();
+                timedOutResponse.resume(getUnavailableResponse(resourceMessage));
+            } else if (timedOutResponse.isSuspended())
+            {
+                overruns.increment();
+                timedOutResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+        asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        try
+        {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e)
+        {
+            rejections.increment();
+            asyncResponse.resume(getUnavailableResponse(resourceMessage));
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getRejections()
+    {
+        return rejections.sum();
+    }
+
+    public long getTimeouts()
+    {
+        return timeouts.sum();
+    }
+
+    //timeouts of requests that were running, each one waits for another timeout
+    public long getOverruns()
+    {
+        return overruns.sum();
+    }
+
+    private Response getUnavailableResponse(ResourceMessage resourceMessage)
+    {
+        return Response
+                .status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(OperationResultJsonWriter.toJson(getOperationResultUnavailable(resourceMessage)))
+                .build();
+    }
+}
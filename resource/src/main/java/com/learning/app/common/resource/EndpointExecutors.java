@@ -0,0 +1,116 @@
+package com.learning.app.common.resource;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Separate bounded pools for the reads and the writes of the resources, so that slow reads do not delay writes
+ * The threads are created by the managed thread factory of the container, they can call the services
+ * The size of the pools, of their queues and the timeout of the requests can be set with system properties
+ */
+
+@ApplicationScoped
+public class EndpointExecutors
+{
+    public static final String READS = "reads";
+    public static final String WRITES = "writes";
+
+    private static final String PROPERTY_PREFIX = "learning.app.executor.";
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private ThreadPoolExecutor readPool;
+    private ThreadPoolExecutor writePool;
+    private EndpointExecutor reads;
+    private EndpointExecutor writes;
+
+    @PostConstruct
+    public void init()
+    {
+        readPool = createPool(READS, 16, 200);
+        writePool = createPool(WRITES, 4, 50);
+        reads = createEndpointExecutor(READS, readPool);
+        writes = createEndpointExecutor(WRITES, writePool);
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        readPool.shutdown();
+        writePool.shutdown();
+    }
+
+    public EndpointExecutor getReads()
+    {
+        return reads;
+    }
+
+    public EndpointExecutor getWrites()
+    {
+        return writes;
+    }
+
+    public void writePrometheusText(Writer writer) throws IOException
+    {
+        writer.write("# HELP http_executor_active_threads Threads of the pool running a request.\n");
+        writer.write("# TYPE http_executor_active_threads gauge\n");
+        writeSample(writer, "http_executor_active_threads", READS, readPool.getActiveCount());
+        writeSample(writer, "http_executor_active_threads", WRITES, writePool.getActiveCount());
+
+        writer.write("# HELP http_executor_queued_requests Requests waiting for a thread of the pool.\n");
+        writer.write("# TYPE http_executor_queued_requests gauge\n");
+        writeSample(writer, "http_executor_queued_requests", READS, readPool.getQueue().size());
+        writeSample(writer, "http_executor_queued_requests", WRITES, writePool.getQueue().size());
+
+        writer.write("# HELP http_executor_rejections_total Requests answered with 503 because the pool was full.\n");
+        writer.write("# TYPE http_executor_rejections_total counter\n");
+        writeSample(writer, "http_executor_rejections_total", READS, reads.getRejections());
+        writeSample(writer, "http_executor_rejections_total", WRITES, writes.getRejections());
+
+        writer.write("# HELP http_executor_timeouts_total Requests answered with 503 because they timed out "
+                + "before running.\n");
+        writer.write("# TYPE http_executor_timeouts_total counter\n");
+        writeSample(writer, "http_executor_timeouts_total", READS, reads.getTimeouts());
+        writeSample(writer, "http_executor_timeouts_total", WRITES, writes.getTimeouts());
+
+        writer.write("# HELP http_executor_overruns_total Timeouts of running requests, answered when they "
+                + "complete.\n");
+        writer.write("# TYPE http_executor_overruns_total counter\n");
+        writeSample(writer, "http_executor_overruns_total", READS, reads.getOverruns());
+        writeSample(writer, "http_executor_overruns_total", WRITES, writes.getOverruns());
+    }
+
+    //a full queue rejects the request instead of growing, so the memory and the wait of requests are bounded
+    private ThreadPoolExecutor createPool(String name, int defaultThreads, int defaultQueueLength)
+    {
+        int threads = Integer.getInteger(PROPERTY_PREFIX + name + ".threads", defaultThreads);
+        int queueLength = Integer.getInteger(PROPERTY_PREFIX + name + ".queueLength", defaultQueueLength);
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLength), managedThreadFactory, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private EndpointExecutor createEndpointExecutor(String name, ThreadPoolExecutor pool)
+    {
+        long timeoutMillis = Long.getLong(PROPERTY_PREFIX + name + ".timeoutMillis", 30_000L);
+        int retryAfterSeconds = Integer.getInteger(PROPERTY_PREFIX + name + ".retryAfterSeconds", 5);
+        return new EndpointExecutor(name, pool, timeoutMillis, retryAfterSeconds);
+    }
+
+    private static void writeSample(Writer writer, String metric, String pool, long value) throws IOException
+    {
+        writer.write(metric + "{pool=\"" + pool + "\"} " + value + "\n");
+    }
+}
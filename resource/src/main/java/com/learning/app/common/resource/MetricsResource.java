@@ -0,0 +1,57 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.metrics.RequestMetrics;
+import com.learning.app.review.resource.ReviewIngestion;
+
+import javax.annotation.security.RolesAllowed;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Request metrics of all endpoints, response cache, executor and review ingestion metrics in the Prometheus text
+ * format, to be scraped by a monitoring server
+ */
+
+@Path("/metrics")
+@RolesAllowed({"ADMIN"})
+public class MetricsResource
+{
+    @Inject
+    RequestMetrics requestMetrics;
+
+    @Inject
+    ResponseCache responseCache;
+
+    @Inject
+    EndpointExecutors endpointExecutors;
+
+    @Inject
+    ReviewIngestion reviewIngestion;
+
+    @GET
+    @Produces(RequestMetrics.PROMETHEUS_CONTENT_TYPE)
+    public Response getMetrics()
+    {
+        StreamingOutput metrics = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            requestMetrics.writePrometheusText(writer);
+            responseCache.writePrometheusText(writer);
+            endpointExecutors.writePrometheusText(writer);
+            reviewIngestion.writePrometheusText(writer);
+            writer.flush();
+        };
+
+        return Response
+                .status(Response.Status.OK)
+                .entity(metrics)
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.repository.ReplicaRouting;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/*
+ * GET requests are read-only, their reads may be sent to a read replica (see ReplicaRouting)
+ * Successful writes are answered with a session token holding the time of the write; reads sent with the token
+ * go to the primary until the replicas have received the write, so a client reads its own writes on any server
+ * The time of the token is compared with the clock of the server reading, the replication lag must cover the drift
+ */
+
+@Provider
+public class ReplicaRoutingFilter implements ContainerRequestFilter, ContainerResponseFilter
+{
+    public static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+
+    @Override
+    public void filter(ContainerRequestContext requestContext)
+    {
+        //the state of the previous request of the thread is always replaced
+        ReplicaRouting.setReadOnlyRequest(isReadOnly(requestContext)
+                ? parseSessionToken(requestContext.getHeaderString(SESSION_TOKEN_HEADER)) : null);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+    {
+        if (!isReadOnly(requestContext)
+                && responseContext.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL)
+        {
+            responseContext.getHeaders().putSingle(SESSION_TOKEN_HEADER,
+                    createSessionToken(System.currentTimeMillis()));
+        }
+        ReplicaRouting.setReadOnlyRequest(null);
+    }
+
+    static String createSessionToken(long writeMillis)
+    {
+        return Long.toHexString(writeMillis);
+    }
+
+    //Time of the last write of the session, 0 without token
+    //An unreadable token is taken as a write just done, the reads of the request go to the primary
+    static long parseSessionToken(String sessionToken)
+    {
+        if (sessionToken == null || sessionToken.trim().isEmpty())
+        {
+            return 0;
+        }
+        try
+        {
+            return Long.parseLong(sessionToken.trim(), 16);
+        } catch (NumberFormatException e)
+        {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private boolean isReadOnly(ContainerRequestContext requestContext)
+    {
+        return HttpMethod.GET.equals(requestContext.getMethod()) || HttpMethod.HEAD.equals(requestContext.getMethod());
+    }
+}
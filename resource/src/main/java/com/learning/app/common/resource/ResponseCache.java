@@ -0,0 +1,302 @@
+package com.learning.app.common.resource;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Serialized json of list responses, keyed by the filter of the list, so hot pages are sent without a query
+ * Each entry keeps the data version it was read at, it is only used while the version is unchanged:
+ * a write through the services changes the version in the database (see DataVersionRepository), so entries of the
+ * written entities are not used anymore, also when the write was on another node
+ * Writes that do not go through the services (e.g. SQL run on the database) do not change the version, entries
+ * expire after a minute, so such a write is seen at most a minute later
+ * Responses are streamed to the client, a copy is kept while it fits in an entry, so only pages that are cached
+ * are held in memory
+ * The cache is bounded by the size of the json, the least recently used entries are evicted first
+ * Hits, misses and evictions are written in the Prometheus text format with the request metrics
+ */
+
+@ApplicationScoped
+public class ResponseCache
+{
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    //larger responses would evict many hot pages, they are not cached
+    private static final int MAX_ENTRY_BYTES = 512 * 1024;
+    private static final long TIME_TO_LIVE_MILLIS = 60_000;
+
+    private final long maxBytes;
+    private final long timeToLiveMillis;
+    private final LongSupplier clock;
+    //access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<CacheKey, CachedResponse> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final ConcurrentMap<String, CacheStatistics> statistics = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache()
+    {
+        this(DEFAULT_MAX_BYTES, TIME_TO_LIVE_MILLIS, System::currentTimeMillis);
+    }
+
+    ResponseCache(long maxBytes, long timeToLiveMillis, LongSupplier clock)
+    {
+        this.maxBytes = maxBytes;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+    }
+
+    //Returns null if there is no response for the key, if it was read at another data version or if it has expired
+    public byte[] get(String cacheName, Object key, String dataTag)
+    {
+        CacheKey cacheKey = new CacheKey(cacheName, key);
+        CachedResponse cachedResponse;
+        synchronized (this)
+        {
+            cachedResponse = entries.get(cacheKey);
+            if (cachedResponse != null && (!cachedResponse.dataTag.equals(dataTag)
+                    || cachedResponse.expiresAt <= clock.getAsLong()))
+            {
+                remove(cacheKey);
+                cachedResponse = null;
+            }
+        }
+
+        CacheStatistics cacheStatistics = getStatistics(cacheName);
+        if (cachedResponse == null)
+        {
+            cacheStatistics.misses.increment();
+            return null;
+        }
+        cacheStatistics.hits.increment();
+        return cachedResponse.body;
+    }
+
+    //the data tag must be read before the data, so that a write while the response is built makes it outdated
+    public void put(String cacheName, Object key, String dataTag, byte[] body)
+    {
+        if (body.length > MAX_ENTRY_BYTES)
+        {
+            return;
+        }
+
+        CacheKey cacheKey = new CacheKey(cacheName, key);
+        synchronized (this)
+        {
+            remove(cacheKey);
+            entries.put(cacheKey, new CachedResponse(dataTag, body, clock.getAsLong() + timeToLiveMillis));
+            bytes += body.length;
+
+            Iterator<CachedResponse> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext())
+            {
+                bytes -= eldest.next().body.length;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    //Stream the response to the client and put it in the cache once it is written, unless it is too large
+    public StreamingOutput streamAndPut(String cacheName, Object key, String dataTag, StreamingOutput output)
+    {
+        return outputStream -> {
+            CopyingOutputStream copyingOutputStream = new CopyingOutputStream(outputStream);
+            output.write(copyingOutputStream);
+            byte[] body = copyingOutputStream.getCopy();
+            if (body != null)
+            {
+                put(cacheName, key, dataTag, body);
+            }
+        };
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    public long getHits(String cacheName)
+    {
+        return getStatistics(cacheName).hits.sum();
+    }
+
+    public long getMisses(String cacheName)
+    {
+        return getStatistics(cacheName).misses.sum();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    public void writePrometheusText(Writer writer) throws IOException
+    {
+        Map<String, CacheStatistics> sortedStatistics = new TreeMap<>(statistics);
+
+        writer.write("# HELP http_response_cache_hits_total Responses sent from the response cache.\n");
+        writer.write("# TYPE http_response_cache_hits_total counter\n");
+        for (Map.Entry<String, CacheStatistics> cache : sortedStatistics.entrySet())
+        {
+            writer.write("http_response_cache_hits_total{cache=\"" + cache.getKey() + "\"} "
+                    + cache.getValue().hits.sum() + "\n");
+        }
+
+        writer.write("# HELP http_response_cache_misses_total Responses not found in the response cache, "
+                + "read at an older data version, or expired.\n");
+        writer.write("# TYPE http_response_cache_misses_total counter\n");
+        for (Map.Entry<String, CacheStatistics> cache : sortedStatistics.entrySet())
+        {
+            writer.write("http_response_cache_misses_total{cache=\"" + cache.getKey() + "\"} "
+                    + cache.getValue().misses.sum() + "\n");
+        }
+
+        writer.write("# HELP http_response_cache_evictions_total Responses evicted to keep the cache size.\n");
+        writer.write("# TYPE http_response_cache_evictions_total counter\n");
+        writer.write("http_response_cache_evictions_total " + getEvictions() + "\n");
+
+        writer.write("# HELP http_response_cache_bytes Size of the cached responses.\n");
+        writer.write("# TYPE http_response_cache_bytes gauge\n");
+        writer.write("http_response_cache_bytes " + getBytes() + "\n");
+
+        writer.write("# HELP http_response_cache_entries Number of cached responses.\n");
+        writer.write("# TYPE http_response_cache_entries gauge\n");
+        writer.write("http_response_cache_entries " + size() + "\n");
+    }
+
+    private void remove(CacheKey cacheKey)
+    {
+        CachedResponse removed = entries.remove(cacheKey);
+        if (removed != null)
+        {
+            bytes -= removed.body.length;
+        }
+    }
+
+    private CacheStatistics getStatistics(String cacheName)
+    {
+        return statistics.computeIfAbsent(cacheName, name -> new CacheStatistics());
+    }
+
+    private static class CacheKey
+    {
+        private final String cacheName;
+        private final Object key;
+
+        private CacheKey(String cacheName, Object key)
+        {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            CacheKey cacheKey = (CacheKey) o;
+
+            return cacheName.equals(cacheKey.cacheName) && key.equals(cacheKey.key);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(cacheName, key);
+        }
+    }
+
+    private static class CachedResponse
+    {
+        private final String dataTag;
+        private final byte[] body;
+        private final long expiresAt;
+
+        private CachedResponse(String dataTag, byte[] body, long expiresAt)
+        {
+            this.dataTag = dataTag;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    //Writes through to the output stream, the copy is dropped as soon as it is larger than an entry
+    private static class CopyingOutputStream extends FilterOutputStream
+    {
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CopyingOutputStream(OutputStream outputStream)
+        {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            copy(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            copy(b, off, len);
+        }
+
+        //null if the response was too large
+        private byte[] getCopy()
+        {
+            return copy == null ? null : copy.toByteArray();
+        }
+
+        private void copy(byte[] b, int off, int len)
+        {
+            if (copy == null)
+            {
+                return;
+            }
+            if (copy.size() + len > MAX_ENTRY_BYTES)
+            {
+                copy = null;
+                return;
+            }
+            copy.write(b, off, len);
+        }
+    }
+
+    private static class CacheStatistics
+    {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+}
@@ -0,0 +1,51 @@
+package com.learning.app.common.resource;
+
+import com.google.gson.JsonObject;
+import com.learning.app.common.json.OperationResultJsonWriter;
+import com.learning.app.common.model.OperationResult;
+import com.learning.app.course.service.CourseService;
+import com.learning.app.user.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.security.RolesAllowed;
+import javax.inject.Inject;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/*
+ * Rebuilds the trigram search index, for data written before the index existed
+ */
+
+@Path("/search/index")
+@Produces(MediaType.APPLICATION_JSON)
+@RolesAllowed({"ADMIN"})
+public class SearchIndexResource
+{
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Inject
+    CourseService courseService;
+
+    @Inject
+    UserService userService;
+
+    @POST
+    public Response rebuild()
+    {
+        logger.debug("Rebuilding the search index");
+
+        JsonObject indexed = new JsonObject();
+        indexed.addProperty("courses", courseService.rebuildSearchIndex());
+        indexed.addProperty("users", userService.rebuildSearchIndex());
+        logger.debug("Search index rebuilt: {}", indexed);
+
+        return Response
+                .status(Response.Status.OK)
+                .entity(OperationResultJsonWriter.toJson(OperationResult.success(indexed)))
+                .build();
+    }
+}
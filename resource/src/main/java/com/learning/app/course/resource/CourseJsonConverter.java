@@ -1,13 +1,19 @@
 package com.learning.app.course.resource;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 import com.learning.app.category.model.Category;
 import com.learning.app.common.json.EntityJsonConverter;
 import com.learning.app.common.json.JsonReader;
 import com.learning.app.course.model.Course;
+import com.learning.app.course.model.CourseRating;
+import com.learning.app.course.model.projection.CourseRow;
 
 import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
 
 @ApplicationScoped
 public class CourseJsonConverter implements EntityJsonConverter<Course>
@@ -16,8 +22,11 @@ public class CourseJsonConverter implements EntityJsonConverter<Course>
     public Course convertFrom(String json)
     {
         //Convert json String to JsonObject
-        JsonObject jsonObject = JsonReader.readAsJsonObject(json);
+        return convertFrom(JsonReader.readAsJsonObject(json));
+    }
 
+    public Course convertFrom(JsonObject jsonObject)
+    {
         //Create course object and set fields
         Course course = new Course();
         course.setName(JsonReader.getStringOrNull(jsonObject, "name"));
@@ -42,6 +51,61 @@ public class CourseJsonConverter implements EntityJsonConverter<Course>
         jsonObject.addProperty("url", course.getUrl());
         jsonObject.addProperty("description", course.getDescription());
         jsonObject.add("category", getCategoryAsJsonElement(course.getCategory()));
+        jsonObject.add("rating", getRatingAsJsonElement(course.getRating()));
+
+        return jsonObject;
+    }
+
+    @Override
+    public void writeTo(JsonWriter jsonWriter, Course course) throws IOException
+    {
+        writeRowTo(jsonWriter, new CourseRow(course));
+    }
+
+    public void writeRowTo(JsonWriter jsonWriter, CourseRow course) throws IOException
+    {
+        jsonWriter.beginObject();
+        jsonWriter.name("id").value(course.getId());
+        jsonWriter.name("name").value(course.getName());
+        jsonWriter.name("url").value(course.getUrl());
+        jsonWriter.name("description").value(course.getDescription());
+
+        jsonWriter.name("category").beginObject();
+        jsonWriter.name("id").value(course.getCategoryId());
+        jsonWriter.name("name").value(course.getCategoryName());
+        jsonWriter.endObject();
+
+        jsonWriter.name("rating").beginObject();
+        jsonWriter.name("reviewCount").value(course.getReviewCount());
+        jsonWriter.name("ratingSum").value(course.getRatingSum());
+        jsonWriter.name("average").value(course.getAverage());
+        jsonWriter.name("distribution").beginArray();
+        for (int value = CourseRating.MIN_RATING; value <= CourseRating.MAX_RATING; value++)
+        {
+            jsonWriter.value(course.getRatingCount(value));
+        }
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+
+        jsonWriter.endObject();
+    }
+
+    //distribution holds the number of reviews for each rating, from 0 to 5
+    public JsonElement getRatingAsJsonElement(CourseRating courseRating)
+    {
+        CourseRating rating = courseRating != null ? courseRating : new CourseRating();
+        JsonObject jsonObject = new JsonObject();
+
+        jsonObject.addProperty("reviewCount", rating.getReviewCount());
+        jsonObject.addProperty("ratingSum", rating.getRatingSum());
+        jsonObject.addProperty("average", rating.getAverage());
+
+        JsonArray distribution = new JsonArray();
+        for (int value = CourseRating.MIN_RATING; value <= CourseRating.MAX_RATING; value++)
+        {
+            distribution.add(new JsonPrimitive(rating.getRatingCount(value)));
+        }
+        jsonObject.add("distribution", distribution);
 
         return jsonObject;
     }
@@ -2,16 +2,27 @@ package com.learning.app.course.resource;
 
 import com.google.gson.JsonElement;
 import com.learning.app.category.exception.CategoryNotFoundException;
+import com.learning.app.category.model.Category;
+import com.learning.app.common.exception.EntityVersionConflictException;
 import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.exception.InvalidJsonException;
 import com.learning.app.common.json.JsonUtils;
 import com.learning.app.common.json.JsonWriter;
 import com.learning.app.common.json.OperationResultJsonWriter;
+import com.learning.app.common.json.ResponseFormat;
 import com.learning.app.common.model.OperationResult;
+import com.learning.app.common.model.DataVersion;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.model.ResourceMessage;
+import com.learning.app.common.resource.BatchOperation;
+import com.learning.app.common.resource.ConditionalRequest;
+import com.learning.app.common.resource.EndpointExecutors;
+import com.learning.app.common.resource.ResponseCache;
+import com.learning.app.common.service.DataVersionService;
 import com.learning.app.course.exception.CourseNotFoundException;
 import com.learning.app.course.model.Course;
 import com.learning.app.course.model.filter.CourseFilter;
+import com.learning.app.course.model.projection.CourseRow;
 import com.learning.app.course.service.CourseService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,10 +30,16 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.security.PermitAll;
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.util.List;
 
 import static com.learning.app.common.model.StandardsOperationResult.*;
 
@@ -35,6 +52,7 @@ public class CourseResource
     private Logger logger = LoggerFactory.getLogger(getClass());
 
     private static final ResourceMessage RESOURCE_MESSAGE = new ResourceMessage("course");
+    private static final String RESPONSE_CACHE_NAME = "courses";
 
     @Inject
     CourseService courseService;
@@ -42,40 +60,164 @@ public class CourseResource
     @Inject
     CourseJsonConverter courseJsonConverter;
 
+    @Inject
+    DataVersionService dataVersionService;
+
+    @Inject
+    ResponseCache responseCache;
+
+    @Inject
+    EndpointExecutors endpointExecutors;
+
     @Context
     UriInfo uriInfo;
 
+    @Context
+    Request request;
+
+    @Context
+    HttpHeaders httpHeaders;
+
+    //the rows are sent in json or, for clients reading many of them, in CBOR
     @GET
-    public Response findByFilter()
+    @Produces({MediaType.APPLICATION_JSON, JsonUtils.APPLICATION_CBOR})
+    public void findByFilter(@Suspended AsyncResponse asyncResponse)
     {
         CourseFilter courseFilter = new CourseFilterExtractorFromURL(uriInfo).getFilter();
         logger.debug("Finding courses using filter: {}", courseFilter);
 
-        PaginatedData<Course> courses = courseService.findByFilter(courseFilter);
+        //the version is read from the database, so it waits for a thread of the pool as the queries do
+        ResponseFormat responseFormat = ResponseFormat.select(request);
+        endpointExecutors.getReads().resume(asyncResponse, RESOURCE_MESSAGE,
+                () -> findByFilter(courseFilter, responseFormat));
+    }
+
+    private Response findByFilter(CourseFilter courseFilter, ResponseFormat responseFormat)
+    {
+        //rows show the category name and the rating, which are versioned with the course
+        DataVersion dataVersion = dataVersionService.getDataVersion(Course.class, Category.class);
+        ConditionalRequest conditionalRequest = ConditionalRequest.forData(request, dataVersion, responseFormat);
+        Response notModified = conditionalRequest.evaluate();
+        if (notModified != null)
+        {
+            logger.debug("Courses not modified");
+            return notModified;
+        }
+
+        //pages of the same filter are the same until the courses or categories are written
+        byte[] cachedBody = responseCache.get(responseFormat.getCacheName(RESPONSE_CACHE_NAME), courseFilter,
+                dataVersion.getTag());
+        if (cachedBody != null)
+        {
+            return conditionalRequest.withValidators(Response.status(Response.Status.OK))
+                    .type(responseFormat.getMediaType())
+                    .entity(cachedBody)
+                    .build();
+        }
+
+        PaginatedData<CourseRow> courses;
+        try
+        {
+            courses = courseService.findByFilter(courseFilter);
+        } catch (FieldInvalidException e)
+        {
+            logger.error("One of the filter parameters is not valid", e);
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .entity(OperationResultJsonWriter.toJson(getOperationResultInvalidField(RESOURCE_MESSAGE, e)))
+                    .build();
+        }
 
         logger.debug("Found {} courses", courses.getNumberOfRows());
+        //stream paginated data in the format of the request, pages small enough are kept for the next requests
+        StreamingOutput page = JsonUtils.getStreamingOutputWithPagingAndEntries(courses,
+                courseJsonConverter::writeRowTo, responseFormat);
+        StreamingOutput body = responseCache.streamAndPut(responseFormat.getCacheName(RESPONSE_CACHE_NAME),
+                courseFilter, dataVersion.getTag(), page);
+
+        return conditionalRequest.withValidators(Response.status(Response.Status.OK))
+                .type(responseFormat.getMediaType())
+                .entity(body)
+                .build();
+    }
+
+    @GET
+    @Path("/search")
+    public void search(@QueryParam("q") String query, @QueryParam("limit") @DefaultValue("20") int limit,
+                       @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getReads().resume(asyncResponse, RESOURCE_MESSAGE, () -> search(query, limit));
+    }
+
+    private Response search(String query, int limit)
+    {
+        logger.debug("Searching courses for: {}", query);
+
+        List<CourseRow> courses;
+        try
+        {
+            courses = courseService.search(query, limit);
+        } catch (FieldInvalidException e)
+        {
+            logger.error("The search parameters are not valid", e);
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .entity(OperationResultJsonWriter.toJson(getOperationResultInvalidField(RESOURCE_MESSAGE, e)))
+                    .build();
+        }
 
-        JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(courses,
+        logger.debug("Found {} courses", courses.size());
+
+        //ranked results, they are not paged
+        StreamingOutput jsonWithPagingAndEntries = JsonUtils.getStreamingOutputWithPagingAndEntries(
+                new PaginatedData<>(courses.size(), courses), courseJsonConverter::writeRowTo);
+
+        return Response
+                .status(Response.Status.OK)
+                .entity(jsonWithPagingAndEntries)
+                .build();
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(JsonUtils.APPLICATION_NDJSON)
+    public Response export()
+    {
+        logger.debug("Exporting all courses");
+
+        StreamingOutput courses = JsonUtils.getStreamingOutputWithNdjson(courseService::exportAll,
                 courseJsonConverter);
 
         return Response
                 .status(Response.Status.OK)
-                .entity(JsonWriter.writeToString(jsonWithPagingAndEntries))
+                .entity(courses)
                 .build();
     }
 
     @GET
     @Path("/{id}")
-    public Response findById(@PathParam("id") Long id)
+    public void findById(@PathParam("id") Long id, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getReads().resume(asyncResponse, RESOURCE_MESSAGE, () -> findById(id));
+    }
+
+    private Response findById(Long id)
     {
         logger.debug("Find course: {}", id);
         Response.ResponseBuilder responseBuilder;
         try
         {
             Course course = courseService.findById(id);
+            ConditionalRequest conditionalRequest = getConditionalRequest(course);
+            Response notModified = conditionalRequest.evaluate();
+            if (notModified != null)
+            {
+                logger.debug("Course not modified: {}", id);
+                return notModified;
+            }
+
             OperationResult result = OperationResult.success(courseJsonConverter.convertToJsonElement(course));
-            responseBuilder = Response
-                    .status(Response.Status.OK)
+            responseBuilder = conditionalRequest.withValidators(Response.status(Response.Status.OK))
                     .entity(OperationResultJsonWriter.toJson(result));
             logger.debug("Course found: {}", course);
         } catch (CourseNotFoundException e)
@@ -88,7 +230,12 @@ public class CourseResource
     }
 
     @POST
-    public Response add(String body)
+    public void add(String body, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> add(body));
+    }
+
+    private Response add(String body)
     {
         logger.debug("Adding a new course with body {}", body);
         Course course = courseJsonConverter.convertFrom(body);
@@ -118,9 +265,52 @@ public class CourseResource
                 .build();
     }
 
+    //Add a json array of courses, the result of each course is returned in the order of the array
+    @POST
+    @Path("/batch")
+    public void addAll(String body, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> addAll(body));
+    }
+
+    private Response addAll(String body)
+    {
+        logger.debug("Adding a batch of courses");
+        BatchOperation<Course> batchOperation = new BatchOperation<>(RESOURCE_MESSAGE,
+                courseJsonConverter::convertFrom, Course::getId, this::getOperationResultOfBatchError);
+
+        Response.Status status = Response.Status.OK;
+        OperationResult result;
+        try
+        {
+            result = OperationResult.success(batchOperation.add(body, courseService::addAll));
+        } catch (InvalidJsonException e)
+        {
+            status = Response.Status.BAD_REQUEST;
+            logger.error("The batch of courses is not a json array of objects", e);
+            result = OperationResult.error(RESOURCE_MESSAGE.getKeyOfInvalidField("items"), e.getMessage());
+        } catch (FieldInvalidException e)
+        {
+            status = Response.Status.BAD_REQUEST;
+            logger.error("The batch of courses is not valid", e);
+            result = getOperationResultInvalidField(RESOURCE_MESSAGE, e);
+        }
+
+        logger.debug("Returning the operation result after adding a batch of courses: {}", result);
+        return Response
+                .status(status)
+                .entity(OperationResultJsonWriter.toJson(result))
+                .build();
+    }
+
     @PUT
     @Path("/{id}")
-    public Response update(@PathParam("id") Long id, String body)
+    public void update(@PathParam("id") Long id, String body, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> update(id, body));
+    }
+
+    private Response update(Long id, String body)
     {
         logger.debug("Updating course {} with body {}", body);
         Course course = courseJsonConverter.convertFrom(body);
@@ -130,6 +320,7 @@ public class CourseResource
         OperationResult result;
         try
         {
+            applyWriteConditions(course);
             courseService.update(course);
             result = OperationResult.success();
         } catch (CourseNotFoundException e)
@@ -147,6 +338,11 @@ public class CourseResource
             status = Response.Status.NOT_FOUND;
             logger.error("No category found for course", e);
             result = getOperationResultDependencyNotFound(RESOURCE_MESSAGE, "category");
+        } catch (EntityVersionConflictException e)
+        {
+            status = Response.Status.PRECONDITION_FAILED;
+            logger.error("The course was changed since the client read it", e);
+            result = getOperationResultVersionConflict(RESOURCE_MESSAGE);
         }
 
         logger.debug("Returning the operation result after updating course: {}", result);
@@ -158,7 +354,12 @@ public class CourseResource
 
     @DELETE
     @Path("/{id}")
-    public Response delete(@PathParam("id") Long id)
+    public void delete(@PathParam("id") Long id, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> delete(id));
+    }
+
+    private Response delete(Long id)
     {
         logger.debug("Deleting course with id", id);
 
@@ -181,4 +382,40 @@ public class CourseResource
                 .entity(OperationResultJsonWriter.toJson(result))
                 .build();
     }
+
+    //the course is shown with its category and rating, they are versioned separately
+    private ConditionalRequest getConditionalRequest(Course course)
+    {
+        return ConditionalRequest.forEntity(request,
+                dataVersionService.getDataVersion(Course.class, Category.class),
+                course.getVersion(), course.getCategory().getVersion(),
+                course.getRating() != null ? course.getRating().getVersion() : null);
+    }
+
+    //With If-Match the course is updated only if it is still the version the client read,
+    //a change between this check and the update makes the update fail
+    private void applyWriteConditions(Course course)
+    {
+        if (!ConditionalRequest.hasWriteConditions(httpHeaders))
+        {
+            return;
+        }
+
+        Course currentCourse = courseService.findById(course.getId());
+        if (getConditionalRequest(currentCourse).evaluate() != null)
+        {
+            throw new EntityVersionConflictException();
+        }
+        course.setVersion(currentCourse.getVersion());
+    }
+
+    //same errors as when a single course is added
+    private OperationResult getOperationResultOfBatchError(RuntimeException e)
+    {
+        if (e instanceof CategoryNotFoundException)
+        {
+            return getOperationResultDependencyNotFound(RESOURCE_MESSAGE, "category");
+        }
+        return getOperationResultInvalidField(RESOURCE_MESSAGE, (FieldInvalidException) e);
+    }
 }
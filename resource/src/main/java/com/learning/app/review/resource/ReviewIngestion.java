@@ -0,0 +1,502 @@
+package com.learning.app.review.resource;
+
+import com.learning.app.common.ingestion.AppendLog;
+import com.learning.app.common.ingestion.LogRecord;
+import com.learning.app.common.model.BatchItemResult;
+import com.learning.app.common.utils.DataValidation;
+import com.learning.app.common.utils.ExpiringLruCache;
+import com.learning.app.review.model.Review;
+import com.learning.app.review.service.ReviewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.EJBException;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Write-behind ingestion of new reviews, enabled with the system property learning.app.reviews.ingestion.enabled
+ * A review is validated and appended to a local AppendLog, the client gets the id of the log and the sequence of its
+ * record as tracking id: each node has its own log, numbered from 1, with its own checkpoint
+ * A drainer thread adds the reviews of the log in batches through the review service, the sequence of the last
+ * review added is saved in the same transaction: when the application starts, the reviews of the log after it are
+ * added, so each review of the log is added once even after a crash
+ * A batch failing again and again is added one review at a time, a review that can never be added is marked failed
+ * and skipped, so that a single review the service cannot add does not hold the log back
+ * Users and courses are only checked when the review is added, the result can be read with the tracking id
+ * The directory of the log, the size of its segments, the size of the batches and the time a drainer waits for a full
+ * batch can be set with system properties
+ */
+
+@ApplicationScoped
+public class ReviewIngestion
+{
+    private static final String PROPERTY_PREFIX = "learning.app.reviews.ingestion.";
+    //the review service adds at most 500 reviews at once
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+    //failures of the same batch before its records are added one by one
+    private static final int MAX_BATCH_FAILURES = 3;
+    private static final String TRACKING_ID_SEPARATOR = "-";
+    //results are kept for clients polling their tracking id, reviews still in the log are always pending
+    private static final int MAX_RESULTS = 100_000;
+    private static final long RESULT_TIME_TO_LIVE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Inject
+    ReviewService reviewService;
+
+    @Inject
+    ReviewJsonConverter reviewJsonConverter;
+
+    @Inject
+    Validator validator;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private AppendLog appendLog;
+    private int batchSize = MAX_BATCH_SIZE;
+    private long drainIntervalMillis = 200;
+    //sequence of the last review of the log added by the drainer
+    private volatile long drainedSequence;
+    //consecutive failures of the batch after the drained sequence
+    private int batchFailures;
+
+    private final ExpiringLruCache<Long, IngestionStatus> results = new ExpiringLruCache<>(MAX_RESULTS,
+            RESULT_TIME_TO_LIVE_MILLIS);
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder added = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder drainErrors = new LongAdder();
+
+    private final Object drainSignal = new Object();
+    private volatile boolean running;
+    private Thread drainer;
+
+    //the reviews of the log are added when the application starts, not at the first request
+    void startWithApplication(@Observes @Initialized(ApplicationScoped.class) Object context)
+    {
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if (!Boolean.getBoolean(PROPERTY_PREFIX + "enabled"))
+        {
+            return;
+        }
+        batchSize = Math.min(Integer.getInteger(PROPERTY_PREFIX + "batchSize", MAX_BATCH_SIZE), MAX_BATCH_SIZE);
+        drainIntervalMillis = Long.getLong(PROPERTY_PREFIX + "drainIntervalMillis", 200L);
+        String directory = System.getProperty(PROPERTY_PREFIX + "directory",
+                Paths.get(System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")),
+                        "review-ingestion").toString());
+        try
+        {
+            open(Paths.get(directory), Integer.getInteger(PROPERTY_PREFIX + "segmentBytes", 16 * 1024 * 1024));
+        } catch (IOException e)
+        {
+            throw new IllegalStateException("The review ingestion log " + directory + " cannot be opened", e);
+        }
+        startDrainer();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if (appendLog == null)
+        {
+            return;
+        }
+        running = false;
+        synchronized (drainSignal)
+        {
+            drainSignal.notifyAll();
+        }
+        try
+        {
+            if (drainer != null)
+            {
+                drainer.join(MAX_RETRY_MILLIS);
+            }
+            appendLog.close();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        } catch (IOException e)
+        {
+            logger.error("The review ingestion log could not be closed", e);
+        }
+    }
+
+    //Recover the log, the reviews after the last one added are added again by the drainer
+    void open(Path directory, int segmentBytes) throws IOException
+    {
+        drainedSequence = reviewService.findLastIngestedSequence(AppendLog.openLogId(directory));
+        appendLog = AppendLog.open(directory, segmentBytes, drainedSequence + 1);
+        appendLog.release(drainedSequence);
+        long pending = appendLog.getLastSequence() - drainedSequence;
+        if (pending > 0)
+        {
+            logger.info("{} reviews of the ingestion log {} are not added yet, they are added now", pending,
+                    directory);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return appendLog != null;
+    }
+
+    //Validate the review and append it to the log, returns its tracking id once it is on disk
+    //Throws InvalidJsonException or FieldInvalidException if the review is not valid, IOException if the log cannot
+    //be written
+    public String submit(String body) throws IOException
+    {
+        Review review = reviewJsonConverter.convertFrom(body);
+        DataValidation.validateEntityFields(validator, review);
+
+        long sequence = appendLog.append(body.getBytes(StandardCharsets.UTF_8));
+        appended.increment();
+        if (getPendingReviews() >= batchSize)
+        {
+            synchronized (drainSignal)
+            {
+                drainSignal.notifyAll();
+            }
+        }
+        return appendLog.getLogId() + TRACKING_ID_SEPARATOR + sequence;
+    }
+
+    //null if the tracking id is unknown, if it belongs to the log of another node, or if its result has expired
+    public IngestionStatus getStatus(String trackingId)
+    {
+        int separator = trackingId.lastIndexOf(TRACKING_ID_SEPARATOR);
+        if (separator < 0 || !trackingId.substring(0, separator).equals(appendLog.getLogId()))
+        {
+            return null;
+        }
+        long sequence;
+        try
+        {
+            sequence = Long.parseLong(trackingId.substring(separator + 1));
+        } catch (NumberFormatException e)
+        {
+            return null;
+        }
+
+        IngestionStatus status = results.get(sequence);
+        if (status == null && sequence > drainedSequence && sequence <= appendLog.getLastSequence())
+        {
+            return IngestionStatus.PENDING;
+        }
+        return status;
+    }
+
+    //Add the next batch of reviews of the log, returns the number of reviews read from the log
+    //A failure of the batch is thrown, after MAX_BATCH_FAILURES failures its reviews are added one by one
+    int drain()
+    {
+        List<LogRecord> records = appendLog.read(drainedSequence, batchSize);
+        if (records.isEmpty())
+        {
+            return 0;
+        }
+        if (batchFailures >= MAX_BATCH_FAILURES)
+        {
+            return drainOneByOne(records);
+        }
+
+        long lastSequence = records.get(records.size() - 1).getSequence();
+        List<BatchItemResult<Review>> batchResults;
+        try
+        {
+            List<Review> reviews = new ArrayList<>(records.size());
+            for (LogRecord record : records)
+            {
+                reviews.add(convertFrom(record));
+            }
+            batchResults = reviewService.addAllIngested(appendLog.getLogId(), reviews, lastSequence);
+        } catch (RuntimeException e)
+        {
+            batchFailures++;
+            throw e;
+        }
+        batchFailures = 0;
+
+        for (int i = 0; i < records.size(); i++)
+        {
+            putResult(records.get(i).getSequence(), batchResults.get(i));
+        }
+        markDrained(lastSequence);
+        logger.debug("Added {} reviews of the ingestion log, until the sequence {}", records.size(), lastSequence);
+        return records.size();
+    }
+
+    //Each review is added with its own checkpoint. A review that can never be added (it does not convert, or it
+    //violates a constraint of the database) is marked failed and the checkpoint is moved past it; any other failure
+    //is likely transient (a lock timeout, a lost connection): it is thrown and the review is tried again
+    private int drainOneByOne(List<LogRecord> records)
+    {
+        logger.warn("The reviews of the ingestion log after the sequence {} failed {} times in a batch, "
+                + "they are added one by one", drainedSequence, batchFailures);
+        for (LogRecord record : records)
+        {
+            long sequence = record.getSequence();
+            Review review;
+            try
+            {
+                review = convertFrom(record);
+            } catch (RuntimeException e)
+            {
+                skip(sequence, e);
+                continue;
+            }
+            try
+            {
+                List<Review> reviews = Collections.singletonList(review);
+                putResult(sequence, reviewService.addAllIngested(appendLog.getLogId(), reviews, sequence).get(0));
+            } catch (RuntimeException e)
+            {
+                if (!isConstraintViolation(e))
+                {
+                    throw e;
+                }
+                skip(sequence, e);
+                continue;
+            }
+            markDrained(sequence);
+        }
+        batchFailures = 0;
+        return records.size();
+    }
+
+    private void skip(long sequence, RuntimeException error)
+    {
+        reviewService.addAllIngested(appendLog.getLogId(), Collections.emptyList(), sequence);
+        logger.error("The review of the ingestion log with the sequence {} can never be added, it is skipped",
+                sequence, error);
+        failed.increment();
+        results.put(sequence, IngestionStatus.failed(error));
+        markDrained(sequence);
+    }
+
+    //The failures of the service are wrapped in an EJBException: a validation of the entity, or an error of the
+    //database of the class 23 (integrity constraint violation) of the SQL states
+    static boolean isConstraintViolation(Throwable error)
+    {
+        for (Throwable cause = error; cause != null; cause = getCause(cause))
+        {
+            if (cause instanceof ConstraintViolationException)
+            {
+                return true;
+            }
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null
+                    && ((SQLException) cause).getSQLState().startsWith("23"))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable getCause(Throwable error)
+    {
+        if (error instanceof EJBException && error.getCause() == null)
+        {
+            return ((EJBException) error).getCausedByException();
+        }
+        return error.getCause() == error ? null : error.getCause();
+    }
+
+    private Review convertFrom(LogRecord record)
+    {
+        return reviewJsonConverter.convertFrom(new String(record.getPayload(), StandardCharsets.UTF_8));
+    }
+
+    private void putResult(long sequence, BatchItemResult<Review> result)
+    {
+        if (result.isSuccess())
+        {
+            added.increment();
+            results.put(sequence, IngestionStatus.added(result.getEntity().getId()));
+        } else
+        {
+            failed.increment();
+            results.put(sequence, IngestionStatus.failed(result.getError()));
+        }
+    }
+
+    private void markDrained(long sequence)
+    {
+        drainedSequence = sequence;
+        appendLog.release(sequence);
+    }
+
+    public long getPendingReviews()
+    {
+        return appendLog.getLastSequence() - drainedSequence;
+    }
+
+    //age of the oldest review not added yet
+    public double getLagSeconds()
+    {
+        long appendedAt = appendLog.getAppendedAt(drainedSequence + 1);
+        return appendedAt < 0 ? 0 : Math.max(0, System.currentTimeMillis() - appendedAt) / 1000.0;
+    }
+
+    public void writePrometheusText(Writer writer) throws IOException
+    {
+        if (!isEnabled())
+        {
+            return;
+        }
+        writeMetric(writer, "review_ingestion_pending_reviews", "gauge",
+                "Reviews of the ingestion log not added yet.", getPendingReviews());
+        writeMetric(writer, "review_ingestion_lag_seconds", "gauge",
+                "Time the oldest review of the ingestion log has been waiting.", getLagSeconds());
+        writeMetric(writer, "review_ingestion_log_bytes", "gauge",
+                "Bytes of the reviews kept in the ingestion log.", appendLog.getBytes());
+        writeMetric(writer, "review_ingestion_appended_total", "counter",
+                "Reviews accepted in the ingestion log.", appended.sum());
+        writeMetric(writer, "review_ingestion_added_total", "counter",
+                "Reviews of the ingestion log added.", added.sum());
+        writeMetric(writer, "review_ingestion_failed_total", "counter",
+                "Reviews of the ingestion log refused by the review service.", failed.sum());
+        writeMetric(writer, "review_ingestion_drain_errors_total", "counter",
+                "Batches of the ingestion log that could not be added and are retried.", drainErrors.sum());
+    }
+
+    private void startDrainer()
+    {
+        running = true;
+        drainer = managedThreadFactory.newThread(this::drainWhileRunning);
+        drainer.setName("review-ingestion-drainer");
+        drainer.start();
+    }
+
+    //a failed batch is retried, waiting longer after each failure, the reviews after it wait for it until its
+    //reviews are added one by one
+    private void drainWhileRunning()
+    {
+        long retryMillis = drainIntervalMillis;
+        while (running)
+        {
+            try
+            {
+                if (drain() < batchSize)
+                {
+                    waitForBatch(drainIntervalMillis);
+                }
+                retryMillis = drainIntervalMillis;
+            } catch (RuntimeException e)
+            {
+                drainErrors.increment();
+                logger.error("The reviews of the ingestion log after the sequence {} could not be added, "
+                        + "retrying in {} ms", drainedSequence, retryMillis, e);
+                waitForBatch(retryMillis);
+                retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+            }
+        }
+    }
+
+    //until a batch is full, so that a busy log is added in large batches
+    private void waitForBatch(long timeoutMillis)
+    {
+        synchronized (drainSignal)
+        {
+            if (running && getPendingReviews() < batchSize)
+            {
+                try
+                {
+                    drainSignal.wait(timeoutMillis);
+                } catch (InterruptedException e)
+                {
+                    running = false;
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static void writeMetric(Writer writer, String metric, String type, String help, Number value)
+            throws IOException
+    {
+        writer.write("# HELP " + metric + " " + help + "\n");
+        writer.write("# TYPE " + metric + " " + type + "\n");
+        writer.write(metric + " " + value + "\n");
+    }
+
+    //Result of a review of the log: pending, added with its id, or failed with the error of the review service
+    public static class IngestionStatus
+    {
+        static final IngestionStatus PENDING = new IngestionStatus(State.PENDING, null, null);
+
+        public enum State
+        {
+            PENDING, ADDED, FAILED
+        }
+
+        private final State state;
+        private final Long reviewId;
+        private final RuntimeException error;
+
+        private IngestionStatus(State state, Long reviewId, RuntimeException error)
+        {
+            this.state = state;
+            this.reviewId = reviewId;
+            this.error = error;
+        }
+
+        static IngestionStatus added(Long reviewId)
+        {
+            return new IngestionStatus(State.ADDED, reviewId, null);
+        }
+
+        static IngestionStatus failed(RuntimeException error)
+        {
+            return new IngestionStatus(State.FAILED, null, error);
+        }
+
+        public State getState()
+        {
+            return state;
+        }
+
+        public Long getReviewId()
+        {
+            return reviewId;
+        }
+
+        public RuntimeException getError()
+        {
+            return error;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "IngestionStatus [state=" + state + ", reviewId=" + reviewId + ", error=" + error + "]";
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.learning.app.review.resource;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.learning.app.common.json.EntityJsonConverter;
 import com.learning.app.common.json.JsonReader;
 import com.learning.app.course.model.Course;
 import com.learning.app.review.model.Review;
+import com.learning.app.review.model.projection.ReviewRow;
 import com.learning.app.user.model.User;
 
 import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
 
 @ApplicationScoped
 public class ReviewJsonConverter implements EntityJsonConverter<Review>
@@ -17,8 +20,11 @@ public class ReviewJsonConverter implements EntityJsonConverter<Review>
     public Review convertFrom(String json)
     {
         //Convert json String in JsonObject
-        JsonObject jsonObject = JsonReader.readAsJsonObject(json);
+        return convertFrom(JsonReader.readAsJsonObject(json));
+    }
 
+    public Review convertFrom(JsonObject jsonObject)
+    {
         //Create review object with correct fields
         Review review = new Review();
         review.setComment(JsonReader.getStringOrNull(jsonObject, "comment"));
@@ -52,6 +58,34 @@ public class ReviewJsonConverter implements EntityJsonConverter<Review>
         return jsonObject;
     }
 
+    @Override
+    public void writeTo(JsonWriter jsonWriter, Review review) throws IOException
+    {
+        writeRowTo(jsonWriter, new ReviewRow(review));
+    }
+
+    public void writeRowTo(JsonWriter jsonWriter, ReviewRow review) throws IOException
+    {
+        jsonWriter.beginObject();
+        jsonWriter.name("id").value(review.getId());
+        jsonWriter.name("rating").value(review.getRating());
+        jsonWriter.name("comment").value(review.getComment());
+        jsonWriter.name("createdAt").value(review.getCreatedAt().format(DATE_FORMATTER));
+
+        jsonWriter.name("user").beginObject();
+        jsonWriter.name("id").value(review.getUserId());
+        jsonWriter.name("name").value(review.getUserName());
+        jsonWriter.name("email").value(review.getUserEmail());
+        jsonWriter.endObject();
+
+        jsonWriter.name("course").beginObject();
+        jsonWriter.name("id").value(review.getCourseId());
+        jsonWriter.name("name").value(review.getCourseName());
+        jsonWriter.endObject();
+
+        jsonWriter.endObject();
+    }
+
     public JsonElement getJsonElementFromUser(User user)
     {
         JsonObject jsonObject = new JsonObject();
@@ -1,29 +1,49 @@
 package com.learning.app.review.resource;
 
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.learning.app.common.exception.EntityVersionConflictException;
 import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.exception.InvalidJsonException;
 import com.learning.app.common.json.JsonUtils;
 import com.learning.app.common.json.JsonWriter;
 import com.learning.app.common.json.OperationResultJsonWriter;
+import com.learning.app.common.json.ResponseFormat;
 import com.learning.app.common.model.OperationResult;
+import com.learning.app.common.model.DataVersion;
 import com.learning.app.common.model.PaginatedData;
 import com.learning.app.common.model.ResourceMessage;
+import com.learning.app.common.resource.BatchOperation;
+import com.learning.app.common.resource.ConditionalRequest;
+import com.learning.app.common.resource.EndpointExecutors;
+import com.learning.app.common.resource.ResponseCache;
+import com.learning.app.common.service.DataVersionService;
 import com.learning.app.course.exception.CourseNotFoundException;
+import com.learning.app.course.model.Course;
 import com.learning.app.review.exception.ReviewNotFoundException;
 import com.learning.app.review.model.Review;
 import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
 import com.learning.app.review.service.ReviewService;
 import com.learning.app.user.exception.UserNotFoundException;
+import com.learning.app.user.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.security.PermitAll;
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.net.URI;
 
 import static com.learning.app.common.model.StandardsOperationResult.*;
 
@@ -36,6 +56,7 @@ public class ReviewResource
     private Logger logger = LoggerFactory.getLogger(getClass());
 
     private static final ResourceMessage RESOURCE_MESSAGE = new ResourceMessage("review");
+    private static final String RESPONSE_CACHE_NAME = "reviews";
 
     @Inject
     ReviewService reviewService;
@@ -43,33 +64,119 @@ public class ReviewResource
     @Inject
     ReviewJsonConverter reviewJsonConverter;
 
+    @Inject
+    DataVersionService dataVersionService;
+
+    @Inject
+    ResponseCache responseCache;
+
+    @Inject
+    EndpointExecutors endpointExecutors;
+
+    @Inject
+    ReviewIngestion reviewIngestion;
+
     @Context
     UriInfo uriInfo;
 
+    @Context
+    Request request;
+
+    @Context
+    HttpHeaders httpHeaders;
+
+    //the rows are sent in json or, for clients reading many of them, in CBOR
     @GET
-    public Response findByFilter()
+    @Produces({MediaType.APPLICATION_JSON, JsonUtils.APPLICATION_CBOR})
+    public void findByFilter(@Suspended AsyncResponse asyncResponse)
     {
         //get filter from URL parameters
         ReviewFilter reviewFilter = new ReviewFilterExtractorFromURL(uriInfo).getFilter();
         logger.debug("Finding reviews using filter: {}", reviewFilter);
 
+        //the version is read from the database, so it waits for a thread of the pool as the queries do
+        ResponseFormat responseFormat = ResponseFormat.select(request);
+        endpointExecutors.getReads().resume(asyncResponse, RESOURCE_MESSAGE,
+                () -> findByFilter(reviewFilter, responseFormat));
+    }
+
+    private Response findByFilter(ReviewFilter reviewFilter, ResponseFormat responseFormat)
+    {
+        //answer with 304 Not Modified if the client has the current version of the reviews and of the
+        //users and courses shown with them
+        DataVersion dataVersion = dataVersionService.getDataVersion(Review.class, User.class, Course.class);
+        ConditionalRequest conditionalRequest = ConditionalRequest.forData(request, dataVersion, responseFormat);
+        Response notModified = conditionalRequest.evaluate();
+        if (notModified != null)
+        {
+            logger.debug("Reviews not modified");
+            return notModified;
+        }
+
+        //use the response of the same filter and format if it was written at the current data version
+        byte[] cachedBody = responseCache.get(responseFormat.getCacheName(RESPONSE_CACHE_NAME), reviewFilter,
+                dataVersion.getTag());
+        if (cachedBody != null)
+        {
+            return conditionalRequest.withValidators(Response.status(Response.Status.OK))
+                    .type(responseFormat.getMediaType())
+                    .entity(cachedBody)
+                    .build();
+        }
+
         //get paginated data
-        PaginatedData<Review> reviews = reviewService.findByFilter(reviewFilter);
+        PaginatedData<ReviewRow> reviews;
+        try
+        {
+            reviews = reviewService.findByFilter(reviewFilter);
+        } catch (FieldInvalidException e)
+        {
+            //set status to bad request if a filter parameter, like the cursor, is invalid
+            logger.error("One of the filter parameters is not valid", e);
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .entity(OperationResultJsonWriter.toJson(getOperationResultInvalidField(RESOURCE_MESSAGE, e)))
+                    .build();
+        }
         logger.debug("Found {} reviews", reviews.getNumberOfRows());
 
-        //create JsonElement from paginated data
-        JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(reviews,
+        //stream paginated data in the format of the request, pages small enough are kept for the next requests
+        StreamingOutput page = JsonUtils.getStreamingOutputWithPagingAndEntries(reviews,
+                reviewJsonConverter::writeRowTo, responseFormat);
+        StreamingOutput body = responseCache.streamAndPut(responseFormat.getCacheName(RESPONSE_CACHE_NAME),
+                reviewFilter, dataVersion.getTag(), page);
+
+        return conditionalRequest.withValidators(Response.status(Response.Status.OK))
+                .type(responseFormat.getMediaType())
+                .entity(body)
+                .build();
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(JsonUtils.APPLICATION_NDJSON)
+    public Response export()
+    {
+        logger.debug("Exporting all reviews");
+
+        StreamingOutput reviews = JsonUtils.getStreamingOutputWithNdjson(reviewService::exportAll,
                 reviewJsonConverter);
 
         return Response
                 .status(Response.Status.OK)
-                .entity(JsonWriter.writeToString(jsonWithPagingAndEntries))
+                .entity(reviews)
                 .build();
     }
 
     @GET
     @Path("/{id}")
-    public Response findById(@PathParam("id") Long id)
+    public void findById(@PathParam("id") Long id, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getReads().resume(asyncResponse, RESOURCE_MESSAGE, () -> findById(id));
+    }
+
+    private Response findById(Long id)
     {
         logger.debug("Find review: {}", id);
         Response.ResponseBuilder responseBuilder;
@@ -77,11 +184,18 @@ public class ReviewResource
         try
         {
             Review review = reviewService.findById(id);
+            ConditionalRequest conditionalRequest = getConditionalRequest(review);
+            Response notModified = conditionalRequest.evaluate();
+            if (notModified != null)
+            {
+                logger.debug("Review not modified: {}", id);
+                return notModified;
+            }
+
             //Convert Review Object to json and create OperationResult object
             OperationResult result = OperationResult.success(reviewJsonConverter.convertToJsonElement(review));
 
-            responseBuilder = Response
-                    .status(Response.Status.OK)
+            responseBuilder = conditionalRequest.withValidators(Response.status(Response.Status.OK))
                     .entity(OperationResultJsonWriter.toJson(result));
             logger.debug("Review found: {}", review);
         } catch (ReviewNotFoundException e)
@@ -93,8 +207,92 @@ public class ReviewResource
         return responseBuilder.build();
     }
 
+    //With the write-behind ingestion the review is only appended to the log, on the request thread: the requests
+    //waiting at the same time for the log share one fsync
     @POST
-    public Response add(String body)
+    public void add(String body, @Suspended AsyncResponse asyncResponse)
+    {
+        if (reviewIngestion.isEnabled())
+        {
+            asyncResponse.resume(ingest(body));
+            return;
+        }
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> add(body));
+    }
+
+    private Response ingest(String body)
+    {
+        logger.debug("Appending a new review to the ingestion log with body {}", body);
+
+        Response.Status status = Response.Status.ACCEPTED;
+        OperationResult result;
+        String trackingId = null;
+        try
+        {
+            trackingId = reviewIngestion.submit(body);
+            result = OperationResult.success(getJsonElementWithTrackingId(trackingId));
+        } catch (InvalidJsonException e)
+        {
+            status = Response.Status.BAD_REQUEST;
+            logger.error("The review is not a json object", e);
+            result = OperationResult.error(RESOURCE_MESSAGE.getKeyOfInvalidField("body"), e.getMessage());
+        } catch (FieldInvalidException e)
+        {
+            status = Response.Status.BAD_REQUEST;
+            logger.error("One of the fields of the review is not valid", e);
+            result = getOperationResultInvalidField(RESOURCE_MESSAGE, e);
+        } catch (IOException e)
+        {
+            //the review is not accepted if it is not on disk, the client can send it again
+            status = Response.Status.SERVICE_UNAVAILABLE;
+            logger.error("The review could not be appended to the ingestion log", e);
+            result = getOperationResultUnavailable(RESOURCE_MESSAGE);
+        }
+
+        logger.debug("Returning the operation result after appending review: {}", result);
+        Response.ResponseBuilder responseBuilder = Response
+                .status(status)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(OperationResultJsonWriter.toJson(result));
+        if (trackingId != null)
+        {
+            responseBuilder.location(URI.create("reviews/ingestion/" + trackingId));
+        }
+        return responseBuilder.build();
+    }
+
+    //Result of a review added with the write-behind ingestion
+    @GET
+    @Path("/ingestion/{trackingId}")
+    public Response findIngestionStatus(@PathParam("trackingId") String trackingId)
+    {
+        ReviewIngestion.IngestionStatus status = reviewIngestion.isEnabled()
+                ? reviewIngestion.getStatus(trackingId) : null;
+        if (status == null)
+        {
+            logger.debug("No ingested review found for tracking id {}", trackingId);
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        JsonObject jsonObject = getJsonElementWithTrackingId(trackingId);
+        jsonObject.addProperty("status", status.getState().name());
+        if (status.getReviewId() != null)
+        {
+            jsonObject.addProperty("reviewId", status.getReviewId());
+        }
+        if (status.getError() != null)
+        {
+            jsonObject.add("error", OperationResultJsonWriter.toJsonElement(
+                    getOperationResultOfBatchError(status.getError())));
+        }
+
+        return Response
+                .status(Response.Status.OK)
+                .entity(OperationResultJsonWriter.toJson(OperationResult.success(jsonObject)))
+                .build();
+    }
+
+    private Response add(String body)
     {
         logger.debug("Adding a new review with body {}", body);
         Review review = reviewJsonConverter.convertFrom(body);
@@ -137,9 +335,52 @@ public class ReviewResource
                 .build();
     }
 
+    //Add a json array of reviews, the result of each review is returned in the order of the array
+    @POST
+    @Path("/batch")
+    public void addAll(String body, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> addAll(body));
+    }
+
+    private Response addAll(String body)
+    {
+        logger.debug("Adding a batch of reviews");
+        BatchOperation<Review> batchOperation = new BatchOperation<>(RESOURCE_MESSAGE,
+                reviewJsonConverter::convertFrom, Review::getId, this::getOperationResultOfBatchError);
+
+        Response.Status status = Response.Status.OK;
+        OperationResult result;
+        try
+        {
+            result = OperationResult.success(batchOperation.add(body, reviewService::addAll));
+        } catch (InvalidJsonException e)
+        {
+            status = Response.Status.BAD_REQUEST;
+            logger.error("The batch of reviews is not a json array of objects", e);
+            result = OperationResult.error(RESOURCE_MESSAGE.getKeyOfInvalidField("items"), e.getMessage());
+        } catch (FieldInvalidException e)
+        {
+            status = Response.Status.BAD_REQUEST;
+            logger.error("The batch of reviews is not valid", e);
+            result = getOperationResultInvalidField(RESOURCE_MESSAGE, e);
+        }
+
+        logger.debug("Returning the operation result after adding a batch of reviews: {}", result);
+        return Response
+                .status(status)
+                .entity(OperationResultJsonWriter.toJson(result))
+                .build();
+    }
+
     @PUT
     @Path("/{id}")
-    public Response update(@PathParam("id") Long id, String body)
+    public void update(@PathParam("id") Long id, String body, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> update(id, body));
+    }
+
+    private Response update(Long id, String body)
     {
         logger.debug("Updating the review {} with body {}", id, body);
         //Create Review object from json
@@ -151,7 +392,8 @@ public class ReviewResource
         OperationResult result;
         try
         {
-            //Update review
+            //Check the version read by the client, if it sent one, and update review
+            applyWriteConditions(review);
             reviewService.update(review);
             //Set result to success
             result = OperationResult.success();
@@ -181,6 +423,12 @@ public class ReviewResource
             status = Response.Status.NOT_FOUND;
             logger.error("No user found for review", e);
             result = getOperationResultDependencyNotFound(RESOURCE_MESSAGE, "user");
+        } catch (EntityVersionConflictException e)
+        {
+            //set status to precondition failed if the review was changed since the client read it
+            status = Response.Status.PRECONDITION_FAILED;
+            logger.error("The review was changed since the client read it", e);
+            result = getOperationResultVersionConflict(RESOURCE_MESSAGE);
         }
 
         logger.debug("Returning the operation result after updating review: {}", result);
@@ -193,7 +441,12 @@ public class ReviewResource
 
     @DELETE
     @Path("/{id}")
-    public Response delete(@PathParam("id") Long id)
+    public void delete(@PathParam("id") Long id, @Suspended AsyncResponse asyncResponse)
+    {
+        endpointExecutors.getWrites().resume(asyncResponse, RESOURCE_MESSAGE, () -> delete(id));
+    }
+
+    private Response delete(Long id)
     {
         logger.debug("Deleting review with id", id);
 
@@ -219,4 +472,55 @@ public class ReviewResource
                 .entity(OperationResultJsonWriter.toJson(result))
                 .build();
     }
+
+    //the review is shown with its user and course, they are versioned separately
+    private ConditionalRequest getConditionalRequest(Review review)
+    {
+        return ConditionalRequest.forEntity(request,
+                dataVersionService.getDataVersion(Review.class, User.class, Course.class),
+                review.getVersion(), review.getUser().getVersion(), review.getCourse().getVersion());
+    }
+
+    //With If-Match the review is updated only if it is still the version the client read,
+    //a change between this check and the update makes the update fail
+    private void applyWriteConditions(Review review)
+    {
+        if (!ConditionalRequest.hasWriteConditions(httpHeaders))
+        {
+            return;
+        }
+
+        Review currentReview = reviewService.findById(review.getId());
+        if (getConditionalRequest(currentReview).evaluate() != null)
+        {
+            throw new EntityVersionConflictException();
+        }
+        review.setVersion(currentReview.getVersion());
+    }
+
+    private static JsonObject getJsonElementWithTrackingId(String trackingId)
+    {
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("trackingId", trackingId);
+        return jsonObject;
+    }
+
+    //same errors as when a single review is added
+    private OperationResult getOperationResultOfBatchError(RuntimeException e)
+    {
+        if (e instanceof CourseNotFoundException)
+        {
+            return getOperationResultDependencyNotFound(RESOURCE_MESSAGE, "course");
+        }
+        if (e instanceof UserNotFoundException)
+        {
+            return getOperationResultDependencyNotFound(RESOURCE_MESSAGE, "user");
+        }
+        if (e instanceof FieldInvalidException)
+        {
+            return getOperationResultInvalidField(RESOURCE_MESSAGE, (FieldInvalidException) e);
+        }
+        //a review of the ingestion log that does not convert or violates a constraint of the database
+        return OperationResult.error(RESOURCE_MESSAGE.getKeyOfInvalidField("body"), e.getMessage());
+    }
 }
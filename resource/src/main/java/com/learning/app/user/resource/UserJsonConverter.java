@@ -4,11 +4,14 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 import com.learning.app.common.json.EntityJsonConverter;
 import com.learning.app.common.json.JsonReader;
 import com.learning.app.user.model.User;
+import com.learning.app.user.model.projection.UserRow;
 
 import javax.enterprise.context.ApplicationScoped;
+import java.io.IOException;
 
 @ApplicationScoped
 public class UserJsonConverter implements EntityJsonConverter<User>
@@ -44,4 +47,28 @@ public class UserJsonConverter implements EntityJsonConverter<User>
 
         return jsonObject;
     }
+
+    @Override
+    public void writeTo(JsonWriter jsonWriter, User user) throws IOException
+    {
+        writeRowTo(jsonWriter, new UserRow(user));
+    }
+
+    public void writeRowTo(JsonWriter jsonWriter, UserRow user) throws IOException
+    {
+        jsonWriter.beginObject();
+        jsonWriter.name("id").value(user.getId());
+        jsonWriter.name("name").value(user.getName());
+        jsonWriter.name("email").value(user.getEmail());
+        jsonWriter.name("createdAt").value(user.getCreatedAt().format(DATE_FORMATTER));
+
+        jsonWriter.name("roles").beginArray();
+        for (User.Role role : user.getRoles())
+        {
+            jsonWriter.value(role.toString());
+        }
+        jsonWriter.endArray();
+
+        jsonWriter.endObject();
+    }
 }
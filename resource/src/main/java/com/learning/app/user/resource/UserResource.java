@@ -13,6 +13,7 @@ import com.learning.app.common.model.ResourceMessage;
 import com.learning.app.user.exception.UserNotFoundException;
 import com.learning.app.user.model.User;
 import com.learning.app.user.model.filter.UserFilter;
+import com.learning.app.user.model.projection.UserRow;
 import com.learning.app.user.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -235,17 +236,29 @@ public class UserResource
         logger.debug("Finding users using filter: {}", userFilter);
 
         //Create a paginated user list filtered using the uri parameters
-        PaginatedData<User> users = userService.findByFilter(userFilter);
+        PaginatedData<UserRow> users;
+        try
+        {
+            users = userService.findByFilter(userFilter);
+        } catch (FieldInvalidException e)
+        {
+            //If a filter parameter, like the cursor, is invalid, set response status to Bad Request
+            logger.error("One of the filter parameters is not valid", e);
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .entity(OperationResultJsonWriter.toJson(getOperationResultInvalidField(RESOURCE_MESSAGE, e)))
+                    .build();
+        }
 
         logger.debug("Found {} users", users.getNumberOfRows());
 
         //Convert paginated user list to json
-        JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(users,
-                userJsonConverter);
+        StreamingOutput jsonWithPagingAndEntries = JsonUtils.getStreamingOutputWithPagingAndEntries(users,
+                userJsonConverter::writeRowTo);
 
         return Response
                 .status(Response.Status.OK)
-                .entity(JsonWriter.writeToString(jsonWithPagingAndEntries))
+                .entity(jsonWithPagingAndEntries)
                 .build();
     }
 
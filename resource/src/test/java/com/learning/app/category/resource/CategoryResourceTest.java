@@ -4,15 +4,23 @@ import com.learning.app.category.exception.CategoryNotFoundException;
 import com.learning.app.category.model.Category;
 import com.learning.app.category.service.CategoryService;
 import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.model.DataVersion;
+import com.learning.app.common.service.DataVersionService;
 import com.learning.app.commontests.utils.ResourceDefinitions;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 
 import static com.learning.app.commontests.data.CategoryData.categoryWithId;
 import static com.learning.app.commontests.utils.FileTestNameUtils.getPathFileRequest;
@@ -28,10 +36,21 @@ public class CategoryResourceTest
     private CategoryResource categoryResource;
 
     private static final String PATH_RESOURCE = ResourceDefinitions.CATEGORY.getResourceName();
+    private static final String DATA_TAG = "15f2a6c5b00-3";
+    private static final long LAST_MODIFIED = 1_500_000_000_000L;
 
     @Mock
     private CategoryService categoryService;
 
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private Request request;
+
+    @Mock
+    private HttpHeaders httpHeaders;
+
     @Before
     public void setUp()
     {
@@ -40,6 +59,11 @@ public class CategoryResourceTest
 
         categoryResource.categoryService = categoryService;
         categoryResource.categoryJsonConverter = new CategoryJsonConverter();
+        categoryResource.dataVersionService = dataVersionService;
+        categoryResource.request = request;
+        categoryResource.httpHeaders = httpHeaders;
+        when(dataVersionService.getDataVersion(Matchers.<Class<?>>anyVararg()))
+                .thenReturn(new DataVersion(DATA_TAG, LAST_MODIFIED));
     }
 
     @Test
@@ -142,7 +166,7 @@ public class CategoryResourceTest
 
         //Assert response status is OK and response entity contains empty list
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
-        assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE, "emptyListOfCategories.json"));
+        assertJsonMatchesFileContent(getEntityAsString(response), getPathFileResponse(PATH_RESOURCE, "emptyListOfCategories.json"));
     }
 
     @Test
@@ -159,7 +183,7 @@ public class CategoryResourceTest
 
         //Assert response status is OK and response entity contains correct category data
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
-        assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE, "twoCategories.json"));
+        assertJsonMatchesFileContent(getEntityAsString(response), getPathFileResponse(PATH_RESOURCE, "twoCategories.json"));
     }
 
     @Test
@@ -186,4 +210,88 @@ public class CategoryResourceTest
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
         assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE, "categoryNotFound.json"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findAllWithCurrentVersion_ShouldReturnNotModified() {
+        //Set up the request to match the version of the categories
+        when(request.evaluatePreconditions(any(Date.class), eq(new EntityTag(DATA_TAG))))
+                .thenReturn(Response.notModified());
+
+        Response response = categoryResource.findAll();
+
+        //Assert status is Not Modified with the validators, and the categories are not read
+        assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_MODIFIED.getStatusCode())));
+        assertThat(response.getEntityTag(), is(equalTo(new EntityTag(DATA_TAG))));
+        verify(categoryService, never()).findAll();
+    }
+
+    @Test
+    public void findAll_ShouldReturnValidators() {
+        when(categoryService.findAll()).thenReturn(new ArrayList<>());
+
+        Response response = categoryResource.findAll();
+
+        //Assert the version of the categories is returned as ETag and Last-Modified
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertThat(response.getEntityTag(), is(equalTo(new EntityTag(DATA_TAG))));
+        assertThat(response.getLastModified(), is(equalTo(new Date(LAST_MODIFIED))));
+    }
+
+    @Test
+    public void findCategoryWithCurrentVersion_ShouldReturnNotModified() {
+        Category category = categoryWithId("Coding", 1L);
+        category.setVersion(2L);
+        when(categoryService.findById(1L)).thenReturn(category);
+        when(request.evaluatePreconditions(any(Date.class), eq(new EntityTag("2"))))
+                .thenReturn(Response.notModified());
+
+        Response response = categoryResource.findById(1L);
+
+        //Assert status is Not Modified and no category is returned
+        assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_MODIFIED.getStatusCode())));
+        assertThat(response.hasEntity(), is(false));
+    }
+
+    @Test
+    public void updateCategoryFromCurrentVersion_ShouldUpdateThatVersion() {
+        //Set up the request with If-Match, its version is the current one
+        Category currentCategory = categoryWithId("Coding", 1L);
+        currentCategory.setVersion(2L);
+        when(categoryService.findById(1L)).thenReturn(currentCategory);
+        when(httpHeaders.getHeaderString(HttpHeaders.IF_MATCH)).thenReturn("\"2\"");
+
+        Response response = categoryResource.update(1L,
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "category.json")));
+
+        //Assert the category is updated from the version of the client
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        verify(categoryService).update(argThat(new ArgumentMatcher<Category>()
+        {
+            @Override
+            public boolean matches(Object argument)
+            {
+                return Long.valueOf(2L).equals(((Category) argument).getVersion());
+            }
+        }));
+    }
+
+    @Test
+    public void updateCategoryFromOutdatedVersion_ShouldReturnPreconditionFailed() {
+        Category currentCategory = categoryWithId("Coding", 1L);
+        currentCategory.setVersion(3L);
+        when(categoryService.findById(1L)).thenReturn(currentCategory);
+        when(httpHeaders.getHeaderString(HttpHeaders.IF_MATCH)).thenReturn("\"2\"");
+        when(request.evaluatePreconditions(any(Date.class), eq(new EntityTag("3"))))
+                .thenReturn(Response.status(Response.Status.PRECONDITION_FAILED));
+
+        Response response = categoryResource.update(1L,
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "category.json")));
+
+        //Assert status is Precondition Failed and the category is not updated
+        assertThat(response.getStatus(), is(equalTo(Response.Status.PRECONDITION_FAILED.getStatusCode())));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(),
+                "{\"errorIdentification\": \"category.versionConflict\", "
+                        + "\"errorDescription\": \"The category was changed since it was read\"}");
+        verify(categoryService, never()).update(any(Category.class));
+    }
+}
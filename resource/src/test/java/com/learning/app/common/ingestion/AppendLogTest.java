@@ -0,0 +1,192 @@
+package com.learning.app.common.ingestion;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+public class AppendLogTest
+{
+    private static final int SEGMENT_BYTES = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AppendLog appendLog;
+
+    @After
+    public void tearDown() throws IOException
+    {
+        appendLog.close();
+    }
+
+    @Test
+    public void append_ShouldReturnConsecutiveSequencesReadInOrder() throws Exception
+    {
+        appendLog = open(1);
+
+        assertThat(appendLog.append(payload("first")), is(equalTo(1L)));
+        assertThat(appendLog.append(payload("second")), is(equalTo(2L)));
+        assertThat(appendLog.append(payload("third")), is(equalTo(3L)));
+
+        assertThat(readPayloads(0, 10), is(equalTo(asList("first", "second", "third"))));
+        assertThat(readPayloads(1, 1), is(equalTo(asList("second"))));
+        assertThat(appendLog.getDurableSequence(), is(equalTo(3L)));
+        assertThat(appendLog.getAppendedAt(2), is(not(equalTo(-1L))));
+        assertThat(appendLog.getAppendedAt(4), is(equalTo(-1L)));
+    }
+
+    @Test
+    public void reopen_ShouldRecoverRecordsAndContinueSequences() throws Exception
+    {
+        appendLog = open(1);
+        appendLog.append(payload("first"));
+        appendLog.append(payload("second"));
+        appendLog.close();
+
+        appendLog = open(1);
+
+        assertThat(readPayloads(0, 10), is(equalTo(asList("first", "second"))));
+        assertThat(appendLog.append(payload("third")), is(equalTo(3L)));
+    }
+
+    @Test
+    public void reopen_ShouldKeepLogIdOfDirectory() throws Exception
+    {
+        appendLog = open(1);
+        String logId = appendLog.getLogId();
+        appendLog.close();
+
+        appendLog = open(1);
+
+        assertThat(appendLog.getLogId(), is(equalTo(logId)));
+        assertThat(AppendLog.openLogId(folder.newFolder().toPath()), is(not(equalTo(logId))));
+    }
+
+    @Test
+    public void reopenAfterIncompleteRecord_ShouldEndLogBeforeIt() throws Exception
+    {
+        appendLog = open(1);
+        appendLog.append(payload("first"));
+        appendLog.append(payload("second"));
+        appendLog.close();
+        //a crash wrote the length of the second record but not all of its payload
+        corruptByte(findSegments().get(0), AppendLog.HEADER_BYTES + "first".length() + AppendLog.HEADER_BYTES + 2);
+
+        appendLog = open(1);
+
+        assertThat(readPayloads(0, 10), is(equalTo(asList("first"))));
+        assertThat(appendLog.append(payload("other")), is(equalTo(2L)));
+        appendLog.close();
+        appendLog = open(1);
+        assertThat(readPayloads(0, 10), is(equalTo(asList("first", "other"))));
+    }
+
+    @Test
+    public void appendOverSegmentSize_ShouldRollToNewSegmentAndReleaseDrainedSegments() throws Exception
+    {
+        appendLog = open(1);
+        for (int i = 0; i < 30; i++)
+        {
+            appendLog.append(payload(String.format("review %60d", i)));
+        }
+        assertThat(findSegments().size(), is(equalTo(3)));
+        assertThat(readPayloads(0, 30).size(), is(equalTo(30)));
+
+        appendLog.release(20);
+
+        assertThat(findSegments().size(), is(equalTo(2)));
+        assertThat(readPayloads(20, 30).size(), is(equalTo(10)));
+        assertThat(readPayloads(20, 1), is(equalTo(asList(String.format("review %60d", 20)))));
+    }
+
+    @Test
+    public void openWithMinimumNextSequence_ShouldNotNumberSequencesAgain() throws Exception
+    {
+        appendLog = open(1);
+        appendLog.append(payload("first"));
+        appendLog.close();
+
+        appendLog = open(10);
+
+        assertThat(appendLog.append(payload("tenth")), is(equalTo(10L)));
+        assertThat(readPayloads(0, 10), is(equalTo(asList("first", "tenth"))));
+    }
+
+    @Test
+    public void concurrentAppends_ShouldAllBeDurableWithDistinctSequences() throws Exception
+    {
+        appendLog = open(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<Long>> sequences = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            String review = "review " + i;
+            sequences.add(executorService.submit(() -> appendLog.append(payload(review))));
+        }
+        Set<Long> appendedSequences = new HashSet<>();
+        for (Future<Long> sequence : sequences)
+        {
+            appendedSequences.add(sequence.get());
+        }
+        executorService.shutdown();
+
+        assertThat(appendedSequences.size(), is(equalTo(40)));
+        assertThat(appendLog.getDurableSequence(), is(equalTo(40L)));
+        assertThat(readPayloads(0, 100).size(), is(equalTo(40)));
+    }
+
+    private AppendLog open(long minimumNextSequence) throws IOException
+    {
+        return AppendLog.open(folder.getRoot().toPath(), SEGMENT_BYTES, minimumNextSequence);
+    }
+
+    private List<String> readPayloads(long afterSequence, int maxRecords)
+    {
+        return appendLog.read(afterSequence, maxRecords).stream()
+                .map(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+    }
+
+    private List<Path> findSegments() throws IOException
+    {
+        return Files.list(folder.getRoot().toPath())
+                .filter(path -> path.getFileName().toString().endsWith(".log"))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private void corruptByte(Path segment, int offset) throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw"))
+        {
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+    }
+
+    private static byte[] payload(String value)
+    {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
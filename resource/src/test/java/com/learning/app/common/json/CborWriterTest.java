@@ -0,0 +1,92 @@
+package com.learning.app.common.json;
+
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+public class CborWriterTest
+{
+    private ByteArrayOutputStream outputStream;
+    private CborWriter cborWriter;
+
+    @Before
+    public void setUp()
+    {
+        outputStream = new ByteArrayOutputStream();
+        cborWriter = new CborWriter(outputStream);
+    }
+
+    @Test
+    public void writeObject_ShouldEncodeValuesAndLeaveOutNullProperties() throws IOException
+    {
+        cborWriter.beginObject();
+        cborWriter.name("a").value(1);
+        cborWriter.name("neg").value(-500);
+        cborWriter.name("ok").value(true);
+        cborWriter.name("none").nullValue();
+        cborWriter.name("list").beginArray().value(24).value("é").endArray();
+        cborWriter.endObject();
+        cborWriter.flush();
+
+        assertThat(getHex(), is(equalTo("bf" + "6161" + "01"
+                + "636e6567" + "3901f3"
+                + "626f6b" + "f5"
+                + "646c697374" + "9f" + "1818" + "62c3a9" + "ff"
+                + "ff")));
+    }
+
+    @Test
+    public void writeDouble_ShouldEncodeDoublePrecisionFloat() throws IOException
+    {
+        cborWriter.value(1.5);
+        cborWriter.flush();
+
+        assertThat(getHex(), is(equalTo("fb3ff8000000000000")));
+    }
+
+    @Test
+    public void writeParsedJson_ShouldEncodeIntegersAsIntegers() throws IOException
+    {
+        JsonWriter.writeElement(new JsonParser().parse("{\"n\": 10, \"d\": 2.5, \"big\": 4294967296}"), cborWriter);
+        cborWriter.flush();
+
+        assertThat(getHex(), is(equalTo("bf" + "616e" + "0a"
+                + "6164" + "fb4004000000000000"
+                + "63626967" + "1b0000000100000000"
+                + "ff")));
+    }
+
+    @Test
+    public void writeTextLargerThanBuffer_ShouldWriteWholeText() throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10_000; i++)
+        {
+            text.append('x');
+        }
+
+        cborWriter.beginArray().value(text.toString()).endArray();
+        cborWriter.flush();
+
+        byte[] bytes = outputStream.toByteArray();
+        assertThat(bytes.length, is(equalTo(1 + 3 + 10_000 + 1)));
+        assertThat(bytes[1] & 0xff, is(equalTo(0x79)));
+        assertThat(bytes[bytes.length - 1] & 0xff, is(equalTo(0xff)));
+    }
+
+    private String getHex()
+    {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : outputStream.toByteArray())
+        {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
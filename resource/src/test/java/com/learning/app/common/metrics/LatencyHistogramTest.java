@@ -0,0 +1,71 @@
+package com.learning.app.common.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest
+{
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp()
+    {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void getQuantileWithoutValues_ShouldReturn0()
+    {
+        assertThat(histogram.getQuantile(0.99), is(equalTo(0L)));
+    }
+
+    @Test
+    public void getQuantileOfSmallValues_ShouldBeExact()
+    {
+        for (long value = 1; value <= 50; value++)
+        {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getQuantile(0.5), is(equalTo(25L)));
+        assertThat(histogram.getQuantile(1.0), is(equalTo(50L)));
+        assertThat(histogram.getCount(), is(equalTo(50L)));
+        assertThat(histogram.getTotalMicros(), is(equalTo(1275L)));
+    }
+
+    @Test
+    public void getQuantileOfLargeValues_ShouldBeWithin4Percent()
+    {
+        for (long value = 1; value <= 100_000; value++)
+        {
+            histogram.record(value * 10);
+        }
+
+        assertWithin4Percent(histogram.getQuantile(0.5), 500_000);
+        assertWithin4Percent(histogram.getQuantile(0.99), 990_000);
+        assertWithin4Percent(histogram.getQuantile(0.999), 999_000);
+    }
+
+    @Test
+    public void bucketHighestValue_ShouldBelongToBucket()
+    {
+        for (long value : new long[]{0, 31, 32, 63, 64, 65, 1_000, 123_456_789, Long.MAX_VALUE})
+        {
+            int index = LatencyHistogram.getBucketIndex(value);
+            long highestValue = LatencyHistogram.getBucketHighestValue(index);
+
+            assertTrue(highestValue >= value || index == LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+            assertThat(LatencyHistogram.getBucketIndex(highestValue), is(equalTo(index)));
+        }
+    }
+
+    private static void assertWithin4Percent(long actual, long expected)
+    {
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected * 0.04);
+    }
+}
@@ -0,0 +1,134 @@
+package com.learning.app.common.metrics;
+
+import com.learning.app.course.resource.CourseResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RequestMetricsFilterTest
+{
+    private RequestMetricsFilter requestMetricsFilter;
+    private RequestMetrics requestMetrics;
+    private ContainerRequestContext requestContext;
+    private ContainerResponseContext responseContext;
+    private Map<String, Object> properties;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        requestMetrics = new RequestMetrics();
+        ResourceInfo resourceInfo = mock(ResourceInfo.class);
+        doReturn(CourseResource.class).when(resourceInfo).getResourceClass();
+        when(resourceInfo.getResourceMethod())
+                .thenReturn(CourseResource.class.getMethod("findById", Long.class, AsyncResponse.class));
+
+        requestMetricsFilter = new RequestMetricsFilter();
+        requestMetricsFilter.requestMetrics = requestMetrics;
+        requestMetricsFilter.resourceInfo = resourceInfo;
+
+        //request properties are shared by the filters and the writer interceptor
+        properties = new HashMap<>();
+        requestContext = mock(ContainerRequestContext.class);
+        when(requestContext.getMethod()).thenReturn("GET");
+        doAnswer(invocation -> properties.put((String) invocation.getArguments()[0],
+                invocation.getArguments()[1])).when(requestContext).setProperty(anyString(), anyObject());
+        when(requestContext.getProperty(anyString()))
+                .thenAnswer(invocation -> properties.get((String) invocation.getArguments()[0]));
+
+        responseContext = mock(ContainerResponseContext.class);
+    }
+
+    @Test
+    public void responseWithoutEntity_ShouldBeRecordedByResponseFilter() throws Exception
+    {
+        when(responseContext.getStatus()).thenReturn(404);
+        when(responseContext.hasEntity()).thenReturn(false);
+
+        requestMetricsFilter.filter(requestContext);
+        requestMetricsFilter.filter(requestContext, responseContext);
+
+        EndpointMetrics endpoint = requestMetrics.getEndpoint("GET", "/courses/{id}");
+        assertThat(endpoint.getRequestsByStatus().get(404).sum(), is(equalTo(1L)));
+        assertThat(endpoint.getLatency().getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void responseWithEntity_ShouldBeRecordedAfterEntityIsWritten() throws Exception
+    {
+        when(responseContext.getStatus()).thenReturn(200);
+        when(responseContext.hasEntity()).thenReturn(true);
+
+        requestMetricsFilter.filter(requestContext);
+        requestMetricsFilter.filter(requestContext, responseContext);
+
+        EndpointMetrics endpoint = requestMetrics.getEndpoint("GET", "/courses/{id}");
+        assertThat(endpoint.getLatency().getCount(), is(equalTo(0L)));
+
+        requestMetricsFilter.aroundWriteTo(getWriterInterceptorContext());
+
+        assertThat(endpoint.getRequestsByStatus().get(200).sum(), is(equalTo(1L)));
+        assertThat(endpoint.getLatency().getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void writePrometheusText_ShouldWriteCountersAndQuantiles() throws Exception
+    {
+        requestMetrics.getEndpoint("GET", "/courses/{id}").record(200, 2_000_000);
+        requestMetrics.getEndpoint("GET", "/courses/{id}").record(500, 2_000_000);
+
+        StringWriter writer = new StringWriter();
+        requestMetrics.writePrometheusText(writer);
+        String text = writer.toString();
+
+        assertThat(text, containsString("# TYPE http_requests_total counter\n"));
+        assertThat(text, containsString("http_requests_total{method=\"GET\",path=\"/courses/{id}\",status=\"200\"} 1\n"));
+        assertThat(text, containsString("http_requests_total{method=\"GET\",path=\"/courses/{id}\",status=\"500\"} 1\n"));
+        assertThat(text, containsString("# TYPE http_request_duration_seconds summary\n"));
+        assertThat(text, containsString("http_request_duration_seconds{method=\"GET\",path=\"/courses/{id}\","
+                + "quantile=\"0.99\"} 0.002015\n"));
+        assertThat(text, containsString("http_request_duration_seconds_count{method=\"GET\",path=\"/courses/{id}\"} 2\n"));
+    }
+
+    @Test
+    public void writePrometheusText_ShouldWriteDatabaseWorkOfRecordedRequests() throws Exception
+    {
+        when(responseContext.getStatus()).thenReturn(204);
+        when(responseContext.hasEntity()).thenReturn(false);
+
+        requestMetricsFilter.filter(requestContext);
+        requestMetricsFilter.filter(requestContext, responseContext);
+
+        StringWriter writer = new StringWriter();
+        requestMetrics.writePrometheusText(writer);
+        String text = writer.toString();
+
+        assertThat(text, containsString("# TYPE http_request_db_statements_total counter\n"));
+        assertThat(text, containsString("http_request_db_statements_total{method=\"GET\",path=\"/courses/{id}\"} 0\n"));
+        assertThat(text, containsString("http_request_db_entities_loaded_total{method=\"GET\",path=\"/courses/{id}\"} 0\n"));
+        assertThat(text, containsString("http_request_repository_seconds_total{method=\"GET\",path=\"/courses/{id}\"} 0.0\n"));
+    }
+
+    private WriterInterceptorContext getWriterInterceptorContext() throws IOException
+    {
+        WriterInterceptorContext context = mock(WriterInterceptorContext.class);
+        when(context.getProperty(anyString()))
+                .thenAnswer(invocation -> properties.get((String) invocation.getArguments()[0]));
+        doAnswer(invocation -> properties.remove((String) invocation.getArguments()[0]))
+                .when(context).removeProperty(anyString());
+        return context;
+    }
+}
@@ -0,0 +1,145 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.model.ResourceMessage;
+import com.learning.app.common.repository.ReplicaRouting;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class EndpointExecutorTest
+{
+    private static final ResourceMessage RESOURCE_MESSAGE = new ResourceMessage("course");
+
+    private AsyncResponse asyncResponse;
+    private List<Runnable> queuedTasks;
+
+    @Before
+    public void setUp()
+    {
+        asyncResponse = mock(AsyncResponse.class);
+        queuedTasks = new ArrayList<>();
+    }
+
+    @Test
+    public void resume_ShouldResumeWithResponseOfTask()
+    {
+        EndpointExecutor endpointExecutor = new EndpointExecutor("reads", Runnable::run, 1_000, 5);
+        Response response = Response.ok().build();
+
+        endpointExecutor.resume(asyncResponse, RESOURCE_MESSAGE, () -> response);
+
+        verify(asyncResponse).setTimeout(1_000, TimeUnit.MILLISECONDS);
+        verify(asyncResponse).resume(response);
+    }
+
+    @Test
+    public void resumeTaskThrowing_ShouldResumeWithException()
+    {
+        EndpointExecutor endpointExecutor = new EndpointExecutor("reads", Runnable::run, 1_000, 5);
+        IllegalStateException exception = new IllegalStateException();
+
+        endpointExecutor.resume(asyncResponse, RESOURCE_MESSAGE, () -> {
+            throw exception;
+        });
+
+        verify(asyncResponse).resume(exception);
+    }
+
+    @Test
+    public void resumeOnFullPool_ShouldReturnServiceUnavailable()
+    {
+        EndpointExecutor endpointExecutor = new EndpointExecutor("writes", task -> {
+            throw new RejectedExecutionException();
+        }, 1_000, 5);
+
+        endpointExecutor.resume(asyncResponse, RESOURCE_MESSAGE, () -> Response.ok().build());
+
+        assertServiceUnavailable(getResumedResponse());
+        assertThat(endpointExecutor.getRejections(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void resumeTimedOut_ShouldReturnServiceUnavailableAndNotRunTask()
+    {
+        EndpointExecutor endpointExecutor = new EndpointExecutor("reads", queuedTasks::add, 1_000, 5);
+        endpointExecutor.resume(asyncResponse, RESOURCE_MESSAGE, () -> Response.ok().build());
+
+        ArgumentCaptor<TimeoutHandler> timeoutHandler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(asyncResponse).setTimeoutHandler(timeoutHandler.capture());
+        timeoutHandler.getValue().handleTimeout(asyncResponse);
+        //the pool takes the task from its queue after the timeout
+        queuedTasks.get(0).run();
+
+        assertServiceUnavailable(getResumedResponse());
+        assertThat(endpointExecutor.getTimeouts(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void resumeTimedOutWhileRunning_ShouldWaitForResponseOfTask()
+    {
+        EndpointExecutor endpointExecutor = new EndpointExecutor("writes", queuedTasks::add, 1_000, 5);
+        when(asyncResponse.isSuspended()).thenReturn(true);
+        ArgumentCaptor<TimeoutHandler> timeoutHandler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        Response response = Response.ok().build();
+
+        endpointExecutor.resume(asyncResponse, RESOURCE_MESSAGE, () -> {
+            //the request times out while the write is running
+            timeoutHandler.getValue().handleTimeout(asyncResponse);
+            return response;
+        });
+        verify(asyncResponse).setTimeoutHandler(timeoutHandler.capture());
+        queuedTasks.get(0).run();
+
+        assertThat(getResumedResponse(), is(sameInstance(response)));
+        verify(asyncResponse, times(2)).setTimeout(1_000, TimeUnit.MILLISECONDS);
+        assertThat(endpointExecutor.getTimeouts(), is(equalTo(0L)));
+        assertThat(endpointExecutor.getOverruns(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void resumeOfReadOnlyRequest_ShouldRunTaskAsReadOnlyRequest() throws Exception
+    {
+        EndpointExecutor endpointExecutor = new EndpointExecutor("reads", queuedTasks::add, 1_000, 5);
+        List<Long> readOnlyRequests = new ArrayList<>();
+
+        ReplicaRouting.setReadOnlyRequest(42L);
+        endpointExecutor.resume(asyncResponse, RESOURCE_MESSAGE, () -> {
+            readOnlyRequests.add(ReplicaRouting.getReadOnlyRequest());
+            return Response.ok().build();
+        });
+        ReplicaRouting.setReadOnlyRequest(null);
+        Thread poolThread = new Thread(queuedTasks.get(0));
+        poolThread.start();
+        poolThread.join();
+
+        assertThat(readOnlyRequests, is(equalTo(Collections.singletonList(42L))));
+    }
+
+    private Response getResumedResponse()
+    {
+        ArgumentCaptor<Object> response = ArgumentCaptor.forClass(Object.class);
+        verify(asyncResponse).resume(response.capture());
+        return (Response) response.getValue();
+    }
+
+    private static void assertServiceUnavailable(Response response)
+    {
+        assertThat(response.getStatus(), is(equalTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode())));
+        assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER), is(equalTo("5")));
+        assertThat(response.getEntity().toString(), containsString("course.unavailable"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.repository.ReplicaRouting;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingFilterTest
+{
+    private ReplicaRoutingFilter replicaRoutingFilter;
+    private ContainerRequestContext requestContext;
+    private ContainerResponseContext responseContext;
+    private MultivaluedMap<String, Object> responseHeaders;
+
+    @Before
+    public void setUp()
+    {
+        replicaRoutingFilter = new ReplicaRoutingFilter();
+        requestContext = mock(ContainerRequestContext.class);
+        responseContext = mock(ContainerResponseContext.class);
+        responseHeaders = new MultivaluedHashMap<>();
+        when(responseContext.getHeaders()).thenReturn(responseHeaders);
+    }
+
+    @After
+    public void tearDown()
+    {
+        ReplicaRouting.setReadOnlyRequest(null);
+    }
+
+    @Test
+    public void getWithSessionToken_ShouldBeReadOnlyRequestAfterWriteOfToken()
+    {
+        when(requestContext.getMethod()).thenReturn("GET");
+        when(requestContext.getHeaderString(ReplicaRoutingFilter.SESSION_TOKEN_HEADER))
+                .thenReturn(ReplicaRoutingFilter.createSessionToken(1_000L));
+
+        replicaRoutingFilter.filter(requestContext);
+
+        assertThat(ReplicaRouting.getReadOnlyRequest(), is(equalTo(1_000L)));
+    }
+
+    @Test
+    public void successfulWrite_ShouldReturnSessionTokenAndNotBeReadOnly()
+    {
+        when(requestContext.getMethod()).thenReturn("POST");
+        when(responseContext.getStatusInfo()).thenReturn(Response.Status.CREATED);
+        long beforeWrite = System.currentTimeMillis();
+
+        replicaRoutingFilter.filter(requestContext);
+        assertThat(ReplicaRouting.getReadOnlyRequest(), is(nullValue()));
+        replicaRoutingFilter.filter(requestContext, responseContext);
+
+        String sessionToken = (String) responseHeaders.getFirst(ReplicaRoutingFilter.SESSION_TOKEN_HEADER);
+        assertThat(ReplicaRoutingFilter.parseSessionToken(sessionToken) >= beforeWrite, is(true));
+    }
+
+    @Test
+    public void failedWrite_ShouldNotReturnSessionToken()
+    {
+        when(requestContext.getMethod()).thenReturn("PUT");
+        when(responseContext.getStatusInfo()).thenReturn(Response.Status.CONFLICT);
+
+        replicaRoutingFilter.filter(requestContext);
+        replicaRoutingFilter.filter(requestContext, responseContext);
+
+        assertThat(responseHeaders.containsKey(ReplicaRoutingFilter.SESSION_TOKEN_HEADER), is(false));
+    }
+
+    @Test
+    public void unreadableSessionToken_ShouldBeTakenAsWriteJustDone()
+    {
+        long beforeParse = System.currentTimeMillis();
+
+        assertThat(ReplicaRoutingFilter.parseSessionToken("not a token") >= beforeParse, is(true));
+        assertThat(ReplicaRoutingFilter.parseSessionToken(null), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,168 @@
+package com.learning.app.common.resource;
+
+import com.learning.app.common.model.filter.PaginationData;
+import com.learning.app.course.model.filter.CourseFilter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest
+{
+    private static final String CACHE_NAME = "courses";
+
+    private long now;
+    private ResponseCache responseCache;
+
+    @Before
+    public void setUp()
+    {
+        now = 0;
+        responseCache = new ResponseCache(100, 1000, () -> now);
+    }
+
+    @Test
+    public void getWithEqualFilterAndSameTag_ShouldReturnCachedResponse()
+    {
+        responseCache.put(CACHE_NAME, courseFilter("java", 0), "1-1", json("[1]"));
+
+        byte[] cached = responseCache.get(CACHE_NAME, courseFilter("java", 0), "1-1");
+
+        assertThat(new String(cached, StandardCharsets.UTF_8), is(equalTo("[1]")));
+        assertThat(responseCache.getHits(CACHE_NAME), is(equalTo(1L)));
+        assertThat(responseCache.getMisses(CACHE_NAME), is(equalTo(0L)));
+    }
+
+    @Test
+    public void getWithOtherFilter_ShouldMiss()
+    {
+        responseCache.put(CACHE_NAME, courseFilter("java", 0), "1-1", json("[1]"));
+
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("java", 10), "1-1"), is(nullValue()));
+        assertThat(responseCache.get("reviews", courseFilter("java", 0), "1-1"), is(nullValue()));
+        assertThat(responseCache.getMisses(CACHE_NAME), is(equalTo(1L)));
+    }
+
+    @Test
+    public void getWithOtherTag_ShouldMissAndRemoveOutdatedResponse()
+    {
+        responseCache.put(CACHE_NAME, courseFilter("java", 0), "1-1", json("[1]"));
+
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("java", 0), "1-2"), is(nullValue()));
+        assertThat(responseCache.size(), is(equalTo(0)));
+        assertThat(responseCache.getBytes(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void getAfterTimeToLive_ShouldMissAndRemoveExpiredResponse()
+    {
+        responseCache.put(CACHE_NAME, courseFilter("java", 0), "1-1", json("[1]"));
+        now = 999;
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("java", 0), "1-1"), is(notNullValue()));
+
+        now = 1000;
+
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("java", 0), "1-1"), is(nullValue()));
+        assertThat(responseCache.size(), is(equalTo(0)));
+        assertThat(responseCache.getBytes(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void putOverMaxBytes_ShouldEvictLeastRecentlyUsed()
+    {
+        responseCache.put(CACHE_NAME, courseFilter("a", 0), "1", new byte[40]);
+        responseCache.put(CACHE_NAME, courseFilter("b", 0), "1", new byte[40]);
+        //a is used again, so b is the least recently used
+        responseCache.get(CACHE_NAME, courseFilter("a", 0), "1");
+
+        responseCache.put(CACHE_NAME, courseFilter("c", 0), "1", new byte[40]);
+
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("a", 0), "1"), is(notNullValue()));
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("b", 0), "1"), is(nullValue()));
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("c", 0), "1"), is(notNullValue()));
+        assertThat(responseCache.getEvictions(), is(equalTo(1L)));
+        assertThat(responseCache.getBytes(), is(equalTo(80L)));
+    }
+
+    @Test
+    public void streamAndPut_ShouldStreamResponseAndCacheItOnceWritten() throws Exception
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        responseCache.streamAndPut(CACHE_NAME, courseFilter("java", 0), "1",
+                output -> output.write(json("[1]"))).write(outputStream);
+
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), is(equalTo("[1]")));
+        assertThat(responseCache.get(CACHE_NAME, courseFilter("java", 0), "1"), is(equalTo(json("[1]"))));
+    }
+
+    @Test
+    public void streamAndPutOverMaxEntryBytes_ShouldOnlyStreamResponse() throws Exception
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] chunk = new byte[64 * 1024];
+
+        responseCache.streamAndPut(CACHE_NAME, courseFilter("java", 0), "1", output -> {
+            for (int i = 0; i < 10; i++)
+            {
+                output.write(chunk);
+            }
+        }).write(outputStream);
+
+        assertThat(outputStream.size(), is(equalTo(10 * chunk.length)));
+        assertThat(responseCache.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void streamAndPutFailing_ShouldNotCacheResponse()
+    {
+        try
+        {
+            responseCache.streamAndPut(CACHE_NAME, courseFilter("java", 0), "1", output -> {
+                output.write(json("[1,"));
+                throw new IOException("Connection reset");
+            }).write(new ByteArrayOutputStream());
+            fail("The failure of the stream should be thrown");
+        } catch (IOException e)
+        {
+            assertThat(responseCache.size(), is(equalTo(0)));
+        }
+    }
+
+    @Test
+    public void writePrometheusText_ShouldWriteHitsMissesAndSize() throws Exception
+    {
+        responseCache.put(CACHE_NAME, courseFilter("java", 0), "1", json("[1]"));
+        responseCache.get(CACHE_NAME, courseFilter("java", 0), "1");
+        responseCache.get(CACHE_NAME, courseFilter("java", 10), "1");
+
+        StringWriter writer = new StringWriter();
+        responseCache.writePrometheusText(writer);
+
+        String text = writer.toString();
+        assertThat(text, containsString("http_response_cache_hits_total{cache=\"courses\"} 1\n"));
+        assertThat(text, containsString("http_response_cache_misses_total{cache=\"courses\"} 1\n"));
+        assertThat(text, containsString("http_response_cache_evictions_total 0\n"));
+        assertThat(text, containsString("http_response_cache_bytes 3\n"));
+        assertThat(text, containsString("http_response_cache_entries 1\n"));
+    }
+
+    private static CourseFilter courseFilter(String name, int firstResult)
+    {
+        CourseFilter courseFilter = new CourseFilter();
+        courseFilter.setName(name);
+        courseFilter.setPaginationData(new PaginationData(firstResult, 10, "name", PaginationData.OrderMode.ASCENDING));
+        return courseFilter;
+    }
+
+    private static byte[] json(String json)
+    {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.learning.app.commontests.utils;
+
+import com.learning.app.common.resource.EndpointExecutor;
+import com.learning.app.common.resource.EndpointExecutors;
+import org.junit.Ignore;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.*;
+
+/*
+ * Class to call asynchronous resource methods in tests, their tasks run on the thread of the test
+ */
+
+@Ignore
+public class AsyncResponseTestUtils {
+
+	private AsyncResponseTestUtils() {
+	}
+
+	public static EndpointExecutors sameThreadEndpointExecutors() {
+		EndpointExecutors endpointExecutors = mock(EndpointExecutors.class);
+		when(endpointExecutors.getReads()).thenReturn(new EndpointExecutor(EndpointExecutors.READS, Runnable::run,
+				30_000, 5));
+		when(endpointExecutors.getWrites()).thenReturn(new EndpointExecutor(EndpointExecutors.WRITES, Runnable::run,
+				30_000, 5));
+		return endpointExecutors;
+	}
+
+	//call the resource method and return the response it was resumed with
+	public static Response getResumedResponse(Consumer<AsyncResponse> resourceMethod) {
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		resourceMethod.accept(asyncResponse);
+
+		ArgumentCaptor<Object> response = ArgumentCaptor.forClass(Object.class);
+		verify(asyncResponse).resume(response.capture());
+		return (Response) response.getValue();
+	}
+
+}
@@ -30,6 +30,8 @@ public class FilterExtractorTestUtils
         assertThat(actual.getMaxResults(), is(equalTo(expected.getMaxResults())));
         assertThat(actual.getOrderField(), is(equalTo(expected.getOrderField())));
         assertThat(actual.getOrderMode(), is(equalTo(expected.getOrderMode())));
+        assertThat(actual.getCursor(), is(equalTo(expected.getCursor())));
+        assertThat(actual.getCountMode(), is(equalTo(expected.getCountMode())));
     }
 
     //Create MultivaluedMap with parameters and return it when asking for uri parameters
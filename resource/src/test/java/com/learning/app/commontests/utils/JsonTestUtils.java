@@ -7,7 +7,12 @@ import org.junit.Ignore;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.skyscreamer.jsonassert.JSONCompareMode;
 
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 /*
@@ -31,6 +36,30 @@ public class JsonTestUtils {
 		}
 	}
 
+	//Return the response entity as String, streamed entities are written to memory first
+	public static String getEntityAsString(Response response) {
+		Object entity = response.getEntity();
+		if (!(entity instanceof byte[]) && !(entity instanceof StreamingOutput)) {
+			return entity.toString();
+		}
+		return new String(getEntityAsBytes(response), StandardCharsets.UTF_8);
+	}
+
+	//Return the bytes sent for the response entity, e.g. of a binary format
+	public static byte[] getEntityAsBytes(Response response) {
+		Object entity = response.getEntity();
+		if (entity instanceof byte[]) {
+			return (byte[]) entity;
+		}
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try {
+			((StreamingOutput) entity).write(outputStream);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return outputStream.toByteArray();
+	}
+
 	//Check if string is identical to content of json file
 	public static void assertJsonMatchesFileContent(String actualJson, String fileNameWithExpectedJson) {
 		assertJsonMatchesExpectedJson(actualJson, readJsonFile(fileNameWithExpectedJson));
@@ -92,6 +92,53 @@ public class CourseFilterExtractorFromURLTest
         assertThat(courseFilter.getName(), is(equalTo("Java")));
     }
 
+    @Test
+    public void parametersCursorAndPage_ShouldIgnorePageAndKeepCursor() {
+        //uri parameters: page 2, 5 results per page, sort by name descending, cursor of a previous page
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("page", "2");
+        parameters.put("per_page", "5");
+        parameters.put("sort", "-name");
+        parameters.put("cursor", "bmFtZQpmYWxzZQoxCkxlYXJuIEphdmE");
+        setUpUriInfoWithMap(uriInfo, parameters);
+
+        CourseFilterExtractorFromURL extractor = new CourseFilterExtractorFromURL(uriInfo);
+        CourseFilter courseFilter = extractor.getFilter();
+
+        //Assert pagination data starts at the cursor instead of the page: firstResult 0, maxResultsPerPage 5,
+        // orderField name, orderMode Descending
+        assertActualPaginationDataWithExpected(courseFilter.getPaginationData(), new PaginationData(0, 5, "name",
+                PaginationData.OrderMode.DESCENDING, "bmFtZQpmYWxzZQoxCkxlYXJuIEphdmE"));
+    }
+
+    @Test
+    public void parameterCountFalse_ShouldSkipCount() {
+        //uri parameters: count false, everything else default
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("count", "false");
+        setUpUriInfoWithMap(uriInfo, parameters);
+
+        CourseFilter courseFilter = new CourseFilterExtractorFromURL(uriInfo).getFilter();
+
+        //Assert pagination data has default values and count mode none
+        assertActualPaginationDataWithExpected(courseFilter.getPaginationData(), new PaginationData(0, 10, "name",
+                PaginationData.OrderMode.ASCENDING, null, PaginationData.CountMode.NONE));
+    }
+
+    @Test
+    public void parameterCountEstimate_ShouldEstimateCount() {
+        //uri parameters: count estimate, everything else default
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("count", "estimate");
+        setUpUriInfoWithMap(uriInfo, parameters);
+
+        CourseFilter courseFilter = new CourseFilterExtractorFromURL(uriInfo).getFilter();
+
+        //Assert pagination data has default values and count mode estimated
+        assertActualPaginationDataWithExpected(courseFilter.getPaginationData(), new PaginationData(0, 10, "name",
+                PaginationData.OrderMode.ASCENDING, null, PaginationData.CountMode.ESTIMATED));
+    }
+
     //Set up uriInfo with all relevant parameters
     @SuppressWarnings("unchecked")
     private void setUpUriInfo(String page, String perPage, String name, String sort) {
@@ -3,29 +3,50 @@ package com.learning.app.course.resource;
 import com.learning.app.category.exception.CategoryNotFoundException;
 import com.learning.app.category.model.Category;
 import com.learning.app.category.resource.CategoryJsonConverter;
+import com.learning.app.common.model.BatchItemResult;
+import com.learning.app.common.exception.EntityVersionConflictException;
 import com.learning.app.common.exception.FieldInvalidException;
+import com.learning.app.common.json.JsonUtils;
+import com.learning.app.common.model.DataVersion;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.resource.EndpointExecutor;
+import com.learning.app.common.resource.EndpointExecutors;
+import com.learning.app.common.resource.ResponseCache;
+import com.learning.app.common.service.DataVersionService;
 import com.learning.app.course.exception.CourseNotFoundException;
 import com.learning.app.course.model.Course;
 import com.learning.app.course.model.filter.CourseFilter;
+import com.learning.app.course.model.projection.CourseRow;
 import com.learning.app.course.service.CourseService;
 import com.learning.app.commontests.utils.ResourceDefinitions;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.skyscreamer.jsonassert.JSONCompareMode;
 
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static com.learning.app.commontests.data.CategoryData.categoryWithId;
 import static com.learning.app.commontests.data.CourseData.*;
+import static com.learning.app.commontests.utils.AsyncResponseTestUtils.*;
 import static com.learning.app.commontests.utils.FileTestNameUtils.*;
 import static com.learning.app.commontests.utils.JsonTestUtils.*;
 import static com.learning.app.course.model.CourseArgumentMatcher.courseEquivalent;
@@ -39,6 +60,8 @@ public class CourseResourceTest
     private CourseResource courseResource;
 
     private static final String PATH_RESOURCE = ResourceDefinitions.COURSE.getResourceName();
+    private static final String DATA_TAG = "15f2a6c5b00-3-1";
+    private static final long LAST_MODIFIED = 1_500_000_000_000L;
 
     @Mock
     private CourseService courseService;
@@ -46,6 +69,15 @@ public class CourseResourceTest
     @Mock
     private UriInfo uriInfo;
 
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private Request request;
+
+    @Mock
+    private HttpHeaders httpHeaders;
+
     @Before
     public void setUp()
     {
@@ -56,6 +88,13 @@ public class CourseResourceTest
         courseResource.courseJsonConverter = new CourseJsonConverter();
 
         courseResource.uriInfo = uriInfo;
+        courseResource.dataVersionService = dataVersionService;
+        courseResource.request = request;
+        courseResource.httpHeaders = httpHeaders;
+        courseResource.responseCache = new ResponseCache();
+        courseResource.endpointExecutors = sameThreadEndpointExecutors();
+        when(dataVersionService.getDataVersion(Matchers.<Class<?>>anyVararg()))
+                .thenReturn(new DataVersion(DATA_TAG, LAST_MODIFIED));
     }
 
     @Test
@@ -66,7 +105,8 @@ public class CourseResourceTest
         course.setCategory(categoryWithId("Coding", 1L));
         when(courseService.add(course)).thenReturn(courseWithId(learnJava(), 1L));
 
-        Response response = courseResource.add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Created and response entity contains id of created course
         assertThat(response.getStatus(), is(equalTo(Response.Status.CREATED.getStatusCode())));
@@ -79,7 +119,8 @@ public class CourseResourceTest
         //Set up service to throw exception
         when(courseService.add((Course) anyObject())).thenThrow(new FieldInvalidException("name", "may not be null"));
 
-        Response response = courseResource.add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Bad Request and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.BAD_REQUEST.getStatusCode())));
@@ -93,7 +134,8 @@ public class CourseResourceTest
         //Set up service to throw exception
         when(courseService.add((Course) anyObject())).thenThrow(new FieldInvalidException("url", "may not be null"));
 
-        Response response = courseResource.add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Bad Request and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.BAD_REQUEST.getStatusCode())));
@@ -107,8 +149,9 @@ public class CourseResourceTest
         //Set up service to throw exception
         when(courseService.add((Course) anyObject())).thenThrow(new CategoryNotFoundException());
 
-        Response response = courseResource.add(readJsonFile(getPathFileRequest(PATH_RESOURCE,
-                "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE,
+                "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -125,8 +168,9 @@ public class CourseResourceTest
         category.setId(1L);
         expectedCourse.setCategory(category);
 
-        Response response = courseResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
-                "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
+                "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is OK and response entity is empty
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
@@ -141,8 +185,9 @@ public class CourseResourceTest
         //Set up service to throw exception
         doThrow(new FieldInvalidException("name", "may not be null")).when(courseService).update((Course) anyObject());
 
-        Response response = courseResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
-                "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
+                "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Bad Request and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.BAD_REQUEST.getStatusCode())));
@@ -156,8 +201,9 @@ public class CourseResourceTest
         //Set up service to throw exception
         doThrow(new FieldInvalidException("url", "may not be null")).when(courseService).update((Course) anyObject());
 
-        Response response = courseResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
-                "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
+                "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Bad Request and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.BAD_REQUEST.getStatusCode())));
@@ -171,8 +217,9 @@ public class CourseResourceTest
         //Set up service to throw exception
         doThrow(CourseNotFoundException.class).when(courseService).update((Course) anyObject());
 
-        Response response = courseResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
-                "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
+                "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -186,8 +233,9 @@ public class CourseResourceTest
         //Set up service to throw exception
         doThrow(CategoryNotFoundException.class).when(courseService).update((Course) anyObject());
 
-        Response response = courseResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
-                "learnJavaCourse.json")));
+        Response response = getResumedResponse(asyncResponse -> courseResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
+                "learnJavaCourse.json")), asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -203,7 +251,7 @@ public class CourseResourceTest
         course.getCategory().setId(1L);
         when(courseService.findById(1L)).thenReturn(course);
 
-        Response response = courseResource.findById(1L);
+        Response response = getResumedResponse(asyncResponse -> courseResource.findById(1L, asyncResponse));
 
         //Assert response status is OK and response entity contains correct course data
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
@@ -217,7 +265,7 @@ public class CourseResourceTest
         //Set up service to throw exception
         when(courseService.findById(1L)).thenThrow(CourseNotFoundException.class);
 
-        Response response = courseResource.findById(1L);
+        Response response = getResumedResponse(asyncResponse -> courseResource.findById(1L, asyncResponse));
 
         //Assert response status is Not Found
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -235,24 +283,53 @@ public class CourseResourceTest
         }
         //Return paginated list of courses when service is called
         when(courseService.findByFilter((CourseFilter) anyObject()))
-                .thenReturn(new PaginatedData<Course>(courses.size(), courses));
+                .thenReturn(new PaginatedData<CourseRow>(courses.size(), courses.stream().map(CourseRow::new).collect(Collectors.toList())));
 
         //return multimap when asked for query parameters from uri
         MultivaluedMap<String, String> multiMap = mock(MultivaluedMap.class);
         when(uriInfo.getQueryParameters()).thenReturn(multiMap);
 
-        Response response = courseResource.findByFilter();
+        Response response = getResumedResponse(courseResource::findByFilter);
 
         //Assert response status is OK and response entity contains correct course data
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
-        assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE,
+        assertJsonMatchesFileContent(getEntityAsString(response), getPathFileResponse(PATH_RESOURCE,
+                "coursesAllInOnePage.json"));
+    }
+
+    @Test
+    public void search_ShouldReturnRankedCourses() throws Exception
+    {
+        List<Course> courses = courseListWithId();
+        Long categoryId = 1L;
+        for (Course course : courses)
+        {
+            course.getCategory().setId(categoryId++);
+        }
+        when(courseService.search("learn", 20))
+                .thenReturn(courses.stream().map(CourseRow::new).collect(Collectors.toList()));
+
+        Response response = getResumedResponse(asyncResponse -> courseResource.search("learn", 20, asyncResponse));
+
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertJsonMatchesFileContent(getEntityAsString(response), getPathFileResponse(PATH_RESOURCE,
                 "coursesAllInOnePage.json"));
     }
 
+    @Test
+    public void searchWithEmptyQuery_ShouldReturnBadRequest() throws Exception
+    {
+        when(courseService.search(null, 20)).thenThrow(new FieldInvalidException("q", "may not be empty"));
+
+        Response response = getResumedResponse(asyncResponse -> courseResource.search(null, 20, asyncResponse));
+
+        assertThat(response.getStatus(), is(equalTo(Response.Status.BAD_REQUEST.getStatusCode())));
+    }
+
     @Test
     public void deleteValidCourse_ShouldReturnSuccess() throws Exception
     {
-        Response response = courseResource.delete(1L);
+        Response response = getResumedResponse(asyncResponse -> courseResource.delete(1L, asyncResponse));
 
         //Assert response status is OK and response entity is empty
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
@@ -267,11 +344,174 @@ public class CourseResourceTest
         //Throw exception when service is called
         doThrow(CourseNotFoundException.class).when(courseService).deleteById(1L);
 
-        Response response = courseResource.delete(1L);
+        Response response = getResumedResponse(asyncResponse -> courseResource.delete(1L, asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
         assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE,
                 "courseErrorNotFound.json"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addAll_ShouldReturnResultOfEachCourse() throws Exception
+    {
+        when(courseService.addAll(anyObject())).thenAnswer(invocation -> {
+            List<Course> courses = (List<Course>) invocation.getArguments()[0];
+            courses.get(1).setId(7L);
+            return Arrays.asList(BatchItemResult.failure(new CategoryNotFoundException()),
+                    BatchItemResult.success(courses.get(1)));
+        });
+
+        Response response = getResumedResponse(asyncResponse -> courseResource.addAll(
+                "[{\"name\": \"Learn Java\", \"categoryId\": 9},"
+                + "{\"name\": \"Learn Swift\", \"categoryId\": 1}]", asyncResponse));
+
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(), "{\"created\": 1, \"failed\": 1, \"results\": ["
+                + "{\"errorIdentification\": \"course.invalidField.category\", \"errorDescription\": \"Not found\"},"
+                + "{\"id\": 7}]}");
+    }
+
+    @Test
+    public void addAllWithTooManyCourses_ShouldReturnBadRequest() throws Exception
+    {
+        when(courseService.addAll(anyObject())).thenThrow(new FieldInvalidException("items", "Too many items"));
+
+        Response response = getResumedResponse(asyncResponse -> courseResource.addAll(
+                "[{\"name\": \"Learn Java\", \"categoryId\": 1}]", asyncResponse));
+
+        assertThat(response.getStatus(), is(equalTo(Response.Status.BAD_REQUEST.getStatusCode())));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(),
+                "{\"errorIdentification\": \"course.invalidField.items\", \"errorDescription\": \"Too many items\"}");
+    }
+
+    @Test
+    public void findByIdWithCurrentVersion_ShouldReturnNotModified() throws Exception
+    {
+        //Set up service to return a course without rating, the request matches its versions
+        Course course = courseWithId(learnJava(), 1L);
+        course.setVersion(2L);
+        course.getCategory().setVersion(1L);
+        when(courseService.findById(1L)).thenReturn(course);
+        when(request.evaluatePreconditions(Matchers.any(Date.class), eq(new EntityTag("2-1-n"))))
+                .thenReturn(Response.notModified());
+
+        Response response = getResumedResponse(asyncResponse -> courseResource.findById(1L, asyncResponse));
+
+        //Assert response status is Not Modified with the ETag of the course
+        assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_MODIFIED.getStatusCode())));
+        assertThat(response.getEntityTag(), is(equalTo(new EntityTag("2-1-n"))));
+        assertThat(response.hasEntity(), is(false));
+    }
+
+    @Test
+    public void findByFilterWithCurrentVersion_ShouldReturnNotModified() throws Exception
+    {
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(request.evaluatePreconditions(Matchers.any(Date.class), eq(new EntityTag(DATA_TAG))))
+                .thenReturn(Response.notModified());
+
+        Response response = getResumedResponse(courseResource::findByFilter);
+
+        //Assert response status is Not Modified and the courses are not searched
+        assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_MODIFIED.getStatusCode())));
+        verify(courseService, never()).findByFilter(Matchers.any(CourseFilter.class));
+    }
+
+    @Test
+    public void findByFilterAcceptingCbor_ShouldReturnCborWithItsOwnEntityTag() throws Exception
+    {
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(request.selectVariant(Matchers.anyListOf(Variant.class)))
+                .thenReturn(new Variant(MediaType.valueOf(JsonUtils.APPLICATION_CBOR), (String) null, null));
+        when(courseService.findByFilter(Matchers.any(CourseFilter.class)))
+                .thenReturn(new PaginatedData<CourseRow>(0, new ArrayList<>()));
+
+        Response response = getResumedResponse(courseResource::findByFilter);
+
+        //Assert the rows are sent as a CBOR map, with the tag and cache entry of the CBOR format
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertThat(response.getMediaType().toString(), is(equalTo(JsonUtils.APPLICATION_CBOR)));
+        assertThat(response.getEntityTag(), is(equalTo(new EntityTag(DATA_TAG + "-cbor"))));
+        assertThat(response.getHeaderString(HttpHeaders.VARY), is(equalTo(HttpHeaders.ACCEPT)));
+        assertThat(getEntityAsBytes(response)[0] & 0xff, is(equalTo(0xbf)));
+        assertThat(courseResource.responseCache.getMisses("courses-cbor"), is(equalTo(1L)));
+    }
+
+    @Test
+    public void findByFilterTwiceWithSameVersion_ShouldSearchCoursesOnce() throws Exception
+    {
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(courseService.findByFilter(Matchers.any(CourseFilter.class)))
+                .thenReturn(new PaginatedData<CourseRow>(0, new ArrayList<>()));
+
+        //the page is cached once it is written to the client
+        String firstEntity = getEntityAsString(getResumedResponse(courseResource::findByFilter));
+        Response secondResponse = getResumedResponse(courseResource::findByFilter);
+
+        //Assert the second response is the cached one
+        assertThat(secondResponse.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertThat(getEntityAsString(secondResponse), is(equalTo(firstEntity)));
+        verify(courseService, times(1)).findByFilter(Matchers.any(CourseFilter.class));
+    }
+
+    @Test
+    public void findByFilter_ShouldReadDataVersionOnThreadOfPool() throws Exception
+    {
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(courseService.findByFilter(Matchers.any(CourseFilter.class)))
+                .thenReturn(new PaginatedData<CourseRow>(0, new ArrayList<>()));
+        List<Runnable> queuedTasks = new ArrayList<>();
+        when(courseResource.endpointExecutors.getReads()).thenReturn(
+                new EndpointExecutor(EndpointExecutors.READS, queuedTasks::add, 30_000, 5));
+        AsyncResponse asyncResponse = mock(AsyncResponse.class);
+
+        courseResource.findByFilter(asyncResponse);
+
+        //Assert nothing is read from the database before the task runs
+        verify(dataVersionService, never()).getDataVersion(Matchers.<Class<?>>anyVararg());
+        verify(asyncResponse, never()).resume(Matchers.any());
+
+        queuedTasks.forEach(Runnable::run);
+
+        verify(dataVersionService).getDataVersion(Matchers.<Class<?>>anyVararg());
+        verify(asyncResponse).resume(Matchers.any(Response.class));
+    }
+
+    @Test
+    public void findByFilterAfterChange_ShouldSearchCoursesAgain() throws Exception
+    {
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(courseService.findByFilter(Matchers.any(CourseFilter.class)))
+                .thenReturn(new PaginatedData<CourseRow>(0, new ArrayList<>()));
+
+        getEntityAsString(getResumedResponse(courseResource::findByFilter));
+        when(dataVersionService.getDataVersion(Matchers.<Class<?>>anyVararg()))
+                .thenReturn(new DataVersion(DATA_TAG + "-2", LAST_MODIFIED + 1));
+        getResumedResponse(courseResource::findByFilter);
+
+        verify(courseService, times(2)).findByFilter(Matchers.any(CourseFilter.class));
+    }
+
+    @Test
+    public void updateCourseChangedConcurrently_ShouldReturnPreconditionFailed() throws Exception
+    {
+        //Set up service to throw exception, the course was changed after the If-Match check
+        Course currentCourse = courseWithId(learnJava(), 1L);
+        currentCourse.setVersion(2L);
+        when(courseService.findById(1L)).thenReturn(currentCourse);
+        when(httpHeaders.getHeaderString(HttpHeaders.IF_MATCH)).thenReturn("\"2-n-n\"");
+        doThrow(new EntityVersionConflictException()).when(courseService).update((Course) anyObject());
+
+        Response response = getResumedResponse(asyncResponse -> courseResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE,
+                "learnJavaCourse.json")), asyncResponse));
+
+        //Assert response status is Precondition Failed and error message is returned
+        assertThat(response.getStatus(), is(equalTo(Response.Status.PRECONDITION_FAILED.getStatusCode())));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(),
+                "{\"errorIdentification\": \"course.versionConflict\", "
+                        + "\"errorDescription\": \"The course was changed since it was read\"}");
+    }
+}
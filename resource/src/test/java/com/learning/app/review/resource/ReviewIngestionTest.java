@@ -0,0 +1,254 @@
+package com.learning.app.review.resource;
+
+import com.learning.app.common.exception.InvalidJsonException;
+import com.learning.app.common.ingestion.AppendLog;
+import com.learning.app.common.model.BatchItemResult;
+import com.learning.app.course.exception.CourseNotFoundException;
+import com.learning.app.review.model.Review;
+import com.learning.app.review.service.ReviewService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.ejb.EJBException;
+import javax.persistence.PersistenceException;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.learning.app.review.resource.ReviewIngestion.IngestionStatus.State.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReviewIngestionTest
+{
+    private static final String REVIEW = "{\"rating\": 4, \"comment\": \"Clear\", \"userId\": 1, \"courseId\": 2}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ReviewService reviewService;
+
+    //the validator returns no violation
+    @Mock
+    private Validator validator;
+
+    private ReviewIngestion reviewIngestion;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        MockitoAnnotations.initMocks(this);
+        reviewIngestion = openReviewIngestion();
+    }
+
+    @After
+    public void tearDown()
+    {
+        reviewIngestion.shutdown();
+    }
+
+    @Test
+    public void submit_ShouldAppendReviewAsPending() throws Exception
+    {
+        String trackingId = reviewIngestion.submit(REVIEW);
+
+        assertThat(trackingId, is(equalTo(getLogId() + "-1")));
+        assertThat(reviewIngestion.getStatus(trackingId).getState(), is(equalTo(PENDING)));
+        assertThat(reviewIngestion.getStatus(trackingId(2)), is(nullValue()));
+        //the same sequence of the log of another node
+        assertThat(reviewIngestion.getStatus(UUID.randomUUID() + "-1"), is(nullValue()));
+        assertThat(reviewIngestion.getPendingReviews(), is(equalTo(1L)));
+        verify(reviewService, never()).addAllIngested(anyString(), anyListOf(Review.class), anyLong());
+    }
+
+    @Test(expected = InvalidJsonException.class)
+    public void submitInvalidJson_ShouldThrowException() throws Exception
+    {
+        reviewIngestion.submit("{\"rating\": 4,");
+    }
+
+    @Test
+    public void drain_ShouldAddReviewsInOneBatchAndKeepTheirResults() throws Exception
+    {
+        reviewIngestion.submit(REVIEW);
+        reviewIngestion.submit(REVIEW);
+        Review addedReview = new Review();
+        addedReview.setId(10L);
+        when(reviewService.addAllIngested(anyString(), anyListOf(Review.class), eq(2L))).thenReturn(Arrays.asList(
+                BatchItemResult.success(addedReview), BatchItemResult.failure(new CourseNotFoundException())));
+
+        assertThat(reviewIngestion.drain(), is(equalTo(2)));
+
+        assertThat(reviewIngestion.getStatus(trackingId(1)).getState(), is(equalTo(ADDED)));
+        assertThat(reviewIngestion.getStatus(trackingId(1)).getReviewId(), is(equalTo(10L)));
+        assertThat(reviewIngestion.getStatus(trackingId(2)).getState(), is(equalTo(FAILED)));
+        assertThat(reviewIngestion.getStatus(trackingId(2)).getError(),
+                is(instanceOf(CourseNotFoundException.class)));
+        assertThat(reviewIngestion.getPendingReviews(), is(equalTo(0L)));
+        assertThat(reviewIngestion.drain(), is(equalTo(0)));
+    }
+
+    @Test
+    public void drainFailure_ShouldKeepReviewsPendingForTheNextDrain() throws Exception
+    {
+        reviewIngestion.submit(REVIEW);
+        when(reviewService.addAllIngested(anyString(), anyListOf(Review.class), eq(1L)))
+                .thenThrow(new IllegalStateException("Database unavailable"))
+                .thenReturn(Collections.singletonList(BatchItemResult.success(new Review())));
+
+        try
+        {
+            reviewIngestion.drain();
+            fail("The failure of the batch should be thrown");
+        } catch (IllegalStateException e)
+        {
+            assertThat(reviewIngestion.getStatus(trackingId(1)).getState(), is(equalTo(PENDING)));
+        }
+
+        assertThat(reviewIngestion.drain(), is(equalTo(1)));
+        assertThat(reviewIngestion.getStatus(trackingId(1)).getState(), is(equalTo(ADDED)));
+    }
+
+    @Test
+    public void drainPoisonBatch_ShouldAddReviewsOneByOneAndSkipTheFailingReview() throws Exception
+    {
+        EJBException constraintViolation = new EJBException(new PersistenceException(
+                new SQLException("duplicate key value violates unique constraint", "23505")));
+        submitReviewsFailingWithRating2(constraintViolation);
+        failBatchUntilAddedOneByOne();
+
+        assertThat(reviewIngestion.drain(), is(equalTo(3)));
+
+        assertThat(reviewIngestion.getStatus(trackingId(1)).getState(), is(equalTo(ADDED)));
+        assertThat(reviewIngestion.getStatus(trackingId(2)).getState(), is(equalTo(FAILED)));
+        assertThat(reviewIngestion.getStatus(trackingId(2)).getError(), is(sameInstance(constraintViolation)));
+        assertThat(reviewIngestion.getStatus(trackingId(3)).getState(), is(equalTo(ADDED)));
+        assertThat(reviewIngestion.getPendingReviews(), is(equalTo(0L)));
+        //the checkpoint is moved past the failing review
+        verify(reviewService).addAllIngested(getLogId(), Collections.emptyList(), 2L);
+    }
+
+    @Test
+    public void drainBatchWithTransientFailure_ShouldKeepTheFailingReviewPending() throws Exception
+    {
+        submitReviewsFailingWithRating2(new EJBException(new PersistenceException("Lock wait timeout")));
+        failBatchUntilAddedOneByOne();
+
+        try
+        {
+            reviewIngestion.drain();
+            fail("The failure of the review should be thrown");
+        } catch (EJBException e)
+        {
+            assertThat(reviewIngestion.getStatus(trackingId(1)).getState(), is(equalTo(ADDED)));
+            assertThat(reviewIngestion.getStatus(trackingId(2)).getState(), is(equalTo(PENDING)));
+            assertThat(reviewIngestion.getPendingReviews(), is(equalTo(2L)));
+        }
+        verify(reviewService, never()).addAllIngested(anyString(), eq(Collections.emptyList()), anyLong());
+    }
+
+    @Test
+    public void openAfterRestart_ShouldAddReviewsAfterTheSavedSequence() throws Exception
+    {
+        reviewIngestion.submit(REVIEW);
+        reviewIngestion.submit("{\"rating\": 2, \"userId\": 3, \"courseId\": 4}");
+        reviewIngestion.shutdown();
+        when(reviewService.findLastIngestedSequence(getLogId())).thenReturn(1L);
+        when(reviewService.addAllIngested(anyString(), anyListOf(Review.class), eq(2L)))
+                .thenReturn(Collections.singletonList(BatchItemResult.success(new Review())));
+
+        reviewIngestion = openReviewIngestion();
+        assertThat(reviewIngestion.getPendingReviews(), is(equalTo(1L)));
+        reviewIngestion.drain();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Review>> reviews = ArgumentCaptor.forClass((Class) List.class);
+        verify(reviewService).addAllIngested(eq(getLogId()), reviews.capture(), eq(2L));
+        assertThat(reviews.getValue().size(), is(equalTo(1)));
+        assertThat(reviews.getValue().get(0).getRating(), is(equalTo(2)));
+        assertThat(reviews.getValue().get(0).getCourse().getId(), is(equalTo(4L)));
+    }
+
+    @Test
+    public void writePrometheusText_ShouldWritePendingReviewsAndCounters() throws Exception
+    {
+        reviewIngestion.submit(REVIEW);
+        StringWriter writer = new StringWriter();
+
+        reviewIngestion.writePrometheusText(writer);
+
+        assertThat(writer.toString(), containsString("review_ingestion_pending_reviews 1\n"));
+        assertThat(writer.toString(), containsString("review_ingestion_appended_total 1\n"));
+        assertThat(writer.toString(), containsString("# TYPE review_ingestion_lag_seconds gauge\n"));
+    }
+
+    //the reviews 1 and 3 are added, every list holding the review 2 fails with the error
+    @SuppressWarnings("unchecked")
+    private void submitReviewsFailingWithRating2(RuntimeException error) throws IOException
+    {
+        reviewIngestion.submit(REVIEW);
+        reviewIngestion.submit("{\"rating\": 2, \"userId\": 3, \"courseId\": 4}");
+        reviewIngestion.submit(REVIEW);
+        Review addedReview = new Review();
+        addedReview.setId(10L);
+        when(reviewService.addAllIngested(anyString(), anyListOf(Review.class), anyLong())).thenAnswer(invocation -> {
+            List<Review> reviews = (List<Review>) invocation.getArguments()[1];
+            if (reviews.stream().anyMatch(review -> review.getRating() == 2))
+            {
+                throw error;
+            }
+            return reviews.stream().map(review -> BatchItemResult.success(addedReview)).collect(Collectors.toList());
+        });
+    }
+
+    private void failBatchUntilAddedOneByOne() throws IOException
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            try
+            {
+                reviewIngestion.drain();
+                fail("The failure of the batch should be thrown");
+            } catch (EJBException e)
+            {
+                assertThat(reviewIngestion.getStatus(trackingId(1)).getState(), is(equalTo(PENDING)));
+            }
+        }
+    }
+
+    private String getLogId() throws IOException
+    {
+        return AppendLog.openLogId(folder.getRoot().toPath());
+    }
+
+    private String trackingId(long sequence) throws IOException
+    {
+        return getLogId() + "-" + sequence;
+    }
+
+    //without the drainer thread, the tests drain the log themselves
+    private ReviewIngestion openReviewIngestion() throws IOException
+    {
+        ReviewIngestion ingestion = new ReviewIngestion();
+        ingestion.reviewService = reviewService;
+        ingestion.reviewJsonConverter = new ReviewJsonConverter();
+        ingestion.validator = validator;
+        ingestion.open(folder.getRoot().toPath(), 64 * 1024);
+        return ingestion;
+    }
+}
@@ -1,7 +1,13 @@
 package com.learning.app.review.resource;
 
+import com.google.gson.JsonArray;
 import com.learning.app.category.resource.CategoryJsonConverter;
+import com.learning.app.common.model.BatchItemResult;
+import com.learning.app.common.json.JsonReader;
+import com.learning.app.common.model.DataVersion;
 import com.learning.app.common.model.PaginatedData;
+import com.learning.app.common.resource.ResponseCache;
+import com.learning.app.common.service.DataVersionService;
 import com.learning.app.commontests.utils.ResourceDefinitions;
 import com.learning.app.course.exception.CourseNotFoundException;
 import com.learning.app.course.model.Course;
@@ -9,6 +15,7 @@ import com.learning.app.course.resource.CourseJsonConverter;
 import com.learning.app.review.exception.ReviewNotFoundException;
 import com.learning.app.review.model.Review;
 import com.learning.app.review.model.filter.ReviewFilter;
+import com.learning.app.review.model.projection.ReviewRow;
 import com.learning.app.review.service.ReviewService;
 import com.learning.app.user.exception.UserNotFoundException;
 import com.learning.app.user.model.User;
@@ -16,27 +23,40 @@ import com.learning.app.user.resource.UserJsonConverter;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import javax.ejb.EJBException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static com.learning.app.commontests.data.CourseData.courseWithId;
 import static com.learning.app.commontests.data.CourseData.learnSwift;
 import static com.learning.app.commontests.data.ReviewData.*;
 import static com.learning.app.commontests.data.UserData.jan;
 import static com.learning.app.commontests.data.UserData.userWithIdAndCreatedAt;
+import static com.learning.app.commontests.utils.AsyncResponseTestUtils.getResumedResponse;
+import static com.learning.app.commontests.utils.AsyncResponseTestUtils.sameThreadEndpointExecutors;
 import static com.learning.app.commontests.utils.FileTestNameUtils.getPathFileRequest;
 import static com.learning.app.commontests.utils.FileTestNameUtils.getPathFileResponse;
 import static com.learning.app.commontests.utils.JsonTestUtils.assertJsonMatchesExpectedJson;
 import static com.learning.app.commontests.utils.JsonTestUtils.assertJsonMatchesFileContent;
 import static com.learning.app.commontests.utils.JsonTestUtils.readJsonFile;
+import static com.learning.app.commontests.utils.JsonTestUtils.getEntityAsString;
 import static com.learning.app.review.model.ReviewArgumentMatcher.reviewEquivalent;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -49,6 +69,8 @@ public class ReviewResourceTest
     private ReviewResource reviewResource;
 
     private static final String PATH_RESOURCE = ResourceDefinitions.REVIEW.getResourceName();
+    private static final String DATA_TAG = "15f2a6c5b00-5-2-3";
+    private static final long LAST_MODIFIED = 1_500_000_000_000L;
 
     @Mock
     private ReviewService reviewService;
@@ -56,6 +78,18 @@ public class ReviewResourceTest
     @Mock
     private UriInfo uriInfo;
 
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private Request request;
+
+    @Mock
+    private HttpHeaders httpHeaders;
+
+    @Mock
+    private ReviewIngestion reviewIngestion;
+
     @Before
     public void setUp()
     {
@@ -64,6 +98,14 @@ public class ReviewResourceTest
         reviewResource.reviewService = reviewService;
         reviewResource.uriInfo = uriInfo;
         reviewResource.reviewJsonConverter = new ReviewJsonConverter();
+        reviewResource.dataVersionService = dataVersionService;
+        reviewResource.request = request;
+        reviewResource.httpHeaders = httpHeaders;
+        reviewResource.responseCache = new ResponseCache();
+        reviewResource.endpointExecutors = sameThreadEndpointExecutors();
+        reviewResource.reviewIngestion = reviewIngestion;
+        when(dataVersionService.getDataVersion(Matchers.<Class<?>>anyVararg()))
+                .thenReturn(new DataVersion(DATA_TAG, LAST_MODIFIED));
     }
 
     @Test
@@ -78,7 +120,8 @@ public class ReviewResourceTest
         //Set up service to return review
         when(reviewService.add(reviewEquivalent(review))).thenReturn(reviewWithId(review, 1L));
 
-        Response response = reviewResource.add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")));
+        Response response = getResumedResponse(asyncResponse -> reviewResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
 
         //Assert response status is Created and response entity contains id of created review
         assertThat(response.getStatus(), is(equalTo(Response.Status.CREATED.getStatusCode())));
@@ -91,7 +134,8 @@ public class ReviewResourceTest
         //Set up service to throw exception
         when(reviewService.add((Review) anyObject())).thenThrow(CourseNotFoundException.class);
 
-        Response response = reviewResource.add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")));
+        Response response = getResumedResponse(asyncResponse -> reviewResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -105,7 +149,8 @@ public class ReviewResourceTest
         //Set up service to throw exception
         when(reviewService.add((Review) anyObject())).thenThrow(UserNotFoundException.class);
 
-        Response response = reviewResource.add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")));
+        Response response = getResumedResponse(asyncResponse -> reviewResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -113,6 +158,82 @@ public class ReviewResourceTest
                 "reviewErrorInexistentUser.json"));
     }
 
+    @Test
+    public void addReviewWithIngestion_ShouldReturnAcceptedWithTrackingId() throws Exception
+    {
+        //Set up the ingestion log to accept the review
+        String body = readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json"));
+        when(reviewIngestion.isEnabled()).thenReturn(true);
+        when(reviewIngestion.submit(body)).thenReturn("log-7");
+
+        Response response = getResumedResponse(asyncResponse -> reviewResource.add(body, asyncResponse));
+
+        //Assert response status is Accepted with the tracking id, and the review is not added yet
+        assertThat(response.getStatus(), is(equalTo(Response.Status.ACCEPTED.getStatusCode())));
+        assertThat(response.getLocation().toString(), is(equalTo("reviews/ingestion/log-7")));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(), "{\"trackingId\": \"log-7\"}");
+        verify(reviewService, never()).add(Matchers.any(Review.class));
+    }
+
+    @Test
+    public void addReviewWithUnavailableIngestionLog_ShouldReturnServiceUnavailable() throws Exception
+    {
+        //Set up the ingestion log to fail
+        when(reviewIngestion.isEnabled()).thenReturn(true);
+        when(reviewIngestion.submit(anyString())).thenThrow(new IOException("No space left on device"));
+
+        Response response = getResumedResponse(asyncResponse -> reviewResource.add(
+                readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
+
+        //Assert response status is Service Unavailable
+        assertThat(response.getStatus(), is(equalTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode())));
+    }
+
+    @Test
+    public void findIngestionStatusOfFailedReview_ShouldReturnErrorOfReview() throws Exception
+    {
+        //Set up the ingestion to return the failure of the review
+        when(reviewIngestion.isEnabled()).thenReturn(true);
+        when(reviewIngestion.getStatus("log-7"))
+                .thenReturn(ReviewIngestion.IngestionStatus.failed(new CourseNotFoundException()));
+
+        Response response = reviewResource.findIngestionStatus("log-7");
+
+        //Assert response status is OK and the error is the one of a review added directly
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(), "{\"trackingId\": \"log-7\", \"status\": \"FAILED\", "
+                + "\"error\": " + readJsonFile(getPathFileResponse(PATH_RESOURCE, "reviewErrorInexistentCourse.json"))
+                + "}");
+    }
+
+    @Test
+    public void findIngestionStatusOfSkippedReview_ShouldReturnErrorOfBody() throws Exception
+    {
+        //Set up the ingestion to return a review skipped for a constraint violation
+        when(reviewIngestion.isEnabled()).thenReturn(true);
+        when(reviewIngestion.getStatus("log-7")).thenReturn(ReviewIngestion.IngestionStatus.failed(
+                new EJBException("duplicate key value violates unique constraint")));
+
+        Response response = reviewResource.findIngestionStatus("log-7");
+
+        //Assert response status is OK and the error is the one of an invalid body
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(), "{\"trackingId\": \"log-7\", "
+                + "\"status\": \"FAILED\", \"error\": {\"errorIdentification\": \"review.invalidField.body\", "
+                + "\"errorDescription\": \"duplicate key value violates unique constraint\"}}");
+    }
+
+    @Test
+    public void findIngestionStatusNotFound_ShouldReturnError() throws Exception
+    {
+        when(reviewIngestion.isEnabled()).thenReturn(true);
+
+        Response response = reviewResource.findIngestionStatus("log-7");
+
+        //Assert response status is Not Found
+        assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
+    }
+
     @Test
     public void updateValidReview_ShouldReturnSuccess() throws Exception
     {
@@ -125,7 +246,8 @@ public class ReviewResourceTest
         expectedReview.setCourse(course);
         expectedReview.setUser(user);
 
-        Response response = reviewResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")));
+        Response response = getResumedResponse(asyncResponse -> reviewResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
 
         //Assert response status is OK and response entity is empty
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
@@ -140,7 +262,8 @@ public class ReviewResourceTest
         //Set up service to throw exception
         doThrow(ReviewNotFoundException.class).when(reviewService).update((Review) anyObject());
 
-        Response response = reviewResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")));
+        Response response = getResumedResponse(asyncResponse -> reviewResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
 
         //Assert response status is Not Found
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -152,7 +275,8 @@ public class ReviewResourceTest
         //Set up service to throw exception
         doThrow(CourseNotFoundException.class).when(reviewService).update((Review) anyObject());
 
-        Response response = reviewResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")));
+        Response response = getResumedResponse(asyncResponse -> reviewResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -166,7 +290,8 @@ public class ReviewResourceTest
         //Set up service to throw exception
         doThrow(UserNotFoundException.class).when(reviewService).update((Review) anyObject());
 
-        Response response = reviewResource.update(1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")));
+        Response response = getResumedResponse(asyncResponse -> reviewResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -189,19 +314,53 @@ public class ReviewResourceTest
         }
         //Return paginated list of reviews when service is called
         when(reviewService.findByFilter((ReviewFilter) anyObject()))
-                .thenReturn(new PaginatedData<Review>(reviews.size(), reviews));
+                .thenReturn(new PaginatedData<ReviewRow>(reviews.size(), reviews.stream().map(ReviewRow::new).collect(Collectors.toList())));
         //return multimap when asked for query parameters from uri
         MultivaluedMap<String, String> multiMap = mock(MultivaluedMap.class);
         when(uriInfo.getQueryParameters()).thenReturn(multiMap);
 
-        Response response = reviewResource.findByFilter();
+        Response response = getResumedResponse(reviewResource::findByFilter);
 
         //Assert response status is OK and response entity contains correct review data
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
-        assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE,
+        assertJsonMatchesFileContent(getEntityAsString(response), getPathFileResponse(PATH_RESOURCE,
                 "reviewsAllInOnePage.json"));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void export_ShouldWriteOneReviewPerLine() throws Exception
+    {
+        //Create review list with ids
+        List<Review> reviews = new ArrayList<>(Arrays.asList(reviewLenaSwift(), reviewJanPython(), reviewDanielSpanish()));
+        Long i = 1L;
+        for (Review review : reviews)
+        {
+            review.setId(i);
+            review.getUser().setId(i);
+            review.getCourse().setId(i);
+            i++;
+        }
+        //Pass the reviews to the consumer when the service is called
+        doAnswer(invocation -> {
+            reviews.forEach(((Consumer<Review>)invocation.getArguments()[0]));
+            return (long)reviews.size();
+        }).when(reviewService).exportAll((Consumer<Review>) anyObject());
+
+        Response response = reviewResource.export();
+
+        //Assert response status is OK and each line contains one review
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        String[] lines = getEntityAsString(response).split("\n");
+        JsonArray expectedReviews = JsonReader.readAsJsonObject(readJsonFile(getPathFileResponse(PATH_RESOURCE,
+                "reviewsAllInOnePage.json"))).getAsJsonArray("entries");
+        assertThat(lines.length, is(equalTo(3)));
+        for (int line = 0; line < lines.length; line++)
+        {
+            assertJsonMatchesExpectedJson(lines[line], expectedReviews.get(line).toString());
+        }
+    }
+
     @Test
     public void findById_ShouldReturnReview() throws Exception
     {
@@ -212,7 +371,7 @@ public class ReviewResourceTest
         //Set up service to return review
         when(reviewService.findById(1L)).thenReturn(review);
 
-        Response response = reviewResource.findById(1L);
+        Response response = getResumedResponse(asyncResponse -> reviewResource.findById(1L, asyncResponse));
 
         //Assert response status is OK and response entity returns correct review data
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
@@ -226,7 +385,7 @@ public class ReviewResourceTest
         //Set up service to throw exception
         when(reviewService.findById(1L)).thenThrow(ReviewNotFoundException.class);
 
-        Response response = reviewResource.findById(1L);
+        Response response = getResumedResponse(asyncResponse -> reviewResource.findById(1L, asyncResponse));
 
         //Assert response status is Not Found
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
@@ -235,7 +394,7 @@ public class ReviewResourceTest
     @Test
     public void deleteValidReview_ShouldReturnSuccess() throws Exception
     {
-        Response response = reviewResource.delete(1L);
+        Response response = getResumedResponse(asyncResponse -> reviewResource.delete(1L, asyncResponse));
 
         //Assert response status is OK and response entity is empty
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
@@ -250,11 +409,79 @@ public class ReviewResourceTest
         //Set up service to throw exception
         doThrow(ReviewNotFoundException.class).when(reviewService).deleteById(1L);
 
-        Response response = reviewResource.delete(1L);
+        Response response = getResumedResponse(asyncResponse -> reviewResource.delete(1L, asyncResponse));
 
         //Assert response status is Not Found and error message is returned
         assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_FOUND.getStatusCode())));
         assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE,
                 "reviewErrorNotFound.json"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addAll_ShouldReturnResultOfEachReview() throws Exception
+    {
+        when(reviewService.addAll(anyObject())).thenAnswer(invocation -> {
+            List<Review> reviews = (List<Review>) invocation.getArguments()[0];
+            reviews.get(0).setId(10L);
+            return Arrays.asList(BatchItemResult.success(reviews.get(0)),
+                    BatchItemResult.failure(new UserNotFoundException()));
+        });
+
+        Response response = getResumedResponse(asyncResponse -> reviewResource.addAll(
+                "[{\"rating\": 4, \"userId\": 1, \"courseId\": 2},"
+                + "{\"rating\": \"high\", \"userId\": 1, \"courseId\": 2},"
+                + "{\"rating\": 3, \"userId\": 9, \"courseId\": 2}]", asyncResponse));
+
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        assertJsonMatchesExpectedJson(response.getEntity().toString(), "{\"created\": 1, \"failed\": 2, \"results\": ["
+                + "{\"id\": 10},"
+                + "{\"errorIdentification\": \"review.invalidField.item\", \"errorDescription\": \"The item could not be read\"},"
+                + "{\"errorIdentification\": \"review.invalidField.user\", \"errorDescription\": \"Not found\"}]}");
+    }
+
+    @Test
+    public void addAllWithoutJsonArray_ShouldReturnBadRequest() throws Exception
+    {
+        Response response = getResumedResponse(asyncResponse -> reviewResource.addAll(
+                "{\"rating\": 4, \"userId\": 1, \"courseId\": 2}", asyncResponse));
+
+        assertThat(response.getStatus(), is(equalTo(Response.Status.BAD_REQUEST.getStatusCode())));
+        verifyZeroInteractions(reviewService);
+    }
+
+    @Test
+    public void findByFilterWithCurrentVersion_ShouldReturnNotModified() throws Exception
+    {
+        //Set up the request to match the version of the reviews, users and courses
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+        when(request.evaluatePreconditions(Matchers.any(Date.class), eq(new EntityTag(DATA_TAG))))
+                .thenReturn(Response.notModified());
+
+        Response response = getResumedResponse(reviewResource::findByFilter);
+
+        //Assert response status is Not Modified and the reviews are not searched
+        assertThat(response.getStatus(), is(equalTo(Response.Status.NOT_MODIFIED.getStatusCode())));
+        assertThat(response.getLastModified(), is(equalTo(new Date(LAST_MODIFIED))));
+        verify(reviewService, never()).findByFilter(Matchers.any(ReviewFilter.class));
+    }
+
+    @Test
+    public void updateReviewFromCurrentVersion_ShouldUpdateThatVersion() throws Exception
+    {
+        //Set up service to return the current review, the request has its version in If-Match
+        Review currentReview = reviewWithId(reviewLenaSwift(), 1L);
+        currentReview.setVersion(4L);
+        when(reviewService.findById(1L)).thenReturn(currentReview);
+        when(httpHeaders.getHeaderString(HttpHeaders.IF_MATCH)).thenReturn("\"4-n-n\"");
+
+        Response response = getResumedResponse(asyncResponse -> reviewResource.update(
+                1L, readJsonFile(getPathFileRequest(PATH_RESOURCE, "review.json")), asyncResponse));
+
+        //Assert response status is OK and the review is updated from the version of the client
+        assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
+        ArgumentCaptor<Review> reviewCaptor = ArgumentCaptor.forClass(Review.class);
+        verify(reviewService).update(reviewCaptor.capture());
+        assertThat(reviewCaptor.getValue().getVersion(), is(equalTo(4L)));
+    }
+}
@@ -6,6 +6,7 @@ import com.learning.app.commontests.utils.ResourceDefinitions;
 import com.learning.app.user.exception.UserNotFoundException;
 import com.learning.app.user.model.User;
 import com.learning.app.user.model.filter.UserFilter;
+import com.learning.app.user.model.projection.UserRow;
 import com.learning.app.user.service.UserService;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,6 +21,7 @@ import javax.ws.rs.core.UriInfo;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static com.learning.app.commontests.data.UserData.*;
 import static com.learning.app.commontests.user.UserTestUtils.*;
@@ -276,13 +278,13 @@ public class UserResourceTest
 
         //Return paginated list of users when service is called
         when(userService.findByFilter((UserFilter) anyObject())).thenReturn(
-                new PaginatedData<User>(users.size(), users));
+                new PaginatedData<UserRow>(users.size(), users.stream().map(UserRow::new).collect(Collectors.toList())));
 
         Response response = userResource.findByFilter();
 
         //Assert response status is OK and response entity contains correct user data
         assertThat(response.getStatus(), is(equalTo(Response.Status.OK.getStatusCode())));
-        assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE, "usersAllInOnePage.json"));
+        assertJsonMatchesFileContent(getEntityAsString(response), getPathFileResponse(PATH_RESOURCE, "usersAllInOnePage.json"));
     }
 
     //Set up a mock principal user to use in tests
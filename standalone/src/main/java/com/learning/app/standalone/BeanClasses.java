@@ -0,0 +1,118 @@
+package com.learning.app.standalone;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/*
+ * Classes of the application given to the CDI container, all of them are candidates as in the bean archives of the
+ * server. Only the jars and directories of the application are read, the libraries are not scanned
+ */
+
+public final class BeanClasses
+{
+    private static final String APPLICATION_PACKAGE = "com/learning/app/";
+    private static final String CLASS_SUFFIX = ".class";
+
+    private BeanClasses()
+    {
+    }
+
+    //Classes of the application found in the jars or directories of the given classes
+    public static List<Class<?>> findApplicationClasses(Class<?>... locationClasses)
+    {
+        Set<String> classNames = new LinkedHashSet<>();
+        Set<Path> locations = new LinkedHashSet<>();
+        for (Class<?> locationClass : locationClasses)
+        {
+            locations.add(getLocation(locationClass));
+        }
+        for (Path location : locations)
+        {
+            classNames.addAll(Files.isDirectory(location) ? readDirectory(location) : readJar(location));
+        }
+
+        ClassLoader classLoader = BeanClasses.class.getClassLoader();
+        List<Class<?>> classes = new ArrayList<>();
+        for (String className : classNames)
+        {
+            try
+            {
+                classes.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e)
+            {
+                throw new IllegalStateException("Could not load " + className, e);
+            }
+        }
+        return classes;
+    }
+
+    private static Path getLocation(Class<?> locationClass)
+    {
+        try
+        {
+            return Paths.get(locationClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e)
+        {
+            throw new IllegalStateException("Could not find the location of " + locationClass.getName(), e);
+        }
+    }
+
+    private static List<String> readDirectory(Path directory)
+    {
+        List<String> classNames = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            files.map(file -> directory.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .filter(BeanClasses::isApplicationClass)
+                    .forEach(file -> classNames.add(getClassName(file)));
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return classNames;
+    }
+
+    private static List<String> readJar(Path jar)
+    {
+        List<String> classNames = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar.toFile()))
+        {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements())
+            {
+                String entry = entries.nextElement().getName();
+                if (isApplicationClass(entry))
+                {
+                    classNames.add(getClassName(entry));
+                }
+            }
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return classNames;
+    }
+
+    private static boolean isApplicationClass(String file)
+    {
+        return file.startsWith(APPLICATION_PACKAGE) && file.endsWith(CLASS_SUFFIX);
+    }
+
+    private static String getClassName(String file)
+    {
+        return file.substring(0, file.length() - CLASS_SUFFIX.length()).replace('/', '.');
+    }
+}
@@ -0,0 +1,18 @@
+package com.learning.app.standalone;
+
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Added by StandaloneExtension to the stateless EJBs with container-managed transactions
+ */
+
+@InterceptorBinding
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ContainerTransaction
+{
+}
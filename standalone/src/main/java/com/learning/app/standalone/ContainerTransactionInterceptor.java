@@ -0,0 +1,26 @@
+package com.learning.app.standalone;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/*
+ * Runs the methods of the stateless EJBs in a transaction, as the default REQUIRED attribute of the container
+ */
+
+@Interceptor
+@ContainerTransaction
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 200)
+public class ContainerTransactionInterceptor
+{
+    @Inject
+    StandaloneExtension standaloneExtension;
+
+    @AroundInvoke
+    public Object executeInTransaction(InvocationContext context) throws Exception
+    {
+        return standaloneExtension.getTransactions().execute(context::proceed);
+    }
+}
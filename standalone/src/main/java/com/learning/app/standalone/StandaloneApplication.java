@@ -0,0 +1,42 @@
+package com.learning.app.standalone;
+
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.ext.Provider;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * The resources and providers of the CDI container, in place of the classes the application server scans for
+ * They are created once, the fields annotated with @Context get proxies to the current request
+ */
+
+public class StandaloneApplication extends Application
+{
+    private final Set<Object> singletons = new HashSet<>();
+
+    @SuppressWarnings("serial")
+    public StandaloneApplication(BeanManager beanManager)
+    {
+        for (Bean<?> bean : beanManager.getBeans(Object.class, new AnnotationLiteral<Any>() {}))
+        {
+            Class<?> beanClass = bean.getBeanClass();
+            if (bean.getTypes().contains(beanClass)
+                    && (beanClass.isAnnotationPresent(Path.class) || beanClass.isAnnotationPresent(Provider.class)))
+            {
+                singletons.add(beanManager.getReference(bean, beanClass, beanManager.createCreationalContext(bean)));
+            }
+        }
+    }
+
+    @Override
+    public Set<Object> getSingletons()
+    {
+        return Collections.unmodifiableSet(singletons);
+    }
+}
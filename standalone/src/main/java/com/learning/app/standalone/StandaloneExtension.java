@@ -0,0 +1,245 @@
+package com.learning.app.standalone;
+
+import javax.annotation.Resource;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AnnotatedConstructor;
+import javax.enterprise.inject.spi.AnnotatedField;
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.AnnotatedType;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.InjectionTarget;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
+import javax.enterprise.inject.spi.ProcessInjectionTarget;
+import javax.enterprise.inject.spi.WithAnnotations;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.persistence.PersistenceContext;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * What the application server adds to the beans of model and resource, for the CDI container of StandaloneServer
+ * The stateless EJBs are application scoped, they are shared as the pooled instances of the server and are injected
+ * as proxies, so that they can refer to each other. Those with container-managed transactions get the
+ * ContainerTransaction interceptor
+ * Fields annotated with @PersistenceContext get the entity manager of Transactions, and fields annotated with
+ * @Resource the object of their type given to the extension
+ */
+
+public class StandaloneExtension implements Extension
+{
+    private final Transactions transactions;
+    private final Map<Class<?>, Object> resources;
+
+    public StandaloneExtension(Transactions transactions, Map<Class<?>, Object> resources)
+    {
+        this.transactions = transactions;
+        this.resources = new LinkedHashMap<>(resources);
+    }
+
+    public Transactions getTransactions()
+    {
+        return transactions;
+    }
+
+    <T> void processStatelessBean(@Observes @WithAnnotations(Stateless.class) ProcessAnnotatedType<T> event)
+    {
+        AnnotatedType<T> type = event.getAnnotatedType();
+        if (!type.isAnnotationPresent(Stateless.class))
+        {
+            return;
+        }
+
+        Set<Annotation> addedAnnotations = new HashSet<>();
+        addedAnnotations.add(new ApplicationScopedLiteral());
+        TransactionManagement transactionManagement = type.getAnnotation(TransactionManagement.class);
+        if (transactionManagement == null || transactionManagement.value() == TransactionManagementType.CONTAINER)
+        {
+            addedAnnotations.add(new ContainerTransactionLiteral());
+        }
+        event.setAnnotatedType(new AnnotatedTypeWithAnnotations<>(type, addedAnnotations));
+    }
+
+    <T> void injectResources(@Observes ProcessInjectionTarget<T> event)
+    {
+        Map<Field, Object> values = new LinkedHashMap<>();
+        for (Class<?> type = event.getAnnotatedType().getJavaClass(); type != null; type = type.getSuperclass())
+        {
+            for (Field field : type.getDeclaredFields())
+            {
+                if (field.isAnnotationPresent(PersistenceContext.class))
+                {
+                    values.put(field, transactions.getEntityManagerProxy());
+                } else if (field.isAnnotationPresent(Resource.class))
+                {
+                    Object resource = resources.get(field.getType());
+                    if (resource == null)
+                    {
+                        event.addDefinitionError(new IllegalStateException("No resource of type "
+                                + field.getType().getName() + " for " + type.getName() + "." + field.getName()));
+                        return;
+                    }
+                    values.put(field, resource);
+                }
+            }
+        }
+
+        if (!values.isEmpty())
+        {
+            values.keySet().forEach(field -> field.setAccessible(true));
+            event.setInjectionTarget(new ResourceInjectionTarget<>(event.getInjectionTarget(), values));
+        }
+    }
+
+    private static class ResourceInjectionTarget<T> implements InjectionTarget<T>
+    {
+        private final InjectionTarget<T> injectionTarget;
+        private final Map<Field, Object> values;
+
+        ResourceInjectionTarget(InjectionTarget<T> injectionTarget, Map<Field, Object> values)
+        {
+            this.injectionTarget = injectionTarget;
+            this.values = values;
+        }
+
+        @Override
+        public void inject(T instance, CreationalContext<T> creationalContext)
+        {
+            injectionTarget.inject(instance, creationalContext);
+            values.forEach((field, value) -> {
+                try
+                {
+                    field.set(instance, value);
+                } catch (IllegalAccessException e)
+                {
+                    throw new IllegalStateException("Could not inject " + field, e);
+                }
+            });
+        }
+
+        @Override
+        public void postConstruct(T instance)
+        {
+            injectionTarget.postConstruct(instance);
+        }
+
+        @Override
+        public void preDestroy(T instance)
+        {
+            injectionTarget.preDestroy(instance);
+        }
+
+        @Override
+        public T produce(CreationalContext<T> creationalContext)
+        {
+            return injectionTarget.produce(creationalContext);
+        }
+
+        @Override
+        public void dispose(T instance)
+        {
+            injectionTarget.dispose(instance);
+        }
+
+        @Override
+        public Set<InjectionPoint> getInjectionPoints()
+        {
+            return injectionTarget.getInjectionPoints();
+        }
+    }
+
+    //the type with annotations added to the ones of the class
+    private static class AnnotatedTypeWithAnnotations<T> implements AnnotatedType<T>
+    {
+        private final AnnotatedType<T> type;
+        private final Set<Annotation> annotations;
+
+        AnnotatedTypeWithAnnotations(AnnotatedType<T> type, Set<Annotation> addedAnnotations)
+        {
+            this.type = type;
+            Set<Annotation> typeAnnotations = new HashSet<>(type.getAnnotations());
+            typeAnnotations.addAll(addedAnnotations);
+            this.annotations = Collections.unmodifiableSet(typeAnnotations);
+        }
+
+        @Override
+        public Class<T> getJavaClass()
+        {
+            return type.getJavaClass();
+        }
+
+        @Override
+        public Set<AnnotatedConstructor<T>> getConstructors()
+        {
+            return type.getConstructors();
+        }
+
+        @Override
+        public Set<AnnotatedMethod<? super T>> getMethods()
+        {
+            return type.getMethods();
+        }
+
+        @Override
+        public Set<AnnotatedField<? super T>> getFields()
+        {
+            return type.getFields();
+        }
+
+        @Override
+        public Type getBaseType()
+        {
+            return type.getBaseType();
+        }
+
+        @Override
+        public Set<Type> getTypeClosure()
+        {
+            return type.getTypeClosure();
+        }
+
+        @Override
+        public <A extends Annotation> A getAnnotation(Class<A> annotationType)
+        {
+            return annotations.stream()
+                    .filter(annotationType::isInstance)
+                    .map(annotationType::cast)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        @Override
+        public Set<Annotation> getAnnotations()
+        {
+            return annotations;
+        }
+
+        @Override
+        public boolean isAnnotationPresent(Class<? extends Annotation> annotationType)
+        {
+            return getAnnotation(annotationType) != null;
+        }
+    }
+
+    @SuppressWarnings("all")
+    private static class ApplicationScopedLiteral extends AnnotationLiteral<ApplicationScoped> implements ApplicationScoped
+    {
+    }
+
+    @SuppressWarnings("all")
+    private static class ContainerTransactionLiteral extends AnnotationLiteral<ContainerTransaction>
+            implements ContainerTransaction
+    {
+    }
+}
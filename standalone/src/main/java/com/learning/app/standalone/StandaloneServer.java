@@ -0,0 +1,289 @@
+package com.learning.app.standalone;
+
+import com.learning.app.common.repository.SchemaMigrator;
+import com.learning.app.common.repository.SearchIndexBuilder;
+import com.learning.app.common.resource.EndpointExecutors;
+import com.learning.app.user.model.User;
+import com.learning.app.user.service.UserService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.undertow.Handlers;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.servlet.Servlets;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.DeploymentManager;
+import io.undertow.servlet.api.LoginConfig;
+import io.undertow.servlet.api.SecurityConstraint;
+import io.undertow.servlet.api.SecurityInfo;
+import io.undertow.servlet.api.WebResourceCollection;
+import org.jboss.resteasy.plugins.server.servlet.HttpServlet30Dispatcher;
+import org.jboss.resteasy.spi.ResteasyDeployment;
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.servlet.ServletException;
+import javax.sql.DataSource;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Runs the services of model and the resources of resource without an application server, from a single jar
+ * Undertow serves the resources with RESTEasy under /learning/api, with the basic authentication of web.xml
+ * Weld creates the beans, Hibernate uses a HikariCP pool and the schema is migrated before the first request
+ * The persistence unit, the slowest to start, is built in parallel with the beans
+ * The time from the start of the JVM to the first request served is logged, to follow the startup time
+ * Settings are system properties, see the PROPERTY_PREFIX constants, those starting with hibernate. are passed to
+ * the persistence unit
+ */
+
+public class StandaloneServer
+{
+    public static final String PROPERTY_PREFIX = "learning.app.standalone.";
+    public static final String HOST_PROPERTY = PROPERTY_PREFIX + "host";
+    public static final String PORT_PROPERTY = PROPERTY_PREFIX + "port";
+    public static final String JDBC_URL_PROPERTY = PROPERTY_PREFIX + "jdbcUrl";
+    public static final String JDBC_USER_PROPERTY = PROPERTY_PREFIX + "jdbcUser";
+    public static final String JDBC_PASSWORD_PROPERTY = PROPERTY_PREFIX + "jdbcPassword";
+    public static final String POOL_SIZE_PROPERTY = PROPERTY_PREFIX + "poolSize";
+    //off when the schema is created by Hibernate, the migrations are written for Postgres
+    public static final String MIGRATE_PROPERTY = PROPERTY_PREFIX + "migrate";
+
+    public static final String CONTEXT_PATH = "/learning";
+    private static final String API_PATH = "/api";
+    private static final String PERSISTENCE_UNIT = "standalonePersistenceUnit";
+    private static final String HIBERNATE_PROPERTY_PREFIX = "hibernate.";
+
+    private static final Logger logger = LoggerFactory.getLogger(StandaloneServer.class);
+
+    private HikariDataSource dataSource;
+    private CompletableFuture<EntityManagerFactory> entityManagerFactory;
+    private WeldContainer container;
+    private DeploymentManager deploymentManager;
+    private Undertow undertow;
+
+    private final AtomicBoolean firstRequestReceived = new AtomicBoolean();
+    private volatile long timeToFirstRequestMillis = -1;
+
+    public static void main(String[] args)
+    {
+        StandaloneServer server = new StandaloneServer();
+        server.start(System.getProperties());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+
+    public void start(Properties properties)
+    {
+        //time of each step of the startup, to see which one to make faster
+        Map<String, Long> stepMillis = new LinkedHashMap<>();
+        long startMillis = System.currentTimeMillis();
+        long stepStartMillis = startMillis;
+        try
+        {
+            dataSource = createDataSource(properties);
+            stepStartMillis = endStep(stepMillis, "pool", stepStartMillis);
+            //the persistence unit is built while the beans are created and the schema is migrated
+            Map<String, Object> persistenceProperties = getPersistenceProperties(properties);
+            entityManagerFactory = CompletableFuture.supplyAsync(
+                    () -> Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, persistenceProperties),
+                    command -> new Thread(command, "learning-persistence-unit").start());
+            container = createContainer(new Transactions(entityManagerFactory));
+            stepStartMillis = endStep(stepMillis, "beans", stepStartMillis);
+            if (Boolean.parseBoolean(properties.getProperty(MIGRATE_PROPERTY, "true")))
+            {
+                //the migrator runs when it is created, as it does at the startup of the server
+                container.select(SchemaMigrator.class).get();
+                stepStartMillis = endStep(stepMillis, "migrations", stepStartMillis);
+            }
+            entityManagerFactory.join();
+            //the search indexes requested by the migrations are built on another thread
+            container.select(SearchIndexBuilder.class).get();
+            stepStartMillis = endStep(stepMillis, "persistence unit", stepStartMillis);
+
+            String host = properties.getProperty(HOST_PROPERTY, "0.0.0.0");
+            int port = Integer.parseInt(properties.getProperty(PORT_PROPERTY, "8080"));
+            undertow = Undertow.builder()
+                    .addHttpListener(port, host)
+                    .setHandler(timeFirstRequest(Handlers.path().addPrefixPath(CONTEXT_PATH, deployResources())))
+                    .build();
+            undertow.start();
+            long startedMillis = endStep(stepMillis, "resources", stepStartMillis);
+
+            logger.info("Listening on http://{}:{}{}, started in {} ms {}, {} ms after the start of the JVM", host,
+                    port, CONTEXT_PATH, startedMillis - startMillis, stepMillis, startedMillis - getJvmStartMillis());
+        } catch (RuntimeException | ServletException e)
+        {
+            stop();
+            throw new IllegalStateException("The server could not be started", e);
+        }
+    }
+
+    public void stop()
+    {
+        if (undertow != null)
+        {
+            undertow.stop();
+            undertow = null;
+        }
+        if (deploymentManager != null)
+        {
+            try
+            {
+                deploymentManager.stop();
+            } catch (ServletException e)
+            {
+                logger.warn("Could not stop the resources", e);
+            }
+            deploymentManager.undeploy();
+            deploymentManager = null;
+        }
+        if (container != null)
+        {
+            container.shutdown();
+            container = null;
+        }
+        if (entityManagerFactory != null)
+        {
+            //a factory still being built is closed when it is ready
+            entityManagerFactory.whenComplete((factory, e) -> {
+                if (factory != null)
+                {
+                    factory.close();
+                }
+            });
+            entityManagerFactory = null;
+        }
+        if (dataSource != null)
+        {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    public <T> T getBean(Class<T> type)
+    {
+        return container.select(type).get();
+    }
+
+    //-1 until the first request is served
+    public long getTimeToFirstRequestMillis()
+    {
+        return timeToFirstRequestMillis;
+    }
+
+    private static long endStep(Map<String, Long> stepMillis, String step, long stepStartMillis)
+    {
+        long endMillis = System.currentTimeMillis();
+        stepMillis.put(step, endMillis - stepStartMillis);
+        return endMillis;
+    }
+
+    private HikariDataSource createDataSource(Properties properties)
+    {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("learning");
+        config.setJdbcUrl(properties.getProperty(JDBC_URL_PROPERTY, "jdbc:postgresql://localhost:5432/learning"));
+        config.setUsername(properties.getProperty(JDBC_USER_PROPERTY, "learning"));
+        config.setPassword(properties.getProperty(JDBC_PASSWORD_PROPERTY, ""));
+        config.setMaximumPoolSize(Integer.parseInt(properties.getProperty(POOL_SIZE_PROPERTY, "10")));
+        return new HikariDataSource(config);
+    }
+
+    private Map<String, Object> getPersistenceProperties(Properties properties)
+    {
+        Map<String, Object> persistenceProperties = new HashMap<>();
+        properties.stringPropertyNames().stream()
+                .filter(name -> name.startsWith(HIBERNATE_PROPERTY_PREFIX))
+                .forEach(name -> persistenceProperties.put(name, properties.getProperty(name)));
+        persistenceProperties.put("hibernate.connection.datasource", dataSource);
+        return persistenceProperties;
+    }
+
+    private WeldContainer createContainer(Transactions transactions)
+    {
+        ThreadFactory threadFactory = Executors.defaultThreadFactory();
+        Map<Class<?>, Object> resources = new HashMap<>();
+        resources.put(DataSource.class, dataSource);
+        resources.put(ManagedThreadFactory.class, (ManagedThreadFactory) threadFactory::newThread);
+        resources.put(TransactionSynchronizationRegistry.class, transactions.getSynchronizationRegistry());
+
+        List<Class<?>> beanClasses = BeanClasses.findApplicationClasses(User.class, EndpointExecutors.class,
+                StandaloneServer.class);
+        return new Weld()
+                .disableDiscovery()
+                .beanClasses(beanClasses.toArray(new Class<?>[beanClasses.size()]))
+                .addExtension(new StandaloneExtension(transactions, resources))
+                .initialize();
+    }
+
+    private HttpHandler deployResources() throws ServletException
+    {
+        ResteasyDeployment resteasyDeployment = new ResteasyDeployment();
+        resteasyDeployment.setApplication(new StandaloneApplication(container.getBeanManager()));
+        resteasyDeployment.setSecurityEnabled(true);
+        resteasyDeployment.start();
+
+        //the security constraints of web.xml
+        DeploymentInfo deploymentInfo = Servlets.deployment()
+                .setClassLoader(StandaloneServer.class.getClassLoader())
+                .setContextPath(CONTEXT_PATH)
+                .setDeploymentName("learning")
+                .addServletContextAttribute(ResteasyDeployment.class.getName(), resteasyDeployment)
+                .addServlet(Servlets.servlet("resteasy", HttpServlet30Dispatcher.class)
+                        .setAsyncSupported(true)
+                        .setLoadOnStartup(1)
+                        .addInitParam("resteasy.servlet.mapping.prefix", API_PATH)
+                        .addMapping(API_PATH + "/*"))
+                .setIdentityManager(new UserIdentityManager(getBean(UserService.class)))
+                .setLoginConfig(new LoginConfig("BASIC", "learning"))
+                .addSecurityRoles(User.Role.STANDARD.name(), User.Role.ADMIN.name())
+                .addSecurityConstraint(new SecurityConstraint()
+                        .addWebResourceCollection(new WebResourceCollection()
+                                .addUrlPattern(API_PATH + "/users/*")
+                                .addHttpMethod("POST"))
+                        .setEmptyRoleSemantic(SecurityInfo.EmptyRoleSemantic.PERMIT))
+                .addSecurityConstraint(new SecurityConstraint()
+                        .addWebResourceCollection(new WebResourceCollection()
+                                .addUrlPattern(API_PATH + "/*")
+                                .addHttpMethods("GET", "POST", "PUT", "DELETE"))
+                        .addRolesAllowed(User.Role.STANDARD.name(), User.Role.ADMIN.name()));
+
+        deploymentManager = Servlets.defaultContainer().addDeployment(deploymentInfo);
+        deploymentManager.deploy();
+        return deploymentManager.start();
+    }
+
+    private HttpHandler timeFirstRequest(HttpHandler next)
+    {
+        return exchange -> {
+            if (firstRequestReceived.compareAndSet(false, true))
+            {
+                exchange.addExchangeCompleteListener((completedExchange, nextListener) -> {
+                    timeToFirstRequestMillis = System.currentTimeMillis() - getJvmStartMillis();
+                    logger.info("First request served {} ms after the start of the JVM", timeToFirstRequestMillis);
+                    nextListener.proceed();
+                });
+            }
+            next.handleRequest(exchange);
+        };
+    }
+
+    private static long getJvmStartMillis()
+    {
+        return ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,214 @@
+package com.learning.app.standalone;
+
+import javax.ejb.ApplicationException;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.TransactionRequiredException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Resource-local transactions in place of the container-managed ones of the EJBs
+ * The outermost call of an EJB opens an entity manager and a transaction for its thread, the calls it makes share them
+ * The entity manager injected in the repositories is a proxy to the one of the current thread
+ * As with EJBs, runtime exceptions roll the transaction back unless they are application exceptions without rollback,
+ * but they are thrown as they are instead of being wrapped in an EJBException
+ * The synchronization registry of the transactions runs the synchronizations registered by a transaction around its
+ * commit or rollback
+ */
+
+public class Transactions
+{
+    //built while the beans are created, it is only waited for by the first transaction
+    private final CompletableFuture<EntityManagerFactory> entityManagerFactory;
+    private final ThreadLocal<EntityManager> entityManagers = new ThreadLocal<>();
+    private final ThreadLocal<List<Synchronization>> synchronizations = new ThreadLocal<>();
+    private final EntityManager entityManagerProxy;
+    private final TransactionSynchronizationRegistry synchronizationRegistry = new SynchronizationRegistry();
+
+    public Transactions(CompletableFuture<EntityManagerFactory> entityManagerFactory)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityManagerProxy = (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[] {EntityManager.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class)
+                    {
+                        return invokeObjectMethod(proxy, method.getName(), args);
+                    }
+                    try
+                    {
+                        return method.invoke(getCurrentEntityManager(), args);
+                    } catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    public EntityManager getEntityManagerProxy()
+    {
+        return entityManagerProxy;
+    }
+
+    public TransactionSynchronizationRegistry getSynchronizationRegistry()
+    {
+        return synchronizationRegistry;
+    }
+
+    //Joins the transaction of the thread, or runs the work in a new one
+    public <T> T execute(Callable<T> work) throws Exception
+    {
+        if (entityManagers.get() != null)
+        {
+            return work.call();
+        }
+
+        EntityManager entityManager = entityManagerFactory.join().createEntityManager();
+        entityManagers.set(entityManager);
+        synchronizations.set(new ArrayList<>());
+        EntityTransaction transaction = entityManager.getTransaction();
+        boolean committed = false;
+        try
+        {
+            transaction.begin();
+            T result = work.call();
+            commit(transaction);
+            committed = true;
+            return result;
+        } catch (Exception e)
+        {
+            if (transaction.isActive())
+            {
+                if (isRollbackException(e))
+                {
+                    transaction.rollback();
+                } else
+                {
+                    commit(transaction);
+                    committed = true;
+                }
+            }
+            throw e;
+        } finally
+        {
+            //errors leave the transaction active
+            if (transaction.isActive())
+            {
+                transaction.rollback();
+            }
+            List<Synchronization> completedSynchronizations = synchronizations.get();
+            entityManagers.remove();
+            synchronizations.remove();
+            entityManager.close();
+            int status = committed ? Status.STATUS_COMMITTED : Status.STATUS_ROLLEDBACK;
+            completedSynchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        }
+    }
+
+    private void commit(EntityTransaction transaction)
+    {
+        //a synchronization may register another one
+        List<Synchronization> registered = synchronizations.get();
+        for (int i = 0; i < registered.size(); i++)
+        {
+            registered.get(i).beforeCompletion();
+        }
+        transaction.commit();
+    }
+
+    private EntityManager getCurrentEntityManager()
+    {
+        EntityManager entityManager = entityManagers.get();
+        if (entityManager == null)
+        {
+            throw new TransactionRequiredException("The entity manager is only available in the calls of an EJB");
+        }
+        return entityManager;
+    }
+
+    //the proxy can be logged or compared outside of a transaction
+    private static Object invokeObjectMethod(Object proxy, String name, Object[] args)
+    {
+        switch (name)
+        {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "EntityManager of the current transaction";
+        }
+    }
+
+    //Only the synchronizations and the key of the transaction of the thread, the rest is not used by the application
+    private class SynchronizationRegistry implements TransactionSynchronizationRegistry
+    {
+        @Override
+        public Object getTransactionKey()
+        {
+            return entityManagers.get();
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization synchronization)
+        {
+            List<Synchronization> registered = synchronizations.get();
+            if (registered == null)
+            {
+                throw new IllegalStateException("No transaction is active");
+            }
+            registered.add(synchronization);
+        }
+
+        @Override
+        public int getTransactionStatus()
+        {
+            return entityManagers.get() == null ? Status.STATUS_NO_TRANSACTION : Status.STATUS_ACTIVE;
+        }
+
+        @Override
+        public void putResource(Object key, Object value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object getResource(Object key)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setRollbackOnly()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean getRollbackOnly()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    static boolean isRollbackException(Exception exception)
+    {
+        for (Class<?> type = exception.getClass(); type != null; type = type.getSuperclass())
+        {
+            ApplicationException applicationException = type.getAnnotation(ApplicationException.class);
+            if (applicationException != null && (type == exception.getClass() || applicationException.inherited()))
+            {
+                return applicationException.rollback();
+            }
+        }
+        return exception instanceof RuntimeException;
+    }
+}
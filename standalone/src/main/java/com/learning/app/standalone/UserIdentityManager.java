@@ -0,0 +1,89 @@
+package com.learning.app.standalone;
+
+import com.learning.app.user.exception.UserNotFoundException;
+import com.learning.app.user.model.User;
+import com.learning.app.user.service.UserService;
+import io.undertow.security.idm.Account;
+import io.undertow.security.idm.Credential;
+import io.undertow.security.idm.IdentityManager;
+import io.undertow.security.idm.PasswordCredential;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Users of the basic authentication, in place of the "learning" security domain of the application server
+ * The name of a user is the email, the roles are those of the user
+ */
+
+public class UserIdentityManager implements IdentityManager
+{
+    private final UserService userService;
+
+    public UserIdentityManager(UserService userService)
+    {
+        this.userService = userService;
+    }
+
+    @Override
+    public Account verify(Account account)
+    {
+        return account;
+    }
+
+    @Override
+    public Account verify(String id, Credential credential)
+    {
+        if (!(credential instanceof PasswordCredential))
+        {
+            return null;
+        }
+
+        try
+        {
+            User user = userService.findByEmailAndPassword(id,
+                    new String(((PasswordCredential) credential).getPassword()));
+            return new UserAccount(user);
+        } catch (UserNotFoundException e)
+        {
+            return null;
+        }
+    }
+
+    @Override
+    public Account verify(Credential credential)
+    {
+        return null;
+    }
+
+    private static class UserAccount implements Account
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String email;
+        private final Set<String> roles = new HashSet<>();
+
+        UserAccount(User user)
+        {
+            email = user.getEmail();
+            if (user.getRoles() != null)
+            {
+                user.getRoles().forEach(role -> roles.add(role.name()));
+            }
+        }
+
+        @Override
+        public Principal getPrincipal()
+        {
+            return () -> email;
+        }
+
+        @Override
+        public Set<String> getRoles()
+        {
+            return Collections.unmodifiableSet(roles);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.learning.app.standalone;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+/*
+ * The validator the application server makes available to CDI
+ */
+
+@ApplicationScoped
+public class ValidatorProducer
+{
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Produces
+    public Validator getValidator()
+    {
+        return validator;
+    }
+}
@@ -0,0 +1,154 @@
+package com.learning.app.standalone;
+
+import com.learning.app.user.model.User;
+import com.learning.app.user.service.UserService;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Properties;
+
+import static com.learning.app.commontests.data.UserData.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class StandaloneServerTest
+{
+    private static final String ADMIN = "Admin@test.com";
+    private static final String STANDARD_USER = "Jan@test.com";
+    private static final String PASSWORD = "123456";
+
+    private static StandaloneServer server;
+    private static String apiUrl;
+
+    @BeforeClass
+    public static void startServer() throws IOException
+    {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            port = socket.getLocalPort();
+        }
+
+        //the migrations are written for Postgres, the test schema is created by Hibernate
+        Properties properties = new Properties();
+        properties.setProperty(StandaloneServer.HOST_PROPERTY, "localhost");
+        properties.setProperty(StandaloneServer.PORT_PROPERTY, String.valueOf(port));
+        properties.setProperty(StandaloneServer.JDBC_URL_PROPERTY, "jdbc:hsqldb:mem:standalonedb");
+        properties.setProperty(StandaloneServer.JDBC_USER_PROPERTY, "sa");
+        properties.setProperty(StandaloneServer.MIGRATE_PROPERTY, "false");
+        properties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+
+        server = new StandaloneServer();
+        server.start(properties);
+        apiUrl = "http://localhost:" + port + StandaloneServer.CONTEXT_PATH + "/api";
+
+        UserService userService = server.getBean(UserService.class);
+        userService.add(userAdmin());
+        User standardUser = jan();
+        standardUser.setRoles(Collections.singletonList(User.Role.STANDARD));
+        userService.add(standardUser);
+    }
+
+    @AfterClass
+    public static void stopServer()
+    {
+        server.stop();
+    }
+
+    @Test
+    public void findCategoriesWithoutCredentials_ShouldBeUnauthorized() throws IOException
+    {
+        HttpURLConnection connection = openConnection("GET", "/categories", null);
+
+        assertThat(connection.getResponseCode(), is(equalTo(HttpURLConnection.HTTP_UNAUTHORIZED)));
+    }
+
+    @Test
+    public void addCategoryAsAdmin_ShouldBeFoundByOtherUsers() throws IOException
+    {
+        HttpURLConnection addConnection = openConnection("POST", "/categories", ADMIN);
+        writeBody(addConnection, "{\"name\": \"Chess\"}");
+
+        assertThat(addConnection.getResponseCode(), is(equalTo(HttpURLConnection.HTTP_CREATED)));
+
+        HttpURLConnection findConnection = openConnection("GET", "/categories", STANDARD_USER);
+
+        assertThat(findConnection.getResponseCode(), is(equalTo(HttpURLConnection.HTTP_OK)));
+        assertThat(readBody(findConnection), containsString("\"Chess\""));
+    }
+
+    @Test
+    public void findCacheStatisticsAsStandardUser_ShouldBeForbidden() throws IOException
+    {
+        HttpURLConnection connection = openConnection("GET", "/cache/statistics", STANDARD_USER);
+
+        assertThat(connection.getResponseCode(), is(equalTo(HttpURLConnection.HTTP_FORBIDDEN)));
+    }
+
+    @Test
+    public void addUserWithoutCredentials_ShouldCreateUser() throws IOException
+    {
+        HttpURLConnection connection = openConnection("POST", "/users", null);
+        writeBody(connection, "{\"name\": \"Lena\", \"email\": \"Lena@test.com\", \"password\": \"123456\"}");
+
+        assertThat(connection.getResponseCode(), is(equalTo(HttpURLConnection.HTTP_CREATED)));
+    }
+
+    @Test
+    public void firstRequest_ShouldBeTimedFromStartOfJvm() throws IOException
+    {
+        openConnection("GET", "/categories", STANDARD_USER).getResponseCode();
+
+        assertThat(server.getTimeToFirstRequestMillis() > 0, is(true));
+    }
+
+    private HttpURLConnection openConnection(String method, String path, String email) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(apiUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        if (email != null)
+        {
+            String credentials = email + ":" + PASSWORD;
+            connection.setRequestProperty("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        return connection;
+    }
+
+    private void writeBody(HttpURLConnection connection, String body) throws IOException
+    {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream outputStream = connection.getOutputStream())
+        {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String readBody(HttpURLConnection connection) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream inputStream = connection.getInputStream())
+        {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1)
+            {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+}